@@ -56,6 +56,21 @@ import com.google.common.collect.Maps;
  */
 public class CmsADEConfigCacheState {
 
+    /**
+     * A node in the tree of sitemap configurations, which has one level for each path segment.<p>
+     */
+    private static class ConfigNode {
+
+        /** The child nodes by path segment. */
+        Map<String, ConfigNode> m_children = new HashMap<String, ConfigNode>();
+
+        /** The wrapped configuration, computed when it is first needed. */
+        volatile CmsADEConfigData m_config;
+
+        /** The sitemap configuration with this node's path as base path, or null. */
+        CmsADEConfigDataInternal m_data;
+    }
+
     /** The logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsADEConfigCacheState.class);
 
@@ -74,6 +89,9 @@ public class CmsADEConfigCacheState {
     /** The merged configuration from all the modules. */
     private CmsADEConfigDataInternal m_moduleConfiguration;
 
+    /** The wrapped module configuration, computed when it is first needed. */
+    private volatile CmsADEConfigData m_moduleConfigurationWrapper;
+
     /** The list of module configurations. */
     private List<CmsADEConfigDataInternal> m_moduleConfigurations;
 
@@ -83,6 +101,9 @@ public class CmsADEConfigCacheState {
     /** The configurations from the sitemap / VFS. */
     private Map<String, CmsADEConfigDataInternal> m_siteConfigurationsByPath = new HashMap<String, CmsADEConfigDataInternal>();
 
+    /** The root node of the tree of sitemap configurations. */
+    private ConfigNode m_siteConfigurationTree = new ConfigNode();
+
     /**
      * Creates a new configuration cache state.<p>
      *
@@ -105,6 +126,7 @@ public class CmsADEConfigCacheState {
             if (data.getBasePath() != null) {
                 // In theory, the base path should never be null
                 m_siteConfigurationsByPath.put(data.getBasePath(), data);
+                addToTree(data);
             } else {
                 LOG.info("Empty base path for sitemap configuration: " + data.getResource().getRootPath());
             }
@@ -279,6 +301,16 @@ public class CmsADEConfigCacheState {
         return m_siteConfigurationsByPath.keySet();
     }
 
+    /**
+     * Returns the sitemap configurations by structure id.<p>
+     *
+     * @return the sitemap configurations by structure id
+     */
+    public Map<CmsUUID, CmsADEConfigDataInternal> getSiteConfigurations() {
+
+        return Collections.unmodifiableMap(m_siteConfigurations);
+    }
+
     /**
      * Looks up the sitemap configuration for a root path.<p>
      * @param rootPath the root path for which to look up the configuration
@@ -287,12 +319,15 @@ public class CmsADEConfigCacheState {
      */
     public CmsADEConfigData lookupConfiguration(String rootPath) {
 
-        CmsADEConfigDataInternal internalSiteConfig = getSiteConfigData(rootPath);
-        CmsADEConfigData result;
-        if (internalSiteConfig == null) {
-            result = wrap(m_moduleConfiguration);
-        } else {
-            result = wrap(internalSiteConfig);
+        ConfigNode node = rootPath == null ? null : findNode(rootPath, null);
+        if (node == null) {
+            return getModuleConfiguration();
+        }
+        // the configuration data is immutable, so the wrapper only needs to be created once for this state
+        CmsADEConfigData result = node.m_config;
+        if (result == null) {
+            result = wrap(node.m_data);
+            node.m_config = result;
         }
         return result;
     }
@@ -306,7 +341,7 @@ public class CmsADEConfigCacheState {
 
         List<CmsDetailPageInfo> result = new ArrayList<CmsDetailPageInfo>();
         for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
-            result.addAll(wrap(configData).getAllDetailPages(true));
+            result.addAll(lookupConfiguration(configData.getBasePath()).getAllDetailPages(true));
         }
         return result;
     }
@@ -332,7 +367,8 @@ public class CmsADEConfigCacheState {
 
         List<String> result = new ArrayList<String>();
         for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
-            for (CmsDetailPageInfo pageInfo : wrap(configData).getDetailPagesForType(type)) {
+            for (CmsDetailPageInfo pageInfo : lookupConfiguration(
+                configData.getBasePath()).getDetailPagesForType(type)) {
                 result.add(pageInfo.getUri());
             }
         }
@@ -345,7 +381,12 @@ public class CmsADEConfigCacheState {
      */
     protected CmsADEConfigData getModuleConfiguration() {
 
-        return wrap(m_moduleConfiguration);
+        CmsADEConfigData result = m_moduleConfigurationWrapper;
+        if (result == null) {
+            result = wrap(m_moduleConfiguration);
+            m_moduleConfigurationWrapper = result;
+        }
+        return result;
     }
 
     /**
@@ -365,13 +406,8 @@ public class CmsADEConfigCacheState {
         if (path == null) {
             return null;
         }
-        List<String> prefixes = getSiteConfigPaths(path);
-        if (prefixes.size() == 0) {
-            return null;
-        }
-        // for any two prefixes of a string, one is a prefix of the other. so the alphabetically last
-        // prefix is the longest prefix of all.
-        return m_siteConfigurationsByPath.get(prefixes.get(prefixes.size() - 1));
+        ConfigNode node = findNode(path, null);
+        return node == null ? null : node.m_data;
     }
 
     /**
@@ -383,22 +419,12 @@ public class CmsADEConfigCacheState {
      */
     protected List<String> getSiteConfigPaths(String path) {
 
-        String normalizedPath = CmsStringUtil.joinPaths("/", path, "/");
-        List<String> prefixes = new ArrayList<String>();
-
-        List<String> parents = new ArrayList<String>();
-        String currentPath = normalizedPath;
-        while (currentPath != null) {
-            parents.add(currentPath);
-            currentPath = CmsResource.getParentFolder(currentPath);
+        List<CmsADEConfigDataInternal> configs = new ArrayList<CmsADEConfigDataInternal>();
+        findNode(path, configs);
+        List<String> prefixes = new ArrayList<String>(configs.size());
+        for (CmsADEConfigDataInternal config : configs) {
+            prefixes.add(config.getBasePath());
         }
-
-        for (String parent : parents) {
-            if (m_siteConfigurationsByPath.containsKey(parent)) {
-                prefixes.add(parent);
-            }
-        }
-        Collections.sort(prefixes);
         return prefixes;
     }
 
@@ -429,7 +455,8 @@ public class CmsADEConfigCacheState {
         List<CmsDetailPageInfo> allDetailPages = new ArrayList<CmsDetailPageInfo>();
         // First collect all detail page infos
         for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
-            List<CmsDetailPageInfo> detailPageInfos = wrap(configData).getAllDetailPages();
+            List<CmsDetailPageInfo> detailPageInfos = lookupConfiguration(
+                configData.getBasePath()).getAllDetailPages();
             allDetailPages.addAll(detailPageInfos);
         }
         // First pass: check if the structure id or path directly match one of the configured detail pages.
@@ -480,6 +507,66 @@ public class CmsADEConfigCacheState {
         return result;
     }
 
+    /**
+     * Adds a sitemap configuration to the tree of sitemap configurations.<p>
+     *
+     * @param data the sitemap configuration
+     */
+    private void addToTree(CmsADEConfigDataInternal data) {
+
+        ConfigNode node = m_siteConfigurationTree;
+        for (String segment : CmsStringUtil.splitAsList(data.getBasePath(), '/')) {
+            if (segment.length() > 0) {
+                ConfigNode child = node.m_children.get(segment);
+                if (child == null) {
+                    child = new ConfigNode();
+                    node.m_children.put(segment, child);
+                }
+                node = child;
+            }
+        }
+        node.m_data = data;
+    }
+
+    /**
+     * Finds the node of the sitemap configuration with the longest base path which is a parent of the given path.<p>
+     *
+     * This only walks down the tree of sitemap configurations along the segments of the path.<p>
+     *
+     * @param path the root path
+     * @param configs if not null, the sitemap configurations above the path are added to this list, starting with the top level configuration
+     *
+     * @return the node of the closest sitemap configuration, or null if there is none
+     */
+    private ConfigNode findNode(String path, List<CmsADEConfigDataInternal> configs) {
+
+        ConfigNode node = m_siteConfigurationTree;
+        ConfigNode result = null;
+        int start = 0;
+        int length = path.length();
+        while (node != null) {
+            if (node.m_data != null) {
+                result = node;
+                if (configs != null) {
+                    configs.add(node.m_data);
+                }
+            }
+            while ((start < length) && (path.charAt(start) == '/')) {
+                start++;
+            }
+            if ((start >= length) || node.m_children.isEmpty()) {
+                break;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.m_children.get(path.substring(start, end));
+            start = end;
+        }
+        return result;
+    }
+
     /**
      * Wraps the internal config data into a bean which manages the lookup of inherited configurations.<p>
      *
@@ -493,9 +580,9 @@ public class CmsADEConfigCacheState {
         List<CmsADEConfigDataInternal> configList = Lists.newArrayList();
         configList.add(m_moduleConfiguration);
         if (path != null) {
-            List<String> siteConfigPaths = getSiteConfigPaths(path);
-            for (String siteConfigPath : siteConfigPaths) {
-                CmsADEConfigDataInternal currentConfig = m_siteConfigurationsByPath.get(siteConfigPath);
+            List<CmsADEConfigDataInternal> siteConfigs = new ArrayList<CmsADEConfigDataInternal>();
+            findNode(path, siteConfigs);
+            for (CmsADEConfigDataInternal currentConfig : siteConfigs) {
                 CmsResource masterConfigResource = currentConfig.getMasterConfig();
                 if (currentConfig.getMasterConfig() != null) {
                     CmsADEConfigDataInternal masterConfig = m_siteConfigurations.get(
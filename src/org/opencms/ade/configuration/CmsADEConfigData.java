@@ -58,6 +58,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
 import org.apache.commons.logging.Log;
@@ -169,6 +170,31 @@ public class CmsADEConfigData {
         }
     }
 
+    /**
+     * The external formatters of a configuration, computed for a given formatter cache state.<p>
+     */
+    private static class ExternalFormatters {
+
+        /** The active external formatters. */
+        volatile Map<CmsUUID, I_CmsFormatterBean> m_activeFormatters;
+
+        /** The external formatters by resource type. */
+        Map<String, List<I_CmsFormatterBean>> m_formattersByType = new ConcurrentHashMap<String, List<I_CmsFormatterBean>>();
+
+        /** The formatter cache state from which the formatters were computed. */
+        CmsFormatterConfigurationCacheState m_state;
+
+        /**
+         * Creates a new instance.<p>
+         *
+         * @param state the formatter cache state
+         */
+        ExternalFormatters(CmsFormatterConfigurationCacheState state) {
+
+            m_state = state;
+        }
+    }
+
     /** The log instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsADEConfigData.class);
 
@@ -181,6 +207,18 @@ public class CmsADEConfigData {
     /** The configuration sequence (contains the list of all sitemap configuration data beans to be used for inheritance). */
     private CmsADEConfigurationSequence m_configSequence;
 
+    /** The cached external formatters, computed for the last used formatter cache state. */
+    private volatile ExternalFormatters m_externalFormatters;
+
+    /** The cached formatter change sets of this and all parent configurations. */
+    private volatile List<CmsFormatterChangeSet> m_formatterChangeSets;
+
+    /** The cached parent configuration. */
+    private volatile Optional<CmsADEConfigData> m_parentConfig;
+
+    /** The cached property configuration. */
+    private volatile List<CmsPropertyConfig> m_propertyConfiguration;
+
     /**
      * Creates a new configuration data object, based on an internal configuration data bean and a
      * configuration cache state.<p>
@@ -291,8 +329,15 @@ public class CmsADEConfigData {
     public Map<CmsUUID, I_CmsFormatterBean> getActiveFormatters() {
 
         CmsFormatterConfigurationCacheState cacheState = getCachedFormatters();
+        ExternalFormatters cached = getExternalFormatters(cacheState);
+        if ((cached != null) && (cached.m_activeFormatters != null)) {
+            return Maps.newHashMap(cached.m_activeFormatters);
+        }
         Map<CmsUUID, I_CmsFormatterBean> result = Maps.newHashMap(cacheState.getAutoEnabledFormatters());
         applyAllFormatterChanges(result, cacheState);
+        if (cached != null) {
+            cached.m_activeFormatters = Collections.unmodifiableMap(Maps.newHashMap(result));
+        }
         return result;
     }
 
@@ -493,6 +538,10 @@ public class CmsADEConfigData {
      */
     public List<CmsFormatterChangeSet> getFormatterChangeSets() {
 
+        List<CmsFormatterChangeSet> cached = m_formatterChangeSets;
+        if (cached != null) {
+            return cached;
+        }
         CmsADEConfigData currentConfig = this;
         List<CmsFormatterChangeSet> result = Lists.newArrayList();
         while (currentConfig != null) {
@@ -503,6 +552,10 @@ public class CmsADEConfigData {
             currentConfig = currentConfig.parent();
         }
         Collections.reverse(result);
+        if (isCacheable()) {
+            result = Collections.unmodifiableList(result);
+            m_formatterChangeSets = result;
+        }
         return result;
     }
 
@@ -636,6 +689,10 @@ public class CmsADEConfigData {
      */
     public List<CmsPropertyConfig> getPropertyConfiguration() {
 
+        List<CmsPropertyConfig> cached = m_propertyConfiguration;
+        if (cached != null) {
+            return new ArrayList<CmsPropertyConfig>(cached);
+        }
         CmsADEConfigData parentData = parent();
         List<CmsPropertyConfig> parentProperties;
         if ((parentData != null) && !m_data.isDiscardInheritedProperties()) {
@@ -647,6 +704,9 @@ public class CmsADEConfigData {
             parentProperties,
             m_data.getOwnPropertyConfigurations(),
             false);
+        if (isCacheable()) {
+            m_propertyConfiguration = new ArrayList<CmsPropertyConfig>(result);
+        }
         return result;
     }
 
@@ -869,13 +929,20 @@ public class CmsADEConfigData {
      */
     public CmsADEConfigData parent() {
 
+        Optional<CmsADEConfigData> cached = m_parentConfig;
+        if (cached != null) {
+            return cached.orNull();
+        }
         Optional<CmsADEConfigurationSequence> parentPath = m_configSequence.getParent();
+        CmsADEConfigData result = null;
         if (parentPath.isPresent()) {
             CmsADEConfigDataInternal internalData = parentPath.get().getConfig();
-            return new CmsADEConfigData(internalData, m_cache, parentPath.get());
-        } else {
-            return null;
+            result = new CmsADEConfigData(internalData, m_cache, parentPath.get());
+        }
+        if (isCacheable()) {
+            m_parentConfig = Optional.fromNullable(result);
         }
+        return result;
     }
 
     /**
@@ -1000,16 +1067,25 @@ public class CmsADEConfigData {
             }
 
         }
-        Map<CmsUUID, I_CmsFormatterBean> externalFormattersById = Maps.newHashMap();
-        for (I_CmsFormatterBean formatter : formatterCacheState.getFormattersForType(typeName, true)) {
-            externalFormattersById.put(new CmsUUID(formatter.getId()), formatter);
-        }
-        applyAllFormatterChanges(externalFormattersById, formatterCacheState);
-        for (I_CmsFormatterBean formatter : externalFormattersById.values()) {
-            if (formatter.getResourceTypeNames().contains(typeName)) {
-                formatters.add(formatter);
+        ExternalFormatters cached = getExternalFormatters(formatterCacheState);
+        List<I_CmsFormatterBean> externalFormatters = cached != null ? cached.m_formattersByType.get(typeName) : null;
+        if (externalFormatters == null) {
+            Map<CmsUUID, I_CmsFormatterBean> externalFormattersById = Maps.newHashMap();
+            for (I_CmsFormatterBean formatter : formatterCacheState.getFormattersForType(typeName, true)) {
+                externalFormattersById.put(new CmsUUID(formatter.getId()), formatter);
+            }
+            applyAllFormatterChanges(externalFormattersById, formatterCacheState);
+            externalFormatters = new ArrayList<I_CmsFormatterBean>();
+            for (I_CmsFormatterBean formatter : externalFormattersById.values()) {
+                if (formatter.getResourceTypeNames().contains(typeName)) {
+                    externalFormatters.add(formatter);
+                }
+            }
+            if (cached != null) {
+                cached.m_formattersByType.put(typeName, Collections.unmodifiableList(externalFormatters));
             }
         }
+        formatters.addAll(externalFormatters);
         return CmsFormatterConfiguration.create(cms, formatters);
     }
 
@@ -1145,4 +1221,37 @@ public class CmsADEConfigData {
         }
         return result;
     }
+
+    /**
+     * Returns the cached external formatters for the given formatter cache state, or null if this configuration
+     * does not cache its inherited data.<p>
+     *
+     * @param state the formatter cache state
+     *
+     * @return the cached external formatters for the state, or null
+     */
+    private ExternalFormatters getExternalFormatters(CmsFormatterConfigurationCacheState state) {
+
+        if (!isCacheable()) {
+            return null;
+        }
+        ExternalFormatters result = m_externalFormatters;
+        if ((result == null) || (result.m_state != state)) {
+            result = new ExternalFormatters(state);
+            m_externalFormatters = result;
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether data inherited from the parent configurations can be cached in this object.<p>
+     *
+     * This is the case for the configurations belonging to a configuration cache state, since these never change.<p>
+     *
+     * @return true if inherited data can be cached
+     */
+    private boolean isCacheable() {
+
+        return m_cache != null;
+    }
 }
@@ -29,8 +29,11 @@
 package org.opencms.ade.configuration;
 
 import org.opencms.ade.configuration.formatters.CmsFormatterConfigurationCache;
+import org.opencms.cache.CmsCacheSnapshotManager;
+import org.opencms.cache.I_CmsSnapshotCache;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
@@ -43,9 +46,14 @@ import org.opencms.main.OpenCms;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 import org.opencms.util.CmsWaitHandle;
+import org.opencms.xml.content.CmsXmlContent;
+import org.opencms.xml.content.CmsXmlContentFactory;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -70,8 +78,26 @@ import com.google.common.collect.Maps;
  * and a single instance which represents the merged configuration from all the modules. When a sitemap configuration
  * file is updated, only the single instance for that configuration file is updated, whereas if a module configuration file
  * is changed, the configuration of all modules will be read again.<p>
+ *
+ * The online cache can be restored from a cache snapshot, see {@link CmsCacheSnapshotManager}. The snapshot contains
+ * the sitemap configuration files, so they only have to be parsed again instead of being read from the database.<p>
  */
-class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
+class CmsConfigurationCache implements I_CmsGlobalConfigurationCache, I_CmsSnapshotCache {
+
+    /**
+     * The state of the cache stored in a cache snapshot.<p>
+     */
+    private static class CmsConfigurationSnapshot implements Serializable {
+
+        /** Serialization id. */
+        private static final long serialVersionUID = 6022815930714306184L;
+
+        /** The sitemap configuration files by structure id. */
+        HashMap<CmsUUID, CmsFile> m_files;
+
+        /** The ids which were still waiting for an update. */
+        HashSet<CmsUUID> m_pendingIds;
+    }
 
     /** ID which is used to signal that the complete configuration should be reloaded. */
     public static final CmsUUID ID_UPDATE_ALL = CmsUUID.getConstantUUID("all");
@@ -88,6 +114,9 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
     /** The master sitemap configuration resource type name. */
     public static final String SITEMAP_MASTER_CONFIG = "sitemap_master_config";
 
+    /** The key of the online cache in the cache snapshot. */
+    public static final String SNAPSHOT_KEY = "adeconfig";
+
     /** The interval at which the tasks which checks for configuration updates runs, in milliseconds. */
     public static final int TASK_DELAY_MILLIS = 3 * 1000;
 
@@ -216,6 +245,41 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         return res.getRootPath();
     }
 
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotKey()
+     */
+    public String getSnapshotKey() {
+
+        return SNAPSHOT_KEY;
+    }
+
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotState()
+     */
+    public Serializable getSnapshotState() {
+
+        CmsADEConfigCacheState state = m_state;
+        if (state == null) {
+            return null;
+        }
+        CmsConfigurationSnapshot snapshot = new CmsConfigurationSnapshot();
+        snapshot.m_pendingIds = new HashSet<CmsUUID>(m_updateSet.getAll());
+        snapshot.m_files = new HashMap<CmsUUID, CmsFile>();
+        for (CmsUUID structureId : state.getSiteConfigurations().keySet()) {
+            try {
+                snapshot.m_files.put(structureId, m_cms.readFile(m_cms.readResource(structureId)));
+            } catch (CmsVfsResourceNotFoundException e) {
+                // deleted in the meantime, the configuration must not be restored
+                LOG.info("Configuration file with ID " + structureId + " was not found.");
+            } catch (CmsException e) {
+                // the snapshot would be incomplete, so the configuration is read completely on startup
+                LOG.warn(e.getLocalizedMessage(), e);
+                return null;
+            }
+        }
+        return snapshot;
+    }
+
     /**
      * Gets the currently cached configuration state.<p>
      *
@@ -241,12 +305,16 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
      */
     public void initialize() {
 
+        boolean firstInitialization = m_taskFuture == null;
         if (m_taskFuture != null) {
             // in case initialize has been called before on this object, cancel the existing task
             m_taskFuture.cancel(false);
             m_taskFuture = null;
         }
-        m_state = readCompleteConfiguration();
+        CmsCacheSnapshotManager snapshotManager = OpenCms.getCacheSnapshotManager();
+        if (!firstInitialization || (snapshotManager == null) || !isOnline() || !snapshotManager.register(this)) {
+            m_state = readCompleteConfiguration();
+        }
         // In debug mode, use a shorter delay to speed up the test cases
         long delay = DEBUG ? 500 : TASK_DELAY_MILLIS;
         m_taskFuture = OpenCms.getExecutor().scheduleWithFixedDelay(new Runnable() {
@@ -376,6 +444,52 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         remove(res.getStructureId(), res.getRootPath(), res.getTypeId());
     }
 
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#restoreSnapshotState(java.io.Serializable, java.util.List)
+     */
+    public void restoreSnapshotState(Serializable state, List<CmsPublishedResource> publishedResources) {
+
+        CmsConfigurationSnapshot snapshot = (CmsConfigurationSnapshot)state;
+        Map<CmsUUID, CmsADEConfigDataInternal> siteConfigurations = Maps.newHashMap();
+        for (Map.Entry<CmsUUID, CmsFile> entry : snapshot.m_files.entrySet()) {
+            CmsFile configFile = entry.getValue();
+            try {
+                CmsConfigurationReader reader = new CmsConfigurationReader(m_cms);
+                CmsXmlContent content = CmsXmlContentFactory.unmarshal(m_cms, configFile);
+                siteConfigurations.put(
+                    entry.getKey(),
+                    reader.parseConfiguration(getBasePath(configFile.getRootPath()), content));
+            } catch (Exception e) {
+                LOG.error(
+                    "Error processing sitemap configuration "
+                        + configFile.getRootPath()
+                        + ": "
+                        + e.getLocalizedMessage(),
+                    e);
+                // try again with the file from the database
+                m_updateSet.add(entry.getKey());
+            }
+        }
+        // module configurations and element views are only a few files, so they are read as usual
+        m_state = new CmsADEConfigCacheState(
+            m_cms,
+            siteConfigurations,
+            loadModuleConfiguration(),
+            loadElementViews());
+        for (CmsUUID id : snapshot.m_pendingIds) {
+            m_updateSet.add(id);
+        }
+        for (CmsPublishedResource pubRes : publishedResources) {
+            if (pubRes.getState().isDeleted()) {
+                remove(pubRes);
+            } else {
+                update(pubRes);
+            }
+        }
+        // only re-read the configuration files changed since the snapshot was written
+        performUpdate();
+    }
+
     /**
      * Updates the cache entry for the given published resource.<p>
      *
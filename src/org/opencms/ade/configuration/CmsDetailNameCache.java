@@ -27,6 +27,8 @@
 
 package org.opencms.ade.configuration;
 
+import org.opencms.cache.CmsCacheSnapshotManager;
+import org.opencms.cache.I_CmsSnapshotCache;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.urlname.CmsUrlNameMappingEntry;
 import org.opencms.db.urlname.CmsUrlNameMappingFilter;
@@ -38,12 +40,15 @@ import org.opencms.file.types.I_CmsResourceType;
 import org.opencms.loader.CmsLoaderException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
-import org.opencms.util.CmsManyToOneMap;
+import org.opencms.util.CmsConcurrentManyToOneMap;
 import org.opencms.util.CmsUUID;
 
+import java.io.Serializable;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -53,20 +58,43 @@ import com.google.common.collect.Sets;
 
 /**
  * A cache which stores structure ids for URL names.<p>
+ *
+ * The online cache can be restored from a cache snapshot, see {@link CmsCacheSnapshotManager}.<p>
  */
-public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
+public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache, I_CmsSnapshotCache {
+
+    /**
+     * The state of the cache stored in a cache snapshot.<p>
+     */
+    private static class CmsDetailNameSnapshot implements Serializable {
+
+        /** Serialization id. */
+        private static final long serialVersionUID = -2716318935021532180L;
+
+        /** The structure ids by URL name. */
+        HashMap<String, CmsUUID> m_names;
+
+        /** The structure ids which were still waiting for an update. */
+        HashSet<CmsUUID> m_pendingIds;
+    }
 
     /** The delay between updates. */
     public static final int DELAY_MILLIS = 10000;
 
+    /** The key of the online cache in the cache snapshot. */
+    public static final String SNAPSHOT_KEY = "detailnames";
+
     /** The logger for this class. */
     private static final Log LOG = CmsLog.getLog(CmsDetailNameCache.class);
 
     /** The CMS context used by this cache. */
     private CmsObject m_cms;
 
-    /** The internal map from URL names to structure ids. */
-    private CmsManyToOneMap<String, CmsUUID> m_detailIdCache = new CmsManyToOneMap<String, CmsUUID>();
+    /** The internal map from URL names to structure ids, which is updated in place. */
+    private volatile CmsConcurrentManyToOneMap<String, CmsUUID> m_detailIdCache;
+
+    /** Lock which serializes the update runs, separate from the monitor guarding the update set. */
+    private Object m_updateLock = new Object();
 
     /** The set of structure ids for which the URL names have to be updated. */
     private Set<CmsUUID> m_updateSet = Sets.newHashSet();
@@ -79,6 +107,7 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
     public CmsDetailNameCache(CmsObject cms) {
 
         m_cms = cms;
+        m_detailIdCache = new CmsConcurrentManyToOneMap<String, CmsUUID>();
     }
 
     /**
@@ -101,8 +130,33 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
         return m_detailIdCache.get(name);
     }
 
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotKey()
+     */
+    public String getSnapshotKey() {
+
+        return SNAPSHOT_KEY;
+    }
+
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotState()
+     */
+    public Serializable getSnapshotState() {
+
+        CmsDetailNameSnapshot snapshot = new CmsDetailNameSnapshot();
+        synchronized (m_updateLock) {
+            snapshot.m_names = new HashMap<String, CmsUUID>(m_detailIdCache.getForwardMap());
+            synchronized (this) {
+                snapshot.m_pendingIds = new HashSet<CmsUUID>(m_updateSet);
+            }
+        }
+        return snapshot;
+    }
+
     /**
      * Initializes the cache by scheduling the update actions and loading the initial cache contents.<p>
+     *
+     * For the online project, the contents are restored from the cache snapshot if possible.<p>
      */
     public void initialize() {
 
@@ -113,6 +167,12 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
                 checkForUpdates();
             }
         }, DELAY_MILLIS, DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        CmsCacheSnapshotManager snapshotManager = OpenCms.getCacheSnapshotManager();
+        if ((snapshotManager != null)
+            && m_cms.getRequestContext().getCurrentProject().isOnlineProject()
+            && snapshotManager.register(this)) {
+            return;
+        }
         reload();
     }
 
@@ -133,6 +193,28 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
 
     }
 
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#restoreSnapshotState(java.io.Serializable, java.util.List)
+     */
+    public void restoreSnapshotState(Serializable state, List<CmsPublishedResource> publishedResources) {
+
+        CmsDetailNameSnapshot snapshot = (CmsDetailNameSnapshot)state;
+        CmsConcurrentManyToOneMap<String, CmsUUID> newMap = new CmsConcurrentManyToOneMap<String, CmsUUID>(
+            snapshot.m_names.size());
+        for (Map.Entry<String, CmsUUID> entry : snapshot.m_names.entrySet()) {
+            newMap.put(entry.getKey(), entry.getValue());
+        }
+        m_detailIdCache = newMap;
+        for (CmsUUID id : snapshot.m_pendingIds) {
+            markForUpdate(id);
+        }
+        for (CmsPublishedResource pubRes : publishedResources) {
+            update(pubRes);
+        }
+        // only re-read the URL names of the resources changed since the snapshot was written
+        checkForUpdates();
+    }
+
     /**
      * @see org.opencms.ade.configuration.I_CmsGlobalConfigurationCache#update(org.opencms.db.CmsPublishedResource)
      */
@@ -153,27 +235,30 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
 
     /**
      * Checks if any updates are necessary and if so, performs them.<p>
+     *
+     * The URL names of the changed resources are applied to the cache in place, so the cost of an update
+     * only depends on the number of changed resources and not on the size of the cache.<p>
      */
-    synchronized void checkForUpdates() {
-
-        if (!m_updateSet.isEmpty()) {
-            Set<CmsUUID> copiedIds = Sets.newHashSet(m_updateSet);
-            m_updateSet.clear();
+    void checkForUpdates() {
 
+        synchronized (m_updateLock) {
+            Set<CmsUUID> copiedIds;
+            synchronized (this) {
+                if (m_updateSet.isEmpty()) {
+                    return;
+                }
+                copiedIds = m_updateSet;
+                m_updateSet = Sets.newHashSet();
+            }
             if (copiedIds.contains(CmsUUID.getNullUUID())) {
                 LOG.info("Updating detail name cache: reloading...");
                 reload();
             } else {
                 LOG.info("Updating detail name cache. Number of changed files: " + copiedIds.size());
-                CmsManyToOneMap<String, CmsUUID> cacheCopy = new CmsManyToOneMap<String, CmsUUID>(m_detailIdCache);
+                CmsConcurrentManyToOneMap<String, CmsUUID> cache = m_detailIdCache;
                 for (CmsUUID id : copiedIds) {
-                    Set<String> urlNames = getUrlNames(id);
-                    cacheCopy.removeValue(id);
-                    for (String urlName : urlNames) {
-                        cacheCopy.put(urlName, id);
-                    }
+                    cache.replaceKeys(id, getUrlNames(id));
                 }
-                m_detailIdCache = cacheCopy;
             }
         }
     }
@@ -232,10 +317,11 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
      */
     private void reload() {
 
-        CmsManyToOneMap<String, CmsUUID> newMap = new CmsManyToOneMap<String, CmsUUID>();
         try {
             List<CmsUrlNameMappingEntry> mappings = m_cms.readUrlNameMappings(CmsUrlNameMappingFilter.ALL);
             LOG.info("Initializing detail name cache with " + mappings.size() + " entries");
+            CmsConcurrentManyToOneMap<String, CmsUUID> newMap = new CmsConcurrentManyToOneMap<String, CmsUUID>(
+                mappings.size());
             for (CmsUrlNameMappingEntry entry : mappings) {
                 newMap.put(entry.getName(), entry.getStructureId());
             }
@@ -52,6 +52,16 @@ public class CmsSynchronizedUpdateSet<U> {
         m_set.add(update);
     }
 
+    /**
+     * Returns a new set containing the current updates, without removing them.<p>
+     *
+     * @return the current updates
+     */
+    public synchronized Set<U> getAll() {
+
+        return new HashSet<U>(m_set);
+    }
+
     /**
      * Removes all updates from the internal set and returns a new set containing the removed updates.<p>
      *
@@ -28,11 +28,14 @@
 package org.opencms.ade.configuration.formatters;
 
 import org.opencms.ade.configuration.I_CmsGlobalConfigurationCache;
+import org.opencms.cache.CmsCacheSnapshotManager;
+import org.opencms.cache.I_CmsSnapshotCache;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.CmsVfsResourceNotFoundException;
 import org.opencms.file.types.I_CmsResourceType;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
@@ -43,8 +46,10 @@ import org.opencms.xml.containerpage.I_CmsFormatterBean;
 import org.opencms.xml.content.CmsXmlContent;
 import org.opencms.xml.content.CmsXmlContentFactory;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -63,12 +68,33 @@ import com.google.common.collect.Maps;
  * operation is needed.<p>
  *
  * Two instances of this cache are needed, one for the Online project and one for Offline projects.<p>
+ *
+ * The online cache can be restored from a cache snapshot, see {@link CmsCacheSnapshotManager}. The snapshot contains
+ * the formatter configuration files, so they only have to be parsed again instead of being read from the database.<p>
  **/
-public class CmsFormatterConfigurationCache implements I_CmsGlobalConfigurationCache {
+public class CmsFormatterConfigurationCache implements I_CmsGlobalConfigurationCache, I_CmsSnapshotCache {
+
+    /**
+     * The state of the cache stored in a cache snapshot.<p>
+     */
+    private static class CmsFormatterSnapshot implements Serializable {
+
+        /** Serialization id. */
+        private static final long serialVersionUID = -8317290583176647402L;
+
+        /** The formatter configuration files by structure id. */
+        HashMap<CmsUUID, CmsFile> m_files;
+
+        /** The structure ids which were still waiting for an update. */
+        HashSet<CmsUUID> m_pendingIds;
+    }
 
     /** A UUID which is used to mark the configuration cache for complete reloading. */
     public static final CmsUUID RELOAD_MARKER = CmsUUID.getNullUUID();
 
+    /** The key of the online cache in the cache snapshot. */
+    public static final String SNAPSHOT_KEY = "formatters";
+
     /** The resource type for formatter configurations. */
     public static final String TYPE_FORMATTER_CONFIG = "formatter_config";
 
@@ -132,6 +158,37 @@ public class CmsFormatterConfigurationCache implements I_CmsGlobalConfigurationC
         return m_name;
     }
 
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotKey()
+     */
+    public String getSnapshotKey() {
+
+        return SNAPSHOT_KEY;
+    }
+
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotState()
+     */
+    public synchronized Serializable getSnapshotState() {
+
+        CmsFormatterSnapshot snapshot = new CmsFormatterSnapshot();
+        snapshot.m_pendingIds = new HashSet<CmsUUID>(m_idsToUpdate);
+        snapshot.m_files = new HashMap<CmsUUID, CmsFile>();
+        for (CmsUUID structureId : m_state.getFormatters().keySet()) {
+            try {
+                snapshot.m_files.put(structureId, m_cms.readFile(m_cms.readResource(structureId)));
+            } catch (CmsVfsResourceNotFoundException e) {
+                // deleted in the meantime, the formatter must not be restored
+                LOG.info("Could not read formatter with id " + structureId);
+            } catch (CmsException e) {
+                // the snapshot would be incomplete, so the formatters are read completely on startup
+                LOG.warn(e.getLocalizedMessage(), e);
+                return null;
+            }
+        }
+        return snapshot;
+    }
+
     /**
      * Gets the collection of cached formatters.<p>
      *
@@ -142,6 +199,22 @@ public class CmsFormatterConfigurationCache implements I_CmsGlobalConfigurationC
         return m_state;
     }
 
+    /**
+     * Initializes the cache by loading the formatter configurations.<p>
+     *
+     * For the online project, the formatters are restored from the cache snapshot if possible.<p>
+     */
+    public void initialize() {
+
+        CmsCacheSnapshotManager snapshotManager = OpenCms.getCacheSnapshotManager();
+        if ((snapshotManager != null)
+            && m_cms.getRequestContext().getCurrentProject().isOnlineProject()
+            && snapshotManager.register(this)) {
+            return;
+        }
+        reload();
+    }
+
     /**
      * The method called by the scheduled update action to update the cache.<p>
      */
@@ -213,6 +286,34 @@ public class CmsFormatterConfigurationCache implements I_CmsGlobalConfigurationC
         checkIfUpdateIsNeeded(resource.getStructureId(), resource.getRootPath(), resource.getTypeId());
     }
 
+    /**
+     * @see org.opencms.cache.I_CmsSnapshotCache#restoreSnapshotState(java.io.Serializable, java.util.List)
+     */
+    public synchronized void restoreSnapshotState(Serializable state, List<CmsPublishedResource> publishedResources) {
+
+        CmsFormatterSnapshot snapshot = (CmsFormatterSnapshot)state;
+        Map<CmsUUID, I_CmsFormatterBean> formatters = Maps.newHashMap();
+        for (Map.Entry<CmsUUID, CmsFile> entry : snapshot.m_files.entrySet()) {
+            try {
+                formatters.put(entry.getKey(), parseFormatter(entry.getValue()));
+            } catch (Exception e) {
+                LOG.error(
+                    "Error while trying to read formatter configuration "
+                        + entry.getValue().getRootPath()
+                        + ":    "
+                        + e.getLocalizedMessage(),
+                    e);
+            }
+        }
+        m_state = new CmsFormatterConfigurationCacheState(formatters);
+        m_idsToUpdate.addAll(snapshot.m_pendingIds);
+        for (CmsPublishedResource pubRes : publishedResources) {
+            update(pubRes);
+        }
+        // only re-read the formatters changed since the snapshot was written
+        performUpdate();
+    }
+
     /**
      * @see org.opencms.ade.configuration.I_CmsGlobalConfigurationCache#update(org.opencms.db.CmsPublishedResource)
      */
@@ -259,10 +360,7 @@ public class CmsFormatterConfigurationCache implements I_CmsGlobalConfigurationC
         CmsResource formatterRes = null;
         try {
             formatterRes = m_cms.readResource(structureId);
-            CmsFile formatterFile = m_cms.readFile(formatterRes);
-            CmsFormatterBeanParser parser = new CmsFormatterBeanParser(m_cms);
-            CmsXmlContent content = CmsXmlContentFactory.unmarshal(m_cms, formatterFile);
-            formatterBean = parser.parse(content, formatterRes.getRootPath(), "" + formatterRes.getStructureId());
+            formatterBean = parseFormatter(m_cms.readFile(formatterRes));
         } catch (Exception e) {
 
             if (formatterRes == null) {
@@ -318,4 +416,22 @@ public class CmsFormatterConfigurationCache implements I_CmsGlobalConfigurationC
 
         }
     }
+
+    /**
+     * Parses a formatter configuration file.<p>
+     *
+     * @param formatterFile the formatter configuration file
+     *
+     * @return the formatter bean
+     *
+     * @throws CmsException if something goes wrong
+     * @throws CmsFormatterBeanParser.ParseException if parsing the formatter configuration fails
+     */
+    private CmsFormatterBean parseFormatter(CmsFile formatterFile)
+    throws CmsException, CmsFormatterBeanParser.ParseException {
+
+        CmsFormatterBeanParser parser = new CmsFormatterBeanParser(m_cms);
+        CmsXmlContent content = CmsXmlContentFactory.unmarshal(m_cms, formatterFile);
+        return parser.parse(content, formatterFile.getRootPath(), "" + formatterFile.getStructureId());
+    }
 }
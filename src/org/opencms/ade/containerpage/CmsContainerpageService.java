@@ -1770,6 +1770,19 @@ public class CmsContainerpageService extends CmsGwtService implements I_CmsConta
         }
     }
 
+    /**
+     * @see org.opencms.gwt.CmsGwtService#clearThreadStorage()
+     */
+    @Override
+    protected void clearThreadStorage() {
+
+        super.clearThreadStorage();
+        // pooled instances are reused for other requests, so the request specific data must be reset
+        m_configData = null;
+        m_sessionCache = null;
+        m_workplaceSettings = null;
+    }
+
     /**
      * Converts the given setting values according to the setting configuration of the given resource.<p>
      *
@@ -791,6 +791,18 @@ public class CmsContentService extends CmsGwtService implements I_CmsContentServ
         return new CmsValidationResult(null, null);
     }
 
+    /**
+     * @see org.opencms.gwt.CmsGwtService#clearThreadStorage()
+     */
+    @Override
+    protected void clearThreadStorage() {
+
+        super.clearThreadStorage();
+        // pooled instances are reused for other requests, so the request specific data must be reset
+        m_sessionCache = null;
+        m_workplaceLocale = null;
+    }
+
     /**
      * Decodes the newlink request parameter if possible.<p>
      *
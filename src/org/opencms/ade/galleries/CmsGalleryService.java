@@ -82,6 +82,7 @@ import org.opencms.main.CmsPermalinkResourceHandler;
 import org.opencms.main.CmsStaticResourceHandler;
 import org.opencms.main.OpenCms;
 import org.opencms.search.fields.CmsSearchFieldMapping;
+import org.opencms.search.galleries.CmsGalleryIndex;
 import org.opencms.search.galleries.CmsGallerySearch;
 import org.opencms.search.galleries.CmsGallerySearchParameters;
 import org.opencms.search.galleries.CmsGallerySearchResult;
@@ -1207,6 +1208,18 @@ public class CmsGalleryService extends CmsGwtService implements I_CmsGalleryServ
         }
     }
 
+    /**
+     * @see org.opencms.gwt.CmsGwtService#clearThreadStorage()
+     */
+    @Override
+    protected void clearThreadStorage() {
+
+        super.clearThreadStorage();
+        // pooled instances are reused for other requests, so the request specific data must be reset
+        m_workplaceSettings = null;
+        m_wpLocale = null;
+    }
+
     /**
      * Gets an initialized CmsObject to be used for the actual search for a given search bean.<p>
      *
@@ -1647,9 +1660,12 @@ public class CmsGalleryService extends CmsGwtService implements I_CmsGalleryServ
         bean.setRawTitle(rawTitle);
         // resource type
         bean.setType(sResult.getResourceType());
-        CmsResource resultResource = cms.readResource(
-            new CmsUUID(sResult.getStructureId()),
-            CmsResourceFilter.ONLY_VISIBLE_NO_DELETED);
+        CmsResource resultResource = sResult.getResource();
+        if (resultResource == null) {
+            resultResource = cms.readResource(
+                new CmsUUID(sResult.getStructureId()),
+                CmsResourceFilter.ONLY_VISIBLE_NO_DELETED);
+        }
         bean.setDetailResourceType(CmsResourceIcon.getDefaultFileOrDetailType(cms, resultResource));
         // structured id
         bean.setClientId(sResult.getStructureId());
@@ -1693,21 +1709,27 @@ public class CmsGalleryService extends CmsGwtService implements I_CmsGalleryServ
                 CmsListInfoBean.CSS_CLASS_MULTI_LINE);
         }
         if (type instanceof CmsResourceTypeImage) {
-            CmsProperty copyrightProp = cms.readPropertyObject(
-                resultResource,
-                CmsPropertyDefinition.PROPERTY_COPYRIGHT,
-                false);
-            if (!copyrightProp.isNullProperty()) {
+            String copyright = sResult.getCopyright();
+            String dimensions = sResult.getDimensions();
+            if (sResult.getResource() == null) {
+                // results from the gallery index already carry these property values
+                CmsProperty copyrightProp = cms.readPropertyObject(
+                    resultResource,
+                    CmsPropertyDefinition.PROPERTY_COPYRIGHT,
+                    false);
+                copyright = copyrightProp.isNullProperty() ? null : copyrightProp.getValue();
+                CmsProperty imageDimensionProp = cms.readPropertyObject(
+                    resultResource,
+                    CmsPropertyDefinition.PROPERTY_IMAGE_SIZE,
+                    false);
+                dimensions = imageDimensionProp.isNullProperty() ? null : imageDimensionProp.getValue();
+            }
+            if (copyright != null) {
                 bean.addAdditionalInfo(
                     Messages.get().getBundle(getWorkplaceLocale()).key(Messages.GUI_RESULT_LABEL_COPYRIGHT_0),
-                    copyrightProp.getValue());
+                    copyright);
             }
-            CmsProperty imageDimensionProp = cms.readPropertyObject(
-                resultResource,
-                CmsPropertyDefinition.PROPERTY_IMAGE_SIZE,
-                false);
-            if (!imageDimensionProp.isNullProperty()) {
-                String dimensions = imageDimensionProp.getValue();
+            if (dimensions != null) {
                 dimensions = dimensions.substring(2).replace(",h:", " x ");
                 bean.setDimension(dimensions);
                 bean.addAdditionalInfo(
@@ -2908,8 +2930,15 @@ public class CmsGalleryService extends CmsGwtService implements I_CmsGalleryServ
         CmsObject searchCms = getSearchCms(searchObj);
         searchBean.init(searchCms);
 
-        CmsGallerySearchResultList searchResults = OpenCms.getSearchManager().getIndexSolr(
-            "Solr Offline").gallerySearch(searchCms, params);
+        CmsGallerySearchResultList searchResults = null;
+        CmsGalleryIndex galleryIndex = OpenCms.getSearchManager().getGalleryIndex();
+        if (galleryIndex != null) {
+            // the gallery index answers the search without reading the VFS
+            searchResults = galleryIndex.search(searchCms, params);
+        }
+        if (searchResults == null) {
+            searchResults = OpenCms.getSearchManager().getIndexSolr("Solr Offline").gallerySearch(searchCms, params);
+        }
         searchResults.calculatePages(params.getResultPage(), params.getMatchesPerPage());
 
         // set only the result dependent search params for this search
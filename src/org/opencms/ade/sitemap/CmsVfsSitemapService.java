@@ -1141,6 +1141,17 @@ public class CmsVfsSitemapService extends CmsGwtService implements I_CmsSitemapS
         return result;
     }
 
+    /**
+     * @see org.opencms.gwt.CmsGwtService#clearThreadStorage()
+     */
+    @Override
+    protected void clearThreadStorage() {
+
+        super.clearThreadStorage();
+        // pooled instances are reused for other requests, so the request specific navigation builder must be reset
+        m_navBuilder = null;
+    }
+
     /**
      * Creates a "broken link" bean based on a resource.<p>
      *
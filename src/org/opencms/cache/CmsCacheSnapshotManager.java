@@ -0,0 +1,256 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.publish.CmsPublishJobFinished;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Writes the state of selected online caches to a local file on shutdown and restores it on the next startup.<p>
+ *
+ * When the snapshot is written, the next publish tag is stored with it. When the snapshot is read again, the difference
+ * to the current next publish tag is the number of publish jobs finished in the meantime. The resources published by
+ * these jobs are read from the publish history and handed to the caches, so only the delta has to be re-read from the database.
+ * If the publish history does not contain all of these jobs, e.g. because the history size is too small, the snapshot is discarded
+ * and the caches are initialized from the database as usual.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsCacheSnapshotManager {
+
+    /**
+     * The data stored in the snapshot file.<p>
+     */
+    private static class CmsSnapshotData implements Serializable {
+
+        /** Serialization id. */
+        private static final long serialVersionUID = 4785603911239475132L;
+
+        /** The next publish tag at the time the snapshot was written. */
+        int m_publishTag;
+
+        /** The cache states by snapshot key. */
+        Map<String, Serializable> m_states = new HashMap<String, Serializable>();
+
+        /** The time the snapshot was written. */
+        long m_time;
+
+        /** The OpenCms version which wrote the snapshot. */
+        String m_version;
+    }
+
+    /** The default path of the snapshot file, relative to the WEB-INF folder. */
+    public static final String DEFAULT_SNAPSHOT_FILE = "cache/cache-snapshot.ser";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsCacheSnapshotManager.class);
+
+    /** The registered caches. */
+    private List<I_CmsSnapshotCache> m_caches = new ArrayList<I_CmsSnapshotCache>();
+
+    /** The CMS context used to read the publish history. */
+    private CmsObject m_cms;
+
+    /** The snapshot read from the file, or null if there is none or it is not valid. */
+    private CmsSnapshotData m_data;
+
+    /** The snapshot file. */
+    private File m_file;
+
+    /** True if the snapshot file has already been read. */
+    private boolean m_loaded;
+
+    /** The resources published after the snapshot was written. */
+    private List<CmsPublishedResource> m_publishedResources;
+
+    /**
+     * Creates a new snapshot manager.<p>
+     *
+     * @param cms a CMS context with permissions to read the publish history
+     * @param file the snapshot file
+     */
+    public CmsCacheSnapshotManager(CmsObject cms, File file) {
+
+        m_cms = cms;
+        m_file = file;
+    }
+
+    /**
+     * Registers a cache, and restores its state from the snapshot if there is a valid one.<p>
+     *
+     * Registered caches are included in the snapshot written by {@link #writeSnapshot()}.
+     * If the state is not restored, the cache has to initialize itself from the database.<p>
+     *
+     * @param cache the cache to register
+     *
+     * @return <code>true</code> if the state of the cache was restored from the snapshot
+     */
+    public synchronized boolean register(I_CmsSnapshotCache cache) {
+
+        m_caches.add(cache);
+        if (!m_loaded) {
+            m_loaded = true;
+            m_data = readSnapshot();
+        }
+        if (m_data == null) {
+            return false;
+        }
+        Serializable state = m_data.m_states.get(cache.getSnapshotKey());
+        if (state == null) {
+            return false;
+        }
+        try {
+            cache.restoreSnapshotState(state, m_publishedResources);
+        } catch (Exception e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_SNAPSHOT_RESTORE_FAILED_1, cache.getSnapshotKey()), e);
+            return false;
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SNAPSHOT_RESTORED_2,
+                    cache.getSnapshotKey(),
+                    new Integer(m_publishedResources.size())));
+        }
+        return true;
+    }
+
+    /**
+     * Writes the state of all registered caches to the snapshot file.<p>
+     *
+     * This should be called on shutdown, after the publish engine has been stopped.<p>
+     */
+    public synchronized void writeSnapshot() {
+
+        CmsSnapshotData data = new CmsSnapshotData();
+        // read the publish tag first, publish jobs finishing in between will just be applied again on startup
+        data.m_publishTag = OpenCms.getPublishManager().getNextPublishTag(m_cms);
+        data.m_time = System.currentTimeMillis();
+        data.m_version = OpenCms.getSystemInfo().getVersionNumber();
+        for (I_CmsSnapshotCache cache : m_caches) {
+            data.m_states.put(cache.getSnapshotKey(), cache.getSnapshotState());
+        }
+        try {
+            // replaces the old snapshot only if the new one was written completely
+            CmsFileUtil.writeObject(m_file, data);
+            if (LOG.isInfoEnabled()) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_SNAPSHOT_WRITTEN_2,
+                        m_file.getPath(),
+                        new Integer(data.m_publishTag)));
+            }
+        } catch (Exception e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_SNAPSHOT_WRITE_FAILED_1, m_file.getPath()), e);
+        }
+    }
+
+    /**
+     * Reads the snapshot file and validates it against the publish history.<p>
+     *
+     * @return the snapshot data, or null if there is no valid snapshot
+     */
+    private CmsSnapshotData readSnapshot() {
+
+        if (!m_file.exists()) {
+            return null;
+        }
+        CmsSnapshotData data;
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(m_file)));
+            data = (CmsSnapshotData)in.readObject();
+        } catch (Exception e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_SNAPSHOT_READ_FAILED_1, m_file.getPath()), e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+        }
+        if (!OpenCms.getSystemInfo().getVersionNumber().equals(data.m_version)) {
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_SNAPSHOT_OUTDATED_1, m_file.getPath()));
+            return null;
+        }
+        int publishCount = OpenCms.getPublishManager().getNextPublishTag(m_cms) - data.m_publishTag;
+        if (publishCount < 0) {
+            // the database has been replaced in the meantime
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_SNAPSHOT_OUTDATED_1, m_file.getPath()));
+            return null;
+        }
+        List<CmsPublishJobFinished> jobs = new ArrayList<CmsPublishJobFinished>();
+        for (CmsPublishJobFinished job : OpenCms.getPublishManager().getPublishHistory()) {
+            if (job.getFinishTime() >= data.m_time) {
+                jobs.add(job);
+            }
+        }
+        if (jobs.size() < publishCount) {
+            // the publish history does not contain all jobs finished since the snapshot was written
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_SNAPSHOT_OUTDATED_1, m_file.getPath()));
+            return null;
+        }
+        List<CmsPublishedResource> publishedResources = new ArrayList<CmsPublishedResource>();
+        try {
+            for (CmsPublishJobFinished job : jobs) {
+                publishedResources.addAll(m_cms.readPublishedResources(job.getPublishHistoryId()));
+            }
+        } catch (Exception e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_SNAPSHOT_READ_FAILED_1, m_file.getPath()), e);
+            return null;
+        }
+        m_publishedResources = publishedResources;
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SNAPSHOT_READ_2,
+                    m_file.getPath(),
+                    new Integer(jobs.size())));
+        }
+        return data;
+    }
+}
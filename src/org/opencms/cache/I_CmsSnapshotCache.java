@@ -0,0 +1,72 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.db.CmsPublishedResource;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Describes a cache whose state can be written to a snapshot on shutdown and restored from it on the next startup.<p>
+ *
+ * Only caches of online data should implement this, since the snapshot is validated
+ * against the publish history.<p>
+ *
+ * @since 10.5.0
+ *
+ * @see org.opencms.cache.CmsCacheSnapshotManager
+ */
+public interface I_CmsSnapshotCache {
+
+    /**
+     * Returns the unique key used to store the state of this cache in the snapshot.<p>
+     *
+     * @return the snapshot key
+     */
+    String getSnapshotKey();
+
+    /**
+     * Returns the current state of the cache.<p>
+     *
+     * The returned object must not be changed by the cache afterwards.<p>
+     *
+     * @return the current state of the cache
+     */
+    Serializable getSnapshotState();
+
+    /**
+     * Restores the state of the cache from a snapshot.<p>
+     *
+     * The cache must update itself for the given resources, which have been published after the snapshot was written.<p>
+     *
+     * @param state the state from the snapshot, as returned by {@link #getSnapshotState()}
+     * @param publishedResources the resources published since the snapshot was written
+     */
+    void restoreSnapshotState(Serializable state, List<CmsPublishedResource> publishedResources);
+}
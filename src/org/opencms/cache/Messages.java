@@ -40,6 +40,27 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CACHE_COSTS_TOO_HIGH_2 = "LOG_CACHE_COSTS_TOO_HIGH_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SNAPSHOT_OUTDATED_1 = "LOG_SNAPSHOT_OUTDATED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SNAPSHOT_READ_2 = "LOG_SNAPSHOT_READ_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SNAPSHOT_READ_FAILED_1 = "LOG_SNAPSHOT_READ_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SNAPSHOT_RESTORED_2 = "LOG_SNAPSHOT_RESTORED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SNAPSHOT_RESTORE_FAILED_1 = "LOG_SNAPSHOT_RESTORE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SNAPSHOT_WRITE_FAILED_1 = "LOG_SNAPSHOT_WRITE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SNAPSHOT_WRITTEN_2 = "LOG_SNAPSHOT_WRITTEN_2";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.cache.messages";
 
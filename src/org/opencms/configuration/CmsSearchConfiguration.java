@@ -95,6 +95,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_ANALYZERS = "analyzers";
 
+    /** Node name constant. */
+    public static final String N_CACHE = "cache";
+
     /** Node name constant. */
     public static final String N_CLASS = "class";
 
@@ -128,6 +131,12 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_EXTRACTION_CACHE_MAX_AGE = "extractionCacheMaxAge";
 
+    /** Node name constant. */
+    public static final String N_EXTRACTION_CACHE_MAX_SIZE = "extractionCacheMaxSize";
+
+    /** Node name constant. */
+    public static final String N_EXTRACTION_CACHE_SEGMENT_STORE = "extractionCacheSegmentStore";
+
     /** Node name constant. */
     public static final String N_FIELD = "field";
 
@@ -143,6 +152,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_FORCEUNLOCK = "forceunlock";
 
+    /** Node name constant. */
+    public static final String N_GALLERY_INDEX = "galleryIndex";
+
     /** Node name constant. */
     public static final String N_HIGHLIGHTER = "highlighter";
 
@@ -220,6 +232,15 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_TIMEOUT = "timeout";
 
+    /** Node name constant. */
+    public static final String N_UPDATE_BATCH_SIZE = "updateBatchSize";
+
+    /** Node name constant. */
+    public static final String N_UPDATE_MAX_LATENCY_MS = "updateMaxLatencyMs";
+
+    /** Node name constant. */
+    public static final String N_UPDATE_THREADS = "updateThreads";
+
     /** Node name constant. */
     private static final String XPATH_SEARCH = "*/" + N_SEARCH;
 
@@ -257,12 +278,27 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
         // forceunlock rule
         digester.addCallMethod(XPATH_SEARCH + "/" + N_FORCEUNLOCK, "setForceunlock", 0);
 
+        // rule for the size of the Solr search result cache
+        digester.addCallMethod(XPATH_SEARCH + "/" + N_CACHE, "setResultCacheSize", 0);
+
         // rule for the max. char. lenght of the search result excerpt
         digester.addCallMethod(XPATH_SEARCH + "/" + N_EXCERPT, "setMaxExcerptLength", 0);
 
         // rule for the max. age of entries in the extraction cache
         digester.addCallMethod(XPATH_SEARCH + "/" + N_EXTRACTION_CACHE_MAX_AGE, "setExtractionCacheMaxAge", 0);
 
+        // rule for using a segment store for the extraction cache
+        digester.addCallMethod(
+            XPATH_SEARCH + "/" + N_EXTRACTION_CACHE_SEGMENT_STORE,
+            "setExtractionCacheSegmentStore",
+            0);
+
+        // rule for the max. size of the extraction cache segment store
+        digester.addCallMethod(XPATH_SEARCH + "/" + N_EXTRACTION_CACHE_MAX_SIZE, "setExtractionCacheMaxSize", 0);
+
+        // rule for using the gallery index
+        digester.addCallMethod(XPATH_SEARCH + "/" + N_GALLERY_INDEX, "setGalleryIndexEnabled", 0);
+
         // rule for max. number of modifications before commit
         digester.addCallMethod(
             XPATH_SEARCH + "/" + N_MAX_MODIFICATIONS_BEFORE_COMMIT,
@@ -281,6 +317,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
         digester.addCallMethod(xPath + "/" + N_HOME, "setHomeFolderPath", 0);
         digester.addCallMethod(xPath + "/" + N_CONFIG_FILE, "setSolrFileName", 0);
         digester.addCallMethod(xPath + "/" + N_COMMIT_MS, "setSolrCommitMs", 0);
+        digester.addCallMethod(xPath + "/" + N_UPDATE_BATCH_SIZE, "setUpdateBatchSize", 0);
+        digester.addCallMethod(xPath + "/" + N_UPDATE_MAX_LATENCY_MS, "setUpdateMaxLatencyMs", 0);
+        digester.addCallMethod(xPath + "/" + N_UPDATE_THREADS, "setUpdateThreads", 0);
         digester.addSetNext(xPath, "setSolrServerConfiguration");
 
         // document type rule
@@ -400,8 +439,13 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
                 solr.addElement(N_CONFIG_FILE).addText(conf.getSolrFileName());
             }
             solr.addElement(N_COMMIT_MS).addText(String.valueOf(conf.getSolrCommitMs()));
+            solr.addElement(N_UPDATE_BATCH_SIZE).addText(String.valueOf(conf.getUpdateBatchSize()));
+            solr.addElement(N_UPDATE_MAX_LATENCY_MS).addText(String.valueOf(conf.getUpdateMaxLatencyMs()));
+            solr.addElement(N_UPDATE_THREADS).addText(String.valueOf(conf.getUpdateThreads()));
         }
 
+        // add <cache> element
+        searchElement.addElement(N_CACHE).addText(String.valueOf(m_searchManager.getResultCacheSize()));
         // add <directory> element
         searchElement.addElement(N_DIRECTORY).addText(m_searchManager.getDirectory());
         // add <timeout> element
@@ -420,6 +464,19 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
         // add <extractionCacheMaxAge> element
         searchElement.addElement(N_EXTRACTION_CACHE_MAX_AGE).addText(
             String.valueOf(m_searchManager.getExtractionCacheMaxAge()));
+        if (m_searchManager.isExtractionCacheSegmentStore()) {
+            // add <extractionCacheSegmentStore> element
+            searchElement.addElement(N_EXTRACTION_CACHE_SEGMENT_STORE).addText(Boolean.TRUE.toString());
+        }
+        if (m_searchManager.getExtractionCacheMaxSize() > 0) {
+            // add <extractionCacheMaxSize> element
+            searchElement.addElement(N_EXTRACTION_CACHE_MAX_SIZE).addText(
+                String.valueOf(m_searchManager.getExtractionCacheMaxSize()));
+        }
+        if (m_searchManager.isGalleryIndexEnabled()) {
+            // add <galleryIndex> element
+            searchElement.addElement(N_GALLERY_INDEX).addText(Boolean.TRUE.toString());
+        }
         // add <maxModificationsBeforeCommit> element
         searchElement.addElement(N_MAX_MODIFICATIONS_BEFORE_COMMIT).addText(
             String.valueOf(m_searchManager.getMaxModificationsBeforeCommit()));
@@ -85,6 +85,18 @@ public class CmsDbContext {
         }
     }
 
+    /**
+     * Performs an action after the changes made with this database context have been committed.<p>
+     *
+     * Without transactions, every statement is committed immediately, so the action is performed at once.<p>
+     *
+     * @param action the action to perform
+     */
+    public void afterCommit(Runnable action) {
+
+        action.run();
+    }
+
     /**
      * Clears this database context.<p>
      */
@@ -207,6 +219,18 @@ public class CmsDbContext {
         return null;
     }
 
+    /**
+     * Checks if there are actions waiting for the changes made with this database context to be committed.<p>
+     *
+     * @return <code>true</code> if there are actions waiting for the commit
+     *
+     * @see #afterCommit(Runnable)
+     */
+    public boolean hasPendingCommitActions() {
+
+        return false;
+    }
+
     /**
      * Checks if the database context uses the default implementation.<p>
      *
@@ -91,6 +91,7 @@ import org.opencms.relations.CmsCategoryService;
 import org.opencms.relations.CmsLink;
 import org.opencms.relations.CmsRelation;
 import org.opencms.relations.CmsRelationFilter;
+import org.opencms.relations.CmsRelationGraph;
 import org.opencms.relations.CmsRelationSystemValidator;
 import org.opencms.relations.CmsRelationType;
 import org.opencms.relations.I_CmsLinkParseable;
@@ -123,6 +124,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
@@ -251,6 +253,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** Name of the configuration parameter to enable/disable logging to the CMS_LOG table. */
     public static final String PARAM_LOG_TABLE_ENABLED = "log.table.enabled";
 
+    /** Name of the configuration parameter to enable/disable the in-memory relation graphs. */
+    public static final String PARAM_RELATION_GRAPH_ENABLED = "db.relationgraph.enabled";
+
     /** Indicates to ignore the resource path when matching resources. */
     public static final String READ_IGNORE_PARENT = null;
 
@@ -359,6 +364,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** Object used for synchronizing updates to the user publish list. */
     private Object m_publishListUpdateLock = new Object();
 
+    /** The in-memory relation graphs. */
+    private CmsRelationGraphCache m_relationGraphs;
+
     /** The security manager (for access checks). */
     private CmsSecurityManager m_securityManager;
 
@@ -445,6 +453,11 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // set the lock manager
         driverManager.m_lockManager = new CmsLockManager(driverManager);
 
+        // set the cache of the relation graphs
+        driverManager.m_relationGraphs = new CmsRelationGraphCache(
+            driverManager,
+            config.getBoolean(PARAM_RELATION_GRAPH_ENABLED, false));
+
         // create and set the sql manager
         driverManager.m_sqlManager = new CmsSqlManager(driverManager);
 
@@ -999,6 +1012,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
             case I_CmsEventListener.EVENT_CLEAR_CACHES:
                 m_monitor.clearCache();
+                m_relationGraphs.clear();
                 break;
             case I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES:
             case I_CmsEventListener.EVENT_USER_MODIFIED:
@@ -3797,6 +3811,43 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return manageableProjects;
     }
 
+    /**
+     * Returns the broken relations of the given resources and their sub resources.<p>
+     *
+     * A relation is broken if its target does not exist. To read the broken relations of a whole site,
+     * pass the site folder.<p>
+     *
+     * @param dbc the current db context
+     * @param resources the resources to retrieve the broken relations for
+     *
+     * @return the broken relations, sorted with {@link CmsRelation#COMPARATOR}
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsSecurityManager#getBrokenRelations(CmsRequestContext, List)
+     */
+    public List<CmsRelation> getBrokenRelations(CmsDbContext dbc, List<CmsResource> resources) throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        CmsRelationGraph graph = m_relationGraphs.getGraph(dbc, projectId);
+        if (graph != null) {
+            List<String> rootPaths = new ArrayList<String>(resources.size());
+            for (CmsResource resource : resources) {
+                rootPaths.add(resource.getRootPath());
+            }
+            return graph.readBrokenRelations(rootPaths);
+        }
+        CmsRelationFilter filter = CmsRelationFilter.TARGETS.filterIncludeChildren().filterStructureId(
+            CmsUUID.getNullUUID());
+        Set<CmsRelation> relations = new HashSet<CmsRelation>();
+        for (CmsResource resource : resources) {
+            relations.addAll(getVfsDriver(dbc).readRelations(dbc, projectId, resource, filter));
+        }
+        List<CmsRelation> result = new ArrayList<CmsRelation>(relations);
+        Collections.sort(result, CmsRelation.COMPARATOR);
+        return result;
+    }
+
     /**
      * Returns all child groups of a group.<p>
      *
@@ -4486,6 +4537,18 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return ret;
     }
 
+    /**
+     * Returns the cache of the in-memory relation graphs.<p>
+     *
+     * The VFS drivers use it to report the changes of the relation tables.<p>
+     *
+     * @return the cache of the relation graphs
+     */
+    public CmsRelationGraphCache getRelationGraphCache() {
+
+        return m_relationGraphs;
+    }
+
     /**
      * Returns all relations for the given resource matching the given filter.<p>
      *
@@ -4503,9 +4566,48 @@ public final class CmsDriverManager implements I_CmsEventListener {
     throws CmsException {
 
         CmsUUID projectId = getProjectIdForContext(dbc);
+        CmsRelationGraph graph = m_relationGraphs.getGraph(dbc, projectId);
+        if (graph != null) {
+            return graph.readRelations(resource, filter);
+        }
         return getVfsDriver(dbc).readRelations(dbc, projectId, resource, filter);
     }
 
+    /**
+     * Returns the relations matching the given filter for each of the given resources.<p>
+     *
+     * If the relation graphs are enabled, all relations are read from the graph at once,
+     * otherwise the relations of each resource are read from the database.<p>
+     *
+     * @param dbc the current db context
+     * @param resources the resources to retrieve the relations for
+     * @param filter the filter to match the relations
+     *
+     * @return the relations of each resource matching the given filter,
+     *      keyed by the structure id of the resource, in the order of the resources
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsSecurityManager#getRelationsForResources(CmsRequestContext, List, CmsRelationFilter)
+     */
+    public Map<CmsUUID, List<CmsRelation>> getRelationsForResources(
+        CmsDbContext dbc,
+        List<CmsResource> resources,
+        CmsRelationFilter filter)
+    throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        CmsRelationGraph graph = m_relationGraphs.getGraph(dbc, projectId);
+        if (graph != null) {
+            return graph.readRelationsForResources(resources, filter);
+        }
+        Map<CmsUUID, List<CmsRelation>> result = new LinkedHashMap<CmsUUID, List<CmsRelation>>();
+        for (CmsResource resource : resources) {
+            result.put(resource.getStructureId(), getVfsDriver(dbc).readRelations(dbc, projectId, resource, filter));
+        }
+        return result;
+    }
+
     /**
      * Returns the list of organizational units the given resource belongs to.<p>
      *
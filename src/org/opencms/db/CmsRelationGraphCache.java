@@ -0,0 +1,353 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsDataAccessException;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsLog;
+import org.opencms.relations.CmsRelation;
+import org.opencms.relations.CmsRelationFilter;
+import org.opencms.relations.CmsRelationGraph;
+import org.opencms.relations.CmsRelationType;
+import org.opencms.util.CmsUUID;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Holds the in-memory relation graphs of the offline and the online project.<p>
+ *
+ * All offline projects share the offline relation table, so there is one graph for the offline projects
+ * and one for the online project. A graph is loaded from the relation table when it is first needed, and
+ * the VFS drivers report every change of the relation table to this cache, so that the loaded graphs are
+ * updated incrementally. Changes which depend on the structure table, like repairing broken relations,
+ * are applied by reading the affected relations again.<p>
+ *
+ * The changes are applied to the graphs after they have been committed, and discarded if the transaction is
+ * rolled back. While a database context has uncommitted changes, its relations are read from the database.<p>
+ *
+ * The graphs are disabled by default and are enabled with the <code>db.relationgraph.enabled</code> parameter
+ * in <code>opencms.properties</code>. They are only kept up to date with the changes made by this server,
+ * so they must not be enabled if several servers share the database, e.g. in a cluster.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsRelationGraphCache {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsRelationGraphCache.class);
+
+    /** The driver manager. */
+    private CmsDriverManager m_driverManager;
+
+    /** Flag indicating if the relation graphs are used. */
+    private boolean m_enabled;
+
+    /** The relation graph of the offline projects, or <code>null</code> if not loaded. */
+    private CmsRelationGraph m_offlineGraph;
+
+    /** The relation graph of the online project, or <code>null</code> if not loaded. */
+    private CmsRelationGraph m_onlineGraph;
+
+    /** Incremented for every change, used to detect changes while a graph is loaded. */
+    private long m_version;
+
+    /**
+     * Creates a new relation graph cache.<p>
+     *
+     * @param driverManager the driver manager used to load the graphs
+     * @param enabled <code>false</code> if no graphs should be loaded, e.g. because other servers change the relations
+     */
+    public CmsRelationGraphCache(CmsDriverManager driverManager, boolean enabled) {
+
+        m_driverManager = driverManager;
+        m_enabled = enabled;
+    }
+
+    /**
+     * Removes all loaded graphs.<p>
+     */
+    public synchronized void clear() {
+
+        m_offlineGraph = null;
+        m_onlineGraph = null;
+        m_version++;
+    }
+
+    /**
+     * Returns the relation graph for the given project, loading it if necessary.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     *
+     * @return the relation graph, or <code>null</code> if the relations have to be read from the database
+     *
+     * @throws CmsDataAccessException if the relations can not be read
+     */
+    public CmsRelationGraph getGraph(CmsDbContext dbc, CmsUUID projectId) throws CmsDataAccessException {
+
+        if (!m_enabled || (projectId == null) || projectId.isNullUUID()) {
+            return null;
+        }
+        if (dbc.hasPendingCommitActions()) {
+            // the graph does not contain the uncommitted changes of this database context yet
+            return null;
+        }
+        boolean online = CmsProject.isOnlineProject(projectId);
+        long version;
+        synchronized (this) {
+            CmsRelationGraph graph = online ? m_onlineGraph : m_offlineGraph;
+            if (graph != null) {
+                return graph;
+            }
+            version = m_version;
+        }
+        List<CmsRelation> relations = m_driverManager.getVfsDriver(dbc).readRelations(
+            dbc,
+            projectId,
+            null,
+            CmsRelationFilter.TARGETS);
+        CmsRelationGraph graph = new CmsRelationGraph(relations);
+        synchronized (this) {
+            // if the relations have been changed while reading them, the graph is only used for this request
+            if (version == m_version) {
+                if (online) {
+                    m_onlineGraph = graph;
+                } else {
+                    m_offlineGraph = graph;
+                }
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_RELATION_GRAPH_LOADED_2,
+                            getProjectName(projectId),
+                            new Integer(graph.size())));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Updates the graph after a relation has been created.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param relation the created relation
+     */
+    public void relationCreated(final CmsDbContext dbc, final CmsUUID projectId, final CmsRelation relation) {
+
+        if (!m_enabled) {
+            return;
+        }
+        dbc.afterCommit(new Runnable() {
+
+            @SuppressWarnings("synthetic-access")
+            public void run() {
+
+                CmsRelationGraph graph = getGraphForUpdate(projectId);
+                if (graph == null) {
+                    return;
+                }
+                if (relation.getType() == CmsRelationType.LOCALE_VARIANT) {
+                    // creating a locale variant relation removes other locale variant relations in the same statement
+                    reloadRelations(
+                        dbc,
+                        projectId,
+                        graph,
+                        CmsRelationFilter.TARGETS.filterType(CmsRelationType.LOCALE_VARIANT));
+                } else {
+                    graph.addRelation(relation);
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the graph after relations have been deleted.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param resource the resource the relations have been deleted for
+     * @param filter the filter used to delete the relations
+     */
+    public void relationsDeleted(
+        CmsDbContext dbc,
+        final CmsUUID projectId,
+        final CmsResource resource,
+        final CmsRelationFilter filter) {
+
+        if (!m_enabled) {
+            return;
+        }
+        dbc.afterCommit(new Runnable() {
+
+            @SuppressWarnings("synthetic-access")
+            public void run() {
+
+                CmsRelationGraph graph = getGraphForUpdate(projectId);
+                if (graph != null) {
+                    graph.deleteRelations(resource, filter);
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the graph after the relations of a resource have been moved to a new path.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param structureId the structure id of the moved resource
+     * @param rootPath the new root path of the resource
+     */
+    public void relationsMoved(
+        CmsDbContext dbc,
+        final CmsUUID projectId,
+        final CmsUUID structureId,
+        final String rootPath) {
+
+        if (!m_enabled) {
+            return;
+        }
+        dbc.afterCommit(new Runnable() {
+
+            @SuppressWarnings("synthetic-access")
+            public void run() {
+
+                CmsRelationGraph graph = getGraphForUpdate(projectId);
+                if (graph != null) {
+                    graph.moveRelations(structureId, rootPath);
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the graph after the targets of the relations pointing to the given path have been updated,
+     * e.g. when broken relations have been repaired or marked as broken.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param targetPath the target path of the updated relations
+     */
+    public void relationTargetsUpdated(final CmsDbContext dbc, final CmsUUID projectId, final String targetPath) {
+
+        if (!m_enabled) {
+            return;
+        }
+        dbc.afterCommit(new Runnable() {
+
+            @SuppressWarnings("synthetic-access")
+            public void run() {
+
+                CmsRelationGraph graph = getGraphForUpdate(projectId);
+                if (graph != null) {
+                    reloadRelations(dbc, projectId, graph, CmsRelationFilter.TARGETS.filterPath(targetPath));
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the loaded graph to update for the given project, and marks the graphs as changed.<p>
+     *
+     * @param projectId the id of the project
+     *
+     * @return the loaded graph, or <code>null</code> if the graph of the project is not loaded
+     */
+    private synchronized CmsRelationGraph getGraphForUpdate(CmsUUID projectId) {
+
+        m_version++;
+        if ((projectId == null) || projectId.isNullUUID()) {
+            return null;
+        }
+        return CmsProject.isOnlineProject(projectId) ? m_onlineGraph : m_offlineGraph;
+    }
+
+    /**
+     * Returns the name of the relation table of the given project for log messages.<p>
+     *
+     * @param projectId the id of the project
+     *
+     * @return the name of the relation table
+     */
+    private String getProjectName(CmsUUID projectId) {
+
+        return CmsProject.isOnlineProject(projectId) ? "online" : "offline";
+    }
+
+    /**
+     * Replaces the relations matching the given filter in the graph with the relations read from the database.<p>
+     *
+     * The graph is locked while the relations are read, so that concurrent updates
+     * are applied after the reload.
+     * If the relations can not be read, the graph is removed and loaded again when it is needed.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param graph the graph to update
+     * @param filter the filter matching the relations to reload
+     */
+    private void reloadRelations(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        CmsRelationGraph graph,
+        CmsRelationFilter filter) {
+
+        synchronized (graph) {
+            try {
+                List<CmsRelation> relations = m_driverManager.getVfsDriver(dbc).readRelations(
+                    dbc,
+                    projectId,
+                    null,
+                    filter);
+                graph.deleteRelations(null, filter);
+                for (CmsRelation relation : relations) {
+                    graph.addRelation(relation);
+                }
+            } catch (CmsDataAccessException e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_RELATION_GRAPH_UPDATE_FAILED_1,
+                        getProjectName(projectId)),
+                    e);
+                synchronized (this) {
+                    if (CmsProject.isOnlineProject(projectId)) {
+                        m_onlineGraph = null;
+                    } else {
+                        m_offlineGraph = null;
+                    }
+                    m_version++;
+                }
+            }
+        }
+    }
+}
@@ -2068,6 +2068,42 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Returns the broken relations of the given resources and their sub resources.<p>
+     *
+     * @param context the current user context
+     * @param resources the resources to retrieve the broken relations for
+     *
+     * @return the broken {@link org.opencms.relations.CmsRelation} objects
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#getBrokenRelations(List)
+     */
+    public List<CmsRelation> getBrokenRelations(CmsRequestContext context, List<CmsResource> resources)
+    throws CmsException {
+
+        List<CmsRelation> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            // check the access permissions
+            for (CmsResource resource : resources) {
+                checkPermissions(dbc, resource, CmsPermissionSet.ACCESS_VIEW, false, CmsResourceFilter.ALL);
+            }
+            result = m_driverManager.getBrokenRelations(dbc, resources);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(
+                    Messages.ERR_READ_RELATIONS_1,
+                    CmsFileUtil.formatResourceNames(context, resources)),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns all child groups of a group.<p>
      *
@@ -2395,6 +2431,23 @@ public final class CmsSecurityManager {
         return resources;
     }
 
+    /**
+     * Returns the next publish tag for the published historical resources.<p>
+     *
+     * @param context the current request context
+     *
+     * @return the next available publish tag
+     */
+    public int getNextPublishTag(CmsRequestContext context) {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            return m_driverManager.getNextPublishTag(dbc);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Returns all child organizational units of the given parent organizational unit including
      * hierarchical deeper organization units if needed.<p>
@@ -2621,6 +2674,47 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Returns the relations matching the given filter for each of the given resources.<p>
+     *
+     * @param context the current user context
+     * @param resources the resources to retrieve the relations for
+     * @param filter the filter to match the relations
+     *
+     * @return the {@link org.opencms.relations.CmsRelation} objects of each resource matching the given filter,
+     *      keyed by the structure id of the resource
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#getRelationsForResources(List, CmsRelationFilter)
+     */
+    public Map<CmsUUID, List<CmsRelation>> getRelationsForResources(
+        CmsRequestContext context,
+        List<CmsResource> resources,
+        CmsRelationFilter filter)
+    throws CmsException {
+
+        Map<CmsUUID, List<CmsRelation>> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            // check the access permissions
+            for (CmsResource resource : resources) {
+                checkPermissions(dbc, resource, CmsPermissionSet.ACCESS_VIEW, false, CmsResourceFilter.ALL);
+            }
+            result = m_driverManager.getRelationsForResources(dbc, resources, filter);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(
+                    Messages.ERR_READ_RELATIONS_1,
+                    CmsFileUtil.formatResourceNames(context, resources)),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns all resources of the given organizational unit.<p>
      *
@@ -652,6 +652,20 @@ public interface I_CmsProjectDriver {
      */
     void writeLocks(CmsDbContext dbc, List<CmsLock> locks) throws CmsDataAccessException;
 
+    /**
+     * Replaces the locks stored in the database for the given resource paths.<p>
+     *
+     * All stored locks of the given paths are removed, then the given locks are written.
+     * Locks of other paths are not changed.<p>
+     *
+     * @param dbc the current database context
+     * @param paths the root paths whose stored locks should be replaced
+     * @param locks the current locks of these paths, paths which are no longer locked are missing
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    void writeLocks(CmsDbContext dbc, Set<String> paths, List<CmsLock> locks) throws CmsDataAccessException;
+
     /**
      * Writes an already existing project.<p>
      *
@@ -879,6 +879,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NO_EXPORT_POINTS_CONFIGURED_0 = "LOG_NO_EXPORT_POINTS_CONFIGURED_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_RELATION_GRAPH_LOADED_2 = "LOG_RELATION_GRAPH_LOADED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_RELATION_GRAPH_UPDATE_FAILED_1 = "LOG_RELATION_GRAPH_UPDATE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_UPDATE_EXORT_POINTS_ERROR_0 = "LOG_UPDATE_EXORT_POINTS_ERROR_0";
 
@@ -2706,28 +2706,43 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             Iterator<CmsLock> i = locks.iterator();
             int count = 0;
             while (i.hasNext()) {
-                CmsLock lock = i.next();
-                // only persist locks that should be written to the DB
-                CmsLock sysLock = lock.getSystemLock();
-                if (sysLock.isPersistent()) {
-                    // persist system lock
-                    stmt.setString(1, sysLock.getResourceName());
-                    stmt.setString(2, sysLock.getUserId().toString());
-                    stmt.setString(3, sysLock.getProjectId().toString());
-                    stmt.setInt(4, sysLock.getType().hashCode());
-                    stmt.executeUpdate();
-                    count++;
-                }
-                CmsLock editLock = lock.getEditionLock();
-                if (editLock.isPersistent()) {
-                    // persist edition lock
-                    stmt.setString(1, editLock.getResourceName());
-                    stmt.setString(2, editLock.getUserId().toString());
-                    stmt.setString(3, editLock.getProjectId().toString());
-                    stmt.setInt(4, editLock.getType().hashCode());
-                    stmt.executeUpdate();
-                    count++;
-                }
+                count += internalWriteLock(stmt, i.next());
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_WRITE_LOCKS_1, new Integer(count)));
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#writeLocks(org.opencms.db.CmsDbContext, java.util.Set, java.util.List)
+     */
+    public void writeLocks(CmsDbContext dbc, Set<String> paths, List<CmsLock> locks) throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_RESOURCE_LOCKS_DELETE_PATH_1");
+            int deleted = 0;
+            for (String path : paths) {
+                stmt.setString(1, path);
+                deleted += stmt.executeUpdate();
+            }
+            m_sqlManager.closeAll(dbc, null, stmt, null);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_CLEAR_LOCKS_1, new Integer(deleted)));
+            }
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_RESOURCE_LOCK_WRITE");
+            int count = 0;
+            for (CmsLock lock : locks) {
+                count += internalWriteLock(stmt, lock);
             }
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_WRITE_LOCKS_1, new Integer(count)));
@@ -3266,6 +3281,43 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * Writes the persistent parts of a lock to the database.<p>
+     *
+     * @param stmt the prepared statement for the query <code>C_RESOURCE_LOCK_WRITE</code>
+     * @param lock the lock to write
+     *
+     * @return the number of rows written
+     *
+     * @throws SQLException if something goes wrong
+     */
+    protected int internalWriteLock(PreparedStatement stmt, CmsLock lock) throws SQLException {
+
+        int count = 0;
+        // only persist locks that should be written to the DB
+        CmsLock sysLock = lock.getSystemLock();
+        if (sysLock.isPersistent()) {
+            // persist system lock
+            stmt.setString(1, sysLock.getResourceName());
+            stmt.setString(2, sysLock.getUserId().toString());
+            stmt.setString(3, sysLock.getProjectId().toString());
+            stmt.setInt(4, sysLock.getType().hashCode());
+            stmt.executeUpdate();
+            count++;
+        }
+        CmsLock editLock = lock.getEditionLock();
+        if (editLock.isPersistent()) {
+            // persist edition lock
+            stmt.setString(1, editLock.getResourceName());
+            stmt.setString(2, editLock.getUserId().toString());
+            stmt.setString(3, editLock.getProjectId().toString());
+            stmt.setInt(4, editLock.getType().hashCode());
+            stmt.executeUpdate();
+            count++;
+        }
+        return count;
+    }
+
     /**
      * Build the whole WHERE SQL statement part for the given log entry filter.<p>
      *
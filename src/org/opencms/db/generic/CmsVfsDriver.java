@@ -621,6 +621,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
                 m_sqlManager.closeAll(dbc, conn, stmt, null);
             }
         }
+        m_driverManager.getRelationGraphCache().relationCreated(dbc, projectId, relation);
     }
 
     /**
@@ -1202,6 +1203,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } finally {
             m_sqlManager.closeAll(dbc, conn, stmt, null);
         }
+        m_driverManager.getRelationGraphCache().relationsDeleted(dbc, projectId, resource, filter);
         // update broken remaining relations
         updateBrokenRelations(dbc, projectId, resource.getRootPath());
     }
@@ -4128,6 +4130,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } finally {
             m_sqlManager.closeAll(dbc, conn, stmt, null);
         }
+        m_driverManager.getRelationGraphCache().relationsMoved(dbc, projectId, structureId, rootPath);
     }
 
     /**
@@ -4657,6 +4660,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } finally {
             m_sqlManager.closeAll(dbc, conn, stmt, null);
         }
+        m_driverManager.getRelationGraphCache().relationTargetsUpdated(dbc, projectId, rootPath);
     }
 
     /**
@@ -4714,6 +4718,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
                 e);
         }
 
+        m_driverManager.getRelationGraphCache().relationTargetsUpdated(dbc, projectId, rootPath);
     }
 
     /**
@@ -33,6 +33,9 @@ import org.opencms.i18n.CmsMessageContainer;
 import org.opencms.main.CmsException;
 import org.opencms.report.I_CmsReport;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.persistence.EntityManager;
 
 /**
@@ -42,6 +45,9 @@ import javax.persistence.EntityManager;
  */
 public final class CmsDbContext extends org.opencms.db.CmsDbContext {
 
+    /** The actions to perform after the current transaction has been committed. */
+    protected List<Runnable> m_commitActions = new ArrayList<Runnable>();
+
     /** The EntityManager instance for this context. */
     protected EntityManager m_entityManager;
 
@@ -70,6 +76,23 @@ public final class CmsDbContext extends org.opencms.db.CmsDbContext {
         m_entityManager.getTransaction().begin();
     }
 
+    /**
+     * Performs the action after the current transaction has been committed.<p>
+     *
+     * If the transaction is rolled back, the action is discarded.<p>
+     *
+     * @see org.opencms.db.CmsDbContext#afterCommit(java.lang.Runnable)
+     */
+    @Override
+    public void afterCommit(Runnable action) {
+
+        if ((m_entityManager.getTransaction() != null) && m_entityManager.getTransaction().isActive()) {
+            m_commitActions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
     /**
      * Clears this database context.<p>
      */
@@ -97,6 +120,15 @@ public final class CmsDbContext extends org.opencms.db.CmsDbContext {
         return m_entityManager;
     }
 
+    /**
+     * @see org.opencms.db.CmsDbContext#hasPendingCommitActions()
+     */
+    @Override
+    public boolean hasPendingCommitActions() {
+
+        return !m_commitActions.isEmpty();
+    }
+
     /**
      * Reports an error to the given report (if available) and to the OpenCms log file.<p>
      *
@@ -135,6 +167,7 @@ public final class CmsDbContext extends org.opencms.db.CmsDbContext {
             m_entityManager.getTransaction().begin();
             m_shouldCommit = true;
         }
+        m_commitActions.clear();
     }
 
     /**
@@ -145,6 +178,20 @@ public final class CmsDbContext extends org.opencms.db.CmsDbContext {
         if ((m_entityManager.getTransaction() != null) && m_entityManager.getTransaction().isActive()) {
             m_entityManager.getTransaction().commit();
         }
+        if (m_commitActions.isEmpty()) {
+            return;
+        }
+        List<Runnable> actions = new ArrayList<Runnable>(m_commitActions);
+        m_commitActions.clear();
+        // the actions may read from the database, so they get a transaction of their own
+        m_entityManager.getTransaction().begin();
+        try {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        } finally {
+            m_entityManager.getTransaction().commit();
+        }
     }
 
     /**
@@ -155,5 +202,6 @@ public final class CmsDbContext extends org.opencms.db.CmsDbContext {
         if ((m_entityManager.getTransaction() != null) && m_entityManager.getTransaction().isActive()) {
             m_entityManager.getTransaction().rollback();
         }
+        m_commitActions.clear();
     }
 }
@@ -201,6 +201,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
     /** Query key. */
     private static final String C_PUBLISHJOB_READ_REPORT = "C_PUBLISHJOB_READ_REPORT";
 
+    /** Query key. */
+    private static final String C_RESOURCE_LOCKS_DELETE_PATH_1 = "C_RESOURCE_LOCKS_DELETE_PATH_1";
+
     /** Query key. */
     private static final String C_RESOURCE_LOCKS_DELETEALL = "C_RESOURCE_LOCKS_DELETEALL";
 
@@ -2400,8 +2403,6 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
      */
     public void writeLocks(CmsDbContext dbc, List<CmsLock> locks) throws CmsDataAccessException {
 
-        CmsDAOResourceLocks rl;
-
         try {
             Query q = m_sqlManager.createQuery(dbc, C_RESOURCE_LOCKS_DELETEALL);
             List<CmsDAOResourceLocks> res = q.getResultList();
@@ -2419,36 +2420,39 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             Iterator<CmsLock> i = locks.iterator();
             int count = 0;
             while (i.hasNext()) {
-                CmsLock lock = i.next();
-                // only persist locks that should be written to the DB
-                CmsLock sysLock = lock.getSystemLock();
-                if (sysLock.isPersistent()) {
-                    // persist system lock
-
-                    rl = new CmsDAOResourceLocks();
+                count += internalWriteLock(dbc, i.next());
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_WRITE_LOCKS_1, new Integer(count)));
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+    }
 
-                    rl.setResourcePath(sysLock.getResourceName());
-                    rl.setUserId(sysLock.getUserId().toString());
-                    rl.setProjectId(sysLock.getProjectId().toString());
-                    rl.setLockType(sysLock.getType().hashCode());
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#writeLocks(org.opencms.db.CmsDbContext, java.util.Set, java.util.List)
+     */
+    public void writeLocks(CmsDbContext dbc, Set<String> paths, List<CmsLock> locks) throws CmsDataAccessException {
 
-                    m_sqlManager.persist(dbc, rl);
-                    count++;
-                }
-                CmsLock editLock = lock.getEditionLock();
-                if (editLock.isPersistent()) {
-                    // persist edition lock
-                    rl = new CmsDAOResourceLocks();
-
-                    rl.setResourcePath(editLock.getResourceName());
-                    rl.setUserId(editLock.getUserId().toString());
-                    rl.setProjectId(editLock.getProjectId().toString());
-                    rl.setLockType(editLock.getType().hashCode());
-
-                    m_sqlManager.persist(dbc, rl);
-                    count++;
+        try {
+            int deleted = 0;
+            for (String path : paths) {
+                Query q = m_sqlManager.createQuery(dbc, C_RESOURCE_LOCKS_DELETE_PATH_1);
+                q.setParameter(1, path);
+                List<CmsDAOResourceLocks> res = q.getResultList();
+                for (CmsDAOResourceLocks r : res) {
+                    m_sqlManager.remove(dbc, r);
+                    deleted++;
                 }
             }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_CLEAR_LOCKS_1, new Integer(deleted)));
+            }
+            int count = 0;
+            for (CmsLock lock : locks) {
+                count += internalWriteLock(dbc, lock);
+            }
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_WRITE_LOCKS_1, new Integer(count)));
             }
@@ -2879,6 +2883,43 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * Writes the persistent parts of a lock to the database.<p>
+     *
+     * @param dbc the current database context
+     * @param lock the lock to write
+     *
+     * @return the number of rows written
+     */
+    protected int internalWriteLock(CmsDbContext dbc, CmsLock lock) {
+
+        int count = 0;
+        // only persist locks that should be written to the DB
+        CmsLock sysLock = lock.getSystemLock();
+        if (sysLock.isPersistent()) {
+            // persist system lock
+            CmsDAOResourceLocks rl = new CmsDAOResourceLocks();
+            rl.setResourcePath(sysLock.getResourceName());
+            rl.setUserId(sysLock.getUserId().toString());
+            rl.setProjectId(sysLock.getProjectId().toString());
+            rl.setLockType(sysLock.getType().hashCode());
+            m_sqlManager.persist(dbc, rl);
+            count++;
+        }
+        CmsLock editLock = lock.getEditionLock();
+        if (editLock.isPersistent()) {
+            // persist edition lock
+            CmsDAOResourceLocks rl = new CmsDAOResourceLocks();
+            rl.setResourcePath(editLock.getResourceName());
+            rl.setUserId(editLock.getUserId().toString());
+            rl.setProjectId(editLock.getProjectId().toString());
+            rl.setLockType(editLock.getType().hashCode());
+            m_sqlManager.persist(dbc, rl);
+            count++;
+        }
+        return count;
+    }
+
     /**
      * Build the whole WHERE SQL statement part for the given log entry filter.<p>
      *
@@ -821,6 +821,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } catch (PersistenceException e) {
             throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
         }
+        m_driverManager.getRelationGraphCache().relationCreated(dbc, projectId, relation);
     }
 
     /**
@@ -1371,6 +1372,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } catch (PersistenceException e) {
             throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
         }
+        m_driverManager.getRelationGraphCache().relationsDeleted(dbc, projectId, resource, filter);
         // update broken remaining relations
         updateBrokenRelations(dbc, projectId, resource.getRootPath());
     }
@@ -3888,6 +3890,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } catch (PersistenceException e) {
             throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
         }
+        m_driverManager.getRelationGraphCache().relationsMoved(dbc, projectId, structureId, rootPath);
     }
 
     /**
@@ -4438,6 +4441,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } catch (PersistenceException e) {
             throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
         }
+        m_driverManager.getRelationGraphCache().relationTargetsUpdated(dbc, projectId, rootPath);
     }
 
     /**
@@ -4478,6 +4482,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } catch (PersistenceException e) {
             throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
         }
+        m_driverManager.getRelationGraphCache().relationTargetsUpdated(dbc, projectId, rootPath);
     }
 
     /**
@@ -1366,6 +1366,43 @@ public final class CmsObject {
         return getBlockingLockedResources(resource);
     }
 
+    /**
+     * Returns the broken relations of the given resources and their sub resources.<p>
+     *
+     * A relation is broken if its target does not exist. The relations of all resources
+     * are read at once, which is faster than reading them for each resource.<p>
+     *
+     * You should have view/read permissions on the given resources.<p>
+     *
+     * @param resources the resources to retrieve the broken relations for
+     *
+     * @return a List containing all broken {@link org.opencms.relations.CmsRelation} objects,
+     *          sorted with {@link CmsRelation#COMPARATOR}
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsSecurityManager#getBrokenRelations(CmsRequestContext, List)
+     */
+    public List<CmsRelation> getBrokenRelations(List<CmsResource> resources) throws CmsException {
+
+        return m_securityManager.getBrokenRelations(m_context, resources);
+    }
+
+    /**
+     * Returns the broken relations of all resources in the current site.<p>
+     *
+     * @return a List containing all broken {@link org.opencms.relations.CmsRelation} objects of the current site,
+     *          sorted with {@link CmsRelation#COMPARATOR}
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see #getBrokenRelations(List)
+     */
+    public List<CmsRelation> getBrokenRelationsInSite() throws CmsException {
+
+        return getBrokenRelations(Collections.singletonList(readResource("/", CmsResourceFilter.ALL)));
+    }
+
     /**
      * Returns all child groups of a group.<p>
      *
@@ -1728,6 +1765,32 @@ public final class CmsObject {
         return getRelationsForResource(readResource(resourceName, CmsResourceFilter.ALL), filter);
     }
 
+    /**
+     * Returns the relations matching the given filter for each of the given resources.<p>
+     *
+     * The relations of all resources are read at once, which is faster than calling
+     * {@link #getRelationsForResource(CmsResource, CmsRelationFilter)} for each resource.<p>
+     *
+     * You should have view/read permissions on the given resources.<p>
+     *
+     * @param resources the resources to retrieve the relations for
+     * @param filter the filter to match the relations
+     *
+     * @return a Map containing the {@link org.opencms.relations.CmsRelation} objects of each resource
+     *          matching the given filter, keyed by the structure id of the resource
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsSecurityManager#getRelationsForResources(CmsRequestContext, List, CmsRelationFilter)
+     */
+    public Map<CmsUUID, List<CmsRelation>> getRelationsForResources(
+        List<CmsResource> resources,
+        CmsRelationFilter filter)
+    throws CmsException {
+
+        return m_securityManager.getRelationsForResources(m_context, resources, filter);
+    }
+
     /**
      * Returns the current users request context.<p>
      *
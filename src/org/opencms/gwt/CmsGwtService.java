@@ -45,6 +45,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -76,6 +77,9 @@ public class CmsGwtService extends RemoteServiceServlet {
     /** The current CMS context. */
     private ThreadLocal<CmsObject> m_perThreadCmsObject;
 
+    /** The pool of idle instances this instance was taken from. */
+    private transient Queue<CmsGwtService> m_pool;
+
     /**
      * Constructor.<p>
      */
@@ -377,4 +381,24 @@ public class CmsGwtService extends RemoteServiceServlet {
             LOG.debug("Unable to unlock " + resource.getRootPath(), e);
         }
     }
+
+    /**
+     * Returns the pool of idle instances this instance was taken from.<p>
+     *
+     * @return the pool, or <code>null</code> if the instance is not in use
+     */
+    Queue<CmsGwtService> getPool() {
+
+        return m_pool;
+    }
+
+    /**
+     * Sets the pool of idle instances this instance was taken from.<p>
+     *
+     * @param pool the pool
+     */
+    void setPool(Queue<CmsGwtService> pool) {
+
+        m_pool = pool;
+    }
 }
@@ -48,6 +48,11 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.text.ParseException;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.servlet.ServletConfig;
 
 import org.apache.commons.logging.Log;
 
@@ -59,19 +64,31 @@ import com.google.gwt.user.server.rpc.SerializationPolicyLoader;
  *
  * We cache instances of this class rather than caching instances of {@link CmsGwtService} directly because
  * its superclass, {@link com.google.gwt.user.server.rpc.RemoteServiceServlet}, does some caching which we can't use because it doesn't
- * take the distinction between online and offline requests into account.
+ * take the distinction between online and offline requests into account.<p>
+ *
+ * The context also keeps a bounded pool of initialized service instances, so that RPC calls don't have to
+ * create and initialize a new servlet instance every time. A pooled instance is only used by one request at a time.<p>
  *
  * @since 8.0.0
  *
  */
 public class CmsGwtServiceContext implements I_CmsEventListener {
 
+    /** The maximum number of idle service instances kept in the pool. */
+    public static final int MAX_IDLE_SERVICES = 32;
+
     /** The static log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsGwtServiceContext.class);
 
     /** The name, which is used for debugging. */
     private String m_name;
 
+    /** The idle service instances used for offline requests. */
+    private volatile BlockingQueue<CmsGwtService> m_offlineServices;
+
+    /** The idle service instances used for online requests. */
+    private volatile BlockingQueue<CmsGwtService> m_onlineServices;
+
     /** The serialization policy path. */
     private String m_serializationPolicyPath;
 
@@ -81,6 +98,9 @@ public class CmsGwtServiceContext implements I_CmsEventListener {
     /** The online serialization policy. */
     private SerializationPolicy m_serPolicyOnline;
 
+    /** The service class, resolved on first use. */
+    private volatile Class<? extends CmsGwtService> m_serviceClass;
+
     /**
      * Creates a new service context object.<p>
      *
@@ -89,6 +109,8 @@ public class CmsGwtServiceContext implements I_CmsEventListener {
     public CmsGwtServiceContext(String name) {
 
         m_name = name;
+        m_onlineServices = createPool();
+        m_offlineServices = createPool();
 
         // listen on VFS changes for serialization policies
         OpenCms.addCmsEventListener(
@@ -145,15 +167,19 @@ public class CmsGwtServiceContext implements I_CmsEventListener {
             case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
             case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
                 m_serPolicyOnline = null;
+                m_onlineServices = createPool();
                 break;
 
             case I_CmsEventListener.EVENT_CLEAR_CACHES:
                 m_serPolicyOnline = null;
                 m_serPolicyOffline = null;
+                m_onlineServices = createPool();
+                m_offlineServices = createPool();
                 break;
 
             case I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES:
                 m_serPolicyOffline = null;
+                m_offlineServices = createPool();
                 break;
 
             default:
@@ -162,6 +188,66 @@ public class CmsGwtServiceContext implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Returns the number of idle service instances currently kept in the pool.<p>
+     *
+     * @param online <code>true</code> for the instances used for online requests
+     *
+     * @return the number of idle service instances
+     */
+    public int getIdleServiceCount(boolean online) {
+
+        return online ? m_onlineServices.size() : m_offlineServices.size();
+    }
+
+    /**
+     * Returns a service instance for exclusive use by the current request.<p>
+     *
+     * An idle instance from the pool is reused if available, otherwise a new instance is created and initialized.
+     * The instance must be handed back with {@link #releaseService(CmsGwtService)} after the request.<p>
+     *
+     * Online and offline requests use separate pools, since the GWT servlet caches the serialization policy
+     * per instance. For the same reason the pools are dropped whenever the serialization policies are uncached.<p>
+     *
+     * @param servletConfig the servlet configuration used to initialize new instances
+     * @param online <code>true</code> if the instance is used for an online request
+     *
+     * @return the service instance
+     *
+     * @throws Exception if the service class can not be instantiated or initialized
+     */
+    public CmsGwtService getService(ServletConfig servletConfig, boolean online) throws Exception {
+
+        BlockingQueue<CmsGwtService> pool = online ? m_onlineServices : m_offlineServices;
+        CmsGwtService service = pool.poll();
+        if (service == null) {
+            service = createService(servletConfig);
+        }
+        service.setPool(pool);
+        return service;
+    }
+
+    /**
+     * Hands a service instance obtained from {@link #getService(ServletConfig, boolean)} back to the pool.<p>
+     *
+     * The request specific state of the instance is cleared. If the pool has been dropped in the meantime
+     * or is full, the instance is discarded.<p>
+     *
+     * @param service the service instance to release
+     */
+    public void releaseService(CmsGwtService service) {
+
+        if (service == null) {
+            return;
+        }
+        service.clearThreadStorage();
+        Queue<CmsGwtService> pool = service.getPool();
+        service.setPool(null);
+        if ((pool != null) && ((pool == m_onlineServices) || (pool == m_offlineServices))) {
+            pool.offer(service);
+        }
+    }
+
     /**
      * @see java.lang.Object#toString()
      */
@@ -214,6 +300,38 @@ public class CmsGwtServiceContext implements I_CmsEventListener {
         return SerializationPolicyLoader.getSerializationPolicyFileName(modulePath + strongName);
     }
 
+    /**
+     * Creates a new, empty pool for idle service instances.<p>
+     *
+     * @return the new pool
+     */
+    private BlockingQueue<CmsGwtService> createPool() {
+
+        return new ArrayBlockingQueue<CmsGwtService>(MAX_IDLE_SERVICES);
+    }
+
+    /**
+     * Creates and initializes a new service instance.<p>
+     *
+     * @param servletConfig the servlet configuration
+     *
+     * @return the new service instance
+     *
+     * @throws Exception if the service class can not be instantiated or initialized
+     */
+    private CmsGwtService createService(ServletConfig servletConfig) throws Exception {
+
+        Class<? extends CmsGwtService> serviceClass = m_serviceClass;
+        if (serviceClass == null) {
+            serviceClass = Class.forName(m_name).asSubclass(CmsGwtService.class);
+            m_serviceClass = serviceClass;
+        }
+        CmsGwtService service = serviceClass.newInstance();
+        service.init(servletConfig);
+        service.setContext(this);
+        return service;
+    }
+
     /**
      * Returns the serialization policy, using lazy initialization.<p>
      *
@@ -305,6 +423,7 @@ public class CmsGwtServiceContext implements I_CmsEventListener {
         }
         if ((m_serializationPolicyPath != null) && resource.getRootPath().equals(m_serializationPolicyPath)) {
             m_serPolicyOffline = null;
+            m_offlineServices = createPool();
         }
     }
 
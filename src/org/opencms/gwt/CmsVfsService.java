@@ -1192,6 +1192,17 @@ public class CmsVfsService extends CmsGwtService implements I_CmsVfsService {
 
     }
 
+    /**
+     * @see org.opencms.gwt.CmsGwtService#clearThreadStorage()
+     */
+    @Override
+    protected void clearThreadStorage() {
+
+        super.clearThreadStorage();
+        // pooled instances are reused for other requests, so the alias helper must not keep the old context
+        m_aliasHelper.setCms(null);
+    }
+
     /**
      * Creates a "broken link" bean based on a resource.<p>
      *
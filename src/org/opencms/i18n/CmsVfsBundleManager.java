@@ -34,6 +34,7 @@ import org.opencms.file.CmsResourceFilter;
 import org.opencms.main.CmsEvent;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsAsyncEventListener;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsStringUtil;
@@ -52,7 +53,7 @@ import com.google.common.collect.Lists;
 /**
  * Manages message bundles loaded from the VFS.<p>
  */
-public class CmsVfsBundleManager implements I_CmsEventListener {
+public class CmsVfsBundleManager implements I_CmsAsyncEventListener {
 
     /**
      * Data holder for a base name and locale of a message bundle.<p>
@@ -162,6 +163,16 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
         }
     }
 
+    /**
+     * The bundles are reloaded in a separate thread anyway, so all events can be handled asynchronously.<p>
+     *
+     * @see org.opencms.main.I_CmsAsyncEventListener#isAsyncEvent(org.opencms.main.CmsEvent)
+     */
+    public boolean isAsyncEvent(CmsEvent event) {
+
+        return true;
+    }
+
     /**
      * Indicates if a reload thread is currently scheduled.
      *
@@ -172,6 +183,22 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
         return m_reloadIsScheduled;
     }
 
+    /**
+     * Since clearing the caches reloads all bundles, a clear caches event replaces any other event.<p>
+     *
+     * @see org.opencms.main.I_CmsAsyncEventListener#mergeEvents(org.opencms.main.CmsEvent, org.opencms.main.CmsEvent)
+     */
+    public CmsEvent mergeEvents(CmsEvent first, CmsEvent second) {
+
+        if (first.getType() == I_CmsEventListener.EVENT_CLEAR_CACHES) {
+            return first;
+        }
+        if (second.getType() == I_CmsEventListener.EVENT_CLEAR_CACHES) {
+            return second;
+        }
+        return null;
+    }
+
     /**
      * Re-initializes the resource bundles.<p>
      *
@@ -29,7 +29,6 @@ package org.opencms.importexport;
 
 import org.opencms.db.CmsDefaultUsers;
 import org.opencms.db.CmsResourceState;
-import org.opencms.file.CmsFile;
 import org.opencms.file.CmsFolder;
 import org.opencms.file.CmsGroup;
 import org.opencms.file.CmsObject;
@@ -99,6 +98,9 @@ public class CmsExport {
     /** The cms context. */
     private CmsObject m_cms;
 
+    /** The writer reading and writing the file contents in parallel, only set while resources are exported. */
+    private CmsExportContentWriter m_contentWriter;
+
     /** Counter for the export. */
     private int m_exportCount;
 
@@ -226,6 +228,11 @@ public class CmsExport {
             }
 
             throw new CmsImportExportException(message, ioe);
+        } finally {
+            if (m_exportWriter != null) {
+                // removes the temporary manifest file, also if the export failed
+                m_exportWriter.close();
+            }
         }
     }
 
@@ -264,7 +271,8 @@ public class CmsExport {
                         String export = getCms().getSitePath(file);
                         if (checkExportResource(export)) {
                             if (isInExportableProject(file)) {
-                                exportFile(getCms().readFile(export, CmsResourceFilter.IGNORE_EXPIRATION));
+                                // the content is read in parallel by the content writer
+                                exportFile(file);
                             }
                         }
                     }
@@ -332,7 +340,8 @@ public class CmsExport {
                 String fileName = fileNames.get(i);
 
                 try {
-                    CmsFile file = getCms().readFile(fileName, CmsResourceFilter.IGNORE_EXPIRATION);
+                    // the content is read when the file is written to the export
+                    CmsResource file = getCms().readResource(fileName, CmsResourceFilter.IGNORE_EXPIRATION);
                     if (!file.getState().isDeleted() && !CmsWorkplace.isTemporaryFile(file)) {
                         if (checkExportResource(fileName)) {
                             if (m_parameters.isRecursive()) {
@@ -811,48 +820,18 @@ public class CmsExport {
         }
 
         m_exportedResources = new HashSet<CmsUUID>();
-
-        // export the folders
-        for (int i = 0; i < folderNames.size(); i++) {
-            String path = folderNames.get(i);
-            if (m_parameters.isRecursive()) {
-                // first add super folders to the xml-config file
-                addParentFolders(path);
-                addChildResources(path);
-            } else {
-                CmsFolder folder;
-                try {
-                    folder = getCms().readFolder(path, CmsResourceFilter.IGNORE_EXPIRATION);
-                } catch (CmsException e) {
-                    CmsMessageContainer message = Messages.get().container(
-                        Messages.ERR_IMPORTEXPORT_ERROR_ADDING_PARENT_FOLDERS_1,
-                        path);
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug(message.key(), e);
-                    }
-                    throw new CmsImportExportException(message, e);
-                }
-                CmsResourceState state = folder.getState();
-                long age = folder.getDateLastModified() < folder.getDateCreated()
-                ? folder.getDateCreated()
-                : folder.getDateLastModified();
-
-                if (getCms().getRequestContext().getCurrentProject().isOnlineProject()
-                    || (m_parameters.isIncludeUnchangedResources())
-                    || state.isNew()
-                    || state.isChanged()) {
-                    if (!state.isDeleted() && (age >= m_parameters.getContentAge())) {
-                        // check if this is a system-folder and if it should be included.
-                        String export = getCms().getSitePath(folder);
-                        if (checkExportResource(export)) {
-                            appendResourceToManifest(folder, true);
-                        }
-                    }
-                }
-            }
+        m_contentWriter = new CmsExportContentWriter(
+            getCms(),
+            m_exportWriter,
+            CmsExportContentWriter.getDefaultThreadCount());
+        try {
+            exportResources(folderNames, fileNames);
+            // write the contents which are still pending
+            m_contentWriter.finish();
+        } finally {
+            m_contentWriter.close();
+            m_contentWriter = null;
         }
-        // export the files
-        addFiles(fileNames);
 
         // write the XML
         getSaxWriter().writeClose(m_resourceNode);
@@ -863,13 +842,15 @@ public class CmsExport {
     /**
      * Exports one single file with all its data and content.<p>
      *
+     * While resources are exported, the content of the file is read and written in parallel to the manifest.<p>
+     *
      * @param file the file to be exported
      *
      * @throws CmsImportExportException if something goes wrong
      * @throws SAXException if something goes wrong processing the manifest.xml
      * @throws IOException if the ZIP entry for the file could be appended to the ZIP archive
      */
-    protected void exportFile(CmsFile file) throws CmsImportExportException, SAXException, IOException {
+    protected void exportFile(CmsResource file) throws CmsImportExportException, SAXException, IOException {
 
         String source = trimResourceName(getCms().getSitePath(file));
         I_CmsReport report = getReport();
@@ -890,7 +871,21 @@ public class CmsExport {
         // check if the content of this resource was not already exported
         if (!m_exportedResources.contains(file.getResourceId())) {
             // write the file using the export writer
-            m_exportWriter.writeFile(file, source);
+            if (m_contentWriter != null) {
+                m_contentWriter.addFile(file, source);
+            } else {
+                try {
+                    m_exportWriter.writeFile(getCms().readFile(file), source);
+                } catch (CmsException e) {
+                    CmsMessageContainer message = Messages.get().container(
+                        Messages.ERR_IMPORTEXPORT_ERROR_ADDING_FILE_1,
+                        source);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(message.key(), e);
+                    }
+                    throw new CmsImportExportException(message, e);
+                }
+            }
             // add the resource id to the storage to mark that this resource was already exported
             m_exportedResources.add(file.getResourceId());
             // create the manifest-entries
@@ -1207,6 +1202,62 @@ public class CmsExport {
         }
     }
 
+    /**
+     * Exports the given folders and files.<p>
+     *
+     * @param folderNames the paths of the folders to export
+     * @param fileNames the paths of the files to export
+     *
+     * @throws CmsImportExportException if something goes wrong
+     * @throws SAXException if something goes wrong processing the manifest.xml
+     * @throws IOException if not all resources could be appended to the ZIP archive
+     */
+    protected void exportResources(List<String> folderNames, List<String> fileNames)
+    throws CmsImportExportException, IOException, SAXException {
+
+        // export the folders
+        for (int i = 0; i < folderNames.size(); i++) {
+            String path = folderNames.get(i);
+            if (m_parameters.isRecursive()) {
+                // first add super folders to the xml-config file
+                addParentFolders(path);
+                addChildResources(path);
+            } else {
+                CmsFolder folder;
+                try {
+                    folder = getCms().readFolder(path, CmsResourceFilter.IGNORE_EXPIRATION);
+                } catch (CmsException e) {
+                    CmsMessageContainer message = Messages.get().container(
+                        Messages.ERR_IMPORTEXPORT_ERROR_ADDING_PARENT_FOLDERS_1,
+                        path);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(message.key(), e);
+                    }
+                    throw new CmsImportExportException(message, e);
+                }
+                CmsResourceState state = folder.getState();
+                long age = folder.getDateLastModified() < folder.getDateCreated()
+                ? folder.getDateCreated()
+                : folder.getDateLastModified();
+
+                if (getCms().getRequestContext().getCurrentProject().isOnlineProject()
+                    || (m_parameters.isIncludeUnchangedResources())
+                    || state.isNew()
+                    || state.isChanged()) {
+                    if (!state.isDeleted() && (age >= m_parameters.getContentAge())) {
+                        // check if this is a system-folder and if it should be included.
+                        String export = getCms().getSitePath(folder);
+                        if (checkExportResource(export)) {
+                            appendResourceToManifest(folder, true);
+                        }
+                    }
+                }
+            }
+        }
+        // export the files
+        addFiles(fileNames);
+    }
+
     /**
      * Exports one single user with all its data.<p>
      *
@@ -1454,6 +1505,7 @@ public class CmsExport {
             getExportFileName(),
             m_parameters.isExportAsFiles(),
             m_parameters.isXmlValidation());
+        m_exportWriter.setStoreCompressedMedia(m_parameters.isStoreCompressedMedia());
         // initialize the dom4j writer object as member variable
         setSaxWriter(m_exportWriter.getSaxWriter());
 
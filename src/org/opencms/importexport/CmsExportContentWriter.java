@@ -0,0 +1,224 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.importexport;
+
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Reads the contents of the files of an export in parallel and writes them to the export in order.<p>
+ *
+ * The contents are read by a small number of worker threads while the thread walking the VFS continues writing
+ * the manifest. The contents are written to the export helper by the walking thread in the order in which
+ * the files were added, so the export is deterministic. Only a limited number of files and bytes is read ahead,
+ * so the memory used for the export does not depend on the size of the export.<p>
+ *
+ * Instances of this class must only be used by the thread walking the VFS.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsExportContentWriter {
+
+    /**
+     * A file which has been added to the export but not yet written.<p>
+     */
+    private static class CmsPendingFile {
+
+        /** The future for the file content. */
+        Future<CmsFile> m_future;
+
+        /** The name of the file in the export. */
+        String m_name;
+
+        /** The size of the file content in bytes. */
+        long m_size;
+    }
+
+    /** The max number of bytes to read ahead. */
+    public static final long MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
+    /** The max number of files to read ahead. */
+    public static final int MAX_PENDING_COUNT = 32;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsExportContentWriter.class);
+
+    /** The CMS context used to read the files. */
+    private CmsObject m_cms;
+
+    /** The executor reading the files. */
+    private ExecutorService m_executor;
+
+    /** The export helper the files are written to. */
+    private CmsExportHelper m_helper;
+
+    /** The files which are read ahead, in the order in which they were added. */
+    private LinkedList<CmsPendingFile> m_pending = new LinkedList<CmsPendingFile>();
+
+    /** The number of bytes which are read ahead. */
+    private long m_pendingBytes;
+
+    /**
+     * Creates a new writer.<p>
+     *
+     * @param cms the CMS context used to read the files
+     * @param helper the export helper the files are written to
+     * @param threads the number of threads reading the files
+     */
+    public CmsExportContentWriter(CmsObject cms, CmsExportHelper helper, int threads) {
+
+        m_cms = cms;
+        m_helper = helper;
+        final AtomicInteger count = new AtomicInteger();
+        m_executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "OpenCms export reader " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the default number of threads reading the files.<p>
+     *
+     * @return the default number of threads reading the files
+     */
+    public static int getDefaultThreadCount() {
+
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Adds a file to the export.<p>
+     *
+     * The content of the file is read in the background. If too many files are pending,
+     * this method waits until the oldest files have been written.<p>
+     *
+     * @param resource the file to export
+     * @param name the name of the file in the export
+     *
+     * @throws CmsImportExportException if a file can not be read
+     * @throws IOException if a file can not be written
+     */
+    public void addFile(final CmsResource resource, String name) throws CmsImportExportException, IOException {
+
+        CmsPendingFile pending = new CmsPendingFile();
+        pending.m_name = name;
+        pending.m_size = resource.getLength();
+        pending.m_future = m_executor.submit(new Callable<CmsFile>() {
+
+            public CmsFile call() throws Exception {
+
+                return OpenCms.initCmsObject(m_cms).readFile(resource);
+            }
+        });
+        m_pending.add(pending);
+        m_pendingBytes += pending.m_size;
+        while ((m_pending.size() > MAX_PENDING_COUNT)
+            || ((m_pending.size() > 1) && (m_pendingBytes > MAX_PENDING_BYTES))) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Stops reading the files and releases the worker threads.<p>
+     */
+    public void close() {
+
+        for (CmsPendingFile pending : m_pending) {
+            pending.m_future.cancel(false);
+        }
+        m_pending.clear();
+        m_pendingBytes = 0;
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Writes all pending files to the export.<p>
+     *
+     * @throws CmsImportExportException if a file can not be read
+     * @throws IOException if a file can not be written
+     */
+    public void finish() throws CmsImportExportException, IOException {
+
+        while (!m_pending.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Waits for the content of the oldest pending file and writes it to the export.<p>
+     *
+     * @throws CmsImportExportException if the file can not be read
+     * @throws IOException if the file can not be written
+     */
+    private void writeNext() throws CmsImportExportException, IOException {
+
+        CmsPendingFile pending = m_pending.removeFirst();
+        m_pendingBytes -= pending.m_size;
+        CmsFile file;
+        try {
+            file = pending.m_future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmsImportExportException(
+                Messages.get().container(Messages.ERR_IMPORTEXPORT_ERROR_ADDING_FILE_1, pending.m_name),
+                e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            CmsMessageContainer message = Messages.get().container(
+                Messages.ERR_IMPORTEXPORT_ERROR_ADDING_FILE_1,
+                pending.m_name);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(message.key(), cause);
+            }
+            throw new CmsImportExportException(message, cause instanceof CmsException ? cause : e);
+        }
+        m_helper.writeFile(file, pending.m_name);
+    }
+}
@@ -29,19 +29,29 @@ package org.opencms.importexport;
 
 import org.opencms.configuration.CmsConfigurationManager;
 import org.opencms.file.CmsFile;
+import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsXmlSaxWriter;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.logging.Log;
 import org.dom4j.io.SAXWriter;
 import org.xml.sax.SAXException;
 
@@ -52,8 +62,33 @@ import org.xml.sax.SAXException;
  */
 public class CmsExportHelper {
 
-    /** Length that can be safely written to ZIP output. */
-    private static final int SUB_LENGTH = 4096;
+    /** The file extensions of media formats which are already compressed. */
+    public static final Set<String> COMPRESSED_MEDIA_EXTENSIONS = new HashSet<String>(
+        Arrays.asList(
+            "jpg",
+            "jpeg",
+            "png",
+            "gif",
+            "webp",
+            "mp3",
+            "mp4",
+            "m4a",
+            "m4v",
+            "ogg",
+            "webm",
+            "avi",
+            "mov",
+            "zip",
+            "gz",
+            "jar",
+            "woff",
+            "woff2"));
+
+    /** Size of the buffer used for copying the manifest to the ZIP output. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsExportHelper.class);
 
     /** The main export path. */
     private String m_exportPath;
@@ -64,9 +99,18 @@ public class CmsExportHelper {
     /** Indicates if the resources are exported in one export .ZIP file or as individual files. */
     private boolean m_isExportAsFiles;
 
+    /** The temporary file the manifest is written to in case of a ZIP export. */
+    private File m_manifestTempFile;
+
+    /** The writer for the manifest. */
+    private Writer m_manifestWriter;
+
     /** The SAX writer for the Manifest file. */
     private SAXWriter m_saxWriter;
 
+    /** Indicates if already compressed media files are stored in the ZIP file without compressing them again. */
+    private boolean m_storeCompressedMedia;
+
     /**
      * Creates a new export helper.<p>
      *
@@ -96,11 +140,15 @@ public class CmsExportHelper {
             writer = new FileWriter(rfsFile);
         } else {
             // create the export ZIP stream
-            m_exportZipStream = new ZipOutputStream(new FileOutputStream(m_exportPath));
-            // delegate writing to a String writer
-            writer = new StringWriter(SUB_LENGTH);
+            m_exportZipStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(m_exportPath)));
+            // the manifest is streamed to a temporary file, since it can only be added to the ZIP after all files
+            m_manifestTempFile = new File(m_exportPath + ".manifest.tmp");
+            writer = new OutputStreamWriter(
+                new BufferedOutputStream(new FileOutputStream(m_manifestTempFile)),
+                OpenCms.getSystemInfo().getDefaultEncoding());
         }
 
+        m_manifestWriter = writer;
         // generate the SAX XML writer
         CmsXmlSaxWriter saxHandler = new CmsXmlSaxWriter(writer, OpenCms.getSystemInfo().getDefaultEncoding());
         saxHandler.setEscapeXml(true);
@@ -120,6 +168,34 @@ public class CmsExportHelper {
         m_saxWriter = new SAXWriter(saxHandler, saxHandler);
     }
 
+    /**
+     * Closes the export output and deletes the temporary manifest file.<p>
+     *
+     * This has to be called when the export is finished, also if it failed.
+     * Streams already closed by {@link #writeManifest(CmsXmlSaxWriter)} are not affected.<p>
+     */
+    public void close() {
+
+        try {
+            m_manifestWriter.close();
+        } catch (IOException e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+        if (m_exportZipStream != null) {
+            try {
+                m_exportZipStream.close();
+            } catch (IOException e) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        if ((m_manifestTempFile != null) && m_manifestTempFile.exists() && !m_manifestTempFile.delete()) {
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_EXPORT_TEMP_FILE_NOT_DELETED_1,
+                    m_manifestTempFile.getAbsolutePath()));
+        }
+    }
+
     /**
      * Returns the SAX writer for the Manifest file.<p>
      *
@@ -130,6 +206,28 @@ public class CmsExportHelper {
         return m_saxWriter;
     }
 
+    /**
+     * Returns if already compressed media files are stored in the ZIP file without compressing them again.<p>
+     *
+     * @return <code>true</code> if already compressed media files are stored without compression
+     */
+    public boolean isStoreCompressedMedia() {
+
+        return m_storeCompressedMedia;
+    }
+
+    /**
+     * Sets if already compressed media files are stored in the ZIP file without compressing them again.<p>
+     *
+     * This saves the time for compressing files which can not be compressed any further.<p>
+     *
+     * @param storeCompressedMedia <code>true</code> if already compressed media files should be stored uncompressed
+     */
+    public void setStoreCompressedMedia(boolean storeCompressedMedia) {
+
+        m_storeCompressedMedia = storeCompressedMedia;
+    }
+
     /**
      * Writes a single OpenCms VFS file to the export.<p>
      *
@@ -176,6 +274,22 @@ public class CmsExportHelper {
         return m_exportPath + name;
     }
 
+    /**
+     * Checks if a file is an already compressed media file, based on its file extension.<p>
+     *
+     * @param name the name of the file
+     *
+     * @return <code>true</code> if the file is an already compressed media file
+     */
+    protected boolean isCompressedMedia(String name) {
+
+        int pos = name.lastIndexOf('.');
+        if ((pos < 0) || (pos < name.lastIndexOf('/'))) {
+            return false;
+        }
+        return COMPRESSED_MEDIA_EXTENSIONS.contains(name.substring(pos + 1).toLowerCase(Locale.ENGLISH));
+    }
+
     /**
      * Removes the old export output, which may be an existing file or directory.<p>
      *
@@ -234,6 +348,16 @@ public class CmsExportHelper {
         ZipEntry entry = new ZipEntry(name);
         // save the time of the last modification in the zip
         entry.setTime(file.getDateLastModified());
+        if (m_storeCompressedMedia && isCompressedMedia(name)) {
+            // stored entries require the size and checksum to be known in advance
+            byte[] content = file.getContents();
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
         m_exportZipStream.putNextEntry(entry);
         m_exportZipStream.write(file.getContents());
         m_exportZipStream.closeEntry();
@@ -260,8 +384,8 @@ public class CmsExportHelper {
     /**
      * Writes the OpenCms manifest.xml file to the ZIP export.<p>
      *
-     * In case of the ZIP export the manifest is written to an internal StringBuffer
-     * first, which is then stored in the ZIP file when this method is called.<p>
+     * In case of the ZIP export the manifest is streamed to a temporary file
+     * first, which is then copied to the ZIP file when this method is called.<p>
      *
      * @param xmlSaxWriter the SAX writer to use
      *
@@ -274,29 +398,29 @@ public class CmsExportHelper {
         xmlSaxWriter.endDocument();
         xmlSaxWriter.getWriter().close();
 
-        // create ZIP entry for the manifest XML document
-        ZipEntry entry = new ZipEntry(CmsImportExportManager.EXPORT_MANIFEST);
-        m_exportZipStream.putNextEntry(entry);
-
-        // complex substring operation is required to ensure handling for very large export manifest files
-        StringBuffer result = ((StringWriter)xmlSaxWriter.getWriter()).getBuffer();
-        int steps = result.length() / SUB_LENGTH;
-        int rest = result.length() % SUB_LENGTH;
-        int pos = 0;
-        for (int i = 0; i < steps; i++) {
-            String sub = result.substring(pos, pos + SUB_LENGTH);
-            m_exportZipStream.write(sub.getBytes(OpenCms.getSystemInfo().getDefaultEncoding()));
-            pos += SUB_LENGTH;
-        }
-        if (rest > 0) {
-            String sub = result.substring(pos, pos + rest);
-            m_exportZipStream.write(sub.getBytes(OpenCms.getSystemInfo().getDefaultEncoding()));
-        }
+        try {
+            // create ZIP entry for the manifest XML document
+            ZipEntry entry = new ZipEntry(CmsImportExportManager.EXPORT_MANIFEST);
+            m_exportZipStream.putNextEntry(entry);
+
+            InputStream in = new FileInputStream(m_manifestTempFile);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    m_exportZipStream.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
 
-        // close the zip entry for the manifest XML document
-        m_exportZipStream.closeEntry();
+            // close the zip entry for the manifest XML document
+            m_exportZipStream.closeEntry();
 
-        // finally close the zip stream
-        m_exportZipStream.close();
+            // finally close the zip stream
+            m_exportZipStream.close();
+        } finally {
+            m_manifestTempFile.delete();
+        }
     }
 }
\ No newline at end of file
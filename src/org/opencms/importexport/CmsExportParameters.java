@@ -79,6 +79,9 @@ public class CmsExportParameters {
     /** The resources to export.*/
     private List<String> m_resources;
 
+    /** If already compressed media files should be stored in the export ZIP without compressing them again. */
+    private boolean m_storeCompressedMedia;
+
     /** If set, the manifest.xml file will be generated with dtd info. */
     private boolean m_xmlValidation;
 
@@ -276,6 +279,16 @@ public class CmsExportParameters {
         return m_recursive;
     }
 
+    /**
+     * Checks if already compressed media files are stored in the export ZIP without compressing them again.<p>
+     *
+     * @return <code>true</code> if already compressed media files are stored without compression
+     */
+    public boolean isStoreCompressedMedia() {
+
+        return m_storeCompressedMedia;
+    }
+
     /**
      * Checks if the manifest.xml file will be generated with dtd info.<p>
      *
@@ -424,6 +437,17 @@ public class CmsExportParameters {
         m_resources = resources;
     }
 
+    /**
+     * Sets if already compressed media files, like images or videos, are stored in the export ZIP
+     * without compressing them again.<p>
+     *
+     * @param storeCompressedMedia <code>true</code> if already compressed media files should be stored uncompressed
+     */
+    public void setStoreCompressedMedia(boolean storeCompressedMedia) {
+
+        m_storeCompressedMedia = storeCompressedMedia;
+    }
+
     /**
      * Sets the xml validation flag. If set, the manifest.xml file will be generated with dtd info.<p>
      *
@@ -0,0 +1,227 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.importexport;
+
+import org.opencms.main.CmsLog;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipException;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Reads the contents of the files of an import ahead of the import of the resources.<p>
+ *
+ * The files are read and decompressed by a small number of worker threads in the order in which they are listed
+ * in the manifest, while the resources are imported in the same order by the thread parsing the manifest.
+ * Only a limited number of files is read ahead, and large files are always read when they are requested,
+ * so the memory used for the import does not depend on the size of the import file.<p>
+ *
+ * Instances of this class must only be used by the thread parsing the manifest.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsImportContentReader {
+
+    /** The max size of a file to read ahead in bytes. */
+    public static final long MAX_PREFETCH_FILE_SIZE = 4 * 1024 * 1024;
+
+    /** The number of files to read ahead. */
+    public static final int PREFETCH_COUNT = 32;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsImportContentReader.class);
+
+    /** The executor reading the files. */
+    private ExecutorService m_executor;
+
+    /** The import helper. */
+    private CmsImportHelper m_helper;
+
+    /** The index of the next file to read ahead. */
+    private int m_next;
+
+    /** The files which are read ahead, by their index in the list of files. */
+    private Map<Integer, Future<byte[]>> m_pending = new LinkedHashMap<Integer, Future<byte[]>>();
+
+    /** The index of the first occurrence of each file. */
+    private Map<String, Integer> m_positions = new HashMap<String, Integer>();
+
+    /** The files with content, in the order in which they are imported. */
+    private List<String> m_sources;
+
+    /**
+     * Creates a new reader.<p>
+     *
+     * @param helper the import helper used to read the files
+     * @param sources the names of the files with content, in the order in which they are listed in the manifest
+     * @param threads the number of threads reading the files
+     */
+    public CmsImportContentReader(CmsImportHelper helper, List<String> sources, int threads) {
+
+        m_helper = helper;
+        m_sources = sources;
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            m_positions.put(sources.get(i), Integer.valueOf(i));
+        }
+        final AtomicInteger count = new AtomicInteger();
+        m_executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "OpenCms import reader " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the default number of threads reading the files.<p>
+     *
+     * @return the default number of threads reading the files
+     */
+    public static int getDefaultThreadCount() {
+
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Stops reading ahead and releases the worker threads.<p>
+     */
+    public void close() {
+
+        for (Future<byte[]> future : m_pending.values()) {
+            future.cancel(false);
+        }
+        m_pending.clear();
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Returns the content of the given file.<p>
+     *
+     * Files listed before the requested file which have been read ahead but not requested are discarded.<p>
+     *
+     * @param source the name of the file, relative to the folder or zip file
+     *
+     * @return the content of the file
+     *
+     * @throws CmsImportExportException if the file can not be read
+     */
+    public byte[] getFileBytes(String source) throws CmsImportExportException {
+
+        Future<byte[]> future = null;
+        Integer position = m_positions.get(source);
+        if (position != null) {
+            int pos = position.intValue();
+            Iterator<Map.Entry<Integer, Future<byte[]>>> it = m_pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Future<byte[]>> entry = it.next();
+                int entryPos = entry.getKey().intValue();
+                if (entryPos > pos) {
+                    break;
+                }
+                it.remove();
+                if (entryPos == pos) {
+                    future = entry.getValue();
+                } else {
+                    entry.getValue().cancel(false);
+                }
+            }
+            m_next = Math.max(m_next, pos + 1);
+        }
+        prefetch();
+        if (future != null) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                LOG.debug(e.getLocalizedMessage(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CmsImportExportException) {
+                    throw (CmsImportExportException)e.getCause();
+                }
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        return m_helper.getFileBytes(source);
+    }
+
+    /**
+     * Returns the size of the given file, or -1 if it is not known.<p>
+     *
+     * @param source the name of the file
+     *
+     * @return the size of the file
+     */
+    private long getFileSize(String source) {
+
+        if (m_helper.getZipFile() != null) {
+            try {
+                return m_helper.getZipEntry(source).getSize();
+            } catch (@SuppressWarnings("unused") ZipException e) {
+                return -1;
+            }
+        }
+        return m_helper.getFile(source).length();
+    }
+
+    /**
+     * Starts reading the next files until enough files are read ahead.<p>
+     */
+    private void prefetch() {
+
+        while ((m_pending.size() < PREFETCH_COUNT) && (m_next < m_sources.size())) {
+            final String source = m_sources.get(m_next);
+            long size = getFileSize(source);
+            if ((size >= 0) && (size <= MAX_PREFETCH_FILE_SIZE)) {
+                m_pending.put(Integer.valueOf(m_next), m_executor.submit(new Callable<byte[]>() {
+
+                    public byte[] call() throws Exception {
+
+                        return m_helper.getFileBytes(source);
+                    }
+                }));
+            }
+            m_next++;
+        }
+    }
+}
@@ -127,6 +127,26 @@ public class CmsImportHelper {
         }
     }
 
+    /**
+     * Checks if the file with the given name exists in the folder or zip file, without reading its content.<p>
+     *
+     * @param filename the name of the file, relative to the folder or zip file
+     *
+     * @return <code>true</code> if the file exists
+     */
+    public boolean existsFile(String filename) {
+
+        if (getZipFile() != null) {
+            try {
+                getZipEntry(filename);
+                return true;
+            } catch (@SuppressWarnings("unused") ZipException e) {
+                return false;
+            }
+        }
+        return getFile(filename).isFile();
+    }
+
     /**
      * Returns a byte array containing the content of the file.<p>
      *
@@ -311,6 +311,12 @@ public class CmsImportVersion10 implements I_CmsImport {
     /** The set of resource ids of files which actually are contained in the zip file. */
     private Set<CmsUUID> m_contentFiles = new HashSet<CmsUUID>();
 
+    /** The reader for the file contents. */
+    private CmsImportContentReader m_contentReader;
+
+    /** The names of the files with content in the zip file, in the order of the manifest. */
+    private List<String> m_contentSources = new ArrayList<String>();
+
     /** The date created value. */
     private long m_dateCreated = DATE_CREATED_UNSPECIFIED;
 
@@ -542,10 +548,10 @@ public class CmsImportVersion10 implements I_CmsImport {
     public void addContentFile(String source, String resourceId) {
 
         if ((source != null) && (resourceId != null)) {
-            try {
-                m_helper.getFileBytes(source);
+            if (m_helper.existsFile(source)) {
                 m_contentFiles.add(new CmsUUID(resourceId));
-            } catch (@SuppressWarnings("unused") CmsImportExportException e) {
+                m_contentSources.add(source);
+            } else {
                 LOG.info("File not found in import: " + source);
             }
         }
@@ -1361,6 +1367,11 @@ public class CmsImportVersion10 implements I_CmsImport {
             m_helper.openFile();
             m_helper.cacheDtdSystemId(DTD_LOCATION, DTD_FILENAME, CmsConfigurationManager.DEFAULT_DTD_PREFIX);
             findContentFiles();
+            // read the file contents in the background while the resources are imported
+            m_contentReader = new CmsImportContentReader(
+                m_helper,
+                m_contentSources,
+                CmsImportContentReader.getDefaultThreadCount());
             // start the parsing process
             stream = m_helper.getFileStream(CmsImportExportManager.EXPORT_MANIFEST);
             digester.parse(stream);
@@ -1381,6 +1392,11 @@ public class CmsImportVersion10 implements I_CmsImport {
             } catch (@SuppressWarnings("unused") Exception e) {
                 // noop
             }
+            if (m_contentReader != null) {
+                m_contentReader.close();
+                m_contentReader = null;
+            }
+            m_contentSources.clear();
             m_helper.closeFile();
         }
     }
@@ -1807,7 +1823,9 @@ public class CmsImportVersion10 implements I_CmsImport {
                 byte[] content = null;
                 // get the file content
                 if (m_source != null) {
-                    content = m_helper.getFileBytes(m_source);
+                    content = m_contentReader != null
+                    ? m_contentReader.getFileBytes(m_source)
+                    : m_helper.getFileBytes(m_source);
                 }
                 int size = 0;
                 if (content != null) {
@@ -3273,6 +3291,7 @@ public class CmsImportVersion10 implements I_CmsImport {
         digester.addCallParam("export/files/file/source", 0);
         digester.addCallParam("export/files/file/uuidresource", 1);
         m_contentFiles.clear();
+        m_contentSources.clear();
         digester.push(this);
         InputStream stream = null;
         try {
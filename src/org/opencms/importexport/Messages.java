@@ -169,6 +169,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_EXPORTING_OK_2 = "LOG_EXPORTING_OK_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXPORT_TEMP_FILE_NOT_DELETED_1 = "LOG_EXPORT_TEMP_FILE_NOT_DELETED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_IMPORTEXPORT_ADDED_IMMUTABLE_RESOURCE_1 = "LOG_IMPORTEXPORT_ADDED_IMMUTABLE_RESOURCE_1";
 
@@ -76,9 +76,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
@@ -125,6 +127,11 @@ import com.google.common.base.Splitter;
  * in your servlet environment, you should try to change the value here.
  * The default <code>true</code> has been tested with Tomcat 4.1 and 5.0.
  * Older versions of Tomcat like 4.0 require a setting of <code>false</code>.</dd>
+ *
+ * <dt>jsp.precompile.threads</dt><dd>
+ * (Optional) The number of threads used to write the JSPs used by templates and formatters
+ * to the online JSP repository at startup and after module imports, see {@link CmsJspPrecompiler}.
+ * The default <code>0</code> disables the precompilation.</dd>
  * </dl>
  *
  * @since 6.0.0
@@ -163,6 +170,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** Jsp folder parameter name. */
     public static final String PARAM_JSP_FOLDER = "jsp.folder";
 
+    /** Parameter name for the number of threads used to precompile JSPs, 0 disables precompilation. */
+    public static final String PARAM_JSP_PRECOMPILE_THREADS = "jsp.precompile.threads";
+
     /** Jsp repository parameter name. */
     public static final String PARAM_JSP_REPOSITORY = "jsp.repository";
 
@@ -175,8 +185,8 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** The maximum age for delivered contents in the clients cache. */
     private static long m_clientCacheMaxAge;
 
-    /** Read write locks for jsp files. */
-    private static Map<String, ReentrantReadWriteLock> m_fileLocks = CmsMemoryMonitor.createLRUCacheMap(10000);
+    /** Read write locks for jsp files, never removed so that all threads use the same lock for a file. */
+    private static ConcurrentHashMap<String, ReentrantReadWriteLock> m_fileLocks = new ConcurrentHashMap<String, ReentrantReadWriteLock>();
 
     /** The directory to store the generated JSP pages in (absolute path). */
     private static String m_jspRepository;
@@ -199,6 +209,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** The online JSPs. */
     private Map<String, Boolean> m_onlineJsps;
 
+    /** The number of threads used to precompile JSPs, 0 if precompilation is disabled. */
+    private int m_precompileThreads;
+
     /** A map from taglib names to their URIs. */
     private Map<String, String> m_taglibs = new HashMap<String, String>();
 
@@ -217,7 +230,6 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         OpenCms.addCmsEventListener(
             this,
             new int[] {EVENT_CLEAR_CACHES, EVENT_CLEAR_OFFLINE_CACHES, EVENT_CLEAR_ONLINE_CACHES});
-        m_fileLocks = CmsMemoryMonitor.createLRUCacheMap(10000);
         initCaches(1000);
     }
 
@@ -433,6 +445,8 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             initCaches(cacheSize);
         }
 
+        m_precompileThreads = m_configuration.getInteger(PARAM_JSP_PRECOMPILE_THREADS, 0);
+
         // output setup information
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_JSP_REPOSITORY_ABS_PATH_1, m_jspRepository));
@@ -448,6 +462,12 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                 CmsLog.INIT.info(
                     Messages.get().getBundle().key(Messages.INIT_JSP_CACHE_SIZE_1, String.valueOf(cacheSize)));
             }
+            if (m_precompileThreads > 0) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(
+                        Messages.INIT_JSP_PRECOMPILE_THREADS_1,
+                        new Integer(m_precompileThreads)));
+            }
             CmsLog.INIT.info(
                 Messages.get().getBundle().key(Messages.INIT_LOADER_INITIALIZED_1, this.getClass().getName()));
         }
@@ -548,6 +568,35 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         }
     }
 
+    /**
+     * Writes a JSP and its includes to the "real" file system outside of a request, if it has changed.<p>
+     *
+     * In contrast to {@link #updateJsp(CmsResource, CmsFlexController, Set)}, this method waits for a running
+     * purge of the JSP repository to finish, like a request would.<p>
+     *
+     * @param resource the JSP resource
+     * @param controller the controller providing the CMS context
+     *
+     * @return the file name of the updated JSP in the "real" FS
+     *
+     * @throws ServletException might be thrown in the process of updating the JSP
+     * @throws IOException might be thrown in the process of updating the JSP
+     * @throws CmsLoaderException if the resource type can not be read
+     *
+     * @see CmsJspPrecompiler
+     */
+    public String precompileJsp(CmsResource resource, CmsFlexController controller)
+    throws IOException, ServletException, CmsLoaderException {
+
+        Lock lock = m_purgeLock.readLock();
+        try {
+            lock.lock();
+            return updateJsp(resource, controller, new HashSet<String>(8));
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Replaces taglib attributes in page directives with taglib directives.<p>
      *
@@ -683,6 +732,30 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         }
     }
 
+    /**
+     * Triggers an asynchronous precompilation of the JSPs used by templates and formatters, if enabled.<p>
+     *
+     * @param cms the CMS context used to read the JSPs, the project of this context determines the target repository
+     * @param paths the root paths of the folders and files to which the precompilation is limited,
+     *      or <code>null</code> to write all JSPs used by templates and formatters
+     *
+     * @see CmsJspPrecompiler
+     */
+    public void triggerPrecompile(CmsObject cms, List<String> paths) {
+
+        if (m_precompileThreads <= 0) {
+            return;
+        }
+        final CmsJspPrecompiler precompiler = new CmsJspPrecompiler(this, m_cache, cms, m_precompileThreads, paths);
+        OpenCms.getExecutor().execute(new Runnable() {
+
+            public void run() {
+
+                precompiler.precompile();
+            }
+        });
+    }
+
     /**
      * Triggers an asynchronous purge of the JSP repository.<p>
      *
@@ -865,20 +938,21 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                                             Boolean.valueOf(jspFile.isFile()),
                                             Boolean.valueOf(jspFile.canWrite())}));
                             }
-                            // write the parsed JSP content to the real FS
-                            synchronized (CmsJspLoader.class) {
-                                // this must be done only one file at a time
-                                FileOutputStream fs = new FileOutputStream(jspFile);
+                            // write the parsed JSP content to the real FS,
+                            // the write lock for this file makes sure no other thread writes it at the same time
+                            FileOutputStream fs = new FileOutputStream(jspFile);
+                            try {
                                 fs.write(contents);
+                            } finally {
                                 fs.close();
+                            }
 
-                                // we set the modification date to (approximately) that of the VFS resource. This is needed because in the Online project, the old version of a JSP
-                                // may be generated in the RFS JSP repository *after* the JSP has been changed, but *before* it has been published, which would lead
-                                // to it not being updated after the changed JSP is published.
+                            // we set the modification date to (approximately) that of the VFS resource. This is needed because in the Online project, the old version of a JSP
+                            // may be generated in the RFS JSP repository *after* the JSP has been changed, but *before* it has been published, which would lead
+                            // to it not being updated after the changed JSP is published.
 
-                                // Note: the RFS may only support second precision for the last modification date
-                                jspFile.setLastModified((1 + (resource.getDateLastModified() / 1000)) * 1000);
-                            }
+                            // Note: the RFS may only support second precision for the last modification date
+                            jspFile.setLastModified((1 + (resource.getDateLastModified() / 1000)) * 1000);
                             if (controller.getCurrentRequest().isOnline()) {
                                 m_onlineJsps.put(jspVfsName, Boolean.TRUE);
                             } else {
@@ -1752,11 +1826,10 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
 
         ReentrantReadWriteLock lock = m_fileLocks.get(jspVfsName);
         if (lock == null) {
-            synchronized (m_fileLocks) {
-                if (!m_fileLocks.containsKey(jspVfsName)) {
-                    m_fileLocks.put(jspVfsName, new ReentrantReadWriteLock(true));
-                }
-                lock = m_fileLocks.get(jspVfsName);
+            lock = new ReentrantReadWriteLock(true);
+            ReentrantReadWriteLock existingLock = m_fileLocks.putIfAbsent(jspVfsName, lock);
+            if (existingLock != null) {
+                lock = existingLock;
             }
         }
         return lock;
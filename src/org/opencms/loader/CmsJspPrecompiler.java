@@ -0,0 +1,418 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.flex.CmsFlexCache;
+import org.opencms.flex.CmsFlexController;
+import org.opencms.flex.CmsFlexRequest;
+import org.opencms.i18n.CmsLocaleManager;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+import org.opencms.xml.containerpage.I_CmsFormatterBean;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Writes the JSPs used by templates and formatters to the JSP repository of the online project in parallel.<p>
+ *
+ * Without precompilation, the first request for each page after a restart, a module update or a purge of the
+ * JSP repository has to read the JSP and all of its includes from the VFS, parse them and write them to the
+ * repository before the servlet container can compile them. The precompiler does this work up front using a fixed
+ * number of threads, so that only the compilation by the servlet container remains for the first request.<p>
+ *
+ * The JSPs are processed with {@link CmsJspLoader#precompileJsp(CmsResource, CmsFlexController)}, which uses the
+ * same update code as requests, so included JSPs are written as well and the file locks of the loader keep
+ * concurrent requests consistent.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsJspPrecompiler {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsJspPrecompiler.class);
+
+    /** The flex cache passed to the controllers. */
+    private CmsFlexCache m_cache;
+
+    /** The CMS context used to read the JSPs. */
+    private CmsObject m_cms;
+
+    /** The JSP loader. */
+    private CmsJspLoader m_loader;
+
+    /** The root paths of the folders and files to which the precompilation is limited, or <code>null</code>. */
+    private List<String> m_paths;
+
+    /** The number of threads used for writing the JSPs. */
+    private int m_threads;
+
+    /**
+     * Creates a new precompiler.<p>
+     *
+     * @param loader the JSP loader
+     * @param cache the flex cache
+     * @param cms the CMS context used to read the JSPs, the project of this context determines the target repository
+     * @param threads the number of threads used for writing the JSPs
+     */
+    public CmsJspPrecompiler(CmsJspLoader loader, CmsFlexCache cache, CmsObject cms, int threads) {
+
+        this(loader, cache, cms, threads, null);
+    }
+
+    /**
+     * Creates a new precompiler which only writes the JSPs below the given paths.<p>
+     *
+     * @param loader the JSP loader
+     * @param cache the flex cache
+     * @param cms the CMS context used to read the JSPs, the project of this context determines the target repository
+     * @param threads the number of threads used for writing the JSPs
+     * @param paths the root paths of the folders and files to which the precompilation is limited,
+     *      or <code>null</code> to write all JSPs used by templates and formatters
+     */
+    public CmsJspPrecompiler(CmsJspLoader loader, CmsFlexCache cache, CmsObject cms, int threads, List<String> paths) {
+
+        m_loader = loader;
+        m_cache = cache;
+        m_cms = cms;
+        m_threads = Math.max(1, threads);
+        m_paths = paths;
+    }
+
+    /**
+     * Collects the JSPs used as templates or as formatters.<p>
+     *
+     * Included JSPs are not collected here, they are written when the JSPs including them are processed.<p>
+     *
+     * Templates are only collected from the <code>template</code> property of folders, like the site roots and
+     * the sub sitemap folders. Reading the property of every page having its own template would mean reading
+     * the whole content of large sites; templates only used in this way are written on their first request.<p>
+     *
+     * @return the JSP resources
+     */
+    public List<CmsResource> collectJsps() {
+
+        Map<CmsUUID, CmsResource> result = new LinkedHashMap<CmsUUID, CmsResource>();
+        CmsObject cms;
+        try {
+            cms = OpenCms.initCmsObject(m_cms);
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return new ArrayList<CmsResource>();
+        }
+        cms.getRequestContext().setSiteRoot("");
+
+        // formatter JSPs
+        boolean online = cms.getRequestContext().getCurrentProject().isOnlineProject();
+        for (I_CmsFormatterBean formatter : OpenCms.getADEManager().getCachedFormatters(
+            online).getFormatters().values()) {
+            CmsUUID jspId = formatter.getJspStructureId();
+            if ((jspId != null) && !result.containsKey(jspId) && isIncluded(formatter.getJspRootPath())) {
+                try {
+                    addJsp(result, cms.readResource(jspId, CmsResourceFilter.IGNORE_EXPIRATION));
+                } catch (CmsException e) {
+                    LOG.debug(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+
+        // template JSPs
+        Set<String> templates = new HashSet<String>();
+        try {
+            for (CmsResource folder : cms.readResourcesWithProperty(
+                "/",
+                CmsPropertyDefinition.PROPERTY_TEMPLATE,
+                null,
+                CmsResourceFilter.IGNORE_EXPIRATION.addRequireFolder())) {
+                String template = cms.readPropertyObject(
+                    folder,
+                    CmsPropertyDefinition.PROPERTY_TEMPLATE,
+                    false).getValue();
+                if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(template)
+                    && template.startsWith("/")
+                    && isIncluded(template.trim())) {
+                    templates.add(template.trim());
+                }
+            }
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+        for (String template : templates) {
+            try {
+                addJsp(result, cms.readResource(template, CmsResourceFilter.IGNORE_EXPIRATION));
+            } catch (CmsException e) {
+                // e.g. template contexts, which use a provider instead of a path
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        return new ArrayList<CmsResource>(result.values());
+    }
+
+    /**
+     * Writes all JSPs used by templates and formatters to the JSP repository.<p>
+     *
+     * This method blocks until all JSPs have been processed.<p>
+     *
+     * @return the number of JSPs which could not be written
+     */
+    public int precompile() {
+
+        List<CmsResource> jsps = collectJsps();
+        if (jsps.isEmpty()) {
+            return 0;
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(Messages.LOG_JSP_PRECOMPILE_STARTED_1, new Integer(jsps.size())));
+        }
+        long start = System.currentTimeMillis();
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(m_threads, jsps.size()),
+            new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+
+                    Thread thread = new Thread(runnable, "OpenCms JSP precompiler " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(jsps.size());
+        for (final CmsResource jsp : jsps) {
+            tasks.add(new Callable<Boolean>() {
+
+                public Boolean call() {
+
+                    return Boolean.valueOf(precompile(jsp));
+                }
+            });
+        }
+        int errors = 0;
+        try {
+            for (Future<Boolean> future : executor.invokeAll(tasks)) {
+                try {
+                    if (!future.get().booleanValue()) {
+                        errors += 1;
+                    }
+                } catch (ExecutionException e) {
+                    LOG.error(e.getLocalizedMessage(), e);
+                    errors += 1;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_JSP_PRECOMPILE_FINISHED_3,
+                    new Integer(jsps.size()),
+                    new Integer(errors),
+                    new Long(System.currentTimeMillis() - start)));
+        }
+        return errors;
+    }
+
+    /**
+     * Writes a single JSP and its includes to the JSP repository.<p>
+     *
+     * @param jsp the JSP resource
+     *
+     * @return <code>true</code> if the JSP was written successfully
+     */
+    protected boolean precompile(CmsResource jsp) {
+
+        try {
+            // each thread needs its own context, and the JSPs are read with their root paths
+            CmsObject cms = OpenCms.initCmsObject(m_cms);
+            cms.getRequestContext().setSiteRoot("");
+            HttpServletRequest req = createRequest(jsp);
+            CmsFlexController controller = new CmsFlexController(cms, jsp, m_cache, req, null, false, true);
+            controller.push(new CmsFlexRequest(req, controller), null);
+            m_loader.precompileJsp(jsp, controller);
+            return true;
+        } catch (Exception e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_JSP_PRECOMPILE_FAILED_1, jsp.getRootPath()), e);
+            return false;
+        }
+    }
+
+    /**
+     * Adds a resource to the result map if it is handled by the JSP loader.<p>
+     *
+     * @param result the result map
+     * @param resource the resource
+     */
+    private void addJsp(Map<CmsUUID, CmsResource> result, CmsResource resource) {
+
+        if (OpenCms.getResourceManager().getResourceType(resource).getLoaderId() == CmsJspLoader.RESOURCE_LOADER_ID) {
+            result.put(resource.getStructureId(), resource);
+        }
+    }
+
+    /**
+     * Creates a request for updating JSPs outside of a real request.<p>
+     *
+     * The request is a local GET request for the given JSP without parameters, attributes, headers, cookies
+     * or session. The URI and path methods return the values a request for the JSP would have, the other
+     * methods return default values.<p>
+     *
+     * @param jsp the JSP resource
+     *
+     * @return the request
+     */
+    private HttpServletRequest createRequest(CmsResource jsp) {
+
+        final String path = jsp.getRootPath();
+        final String uri = OpenCms.getSystemInfo().getOpenCmsContext() + path;
+        return (HttpServletRequest)Proxy.newProxyInstance(
+            CmsJspPrecompiler.class.getClassLoader(),
+            new Class[] {HttpServletRequest.class},
+            new InvocationHandler() {
+
+                public Object invoke(Object proxy, Method method, Object[] args) {
+
+                    String name = method.getName();
+                    Class<?> type = method.getReturnType();
+                    if (name.equals("getParameterMap")) {
+                        return new HashMap<String, String[]>();
+                    } else if (name.equals("getAttributeNames")
+                        || name.equals("getParameterNames")
+                        || name.equals("getHeaderNames")
+                        || name.equals("getHeaders")) {
+                        return Collections.enumeration(Collections.emptyList());
+                    } else if (name.equals("getRequestURI")) {
+                        return uri;
+                    } else if (name.equals("getRequestURL")) {
+                        return new StringBuffer("http://localhost").append(uri);
+                    } else if (name.equals("getContextPath")) {
+                        return OpenCms.getSystemInfo().getContextPath();
+                    } else if (name.equals("getServletPath")) {
+                        return OpenCms.getSystemInfo().getServletPath();
+                    } else if (name.equals("getPathInfo")) {
+                        return path;
+                    } else if (name.equals("getMethod")) {
+                        return "GET";
+                    } else if (name.equals("getProtocol")) {
+                        return "HTTP/1.1";
+                    } else if (name.equals("getScheme")) {
+                        return "http";
+                    } else if (name.equals("getServerName")
+                        || name.equals("getLocalName")
+                        || name.equals("getRemoteHost")) {
+                        return "localhost";
+                    } else if (name.equals("getRemoteAddr") || name.equals("getLocalAddr")) {
+                        return "127.0.0.1";
+                    } else if (name.equals("getServerPort") || name.equals("getLocalPort")) {
+                        return new Integer(80);
+                    } else if (name.equals("getCharacterEncoding")) {
+                        return OpenCms.getSystemInfo().getDefaultEncoding();
+                    } else if (name.equals("getLocale")) {
+                        return CmsLocaleManager.getDefaultLocale();
+                    } else if (name.equals("getLocales")) {
+                        return Collections.enumeration(Collections.singletonList(CmsLocaleManager.getDefaultLocale()));
+                    } else if (name.equals("getCookies")) {
+                        return new Cookie[0];
+                    } else if (name.equals("getContentLength")
+                        || name.equals("getIntHeader")
+                        || name.equals("getRemotePort")) {
+                        return new Integer(-1);
+                    } else if (name.equals("getDateHeader")) {
+                        return new Long(-1);
+                    } else if (name.equals("toString")) {
+                        return "GET " + uri + " (" + CmsJspPrecompiler.class.getSimpleName() + ")";
+                    } else if (name.equals("hashCode")) {
+                        return new Integer(System.identityHashCode(proxy));
+                    } else if (name.equals("equals")) {
+                        return Boolean.valueOf(proxy == args[0]);
+                    } else if (type == Boolean.TYPE) {
+                        return Boolean.FALSE;
+                    } else if (type == Integer.TYPE) {
+                        return new Integer(0);
+                    } else if (type == Long.TYPE) {
+                        return new Long(0);
+                    }
+                    return null;
+                }
+            });
+    }
+
+    /**
+     * Checks if the given root path is below one of the paths to which the precompilation is limited.<p>
+     *
+     * @param rootPath the root path to check
+     *
+     * @return <code>true</code> if the precompilation is not limited or the path is included
+     */
+    private boolean isIncluded(String rootPath) {
+
+        if (m_paths == null) {
+            return true;
+        }
+        if (rootPath == null) {
+            return false;
+        }
+        for (String path : m_paths) {
+            if (CmsStringUtil.isPrefixPath(path, rootPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
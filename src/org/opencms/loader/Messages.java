@@ -181,6 +181,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_CACHE_SIZE_1 = "INIT_JSP_CACHE_SIZE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_JSP_PRECOMPILE_THREADS_1 = "INIT_JSP_PRECOMPILE_THREADS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_REPOSITORY_ABS_PATH_1 = "INIT_JSP_REPOSITORY_ABS_PATH_1";
 
@@ -241,6 +244,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JSP_PERMCHECK_4 = "LOG_JSP_PERMCHECK_4";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_PRECOMPILE_FAILED_1 = "LOG_JSP_PRECOMPILE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_PRECOMPILE_FINISHED_3 = "LOG_JSP_PRECOMPILE_FINISHED_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_PRECOMPILE_STARTED_1 = "LOG_JSP_PRECOMPILE_STARTED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NAME_REAL_FS_1 = "LOG_NAME_REAL_FS_1";
 
@@ -0,0 +1,405 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.lock;
+
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index of the current locks, used by the {@link CmsLockManager}.<p>
+ *
+ * The locks are stored in a map sorted by root path, so the locks of a sub-tree form a contiguous range which can be
+ * read without looking at other locks, and the locks of the parent folders of a resource can be read with one lookup
+ * per path level. Additional indexes from user and project ids to the locked paths make it possible to find the locks
+ * of a user or project without a scan.<p>
+ *
+ * Lookups don't block. Updates are synchronized on one of a fixed number of monitors selected by the root path,
+ * so updates of different resources usually don't wait for each other. The locks stored in the index must not be
+ * changed afterwards, since the index needs their state for removing them from the user and project indexes.<p>
+ *
+ * The index also records the paths which were changed since the locks were last written to the database,
+ * so only these have to be written.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsLockIndex {
+
+    /** The number of monitors used for synchronizing updates. */
+    private static final int STRIPES = 64;
+
+    /** The paths changed since the last call of {@link #removeChangedPaths()}. */
+    private Set<String> m_changedPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** The locks by root path. */
+    private ConcurrentSkipListMap<String, CmsLock> m_locks = new ConcurrentSkipListMap<String, CmsLock>();
+
+    /** The locked paths by project id. */
+    private ConcurrentHashMap<CmsUUID, Set<String>> m_pathsByProject = new ConcurrentHashMap<CmsUUID, Set<String>>();
+
+    /** The locked paths by user id. */
+    private ConcurrentHashMap<CmsUUID, Set<String>> m_pathsByUser = new ConcurrentHashMap<CmsUUID, Set<String>>();
+
+    /** The monitors used for synchronizing updates. */
+    private Object[] m_stripes;
+
+    /**
+     * Creates a new, empty lock index.<p>
+     */
+    public CmsLockIndex() {
+
+        m_stripes = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            m_stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Creates a new lock index containing the given locks.<p>
+     *
+     * The locks are not marked as changed.<p>
+     *
+     * @param locks the locks by root path
+     */
+    public CmsLockIndex(Map<String, CmsLock> locks) {
+
+        this();
+        for (CmsLock lock : locks.values()) {
+            put(lock);
+        }
+        m_changedPaths.clear();
+    }
+
+    /**
+     * Removes all locks.<p>
+     */
+    public void clear() {
+
+        for (String path : m_locks.keySet()) {
+            remove(path);
+        }
+    }
+
+    /**
+     * Returns the lock for the given root path.<p>
+     *
+     * @param rootPath the root path
+     *
+     * @return the lock, or <code>null</code> if the path is not locked directly
+     */
+    public CmsLock get(String rootPath) {
+
+        return m_locks.get(rootPath);
+    }
+
+    /**
+     * Returns all locks, ordered by root path.<p>
+     *
+     * @return all locks
+     */
+    public List<CmsLock> getAll() {
+
+        return new ArrayList<CmsLock>(m_locks.values());
+    }
+
+    /**
+     * Returns the root paths of all locks, in ascending order.<p>
+     *
+     * @return the root paths of all locks
+     */
+    public List<String> getAllPaths() {
+
+        return new ArrayList<String>(m_locks.keySet());
+    }
+
+    /**
+     * Returns the locks whose root path starts with the given prefix, ordered by root path.<p>
+     *
+     * For a folder path, these are the lock of the folder itself and the locks of all resources below it.<p>
+     *
+     * @param prefix the root path prefix
+     *
+     * @return the matching locks
+     */
+    public List<CmsLock> getLocksByPrefix(String prefix) {
+
+        return new ArrayList<CmsLock>(m_locks.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values());
+    }
+
+    /**
+     * Returns the locks belonging to the given project, either as edition lock or as system lock.<p>
+     *
+     * @param projectId the project id
+     *
+     * @return the locks of the project
+     */
+    public List<CmsLock> getLocksByProject(CmsUUID projectId) {
+
+        return getLocks(m_pathsByProject.get(projectId));
+    }
+
+    /**
+     * Returns the locks belonging to the given user, either as edition lock or as system lock.<p>
+     *
+     * @param userId the user id
+     *
+     * @return the locks of the user
+     */
+    public List<CmsLock> getLocksByUser(CmsUUID userId) {
+
+        return getLocks(m_pathsByUser.get(userId));
+    }
+
+    /**
+     * Returns the locks of the parent folders of the given root path, starting with the root folder.<p>
+     *
+     * @param rootPath the root path
+     *
+     * @return the locks of the parent folders
+     */
+    public List<CmsLock> getParentFolderLocks(String rootPath) {
+
+        List<CmsLock> result = new ArrayList<CmsLock>();
+        int pos = rootPath.indexOf('/');
+        while ((pos >= 0) && (pos < (rootPath.length() - 1))) {
+            CmsLock lock = m_locks.get(rootPath.substring(0, pos + 1));
+            if (lock != null) {
+                result.add(lock);
+            }
+            pos = rootPath.indexOf('/', pos + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if there are no locks.<p>
+     *
+     * @return <code>true</code> if there are no locks
+     */
+    public boolean isEmpty() {
+
+        return m_locks.isEmpty();
+    }
+
+    /**
+     * Marks the given paths as changed, e.g. because writing them to the database failed.<p>
+     *
+     * @param rootPaths the root paths
+     */
+    public void markChanged(Collection<String> rootPaths) {
+
+        m_changedPaths.addAll(rootPaths);
+    }
+
+    /**
+     * Stores a lock, replacing the previous lock for the same root path.<p>
+     *
+     * @param lock the lock
+     */
+    public void put(CmsLock lock) {
+
+        String rootPath = lock.getResourceName();
+        synchronized (getStripe(rootPath)) {
+            CmsLock oldLock = m_locks.put(rootPath, lock);
+            if (oldLock != null) {
+                unindex(oldLock);
+            }
+            index(lock);
+            m_changedPaths.add(rootPath);
+        }
+    }
+
+    /**
+     * Removes the lock for the given root path.<p>
+     *
+     * @param rootPath the root path
+     *
+     * @return the removed lock, or <code>null</code> if there was no lock for the path
+     */
+    public CmsLock remove(String rootPath) {
+
+        synchronized (getStripe(rootPath)) {
+            CmsLock oldLock = m_locks.remove(rootPath);
+            if (oldLock != null) {
+                unindex(oldLock);
+                m_changedPaths.add(rootPath);
+            }
+            return oldLock;
+        }
+    }
+
+    /**
+     * Returns the paths changed since the last call of this method and resets them.<p>
+     *
+     * @return the changed paths
+     */
+    public Set<String> removeChangedPaths() {
+
+        Set<String> result = new HashSet<String>();
+        for (String path : m_changedPaths) {
+            // only return paths which were really removed, so concurrent changes are not lost
+            if (m_changedPaths.remove(path)) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of locks.<p>
+     *
+     * @return the number of locks
+     */
+    public int size() {
+
+        return m_locks.size();
+    }
+
+    /**
+     * Returns an unmodifiable view of the locks by root path, used for memory monitoring.<p>
+     *
+     * @return the locks by root path
+     */
+    public Map<String, CmsLock> toMap() {
+
+        return Collections.unmodifiableMap(m_locks);
+    }
+
+    /**
+     * Adds a path to a secondary index.<p>
+     *
+     * @param index the index
+     * @param id the id
+     * @param rootPath the path
+     */
+    private void addToIndex(ConcurrentHashMap<CmsUUID, Set<String>> index, CmsUUID id, String rootPath) {
+
+        // synchronized on the index, so an empty set is never removed while a path is added to it
+        synchronized (index) {
+            Set<String> paths = index.get(id);
+            if (paths == null) {
+                paths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                index.put(id, paths);
+            }
+            paths.add(rootPath);
+        }
+    }
+
+    /**
+     * Returns the current locks for the given paths.<p>
+     *
+     * @param paths the paths, may be <code>null</code>
+     *
+     * @return the locks
+     */
+    private List<CmsLock> getLocks(Set<String> paths) {
+
+        List<CmsLock> result = new ArrayList<CmsLock>();
+        if (paths != null) {
+            for (String path : paths) {
+                CmsLock lock = m_locks.get(path);
+                if (lock != null) {
+                    result.add(lock);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the monitor used for synchronizing updates of the given path.<p>
+     *
+     * @param rootPath the root path
+     *
+     * @return the monitor
+     */
+    private Object getStripe(String rootPath) {
+
+        return m_stripes[(rootPath.hashCode() & Integer.MAX_VALUE) % STRIPES];
+    }
+
+    /**
+     * Adds a lock to the user and project indexes.<p>
+     *
+     * @param lock the lock
+     */
+    private void index(CmsLock lock) {
+
+        String rootPath = lock.getResourceName();
+        for (CmsLock part : new CmsLock[] {lock.getEditionLock(), lock.getSystemLock()}) {
+            if (!part.isUnlocked()) {
+                addToIndex(m_pathsByUser, part.getUserId(), rootPath);
+                addToIndex(m_pathsByProject, part.getProjectId(), rootPath);
+            }
+        }
+    }
+
+    /**
+     * Removes a path from a secondary index, and removes the id if no paths are left for it.<p>
+     *
+     * @param index the index
+     * @param id the id
+     * @param rootPath the path
+     */
+    private void removeFromIndex(ConcurrentHashMap<CmsUUID, Set<String>> index, CmsUUID id, String rootPath) {
+
+        synchronized (index) {
+            Set<String> paths = index.get(id);
+            if (paths != null) {
+                paths.remove(rootPath);
+                if (paths.isEmpty()) {
+                    index.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a lock from the user and project indexes.<p>
+     *
+     * @param lock the lock
+     */
+    private void unindex(CmsLock lock) {
+
+        String rootPath = lock.getResourceName();
+        for (CmsLock part : new CmsLock[] {lock.getEditionLock(), lock.getSystemLock()}) {
+            if (!part.isUnlocked()) {
+                removeFromIndex(m_pathsByUser, part.getUserId(), rootPath);
+                removeFromIndex(m_pathsByProject, part.getProjectId(), rootPath);
+            }
+        }
+    }
+}
@@ -46,6 +46,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * The CmsLockManager is used by the Cms application to detect
@@ -126,11 +127,11 @@ public final class CmsLockManager {
         // handle collisions with exclusive locked sub-resources in case of a folder
         if (resource.isFolder() && newLock.getSystemLock().isUnlocked()) {
             String resourceName = resource.getRootPath();
-            Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+            Iterator<CmsLock> itLocks = getLockIndex().getLocksByPrefix(resourceName).iterator();
             while (itLocks.hasNext()) {
                 CmsLock lock = itLocks.next();
                 String lockedPath = lock.getResourceName();
-                if (lockedPath.startsWith(resourceName) && !lockedPath.equals(resourceName)) {
+                if (!lockedPath.equals(resourceName)) {
                     unlockResource(lockedPath, false);
                 }
             }
@@ -147,7 +148,7 @@ public final class CmsLockManager {
     public int countExclusiveLocksInProject(CmsProject project) {
 
         int count = 0;
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getLockIndex().getLocksByProject(project.getUuid()).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             if (lock.getEditionLock().isInProject(project)) {
@@ -231,7 +232,7 @@ public final class CmsLockManager {
     throws CmsException {
 
         List<CmsResource> lockedResources = new ArrayList<CmsResource>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resource.getRootPath(), filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             CmsResource lockedResource;
@@ -283,7 +284,7 @@ public final class CmsLockManager {
         Map<String, CmsResource> cache) throws CmsException {
 
         List<CmsResource> lockedResources = new ArrayList<CmsResource>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resource.getRootPath(), filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             CmsResource lockedResource;
@@ -358,7 +359,7 @@ public final class CmsLockManager {
     public List<CmsLock> getLocks(CmsDbContext dbc, String resourceName, CmsLockFilter filter) throws CmsException {
 
         List<CmsLock> locks = new ArrayList<CmsLock>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resourceName, filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             if (filter.isSharedExclusive()) {
@@ -404,40 +405,12 @@ public final class CmsLockManager {
         if (resource == null) {
             return false;
         }
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getLockIndex().getLocksByPrefix(resource.getRootPath()).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
-            if (lock.getSystemLock().isUnlocked()) {
+            if (!lock.getSystemLock().isUnlocked()) {
                 // only system locks matter here
-                continue;
-            }
-            if (lock.getResourceName().startsWith(resource.getRootPath())) {
-                if (lock.getResourceName().startsWith(resource.getRootPath())) {
-                    return true;
-                }
-                try {
-                    resource = m_driverManager.readResource(dbc, lock.getResourceName(), CmsResourceFilter.ALL);
-                } catch (CmsVfsResourceNotFoundException e) {
-                    OpenCms.getMemoryMonitor().uncacheLock(lock.getResourceName());
-                    continue;
-                }
-                CmsResource lockedResource;
-                try {
-                    lockedResource = m_driverManager.readResource(dbc, lock.getResourceName(), CmsResourceFilter.ALL);
-                } catch (CmsVfsResourceNotFoundException e) {
-                    OpenCms.getMemoryMonitor().uncacheLock(lock.getResourceName());
-                    continue;
-                }
-                if (lockedResource.getSiblingCount() > 1) {
-                    Iterator<CmsResource> itSiblings = internalReadSiblings(dbc, lockedResource).iterator();
-                    while (itSiblings.hasNext()) {
-                        CmsResource sibling = itSiblings.next();
-                        CmsLock siblingLock = internalSiblingLock(lock, sibling.getRootPath());
-                        if (siblingLock.getResourceName().startsWith(resource.getRootPath())) {
-                            return true;
-                        }
-                    }
-                }
+                return true;
             }
         }
         return false;
@@ -453,6 +426,7 @@ public final class CmsLockManager {
 
         CmsLock lock = OpenCms.getMemoryMonitor().getCachedLock(source);
         if (lock != null) {
+            m_isDirty = true;
             OpenCms.getMemoryMonitor().uncacheLock(lock.getResourceName());
             CmsLock newLock = new CmsLock(destination, lock.getUserId(), lock.getProject(), lock.getType());
             lock = lock.getRelatedLock();
@@ -519,7 +493,7 @@ public final class CmsLockManager {
      */
     public void removeLocks(CmsUUID userId) {
 
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getLockIndex().getLocksByUser(userId).iterator();
         while (itLocks.hasNext()) {
             CmsLock currentLock = itLocks.next();
             boolean editLock = currentLock.getEditionLock().getUserId().equals(userId);
@@ -576,10 +550,10 @@ public final class CmsLockManager {
             if (resource.isFolder()) {
                 // in case of a folder, remove any exclusive locks on sub-resources that probably have
                 // been upgraded from an inherited lock when the user edited a resource
-                Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+                Iterator<CmsLock> itLocks = getLockIndex().getLocksByPrefix(resourcename).iterator();
                 while (itLocks.hasNext()) {
                     String lockedPath = (itLocks.next()).getResourceName();
-                    if (lockedPath.startsWith(resourcename) && !lockedPath.equals(resourcename)) {
+                    if (!lockedPath.equals(resourcename)) {
                         // remove the exclusive locked sub-resource
                         unlockResource(lockedPath, false);
                     }
@@ -593,13 +567,12 @@ public final class CmsLockManager {
         }
 
         if (lock.getType().isSharedExclusive()) {
-            List<String> locks = OpenCms.getMemoryMonitor().getAllCachedLockPaths();
             // when a resource with a shared lock gets unlocked, fetch all siblings of the resource
             // to the same content record to identify the exclusive locked sibling
             List<CmsResource> siblings = internalReadSiblings(dbc, resource);
             for (int i = 0; i < siblings.size(); i++) {
                 CmsResource sibling = siblings.get(i);
-                if (locks.contains(sibling.getRootPath())) {
+                if (getDirectLock(sibling.getRootPath()) != null) {
                     // remove the exclusive locked sibling
                     if (removeSystemLock) {
                         unlockResource(sibling.getRootPath(), true);
@@ -626,7 +599,7 @@ public final class CmsLockManager {
      */
     public void removeResourcesInProject(CmsUUID projectId, boolean removeSystemLocks) {
 
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getLockIndex().getLocksByProject(projectId).iterator();
         while (itLocks.hasNext()) {
             CmsLock currentLock = itLocks.next();
             if (removeSystemLocks && currentLock.getSystemLock().getProjectId().equals(projectId)) {
@@ -647,7 +620,7 @@ public final class CmsLockManager {
      */
     public void removeTempLocks(CmsUUID userId) {
 
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getLockIndex().getLocksByUser(userId).iterator();
         while (itLocks.hasNext()) {
             CmsLock currentLock = itLocks.next();
             if (currentLock.isTemporary() && currentLock.getUserId().equals(userId)) {
@@ -681,7 +654,7 @@ public final class CmsLockManager {
      * Writes the locks that are currently stored in-memory to the database to allow restoring them in
      * later startups.<p>
      *
-     * This overwrites the locks previously stored in the underlying database table.<p>
+     * Only the locks of the resources changed since the last call are written.<p>
      *
      *  @param dbc the current database context
      *
@@ -693,9 +666,27 @@ public final class CmsLockManager {
             && m_runningInServlet // only if started in run level 4
             && OpenCms.getMemoryMonitor().requiresPersistency()) { // only if persistency is required
 
-            List<CmsLock> locks = OpenCms.getMemoryMonitor().getAllCachedLocks();
-            m_driverManager.getProjectDriver(dbc).writeLocks(dbc, locks);
             m_isDirty = false;
+            CmsLockIndex index = getLockIndex();
+            Set<String> changedPaths = index.removeChangedPaths();
+            if (changedPaths.isEmpty()) {
+                return;
+            }
+            List<CmsLock> locks = new ArrayList<CmsLock>(changedPaths.size());
+            for (String path : changedPaths) {
+                CmsLock lock = index.get(path);
+                if (lock != null) {
+                    locks.add(lock);
+                }
+            }
+            try {
+                m_driverManager.getProjectDriver(dbc).writeLocks(dbc, changedPaths, locks);
+            } catch (CmsException e) {
+                // write the changes again next time
+                index.markChanged(changedPaths);
+                m_isDirty = true;
+                throw e;
+            }
         }
     }
 
@@ -745,6 +736,45 @@ public final class CmsLockManager {
         }
     }
 
+    /**
+     * Returns the locks which may match the given filter for the given root path.<p>
+     *
+     * Unless siblings have to be checked, only the locks of the sub-tree or the parent folders
+     * selected by the filter are returned, or the locks of the user if the filter is restricted to a user.
+     * The result still has to be checked with {@link CmsLockFilter#match(String, CmsLock)}.<p>
+     *
+     * @param rootPath the root path
+     * @param filter the lock filter
+     *
+     * @return the candidate locks
+     */
+    private List<CmsLock> getCandidateLocks(String rootPath, CmsLockFilter filter) {
+
+        CmsLockIndex index = getLockIndex();
+        if (filter.isSharedExclusive()) {
+            // locked siblings may be anywhere
+            return index.getAll();
+        }
+        if ((filter.getOwnedByUserId() != null) && !filter.getOwnedByUserId().isNullUUID()) {
+            return index.getLocksByUser(filter.getOwnedByUserId());
+        }
+        List<CmsLock> result = new ArrayList<CmsLock>();
+        if (filter.isIncludeChildren()) {
+            result.addAll(index.getLocksByPrefix(rootPath));
+        }
+        if (filter.isIncludeParent()) {
+            result.addAll(index.getParentFolderLocks(rootPath));
+            if (!filter.isIncludeChildren() && rootPath.endsWith("/")) {
+                // a folder counts as its own parent
+                CmsLock lock = index.get(rootPath);
+                if (lock != null) {
+                    result.add(lock);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the direct lock of a resource.<p>
      *
@@ -757,6 +787,16 @@ public final class CmsLockManager {
         return OpenCms.getMemoryMonitor().getCachedLock(resourcename);
     }
 
+    /**
+     * Returns the index of the cached locks.<p>
+     *
+     * @return the index of the cached locks
+     */
+    private CmsLockIndex getLockIndex() {
+
+        return OpenCms.getMemoryMonitor().getCachedLockIndex();
+    }
+
     /**
      * Returns the lock of a possible locked parent folder of a resource, system locks are ignored.<p>
      *
@@ -766,18 +806,13 @@ public final class CmsLockManager {
      */
     private CmsLock getParentFolderLock(String resourceName) {
 
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getLockIndex().getParentFolderLocks(resourceName).iterator();
         while (itLocks.hasNext()) {
-            CmsLock lock = itLocks.next();
-            if (lock.getResourceName().endsWith("/")
-                && resourceName.startsWith(lock.getResourceName())
-                && !resourceName.equals(lock.getResourceName())) {
-                // system locks does not get inherited
-                lock = lock.getEditionLock();
-                // check the lock
-                if (!lock.isUnlocked()) {
-                    return lock;
-                }
+            // system locks does not get inherited
+            CmsLock lock = itLocks.next().getEditionLock();
+            // check the lock
+            if (!lock.isUnlocked()) {
+                return lock;
             }
         }
         return CmsLock.getNullLock();
@@ -853,7 +888,18 @@ public final class CmsLockManager {
                     locks.put(lock.getResourceName(), lock);
                 }
             } else if (currentLock.getSystemLock().isUnlocked() && !lock.getSystemLock().isUnlocked()) {
-                currentLock.setRelatedLock(lock);
+                // don't change the cached lock, the lock index needs it unchanged for removing its old entries
+                CmsLock editionLock = new CmsLock(
+                    currentLock.getResourceName(),
+                    currentLock.getUserId(),
+                    currentLock.getProject(),
+                    currentLock.getType());
+                editionLock.setRelatedLock(lock);
+                if (locks == null) {
+                    OpenCms.getMemoryMonitor().cacheLock(editionLock);
+                } else {
+                    locks.put(editionLock.getResourceName(), editionLock);
+                }
             } else {
                 throw new CmsLockException(
                     Messages.get().container(Messages.ERR_LOCK_ILLEGAL_STATE_2, currentLock, lock));
@@ -986,11 +1032,10 @@ public final class CmsLockManager {
                     // remove the edition lock
                     CmsLock tmp = lock.getEditionLock();
                     CmsLock sysLock = lock.getSystemLock();
-                    sysLock.setRelatedLock(null);
-                    if (!sysLock.equals(lock)) {
-                        // replace the lock entry if needed
-                        OpenCms.getMemoryMonitor().cacheLock(sysLock);
-                    }
+                    // cache a copy without the edition lock, the lock index needs the cached lock unchanged
+                    // for removing its old entries
+                    OpenCms.getMemoryMonitor().cacheLock(
+                        new CmsLock(resourceName, sysLock.getUserId(), sysLock.getProject(), sysLock.getType()));
                     return tmp;
                 } else {
                     // if there is no edition lock, only a system lock, do nothing
@@ -0,0 +1,384 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Event manager which delivers events to listeners implementing {@link I_CmsAsyncEventListener} asynchronously.<p>
+ *
+ * Every asynchronous listener has its own queue, so it receives its events in the order in which they were fired.
+ * The queues are processed by a small thread pool shared by all listeners. Events waiting in a queue are merged
+ * by the listener where possible. All other listeners are called synchronously in the thread firing the event,
+ * just like with the default event manager.<p>
+ *
+ * To use this event manager, configure it in <code>opencms-system.xml</code>:
+ * <pre>
+ * &lt;events&gt;
+ *     &lt;eventmanager class="org.opencms.main.CmsAsyncEventManager" /&gt;
+ * &lt;/events&gt;
+ * </pre>
+ *
+ * @since 10.5.0
+ */
+public class CmsAsyncEventManager extends CmsEventManager {
+
+    /**
+     * The queue of events waiting to be delivered to an asynchronous event listener.<p>
+     *
+     * Also collects statistics about the delivered events.<p>
+     */
+    public static class CmsEventQueue implements Runnable {
+
+        /** The events waiting to be delivered, together with the time they were added. */
+        private Deque<Object[]> m_events = new ArrayDeque<Object[]>();
+
+        /** The executor used to process the queue. */
+        private ExecutorService m_executor;
+
+        /** The number of delivered events. */
+        private AtomicLong m_handledCount = new AtomicLong();
+
+        /** The total time spent in the listener, in milliseconds. */
+        private AtomicLong m_handlerTime = new AtomicLong();
+
+        /** The listener. */
+        private I_CmsAsyncEventListener m_listener;
+
+        /** The max time between firing an event and the end of its handling, in milliseconds. */
+        private volatile long m_maxLatency;
+
+        /** The max number of events waiting in the queue. */
+        private volatile int m_maxSize;
+
+        /** The number of events which were merged into other events. */
+        private AtomicLong m_mergedCount = new AtomicLong();
+
+        /** Flag indicating if the queue is scheduled for processing. */
+        private boolean m_scheduled;
+
+        /**
+         * Creates a new queue.<p>
+         *
+         * @param listener the listener
+         * @param executor the executor used to process the queue
+         */
+        protected CmsEventQueue(I_CmsAsyncEventListener listener, ExecutorService executor) {
+
+            m_listener = listener;
+            m_executor = executor;
+        }
+
+        /**
+         * Returns the average time spent in the listener for one event, in milliseconds.<p>
+         *
+         * @return the average time spent in the listener for one event
+         */
+        public long getAverageHandlerTime() {
+
+            long count = m_handledCount.get();
+            return count == 0 ? 0 : m_handlerTime.get() / count;
+        }
+
+        /**
+         * Returns the number of events delivered to the listener.<p>
+         *
+         * @return the number of events delivered to the listener
+         */
+        public long getHandledCount() {
+
+            return m_handledCount.get();
+        }
+
+        /**
+         * Returns the listener.<p>
+         *
+         * @return the listener
+         */
+        public I_CmsAsyncEventListener getListener() {
+
+            return m_listener;
+        }
+
+        /**
+         * Returns the max time between firing an event and the end of its handling, in milliseconds.<p>
+         *
+         * @return the max latency of an event
+         */
+        public long getMaxLatency() {
+
+            return m_maxLatency;
+        }
+
+        /**
+         * Returns the max number of events which were waiting in the queue at the same time.<p>
+         *
+         * @return the max size of the queue
+         */
+        public int getMaxSize() {
+
+            return m_maxSize;
+        }
+
+        /**
+         * Returns the number of events which were merged into other events.<p>
+         *
+         * @return the number of merged events
+         */
+        public long getMergedCount() {
+
+            return m_mergedCount.get();
+        }
+
+        /**
+         * Returns the number of events currently waiting in the queue.<p>
+         *
+         * @return the number of waiting events
+         */
+        public synchronized int getSize() {
+
+            return m_events.size();
+        }
+
+        /**
+         * Delivers the events in the queue to the listener.<p>
+         *
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+
+            int count = 0;
+            while (true) {
+                Object[] entry;
+                synchronized (this) {
+                    entry = m_events.pollFirst();
+                    if (entry == null) {
+                        m_scheduled = false;
+                        return;
+                    }
+                }
+                CmsEvent event = (CmsEvent)entry[0];
+                long start = System.currentTimeMillis();
+                try {
+                    m_listener.cmsEvent(event);
+                } catch (Throwable t) {
+                    LOG.error(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_ASYNC_EVENT_LISTENER_ERROR_2,
+                            event.toString(),
+                            m_listener),
+                        t);
+                }
+                long end = System.currentTimeMillis();
+                m_handledCount.incrementAndGet();
+                m_handlerTime.addAndGet(end - start);
+                long latency = end - ((Long)entry[1]).longValue();
+                if (latency > m_maxLatency) {
+                    m_maxLatency = latency;
+                }
+                count++;
+                if (count >= MAX_EVENTS_PER_RUN) {
+                    // give the queues of the other listeners a chance
+                    try {
+                        m_executor.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // the event manager is shutting down, continue in this thread
+                        count = 0;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an event to the queue, merging it with the last waiting event if possible.<p>
+         *
+         * @param event the event to add
+         */
+        protected void add(CmsEvent event) {
+
+            boolean schedule = false;
+            synchronized (this) {
+                Object[] last = m_events.peekLast();
+                CmsEvent merged = last != null ? m_listener.mergeEvents((CmsEvent)last[0], event) : null;
+                if (merged != null) {
+                    last[0] = merged;
+                    m_mergedCount.incrementAndGet();
+                } else {
+                    m_events.addLast(new Object[] {event, Long.valueOf(System.currentTimeMillis())});
+                    if (m_events.size() > m_maxSize) {
+                        m_maxSize = m_events.size();
+                    }
+                }
+                if (!m_scheduled) {
+                    m_scheduled = true;
+                    schedule = true;
+                }
+            }
+            if (schedule) {
+                try {
+                    m_executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // the event manager has been shut down, deliver the event in this thread
+                    run();
+                }
+            }
+        }
+    }
+
+    /** The number of threads delivering events. */
+    public static final int DEFAULT_THREAD_COUNT = 2;
+
+    /** The max number of events delivered to one listener before the next listener queue is processed. */
+    public static final int MAX_EVENTS_PER_RUN = 100;
+
+    /** The time to wait for the delivery of queued events when shutting down, in seconds. */
+    public static final int SHUTDOWN_TIMEOUT = 30;
+
+    /** The static log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsAsyncEventManager.class);
+
+    /** The executor delivering the events. */
+    private ExecutorService m_executor;
+
+    /** The event queues by listener. */
+    private ConcurrentHashMap<I_CmsAsyncEventListener, CmsEventQueue> m_queues = new ConcurrentHashMap<I_CmsAsyncEventListener, CmsEventQueue>();
+
+    /**
+     * Creates a new asynchronous event manager.<p>
+     */
+    public CmsAsyncEventManager() {
+
+        super();
+        final AtomicInteger count = new AtomicInteger();
+        m_executor = Executors.newFixedThreadPool(DEFAULT_THREAD_COUNT, new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "OpenCms async event dispatcher " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the queues of the asynchronous event listeners, which provide statistics about the delivered events.<p>
+     *
+     * @return the queues of the asynchronous event listeners
+     */
+    public List<CmsEventQueue> getEventQueues() {
+
+        return new ArrayList<CmsEventQueue>(m_queues.values());
+    }
+
+    /**
+     * @see org.opencms.main.CmsEventManager#removeCmsEventListener(org.opencms.main.I_CmsEventListener)
+     */
+    @Override
+    public void removeCmsEventListener(I_CmsEventListener listener) {
+
+        super.removeCmsEventListener(listener);
+        m_queues.remove(listener);
+    }
+
+    /**
+     * Delivers all queued events and stops the threads delivering the events.<p>
+     *
+     * Events fired afterwards are delivered synchronously.<p>
+     *
+     * @see org.opencms.main.CmsEventManager#shutDown()
+     */
+    @Override
+    public void shutDown() {
+
+        m_executor.shutdown();
+        try {
+            m_executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * @see org.opencms.main.CmsEventManager#fireEventHandler(java.util.List, org.opencms.main.CmsEvent)
+     */
+    @Override
+    protected void fireEventHandler(List<I_CmsEventListener> listeners, CmsEvent event) {
+
+        if ((listeners == null) || listeners.isEmpty()) {
+            super.fireEventHandler(listeners, event);
+            return;
+        }
+        I_CmsEventListener[] list = listeners.toArray(EVENT_LIST);
+        List<I_CmsEventListener> syncListeners = new ArrayList<I_CmsEventListener>(list.length);
+        for (int i = 0; i < list.length; i++) {
+            if ((list[i] instanceof I_CmsAsyncEventListener)
+                && ((I_CmsAsyncEventListener)list[i]).isAsyncEvent(event)) {
+                getQueue((I_CmsAsyncEventListener)list[i]).add(event);
+            } else {
+                syncListeners.add(list[i]);
+            }
+        }
+        super.fireEventHandler(syncListeners, event);
+    }
+
+    /**
+     * Returns the event queue for the given listener, creating it if necessary.<p>
+     *
+     * @param listener the listener
+     *
+     * @return the event queue for the listener
+     */
+    private CmsEventQueue getQueue(I_CmsAsyncEventListener listener) {
+
+        CmsEventQueue queue = m_queues.get(listener);
+        if (queue == null) {
+            queue = new CmsEventQueue(listener, m_executor);
+            CmsEventQueue existing = m_queues.putIfAbsent(listener, queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+        return queue;
+    }
+}
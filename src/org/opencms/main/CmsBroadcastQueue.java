@@ -0,0 +1,119 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.commons.collections.Buffer;
+import org.apache.commons.collections.BufferUnderflowException;
+
+/**
+ * Unbounded FIFO buffer for the broadcasts of a session which does not block readers or writers.<p>
+ *
+ * The buffer is backed by a {@link ConcurrentLinkedQueue}, so broadcasts can be sent to many sessions
+ * while the receiving sessions poll their queues at the same time.<p>
+ *
+ * @since 10.5.0
+ */
+@SuppressWarnings("rawtypes")
+public class CmsBroadcastQueue extends AbstractCollection implements Buffer {
+
+    /** The queue holding the broadcasts. */
+    private ConcurrentLinkedQueue<Object> m_queue = new ConcurrentLinkedQueue<Object>();
+
+    /**
+     * @see java.util.AbstractCollection#add(java.lang.Object)
+     */
+    @Override
+    public boolean add(Object broadcast) {
+
+        return m_queue.add(broadcast);
+    }
+
+    /**
+     * @see java.util.AbstractCollection#clear()
+     */
+    @Override
+    public void clear() {
+
+        m_queue.clear();
+    }
+
+    /**
+     * @see org.apache.commons.collections.Buffer#get()
+     */
+    public Object get() {
+
+        Object result = m_queue.peek();
+        if (result == null) {
+            throw new BufferUnderflowException();
+        }
+        return result;
+    }
+
+    /**
+     * @see java.util.AbstractCollection#isEmpty()
+     */
+    @Override
+    public boolean isEmpty() {
+
+        return m_queue.isEmpty();
+    }
+
+    /**
+     * @see java.util.AbstractCollection#iterator()
+     */
+    @Override
+    public Iterator iterator() {
+
+        return m_queue.iterator();
+    }
+
+    /**
+     * @see org.apache.commons.collections.Buffer#remove()
+     */
+    public Object remove() {
+
+        Object result = m_queue.poll();
+        if (result == null) {
+            throw new BufferUnderflowException();
+        }
+        return result;
+    }
+
+    /**
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+
+        return m_queue.size();
+    }
+}
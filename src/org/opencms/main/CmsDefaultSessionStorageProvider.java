@@ -27,35 +27,38 @@
 
 package org.opencms.main;
 
-import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsUUID;
 
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-
-import org.apache.commons.collections.FastHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The default session storage provider implementation.<p>
  *
- * Implementation based on a {@link FastHashMap}.<p>
+ * Implementation based on a {@link ConcurrentHashMap}, with a secondary index from user ids to session ids,
+ * so that neither reading the sessions nor looking up the sessions of a single user requires locking
+ * or scanning all sessions.<p>
  *
  * @since 6.5.5
  */
 public class CmsDefaultSessionStorageProvider implements I_CmsSessionStorageProvider {
 
     /** Stores the session info objects mapped to the session id. */
-    private FastHashMap m_sessions;
+    private ConcurrentHashMap<CmsUUID, CmsSessionInfo> m_sessions;
+
+    /** Stores the session ids mapped to the user id. */
+    private ConcurrentHashMap<CmsUUID, Set<CmsUUID>> m_sessionsByUser;
 
     /**
      * @see org.opencms.main.I_CmsSessionStorageProvider#get(org.opencms.util.CmsUUID)
      */
     public CmsSessionInfo get(CmsUUID sessionId) {
 
-        return (CmsSessionInfo)m_sessions.get(sessionId);
+        return m_sessions.get(sessionId);
     }
 
     /**
@@ -63,7 +66,7 @@ public class CmsDefaultSessionStorageProvider implements I_CmsSessionStorageProv
      */
     public List<CmsSessionInfo> getAll() {
 
-        return getAllOfUser(null);
+        return new ArrayList<CmsSessionInfo>(m_sessions.values());
     }
 
     /**
@@ -71,14 +74,22 @@ public class CmsDefaultSessionStorageProvider implements I_CmsSessionStorageProv
      */
     public List<CmsSessionInfo> getAllOfUser(CmsUUID userId) {
 
-        try {
-            return getAllSelected(CmsCollectionsGenericWrapper.<CmsUUID, CmsSessionInfo> map(m_sessions), userId);
-        } catch (ConcurrentModificationException e) {
-            // try again with a clone this time
-            return getAllSelected(
-                CmsCollectionsGenericWrapper.<CmsUUID, CmsSessionInfo> map(m_sessions.clone()),
-                userId);
+        if (userId == null) {
+            return getAll();
+        }
+        Set<CmsUUID> sessionIds = m_sessionsByUser.get(userId);
+        if (sessionIds == null) {
+            return new ArrayList<CmsSessionInfo>();
+        }
+        List<CmsSessionInfo> userSessions = new ArrayList<CmsSessionInfo>(sessionIds.size());
+        for (CmsUUID sessionId : sessionIds) {
+            CmsSessionInfo sessionInfo = m_sessions.get(sessionId);
+            if ((sessionInfo != null) && userId.equals(sessionInfo.getUserId())) {
+                // sessionInfo == null may be the case in case of concurrent modification
+                userSessions.add(sessionInfo);
+            }
         }
+        return userSessions;
     }
 
     /**
@@ -92,12 +103,11 @@ public class CmsDefaultSessionStorageProvider implements I_CmsSessionStorageProv
     /**
      * @see org.opencms.main.I_CmsSessionStorageProvider#initialize()
      */
-    public void initialize() {
+    public void initialize() throws CmsInitException {
 
         // create a map for all sessions, these will be mapped using their session id
-        m_sessions = new FastHashMap();
-        // set to "fast" mode (will be reset for write access)
-        m_sessions.setFast(true);
+        m_sessions = new ConcurrentHashMap<CmsUUID, CmsSessionInfo>();
+        m_sessionsByUser = new ConcurrentHashMap<CmsUUID, Set<CmsUUID>>();
     }
 
     /**
@@ -105,7 +115,25 @@ public class CmsDefaultSessionStorageProvider implements I_CmsSessionStorageProv
      */
     public CmsSessionInfo put(CmsSessionInfo sessionInfo) {
 
-        return (CmsSessionInfo)m_sessions.put(sessionInfo.getSessionId(), sessionInfo);
+        CmsSessionInfo oldInfo = m_sessions.put(sessionInfo.getSessionId(), sessionInfo);
+        if ((oldInfo == null) || !oldInfo.getUserId().equals(sessionInfo.getUserId())) {
+            // the index only has to be changed if a session is added or switched to another user,
+            // not for the updates happening on every request
+            synchronized (m_sessionsByUser) {
+                if (oldInfo != null) {
+                    removeFromUserIndex(oldInfo.getUserId(), oldInfo.getSessionId());
+                }
+                if (m_sessions.get(sessionInfo.getSessionId()) == sessionInfo) {
+                    Set<CmsUUID> sessionIds = m_sessionsByUser.get(sessionInfo.getUserId());
+                    if (sessionIds == null) {
+                        sessionIds = Collections.newSetFromMap(new ConcurrentHashMap<CmsUUID, Boolean>());
+                        m_sessionsByUser.put(sessionInfo.getUserId(), sessionIds);
+                    }
+                    sessionIds.add(sessionInfo.getSessionId());
+                }
+            }
+        }
+        return oldInfo;
     }
 
     /**
@@ -113,16 +141,22 @@ public class CmsDefaultSessionStorageProvider implements I_CmsSessionStorageProv
      */
     public CmsSessionInfo remove(CmsUUID sessionId) {
 
-        return (CmsSessionInfo)m_sessions.remove(sessionId);
+        CmsSessionInfo oldInfo = m_sessions.remove(sessionId);
+        if (oldInfo != null) {
+            synchronized (m_sessionsByUser) {
+                removeFromUserIndex(oldInfo.getUserId(), sessionId);
+            }
+        }
+        return oldInfo;
     }
 
     /**
      * @see org.opencms.main.I_CmsSessionStorageProvider#shutdown()
      */
-    public void shutdown() {
+    public void shutdown() throws Exception {
 
         m_sessions.clear();
-        m_sessions = null;
+        m_sessionsByUser.clear();
     }
 
     /**
@@ -130,59 +164,37 @@ public class CmsDefaultSessionStorageProvider implements I_CmsSessionStorageProv
      */
     public void validate() {
 
-        try {
-            // change session map to full synchronization or "slow" mode
-            m_sessions.setFast(false);
-            Iterator<Map.Entry<CmsUUID, CmsSessionInfo>> sessions = CmsCollectionsGenericWrapper.<CmsUUID, CmsSessionInfo> map(
-                m_sessions).entrySet().iterator();
-            while (sessions.hasNext()) {
-                Map.Entry<CmsUUID, CmsSessionInfo> entry = sessions.next();
-                CmsUUID sessionId = entry.getKey();
-                CmsSessionInfo sessionInfo = entry.getValue();
-                if ((sessionInfo != null) && (m_sessions.get(sessionId) != null)) {
-                    // may be the case in case of concurrent modification
-                    if (sessionInfo.isExpired()) {
-                        // session is invalid, try to remove it
-                        try {
-                            sessions.remove();
-                        } catch (ConcurrentModificationException ex) {
-                            // ignore, better luck next time...
-                        }
-                    }
-                }
-            }
-        } catch (ConcurrentModificationException ex) {
-            // CME can also be triggered from the Iterator#next() method.
-            // ignore, better luck next time...
-        } finally {
-            // it may be null during shutdown
-            if (m_sessions != null) {
-                // reset session map to "fast" mode
-                m_sessions.setFast(true);
+        Iterator<CmsSessionInfo> sessions = m_sessions.values().iterator();
+        while (sessions.hasNext()) {
+            CmsSessionInfo sessionInfo = sessions.next();
+            if (sessionInfo.isExpired()) {
+                // session is invalid, remove it
+                remove(sessionInfo.getSessionId());
             }
         }
     }
 
     /**
-     * Returns all sessions or all sessions matching the user id from the provided Map.<p>
+     * Removes a session id from the index of the sessions of a user.<p>
      *
-     * @param allSessions the Map of existing sessions
-     * @param userId the id of the user, if null all sessions will be returned
+     * Must be called while holding the monitor of the user index.<p>
      *
-     * @return all sessions or all sessions matching the user id from the provided Map
+     * @param userId the user id
+     * @param sessionId the session id
      */
-    private List<CmsSessionInfo> getAllSelected(Map<CmsUUID, CmsSessionInfo> allSessions, CmsUUID userId) {
-
-        List<CmsSessionInfo> userSessions = new ArrayList<CmsSessionInfo>();
-        Iterator<Map.Entry<CmsUUID, CmsSessionInfo>> i = allSessions.entrySet().iterator();
-        while (i.hasNext()) {
-            Map.Entry<CmsUUID, CmsSessionInfo> entry = i.next();
-            CmsSessionInfo sessionInfo = entry.getValue();
-            if ((sessionInfo != null) && ((userId == null) || userId.equals(sessionInfo.getUserId()))) {
-                // sessionInfo == null may be the case in case of concurrent modification
-                userSessions.add(sessionInfo);
+    private void removeFromUserIndex(CmsUUID userId, CmsUUID sessionId) {
+
+        CmsSessionInfo currentInfo = m_sessions.get(sessionId);
+        if ((currentInfo != null) && currentInfo.getUserId().equals(userId)) {
+            // the session has been stored again for the same user in the meantime
+            return;
+        }
+        Set<CmsUUID> sessionIds = m_sessionsByUser.get(userId);
+        if (sessionIds != null) {
+            sessionIds.remove(sessionId);
+            if (sessionIds.isEmpty()) {
+                m_sessionsByUser.remove(userId);
             }
         }
-        return userSessions;
     }
 }
@@ -155,6 +155,16 @@ public class CmsEventManager {
         }
     }
 
+    /**
+     * Shuts down this event manager.<p>
+     *
+     * Nothing needs to be done here, since this event manager handles all events synchronously.<p>
+     */
+    public void shutDown() {
+
+        // noop
+    }
+
     /**
      * Returns the map of all configured event listeners.<p>
      *
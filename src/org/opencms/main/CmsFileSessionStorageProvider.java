@@ -0,0 +1,149 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.util.CmsFileUtil;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Session storage provider which writes the session info objects to a file on shutdown
+ * and restores them on startup.<p>
+ *
+ * This allows users to keep their OpenCms sessions over a restart, as long as the servlet container
+ * also persists the http sessions. Session info objects which expired in the meantime are not restored.<p>
+ *
+ * To use this provider, configure it in the <code>opencms-system.xml</code>:
+ * <pre>
+ * &lt;session-storageprovider class="org.opencms.main.CmsFileSessionStorageProvider" /&gt;
+ * </pre>
+ *
+ * @since 10.5.0
+ */
+public class CmsFileSessionStorageProvider extends CmsDefaultSessionStorageProvider {
+
+    /** The default file, relative to the WEB-INF folder. */
+    public static final String DEFAULT_FILE = "cache/session-infos.ser";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsFileSessionStorageProvider.class);
+
+    /** The file the session info objects are stored in. */
+    private File m_file;
+
+    /**
+     * @see org.opencms.main.CmsDefaultSessionStorageProvider#initialize()
+     */
+    @Override
+    public void initialize() throws CmsInitException {
+
+        super.initialize();
+        m_file = new File(OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(DEFAULT_FILE));
+        int count = 0;
+        for (CmsSessionInfo sessionInfo : readSessionInfos()) {
+            if (!sessionInfo.isExpired()) {
+                put(sessionInfo);
+                count++;
+            }
+        }
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_SESSION_INFOS_RESTORED_2,
+                    new Integer(count),
+                    m_file.getPath()));
+        }
+        // the file is only valid for the next startup
+        m_file.delete();
+    }
+
+    /**
+     * @see org.opencms.main.CmsDefaultSessionStorageProvider#shutdown()
+     */
+    @Override
+    public void shutdown() throws Exception {
+
+        writeSessionInfos();
+        super.shutdown();
+    }
+
+    /**
+     * Reads the stored session info objects from the file.<p>
+     *
+     * @return the stored session info objects, or an empty list if there are none
+     */
+    @SuppressWarnings("unchecked")
+    private List<CmsSessionInfo> readSessionInfos() {
+
+        if (!m_file.exists()) {
+            return new ArrayList<CmsSessionInfo>();
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(m_file)));
+            return (List<CmsSessionInfo>)in.readObject();
+        } catch (Exception e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_SESSION_INFOS_READ_FAILED_1, m_file.getPath()), e);
+            return new ArrayList<CmsSessionInfo>();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the current, not yet expired session info objects to the file.<p>
+     */
+    private void writeSessionInfos() {
+
+        ArrayList<CmsSessionInfo> sessionInfos = new ArrayList<CmsSessionInfo>();
+        for (CmsSessionInfo sessionInfo : getAll()) {
+            if (!sessionInfo.isExpired()) {
+                sessionInfos.add(sessionInfo);
+            }
+        }
+        try {
+            // replaces the old file only if the new one was written completely
+            CmsFileUtil.writeObject(m_file, sessionInfos);
+        } catch (Exception e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_SESSION_INFOS_WRITE_FAILED_1, m_file.getPath()), e);
+        }
+    }
+}
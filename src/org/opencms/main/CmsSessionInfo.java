@@ -33,8 +33,6 @@ import org.opencms.util.CmsUUID;
 import java.io.Serializable;
 
 import org.apache.commons.collections.Buffer;
-import org.apache.commons.collections.BufferUtils;
-import org.apache.commons.collections.buffer.UnboundedFifoBuffer;
 
 /**
  * Stores information about a user that has authenticated himself the OpenCms security system.<p>
@@ -61,7 +59,7 @@ public class CmsSessionInfo implements Comparable<CmsSessionInfo>, Serializable
     private static final long serialVersionUID = 927301527031117920L;
 
     /** The broadcast queue buffer for the user of this session info. */
-    private transient Buffer m_broadcastQueue;
+    private transient volatile Buffer m_broadcastQueue;
 
     /** The maximum time, in seconds, this session info is allowed to be inactive. */
     private int m_maxInactiveInterval;
@@ -138,10 +136,16 @@ public class CmsSessionInfo implements Comparable<CmsSessionInfo>, Serializable
      */
     public Buffer getBroadcastQueue() {
 
-        if (m_broadcastQueue == null) {
-            m_broadcastQueue = BufferUtils.synchronizedBuffer(new UnboundedFifoBuffer(QUEUE_SIZE));
+        Buffer queue = m_broadcastQueue;
+        if (queue == null) {
+            synchronized (this) {
+                if (m_broadcastQueue == null) {
+                    m_broadcastQueue = new CmsBroadcastQueue();
+                }
+                queue = m_broadcastQueue;
+            }
         }
-        return m_broadcastQueue;
+        return queue;
     }
 
     /**
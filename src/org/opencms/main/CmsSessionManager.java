@@ -49,14 +49,13 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import javax.servlet.http.HttpSessionEvent;
 
 import org.apache.commons.collections.Buffer;
-import org.apache.commons.collections.BufferUtils;
-import org.apache.commons.collections.buffer.CircularFifoBuffer;
 import org.apache.commons.logging.Log;
 
 /**
@@ -81,14 +80,11 @@ public class CmsSessionManager {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsSessionManager.class);
 
-    /** Lock object for synchronized session count updates. */
-    private Object m_lockSessionCount;
-
     /** Counter for the currently active sessions. */
-    private int m_sessionCountCurrent;
+    private AtomicInteger m_sessionCountCurrent;
 
     /** Counter for all sessions created so far. */
-    private int m_sessionCountTotal;
+    private AtomicInteger m_sessionCountTotal;
 
     /** Session storage provider instance. */
     private I_CmsSessionStorageProvider m_sessionStorageProvider;
@@ -101,8 +97,9 @@ public class CmsSessionManager {
      */
     protected CmsSessionManager() {
 
-        // create a lock object for the session counter
-        m_lockSessionCount = new Object();
+        // the session counters are updated without locking
+        m_sessionCountCurrent = new AtomicInteger();
+        m_sessionCountTotal = new AtomicInteger();
     }
 
     /**
@@ -136,7 +133,7 @@ public class CmsSessionManager {
         CmsSessionInfo sessionInfo = getSessionInfo(getSessionUUID(sessionId));
         if (sessionInfo == null) {
             // return empty message buffer if the session is gone or not available
-            return BufferUtils.synchronizedBuffer(new CircularFifoBuffer(CmsSessionInfo.QUEUE_SIZE));
+            return new CmsBroadcastQueue();
         }
         return sessionInfo.getBroadcastQueue();
     }
@@ -163,7 +160,7 @@ public class CmsSessionManager {
      */
     public int getSessionCountCurrent() {
 
-        return m_sessionCountCurrent;
+        return m_sessionCountCurrent.get();
     }
 
     /**
@@ -173,7 +170,7 @@ public class CmsSessionManager {
      */
     public int getSessionCountTotal() {
 
-        return m_sessionCountTotal;
+        return m_sessionCountTotal.get();
     }
 
     /**
@@ -675,16 +672,14 @@ public class CmsSessionManager {
 
         HttpServletRequest request = OpenCmsServlet.currentRequest.get();
         String tid = "[" + Thread.currentThread().getId() + "] ";
-        synchronized (m_lockSessionCount) {
-            m_sessionCountCurrent = (m_sessionCountCurrent <= 0) ? 1 : (m_sessionCountCurrent + 1);
-            m_sessionCountTotal++;
-            if (LOG.isInfoEnabled()) {
-                LOG.info(tid
-                    + Messages.get().getBundle().key(
-                        Messages.LOG_SESSION_CREATED_2,
-                        new Integer(m_sessionCountTotal),
-                        new Integer(m_sessionCountCurrent)));
-            }
+        int current = updateSessionCountCurrent(1);
+        int total = m_sessionCountTotal.incrementAndGet();
+        if (LOG.isInfoEnabled()) {
+            LOG.info(tid
+                + Messages.get().getBundle().key(
+                    Messages.LOG_SESSION_CREATED_2,
+                    new Integer(total),
+                    new Integer(current)));
         }
 
         if (LOG.isDebugEnabled()) {
@@ -709,15 +704,13 @@ public class CmsSessionManager {
      */
     protected void sessionDestroyed(HttpSessionEvent event) {
 
-        synchronized (m_lockSessionCount) {
-            m_sessionCountCurrent = (m_sessionCountCurrent <= 0) ? 0 : (m_sessionCountCurrent - 1);
-            if (LOG.isInfoEnabled()) {
-                LOG.info(
-                    Messages.get().getBundle().key(
-                        Messages.LOG_SESSION_DESTROYED_2,
-                        new Integer(m_sessionCountTotal),
-                        new Integer(m_sessionCountCurrent)));
-            }
+        int current = updateSessionCountCurrent(-1);
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SESSION_DESTROYED_2,
+                    new Integer(m_sessionCountTotal.get()),
+                    new Integer(current)));
         }
 
         CmsSessionInfo sessionInfo = getSessionInfo(event.getSession());
@@ -786,4 +779,28 @@ public class CmsSessionManager {
         }
         m_sessionStorageProvider.validate();
     }
+
+    /**
+     * Changes the counter for the currently active sessions, never letting it drop below zero.<p>
+     *
+     * Sessions which existed before this manager was created may be destroyed without having been counted,
+     * so the counter is corrected instead of becoming negative.<p>
+     *
+     * @param delta the change, either 1 or -1
+     *
+     * @return the updated number of active sessions
+     */
+    private int updateSessionCountCurrent(int delta) {
+
+        while (true) {
+            int current = m_sessionCountCurrent.get();
+            int updated = Math.max(current, 0) + delta;
+            if (updated < 0) {
+                updated = 0;
+            }
+            if (m_sessionCountCurrent.compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
 }
@@ -0,0 +1,397 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Runs the initialization tasks of the OpenCms startup, modelled as a dependency graph.<p>
+ *
+ * Tasks are added in an order that satisfies their dependencies, i.e. a task can only depend on tasks added before it.
+ * In sequential mode, the tasks are executed in exactly that order in the calling thread.
+ * In parallel mode, every task is started as soon as all of its dependencies are finished, so independent
+ * tasks run at the same time.<p>
+ *
+ * {@link #run()} returns as soon as all critical tasks (and the tasks they depend on) are finished.
+ * Non-critical tasks, e.g. cache warm-ups, may still be running in the background at that time.
+ * The time used by every task is written to the initialization log.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsStartupTaskRunner {
+
+    /**
+     * A single initialization task.<p>
+     */
+    public interface I_CmsStartupTask {
+
+        /**
+         * Executes the task.<p>
+         *
+         * @throws CmsException if something goes wrong
+         */
+        void run() throws CmsException;
+    }
+
+    /**
+     * A task together with its position in the dependency graph.<p>
+     */
+    private class TaskNode implements Runnable {
+
+        /** True if the startup has to wait for this task. */
+        boolean m_critical;
+
+        /** The tasks this task depends on. */
+        List<TaskNode> m_dependencies = new ArrayList<TaskNode>();
+
+        /** The tasks depending on this task. */
+        List<TaskNode> m_dependents = new ArrayList<TaskNode>();
+
+        /** Released when this task is finished, either successfully or not. */
+        CountDownLatch m_done = new CountDownLatch(1);
+
+        /** Set if this task could not be completed. */
+        volatile Throwable m_error;
+
+        /** The name of the task. */
+        String m_name;
+
+        /** The number of dependencies which are not finished yet. */
+        AtomicInteger m_pending;
+
+        /** The task to execute. */
+        I_CmsStartupTask m_task;
+
+        /**
+         * Creates a new task node.<p>
+         *
+         * @param name the name of the task
+         * @param critical true if the startup has to wait for this task
+         * @param task the task to execute
+         */
+        TaskNode(String name, boolean critical, I_CmsStartupTask task) {
+
+            m_name = name;
+            m_critical = critical;
+            m_task = task;
+        }
+
+        /**
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+
+            execute();
+            for (TaskNode dependent : m_dependents) {
+                if (dependent.m_pending.decrementAndGet() == 0) {
+                    schedule(dependent);
+                }
+            }
+        }
+
+        /**
+         * Executes the task unless one of its dependencies failed, and records the time used.<p>
+         */
+        void execute() {
+
+            try {
+                for (TaskNode dependency : m_dependencies) {
+                    if (dependency.m_error != null) {
+                        m_error = dependency.m_error;
+                        LOG.error(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_STARTUP_TASK_SKIPPED_2,
+                                m_name,
+                                dependency.m_name));
+                        return;
+                    }
+                }
+                long start = System.currentTimeMillis();
+                try {
+                    m_task.run();
+                } catch (Throwable t) {
+                    m_error = t;
+                    LOG.error(Messages.get().getBundle().key(Messages.LOG_STARTUP_TASK_FAILED_1, m_name), t);
+                    return;
+                }
+                long time = System.currentTimeMillis() - start;
+                m_timings.put(m_name, new Long(time));
+                if (CmsLog.INIT.isInfoEnabled()) {
+                    CmsLog.INIT.info(
+                        Messages.get().getBundle().key(
+                            Messages.INIT_STARTUP_TASK_FINISHED_2,
+                            m_name,
+                            new Long(time)));
+                }
+            } finally {
+                m_done.countDown();
+                if (m_unfinished.decrementAndGet() == 0) {
+                    finished();
+                }
+            }
+        }
+    }
+
+    /** The log object for this class. */
+    static final Log LOG = CmsLog.getLog(CmsStartupTaskRunner.class);
+
+    /** Released when all tasks are finished. */
+    private CountDownLatch m_allDone = new CountDownLatch(1);
+
+    /** The thread pool used in parallel mode. */
+    private ExecutorService m_executor;
+
+    /** The tasks by name, in the order they were added. */
+    private Map<String, TaskNode> m_tasks = new LinkedHashMap<String, TaskNode>();
+
+    /** The number of threads used in parallel mode, or 0 for sequential mode. */
+    private int m_threads;
+
+    /** The time used by each successfully finished task. */
+    Map<String, Long> m_timings = new ConcurrentHashMap<String, Long>();
+
+    /** The number of tasks which are not finished yet. */
+    AtomicInteger m_unfinished = new AtomicInteger();
+
+    /**
+     * Creates a new task runner.<p>
+     *
+     * @param threads the number of threads used to run independent tasks in parallel, or a value less than 2 for sequential execution
+     */
+    public CmsStartupTaskRunner(int threads) {
+
+        m_threads = threads < 2 ? 0 : threads;
+    }
+
+    /**
+     * Adds a task.<p>
+     *
+     * @param name the unique name of the task, also used in the log
+     * @param dependencies the names of the tasks which must be finished before this task is started, these must already be added
+     * @param critical <code>true</code> if the startup has to wait for this task, <code>false</code> for background tasks
+     * @param task the task to execute
+     */
+    public void addTask(String name, String[] dependencies, boolean critical, I_CmsStartupTask task) {
+
+        if (m_tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup task: " + name);
+        }
+        TaskNode node = new TaskNode(name, critical, task);
+        for (String dependencyName : dependencies) {
+            TaskNode dependency = m_tasks.get(dependencyName);
+            if (dependency == null) {
+                throw new IllegalArgumentException("Unknown dependency " + dependencyName + " of startup task " + name);
+            }
+            node.m_dependencies.add(dependency);
+            dependency.m_dependents.add(node);
+        }
+        m_tasks.put(name, node);
+    }
+
+    /**
+     * Returns the time used by the successfully finished tasks in milliseconds, by task name.<p>
+     *
+     * @return the time used by the finished tasks
+     */
+    public Map<String, Long> getTimings() {
+
+        return Collections.unmodifiableMap(m_timings);
+    }
+
+    /**
+     * Returns true if the tasks are executed in parallel.<p>
+     *
+     * @return true if the tasks are executed in parallel
+     */
+    public boolean isParallel() {
+
+        return m_threads > 0;
+    }
+
+    /**
+     * Runs the tasks and waits until all critical tasks are finished.<p>
+     *
+     * If a critical task fails, its exception is thrown from this method.
+     * Failed non-critical tasks are only logged. Tasks depending on a failed task are skipped.<p>
+     *
+     * @throws CmsException if a critical task fails with a checked exception
+     */
+    public void run() throws CmsException {
+
+        long start = System.currentTimeMillis();
+        // tasks required by critical tasks are critical as well
+        List<TaskNode> nodes = new ArrayList<TaskNode>(m_tasks.values());
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            TaskNode node = nodes.get(i);
+            if (node.m_critical) {
+                for (TaskNode dependency : node.m_dependencies) {
+                    dependency.m_critical = true;
+                }
+            }
+        }
+        m_unfinished.set(nodes.size());
+        if (nodes.isEmpty()) {
+            finished();
+        }
+        if (isParallel()) {
+            if (CmsLog.INIT.isInfoEnabled()) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(Messages.INIT_STARTUP_TASKS_PARALLEL_1, new Integer(m_threads)));
+            }
+            m_executor = Executors.newFixedThreadPool(m_threads, new ThreadFactory() {
+
+                private AtomicInteger m_count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "OpenCms-startup-" + m_count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            for (TaskNode node : nodes) {
+                node.m_pending = new AtomicInteger(node.m_dependencies.size());
+            }
+            for (TaskNode node : nodes) {
+                if (node.m_dependencies.isEmpty()) {
+                    schedule(node);
+                }
+            }
+            for (TaskNode node : nodes) {
+                if (node.m_critical) {
+                    try {
+                        node.m_done.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CmsRuntimeException(
+                            Messages.get().container(Messages.LOG_STARTUP_TASK_FAILED_1, node.m_name),
+                            e);
+                    }
+                    checkError(node);
+                }
+            }
+        } else {
+            for (TaskNode node : nodes) {
+                node.execute();
+                if (node.m_critical) {
+                    checkError(node);
+                }
+            }
+        }
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_STARTUP_TASKS_FINISHED_1,
+                    new Long(System.currentTimeMillis() - start)));
+        }
+    }
+
+    /**
+     * Waits until all tasks, including the background tasks, are finished.<p>
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     *
+     * @return true if all tasks are finished
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean waitForBackgroundTasks(long timeout) throws InterruptedException {
+
+        return m_allDone.await(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called when all tasks are finished.<p>
+     */
+    void finished() {
+
+        if (m_executor != null) {
+            m_executor.shutdown();
+        }
+        m_allDone.countDown();
+    }
+
+    /**
+     * Starts a task in the thread pool.<p>
+     *
+     * @param node the task to start
+     */
+    void schedule(TaskNode node) {
+
+        try {
+            m_executor.execute(node);
+        } catch (RejectedExecutionException e) {
+            // the startup was aborted because a critical task failed
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Re-throws the error of a critical task.<p>
+     *
+     * @param node the critical task
+     *
+     * @throws CmsException if the task failed with a checked exception
+     */
+    private void checkError(TaskNode node) throws CmsException {
+
+        Throwable error = node.m_error;
+        if (error == null) {
+            return;
+        }
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+        }
+        if (error instanceof CmsException) {
+            throw (CmsException)error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException)error;
+        }
+        if (error instanceof Error) {
+            throw (Error)error;
+        }
+        throw new CmsRuntimeException(
+            Messages.get().container(Messages.LOG_STARTUP_TASK_FAILED_1, node.m_name),
+            error);
+    }
+}
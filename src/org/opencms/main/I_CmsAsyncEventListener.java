@@ -0,0 +1,65 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+/**
+ * Event listener which can receive some or all of its events asynchronously.<p>
+ *
+ * If the {@link CmsAsyncEventManager} is configured, the events for which {@link #isAsyncEvent(CmsEvent)}
+ * returns <code>true</code> are not handled in the thread firing the event, but are queued and delivered
+ * in the order in which they were fired by a background thread. All other event listeners and events are
+ * always handled synchronously.<p>
+ *
+ * While events wait in the queue of a listener, the event manager may merge them with
+ * {@link #mergeEvents(CmsEvent, CmsEvent)}, so that e.g. several resource modifications can be handled at once.<p>
+ *
+ * @since 10.5.0
+ */
+public interface I_CmsAsyncEventListener extends I_CmsEventListener {
+
+    /**
+     * Checks if the given event can be delivered to this listener asynchronously.<p>
+     *
+     * @param event the event
+     *
+     * @return <code>true</code> if the event can be delivered asynchronously
+     */
+    boolean isAsyncEvent(CmsEvent event);
+
+    /**
+     * Merges two events which are waiting in the queue of this listener into a single event.<p>
+     *
+     * Handling the merged event must have the same effect as handling the first event and then the second event.<p>
+     *
+     * @param first the event fired first
+     * @param second the event fired second
+     *
+     * @return the merged event, or <code>null</code> if the events can not be merged
+     */
+    CmsEvent mergeEvents(CmsEvent first, CmsEvent second);
+}
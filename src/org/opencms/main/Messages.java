@@ -333,12 +333,24 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SERVLET_PATH_1 = "INIT_SERVLET_PATH_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_SESSION_INFOS_RESTORED_2 = "INIT_SESSION_INFOS_RESTORED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SHUTDOWN_START_1 = "INIT_SHUTDOWN_START_1";
 
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SHUTDOWN_TIME_1 = "INIT_SHUTDOWN_TIME_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_STARTUP_TASKS_FINISHED_1 = "INIT_STARTUP_TASKS_FINISHED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_STARTUP_TASKS_PARALLEL_1 = "INIT_STARTUP_TASKS_PARALLEL_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_STARTUP_TASK_FINISHED_2 = "INIT_STARTUP_TASK_FINISHED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_STARTUP_TIME_1 = "INIT_STARTUP_TIME_1";
 
@@ -351,6 +363,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_WEBINF_PATH_1 = "INIT_WEBINF_PATH_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ASYNC_EVENT_LISTENER_ERROR_2 = "LOG_ASYNC_EVENT_LISTENER_ERROR_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CONSOLE_TOTAL_RUNTIME_1 = "LOG_CONSOLE_TOTAL_RUNTIME_1";
 
@@ -462,6 +477,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SESSION_DESTROYED_2 = "LOG_SESSION_DESTROYED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SESSION_INFOS_READ_FAILED_1 = "LOG_SESSION_INFOS_READ_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SESSION_INFOS_WRITE_FAILED_1 = "LOG_SESSION_INFOS_WRITE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SET_DEFAULT_ENCODING_1 = "LOG_SET_DEFAULT_ENCODING_1";
 
@@ -477,6 +498,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_STARTUP_CONSOLE_NOTE_2 = "LOG_STARTUP_CONSOLE_NOTE_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_STARTUP_TASK_FAILED_1 = "LOG_STARTUP_TASK_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_STARTUP_TASK_SKIPPED_2 = "LOG_STARTUP_TASK_SKIPPED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_THREADSTORE_CHECK_PUBLISH_THREAD_ERROR_0 = "LOG_THREADSTORE_CHECK_PUBLISH_THREAD_ERROR_0";
 
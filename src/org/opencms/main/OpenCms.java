@@ -28,6 +28,7 @@
 package org.opencms.main;
 
 import org.opencms.ade.configuration.CmsADEManager;
+import org.opencms.cache.CmsCacheSnapshotManager;
 import org.opencms.db.CmsAliasManager;
 import org.opencms.db.CmsDefaultUsers;
 import org.opencms.db.CmsExportPoint;
@@ -200,6 +201,16 @@ public final class OpenCms {
         return OpenCmsCore.getInstance().getAuthorizationHandler();
     }
 
+    /**
+     * Returns the cache snapshot manager.<p>
+     *
+     * @return the cache snapshot manager, or <code>null</code> if cache snapshots are not enabled
+     */
+    public static CmsCacheSnapshotManager getCacheSnapshotManager() {
+
+        return OpenCmsCore.getInstance().getCacheSnapshotManager();
+    }
+
     /**
      * Gets the credentials resolver instance.<p>
      *
@@ -28,6 +28,7 @@
 package org.opencms.main;
 
 import org.opencms.ade.configuration.CmsADEManager;
+import org.opencms.cache.CmsCacheSnapshotManager;
 import org.opencms.configuration.CmsConfigurationException;
 import org.opencms.configuration.CmsConfigurationManager;
 import org.opencms.configuration.CmsImportExportConfiguration;
@@ -66,11 +67,13 @@ import org.opencms.i18n.CmsSingleTreeLocaleHandler;
 import org.opencms.i18n.CmsVfsBundleManager;
 import org.opencms.importexport.CmsImportExportManager;
 import org.opencms.jsp.jsonpart.CmsJsonPartFilter;
+import org.opencms.loader.CmsJspLoader;
 import org.opencms.loader.CmsResourceManager;
 import org.opencms.loader.CmsTemplateContextManager;
 import org.opencms.loader.I_CmsFlexCacheEnabledLoader;
 import org.opencms.loader.I_CmsResourceLoader;
 import org.opencms.lock.CmsLockManager;
+import org.opencms.main.CmsStartupTaskRunner.I_CmsStartupTask;
 import org.opencms.module.CmsModuleManager;
 import org.opencms.monitor.CmsMemoryMonitor;
 import org.opencms.monitor.CmsMemoryMonitorConfiguration;
@@ -112,6 +115,7 @@ import org.opencms.xml.CmsXmlContentTypeManager;
 import org.opencms.xml.CmsXmlUtils;
 import org.opencms.xml.containerpage.CmsFormatterConfiguration;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.Security;
 import java.util.ArrayList;
@@ -125,6 +129,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import javax.servlet.ServletConfig;
@@ -171,6 +176,12 @@ public final class OpenCmsCore {
     /** Lock object for synchronization. */
     private static final Object LOCK = new Object();
 
+    /** The <code>opencms.properties</code> parameter to enable the cache snapshot for warm restarts. */
+    private static final String PARAM_CACHE_SNAPSHOT = "cache.snapshot.enabled";
+
+    /** The <code>opencms.properties</code> parameter for the number of threads used to initialize the managers. */
+    private static final String PARAM_STARTUP_THREADS = "startup.threads";
+
     /** Indicates if the configuration was successfully finished or not. */
     private static CmsMessageContainer m_errorCondition;
 
@@ -186,6 +197,9 @@ public final class OpenCmsCore {
     /** The configured authorization handler. */
     private I_CmsAuthorizationHandler m_authorizationHandler;
 
+    /** The cache snapshot manager, or null if cache snapshots are not enabled. */
+    private CmsCacheSnapshotManager m_cacheSnapshotManager;
+
     /** The configuration manager that contains the information from the XML configuration. */
     private CmsConfigurationManager m_configurationManager;
 
@@ -440,6 +454,16 @@ public final class OpenCmsCore {
         return m_authorizationHandler;
     }
 
+    /**
+     * Returns the cache snapshot manager.<p>
+     *
+     * @return the cache snapshot manager, or <code>null</code> if cache snapshots are not enabled
+     */
+    protected CmsCacheSnapshotManager getCacheSnapshotManager() {
+
+        return m_cacheSnapshotManager;
+    }
+
     /**
      * Returns the initialized OpenCms configuration manager.<p>
      *
@@ -1395,72 +1419,24 @@ public final class OpenCmsCore {
         }
 
         m_repositoryManager.initializeCms(adminCms);
-        // now initialize the other managers
+        if (configuration.getBoolean(PARAM_CACHE_SNAPSHOT, false)) {
+            // caches registered with the snapshot manager will be restored from the snapshot written on the last shutdown
+            try {
+                m_cacheSnapshotManager = new CmsCacheSnapshotManager(
+                    initCmsObject(adminCms),
+                    new File(
+                        getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+                            CmsCacheSnapshotManager.DEFAULT_SNAPSHOT_FILE)));
+            } catch (CmsException e) {
+                throw new CmsInitException(Messages.get().container(Messages.ERR_CRITICAL_INIT_MANAGERS_0), e);
+            }
+        }
+        // now initialize the other managers, independent managers may be initialized in parallel
+        CmsStartupTaskRunner startupTasks = new CmsStartupTaskRunner(
+            configuration.getInteger(PARAM_STARTUP_THREADS, 0));
+        addStartupTasks(startupTasks, adminCms, systemConfiguration, sessionStorageProvider);
         try {
-            // initialize the scheduler
-            m_scheduleManager.initialize(initCmsObject(adminCms));
-
-            // initialize the locale manager
-            m_localeManager = systemConfiguration.getLocaleManager();
-            m_localeManager.initialize(initCmsObject(adminCms));
-
-            // initialize the site manager
-            m_siteManager.initialize(initCmsObject(adminCms));
-
-            // initialize the static export manager
-            m_staticExportManager.initialize(initCmsObject(adminCms));
-
-            // initialize the XML content type manager
-            m_xmlContentTypeManager.initialize(initCmsObject(adminCms));
-
-            m_orgUnitManager.initialize(initCmsObject(adminCms));
-
-            // initialize the module manager
-            m_moduleManager.initialize(initCmsObject(adminCms), m_configurationManager);
-
-            // initialize the resource manager
-            m_resourceManager.initialize(initCmsObject(adminCms));
-
-            // initialize the publish manager
-            m_publishManager.setPublishEngine(m_publishEngine);
-            m_publishManager.setSecurityManager(m_securityManager);
-            m_publishManager.setPublishListRemoveMode(systemConfiguration.getPublishListRemoveMode());
-            m_publishManager.initialize(initCmsObject(adminCms));
-
-            // initialize the search manager
-            m_searchManager.initialize(initCmsObject(adminCms));
-
-            // initialize the VFS bundle manager
-            m_vfsBundleManager = new CmsVfsBundleManager(adminCms);
-
-            // initialize the workplace manager
-            m_workplaceManager.initialize(initCmsObject(adminCms));
-
-            // initialize the session manager
-            m_sessionManager.initialize(sessionStorageProvider);
-            m_sessionManager.setUserSessionMode(systemConfiguration.getUserSessionMode(true));
-
-            // initialize the subscription manager
-            m_subscriptionManager.setSecurityManager(m_securityManager);
-            m_subscriptionManager.initialize(adminCms);
-
-            // initialize the formatter configuration
-            CmsFormatterConfiguration.initialize(adminCms);
-            CmsPersistentLoginTokenHandler.setAdminCms(initCmsObject(adminCms));
-            CmsLoginUI.setAdminCmsObject(initCmsObject(adminCms));
-
-            // initialize ade manager
-            m_adeManager = new CmsADEManager(initCmsObject(adminCms), m_memoryMonitor, systemConfiguration);
-            m_adeManager.initialize();
-            m_workplaceAppManager = new CmsWorkplaceAppManager(initCmsObject(adminCms));
-            m_workplaceAppManager.loadApps();
-            m_templateContextManager = new CmsTemplateContextManager(initCmsObject(adminCms));
-            m_workflowManager = systemConfiguration.getWorkflowManager();
-            if (m_workflowManager == null) {
-                m_workflowManager = new CmsDefaultWorkflowManager();
-                m_workflowManager.setParameters(new HashMap<String, String>());
-            }
-            m_workflowManager.initialize(initCmsObject(adminCms));
+            startupTasks.run();
         } catch (CmsException e) {
             throw new CmsInitException(Messages.get().container(Messages.ERR_CRITICAL_INIT_MANAGERS_0), e);
         }
@@ -1485,7 +1461,7 @@ public final class OpenCmsCore {
      */
     protected synchronized void initContext(ServletContext context) throws CmsInitException {
 
-        m_gwtServiceContexts = new HashMap<String, CmsGwtServiceContext>();
+        m_gwtServiceContexts = new ConcurrentHashMap<String, CmsGwtServiceContext>();
 
         // automatic servlet container recognition and specific behavior:
         CmsServletContainerSettings servletContainerSettings = new CmsServletContainerSettings(context);
@@ -1703,11 +1679,16 @@ public final class OpenCmsCore {
         ServletConfig servletConfig) {
 
         CmsObject cms = null;
+        CmsGwtServiceContext serviceContext = null;
+        CmsGwtService rpcService = null;
         try {
             // instantiate CMS context
             cms = initCmsObject(req, res);
-            // instantiate GWT RPC service
-            CmsGwtService rpcService = getGwtService(serviceName, servletConfig);
+            // get a GWT RPC service instance for exclusive use by this request
+            serviceContext = getGwtServiceContext(serviceName);
+            rpcService = serviceContext.getService(
+                servletConfig,
+                cms.getRequestContext().getCurrentProject().isOnlineProject());
             // check permissions
             rpcService.checkPermissions(cms);
             // set runtime variables
@@ -1742,6 +1723,10 @@ public final class OpenCmsCore {
                 // can be ignored
                 LOG.error(e.getLocalizedMessage(), e);
             }
+        } finally {
+            if (rpcService != null) {
+                serviceContext.releaseService(rpcService);
+            }
         }
     }
 
@@ -1841,6 +1826,22 @@ public final class OpenCmsCore {
                         Messages.get().getBundle().key(Messages.LOG_ERROR_PUBLISH_SHUTDOWN_1, e.getMessage()),
                         e);
                 }
+                try {
+                    // deliver the events which are still queued for asynchronous event listeners
+                    if (m_eventManager != null) {
+                        m_eventManager.shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(e.getLocalizedMessage(), e);
+                }
+                try {
+                    // write the cache snapshot while the caches are complete and the database is still available
+                    if (m_cacheSnapshotManager != null) {
+                        m_cacheSnapshotManager.writeSnapshot();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(e.getLocalizedMessage(), e);
+                }
                 try {
                     // search manager must be shut down early since there may be background indexing still ongoing
                     if (m_searchManager != null) {
@@ -2133,6 +2134,213 @@ public final class OpenCmsCore {
         m_exportPoints = Collections.unmodifiableSet(newSet);
     }
 
+    /**
+     * Adds the initialization of the managers to the given startup task runner.<p>
+     *
+     * The tasks are added in the original initialization order, which is also used if the tasks are executed sequentially.
+     * The scheduler, locale, XML content type and organizational unit managers are independent of each other, the
+     * scheduled jobs are only executed after the initialization. The site and static export managers need the locales.
+     * The module actions may use all these managers, the resource types need the modules and the publish manager needs
+     * the resource types. After that, the search, VFS bundle, workplace, session and subscription managers are
+     * independent of each other. The ADE configuration must be read before the servlet runlevel is reached, since the
+     * ADE manager can not be used before, only the precompilation of the JSPs runs in the background.<p>
+     *
+     * @param startupTasks the startup task runner
+     * @param adminCms the admin CMS context
+     * @param systemConfiguration the system configuration
+     * @param sessionStorageProvider the session storage provider
+     */
+    private void addStartupTasks(
+        CmsStartupTaskRunner startupTasks,
+        final CmsObject adminCms,
+        final CmsSystemConfiguration systemConfiguration,
+        final I_CmsSessionStorageProvider sessionStorageProvider) {
+
+        startupTasks.addTask("scheduler", new String[] {}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the scheduler
+                m_scheduleManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("locales", new String[] {}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the locale manager
+                m_localeManager = systemConfiguration.getLocaleManager();
+                m_localeManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("sites", new String[] {"locales"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the site manager
+                m_siteManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("staticexport", new String[] {"sites"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the static export manager
+                m_staticExportManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("xmlcontenttypes", new String[] {}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the XML content type manager
+                m_xmlContentTypeManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("orgunits", new String[] {}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                m_orgUnitManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask(
+            "modules",
+            new String[] {"scheduler", "staticexport", "xmlcontenttypes", "orgunits"},
+            true,
+            new I_CmsStartupTask() {
+
+                public void run() throws CmsException {
+
+                    // initialize the module manager
+                    m_moduleManager.initialize(initCmsObject(adminCms), m_configurationManager);
+                }
+            });
+        startupTasks.addTask("resources", new String[] {"modules"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the resource manager
+                m_resourceManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("publish", new String[] {"resources"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the publish manager
+                m_publishManager.setPublishEngine(m_publishEngine);
+                m_publishManager.setSecurityManager(m_securityManager);
+                m_publishManager.setPublishListRemoveMode(systemConfiguration.getPublishListRemoveMode());
+                m_publishManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("search", new String[] {"publish"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the search manager
+                m_searchManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("bundles", new String[] {"publish"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the VFS bundle manager
+                m_vfsBundleManager = new CmsVfsBundleManager(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("workplace", new String[] {"publish"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the workplace manager
+                m_workplaceManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("sessions", new String[] {"publish"}, true, new I_CmsStartupTask() {
+
+            public void run() {
+
+                // initialize the session manager
+                m_sessionManager.initialize(sessionStorageProvider);
+                m_sessionManager.setUserSessionMode(systemConfiguration.getUserSessionMode(true));
+            }
+        });
+        startupTasks.addTask("subscriptions", new String[] {"publish"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the subscription manager
+                m_subscriptionManager.setSecurityManager(m_securityManager);
+                m_subscriptionManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("formatters", new String[] {"publish"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // initialize the formatter configuration
+                CmsFormatterConfiguration.initialize(initCmsObject(adminCms));
+                CmsPersistentLoginTokenHandler.setAdminCms(initCmsObject(adminCms));
+                CmsLoginUI.setAdminCmsObject(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("ade", new String[] {"workplace", "formatters"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // create the ADE manager
+                m_adeManager = new CmsADEManager(initCmsObject(adminCms), m_memoryMonitor, systemConfiguration);
+            }
+        });
+        startupTasks.addTask("adeconfig", new String[] {"ade"}, true, new I_CmsStartupTask() {
+
+            public void run() {
+
+                // read the ADE configuration and fill the formatter caches
+                m_adeManager.initialize();
+            }
+        });
+        startupTasks.addTask("jspprecompile", new String[] {"adeconfig"}, false, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                // write the JSPs used by templates and formatters in the background, if enabled
+                CmsJspLoader jspLoader = (CmsJspLoader)m_resourceManager.getLoader(CmsJspLoader.RESOURCE_LOADER_ID);
+                jspLoader.triggerPrecompile(initCmsObject(adminCms), null);
+            }
+        });
+        startupTasks.addTask("apps", new String[] {"ade"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                m_workplaceAppManager = new CmsWorkplaceAppManager(initCmsObject(adminCms));
+                m_workplaceAppManager.loadApps();
+            }
+        });
+        startupTasks.addTask("templatecontexts", new String[] {"ade"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                m_templateContextManager = new CmsTemplateContextManager(initCmsObject(adminCms));
+            }
+        });
+        startupTasks.addTask("workflow", new String[] {"ade"}, true, new I_CmsStartupTask() {
+
+            public void run() throws CmsException {
+
+                m_workflowManager = systemConfiguration.getWorkflowManager();
+                if (m_workflowManager == null) {
+                    m_workflowManager = new CmsDefaultWorkflowManager();
+                    m_workflowManager.setParameters(new HashMap<String, String>());
+                }
+                m_workflowManager.initialize(initCmsObject(adminCms));
+            }
+        });
+    }
+
     /**
      * Finishes the startup sequence after last runlevel upgrade.<p>
      */
@@ -2254,26 +2462,28 @@ public final class OpenCmsCore {
     }
 
     /**
+     * Returns the context for the given GWT service, which also pools the service instances.<p>
      *
+     * Only the first call for a service name has to synchronize, all other calls are lock free.<p>
      *
      * @param serviceName the GWT PRC service class name
-     * @param servletConfig the servlet configuration
      *
-     * @return the GWT service instance
-     *
-     * @throws Throwable if something goes wrong
+     * @return the GWT service context
      */
-    private synchronized CmsGwtService getGwtService(String serviceName, ServletConfig servletConfig) throws Throwable {
+    private CmsGwtServiceContext getGwtServiceContext(String serviceName) {
 
         CmsGwtServiceContext context = m_gwtServiceContexts.get(serviceName);
         if (context == null) {
-            context = new CmsGwtServiceContext(serviceName);
-            m_gwtServiceContexts.put(serviceName, context);
+            synchronized (m_gwtServiceContexts) {
+                context = m_gwtServiceContexts.get(serviceName);
+                if (context == null) {
+                    // the context registers itself as event listener, so make sure only one is created
+                    context = new CmsGwtServiceContext(serviceName);
+                    m_gwtServiceContexts.put(serviceName, context);
+                }
+            }
         }
-        CmsGwtService gwtService = (CmsGwtService)Class.forName(serviceName).newInstance();
-        gwtService.init(servletConfig);
-        gwtService.setContext(context);
-        return gwtService;
+        return context;
     }
 
     /**
@@ -40,6 +40,7 @@ import org.opencms.importexport.CmsImportExportManager;
 import org.opencms.importexport.CmsImportHelper;
 import org.opencms.importexport.CmsImportParameters;
 import org.opencms.importexport.I_CmsImportExportHandler;
+import org.opencms.loader.CmsJspLoader;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.CmsShell;
@@ -437,13 +438,21 @@ public class CmsModuleImportExportHandler implements I_CmsImportExportHandler {
                         modulePackageName));
             }
             report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-            importModule(cms, report, parameters);
+            CmsModule module = importModule(cms, report, parameters);
             report.println(Messages.get().container(Messages.RPT_PUBLISH_PROJECT_BEGIN_0), I_CmsReport.FORMAT_HEADLINE);
             // now unlock and publish the project
             cms.unlockProject(importProject.getUuid());
             OpenCms.getPublishManager().publishProject(cms, report);
             OpenCms.getPublishManager().waitWhileRunning();
 
+            // write the updated template and formatter JSPs of the module to the online repository in the background
+            if (!module.getResources().isEmpty()) {
+                CmsObject onlineCms = OpenCms.initCmsObject(cms);
+                onlineCms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+                ((CmsJspLoader)OpenCms.getResourceManager().getLoader(
+                    CmsJspLoader.RESOURCE_LOADER_ID)).triggerPrecompile(onlineCms, module.getResources());
+            }
+
             report.println(Messages.get().container(Messages.RPT_PUBLISH_PROJECT_END_0), I_CmsReport.FORMAT_HEADLINE);
             report.println(Messages.get().container(Messages.RPT_IMPORT_MODULE_END_0), I_CmsReport.FORMAT_HEADLINE);
         } finally {
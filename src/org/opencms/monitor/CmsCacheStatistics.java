@@ -0,0 +1,142 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe hit / miss counters for a cache.<p>
+ *
+ * Instances can be registered with {@link CmsMemoryMonitor#registerStatistics(String, CmsCacheStatistics)},
+ * which makes them part of the memory monitor status log and email.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsCacheStatistics {
+
+    /** The number of cache hits. */
+    private AtomicLong m_hits = new AtomicLong();
+
+    /** The number of times the cache was invalidated. */
+    private AtomicLong m_invalidations = new AtomicLong();
+
+    /** The number of cache misses. */
+    private AtomicLong m_misses = new AtomicLong();
+
+    /**
+     * Returns the number of cache hits.<p>
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+
+        return m_hits.get();
+    }
+
+    /**
+     * Returns the hit rate in percent, or 0 if the cache was not accessed yet.<p>
+     *
+     * @return the hit rate in percent
+     */
+    public double getHitRate() {
+
+        long hits = m_hits.get();
+        long total = hits + m_misses.get();
+        return total == 0 ? 0 : (100.0 * hits) / total;
+    }
+
+    /**
+     * Returns the number of times the cache was invalidated.<p>
+     *
+     * @return the number of times the cache was invalidated
+     */
+    public long getInvalidations() {
+
+        return m_invalidations.get();
+    }
+
+    /**
+     * Returns the number of cache misses.<p>
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+
+        return m_misses.get();
+    }
+
+    /**
+     * Counts a cache hit.<p>
+     */
+    public void hit() {
+
+        m_hits.incrementAndGet();
+    }
+
+    /**
+     * Counts an invalidation of the cache.<p>
+     */
+    public void invalidate() {
+
+        m_invalidations.incrementAndGet();
+    }
+
+    /**
+     * Counts a cache miss.<p>
+     */
+    public void miss() {
+
+        m_misses.incrementAndGet();
+    }
+
+    /**
+     * Resets all counters.<p>
+     */
+    public void reset() {
+
+        m_hits.set(0);
+        m_misses.set(0);
+        m_invalidations.set(0);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "hits: "
+            + getHits()
+            + " misses: "
+            + getMisses()
+            + " hit rate: "
+            + String.format("%.1f", Double.valueOf(getHitRate()))
+            + "% invalidations: "
+            + getInvalidations();
+    }
+}
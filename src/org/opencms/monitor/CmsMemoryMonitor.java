@@ -46,6 +46,7 @@ import org.opencms.file.CmsUser;
 import org.opencms.flex.CmsFlexCache.CmsFlexCacheVariation;
 import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.lock.CmsLock;
+import org.opencms.lock.CmsLockIndex;
 import org.opencms.lock.CmsLockManager;
 import org.opencms.mail.CmsMailTransport;
 import org.opencms.mail.CmsSimpleMail;
@@ -79,6 +80,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.mail.internet.InternetAddress;
@@ -184,7 +186,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private Map<String, Locale> m_cacheLocale;
 
     /** Cache for the resource locks. */
-    private Map<String, CmsLock> m_cacheLock;
+    private CmsLockIndex m_cacheLock;
 
     /** The memory object cache map. */
     private Map<String, Object> m_cacheMemObject;
@@ -282,6 +284,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** Contains the object to be monitored. */
     private Map<String, Object> m_monitoredObjects;
 
+    /** Contains the cache statistics to be monitored. */
+    private Map<String, CmsCacheStatistics> m_monitoredStatistics;
+
     /** Buffer for publish history. */
     private Buffer m_publishHistory;
 
@@ -299,7 +304,8 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      */
     public CmsMemoryMonitor() {
 
-        m_monitoredObjects = new HashMap<String, Object>();
+        m_monitoredObjects = new ConcurrentHashMap<String, Object>();
+        m_monitoredStatistics = new ConcurrentHashMap<String, CmsCacheStatistics>();
     }
 
     /**
@@ -615,7 +621,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (m_disabled.get(CacheType.LOCK) != null) {
             return;
         }
-        m_cacheLock.put(lock.getResourceName(), lock);
+        m_cacheLock.put(lock);
     }
 
     /**
@@ -1143,15 +1149,20 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             return;
         }
         // initialize new lock cache
-        Map<String, CmsLock> newLockCache = new ConcurrentHashMap<String, CmsLock>(newLocks);
+        CmsLockIndex newLockCache = new CmsLockIndex(newLocks);
         // register it
-        register(CmsLockManager.class.getName(), newLockCache);
+        register(CmsLockManager.class.getName(), newLockCache.toMap());
         // save the old cache
-        Map<String, CmsLock> oldCache = m_cacheLock;
+        CmsLockIndex oldCache = m_cacheLock;
+        // keep track of the locks changed or removed by replacing the old cache, so they are written to the database
+        newLockCache.markChanged(oldCache.removeChangedPaths());
+        for (String path : oldCache.getAllPaths()) {
+            if (!newLocks.containsKey(path)) {
+                newLockCache.markChanged(Collections.singleton(path));
+            }
+        }
         // replace the old by the new cache
         m_cacheLock = newLockCache;
-        // clean up the old cache
-        oldCache.clear();
     }
 
     /**
@@ -1371,7 +1382,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      */
     public List<String> getAllCachedLockPaths() {
 
-        return new ArrayList<String>(m_cacheLock.keySet());
+        return m_cacheLock.getAllPaths();
     }
 
     /**
@@ -1381,7 +1392,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      */
     public List<CmsLock> getAllCachedLocks() {
 
-        return new ArrayList<CmsLock>(m_cacheLock.values());
+        return m_cacheLock.getAll();
     }
 
     /**
@@ -1470,6 +1481,18 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return m_cacheLock.get(rootPath);
     }
 
+    /**
+     * Returns the index of the cached locks, which allows lookups by path prefix, parent folder, user and project.<p>
+     *
+     * The locks must only be changed with {@link #cacheLock(CmsLock)} and {@link #uncacheLock(String)}.<p>
+     *
+     * @return the index of the cached locks
+     */
+    public CmsLockIndex getCachedLockIndex() {
+
+        return m_cacheLock;
+    }
+
     /**
      * Returns the memory object cached with the given cache key or <code>null</code> if not found.<p>
      *
@@ -1725,6 +1748,16 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return m_cacheXmlTemporaryEntity.get(key);
     }
 
+    /**
+     * Returns the registered cache statistics, sorted by name.<p>
+     *
+     * @return the registered cache statistics
+     */
+    public Map<String, CmsCacheStatistics> getCacheStatistics() {
+
+        return Collections.unmodifiableMap(new TreeMap<String, CmsCacheStatistics>(m_monitoredStatistics));
+    }
+
     /**
      * Returns the configuration.<p>
      *
@@ -1850,8 +1883,8 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsXmlEntityResolver.class.getName() + ".contentDefinitionsCache", m_cacheContentDefinitions);
 
         // lock cache
-        m_cacheLock = new ConcurrentHashMap<String, CmsLock>();
-        register(CmsLockManager.class.getName(), m_cacheLock);
+        m_cacheLock = new CmsLockIndex();
+        register(CmsLockManager.class.getName(), m_cacheLock.toMap());
 
         // locale cache
         m_cacheLocale = new ConcurrentHashMap<String, Locale>();
@@ -2081,16 +2114,34 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Adds a new object to the monitor.<p>
      *
+     * A <code>null</code> object removes the object previously registered with the given name.<p>
+     *
      * @param objectName name of the object
      * @param object the object for monitoring
      */
     public void register(String objectName, Object object) {
 
-        if (enabled()) {
-            m_monitoredObjects.put(objectName, object);
+        if (enabled() && (objectName != null)) {
+            // the concurrent map does not accept null values
+            if (object == null) {
+                m_monitoredObjects.remove(objectName);
+            } else {
+                m_monitoredObjects.put(objectName, object);
+            }
         }
     }
 
+    /**
+     * Adds new cache statistics to the monitor.<p>
+     *
+     * @param name the name of the statistics, usually the name of the monitored cache
+     * @param statistics the statistics to monitor
+     */
+    public void registerStatistics(String name, CmsCacheStatistics statistics) {
+
+        m_monitoredStatistics.put(name, statistics);
+    }
+
     /**
      * Checks if some kind of persistence is required.<p>
      *
@@ -2555,6 +2606,15 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         }
         content += "\nTotal size of cache memory monitored: " + totalSize + " (" + (totalSize / 1048576) + ")\n\n";
 
+        Map<String, CmsCacheStatistics> statistics = getCacheStatistics();
+        if (!statistics.isEmpty()) {
+            content += "Current cache statistics:\n\n";
+            for (Map.Entry<String, CmsCacheStatistics> entry : statistics.entrySet()) {
+                content += new PrintfFormat("%-42.42s").sprintf(entry.getKey()) + "  " + entry.getValue() + "\n";
+            }
+            content += "\n";
+        }
+
         String from = m_configuration.getEmailSender();
         List<InternetAddress> receivers = new ArrayList<InternetAddress>();
         List<String> receiverEmails = m_configuration.getEmailReceiver();
@@ -2664,6 +2724,14 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                             form.sprintf(Long.toString(size))}));
             }
 
+            for (Map.Entry<String, CmsCacheStatistics> entry : getCacheStatistics().entrySet()) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_MM_CACHE_STATISTICS_2,
+                        new PrintfFormat("%-80s").sprintf(entry.getKey()),
+                        entry.getValue().toString()));
+            }
+
             LOG.info(
                 Messages.get().getBundle().key(
                     Messages.LOG_MM_WARNING_MEM_STATUS_6,
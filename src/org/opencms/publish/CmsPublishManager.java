@@ -222,6 +222,18 @@ public class CmsPublishManager {
         return m_publishEngine.getJobByPublishHistoryId(publishHistoryId);
     }
 
+    /**
+     * Returns the next publish tag, i.e. the tag which will be used by the next publish job.<p>
+     *
+     * @param cms the current cms context
+     *
+     * @return the next publish tag
+     */
+    public int getNextPublishTag(CmsObject cms) {
+
+        return m_securityManager.getNextPublishTag(cms.getRequestContext());
+    }
+
     /**
      * Returns the publish history list with already publish jobs.<p>
      *
@@ -0,0 +1,542 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.relations;
+
+import org.opencms.main.CmsLog;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Checks external http URLs concurrently.<p>
+ *
+ * The number of parallel connections to a single host and the delay between two requests to the same host
+ * are limited, so large numbers of links to the same server do not flood it. Each URL is first checked with
+ * a <code>HEAD</code> request, and only if the server refuses that with a <code>GET</code> request. Response
+ * bodies are drained and the streams closed instead of disconnecting, which allows the JDK to reuse the
+ * keep-alive connections for the next request to the same host.<p>
+ *
+ * The results are cached per URL, valid URLs for a longer time than broken ones. If a state file is given,
+ * the cache is written to it periodically during a check, so a check interrupted by a restart continues
+ * with the URLs which have not yet been checked.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsExternalLinkChecker {
+
+    /**
+     * The cached state of a checked URL.<p>
+     */
+    static class CmsUrlState implements Serializable {
+
+        /** The serial version id. */
+        private static final long serialVersionUID = -2304718723449851870L;
+
+        /** The time until which the state is valid. */
+        long m_expires;
+
+        /** The http status code of the URL, or -1 if it could not be accessed. */
+        int m_status;
+
+        /**
+         * Creates a new URL state.<p>
+         *
+         * @param status the http status code, or -1 if the URL could not be accessed
+         * @param expires the time until which the state is valid
+         */
+        CmsUrlState(int status, long expires) {
+
+            m_status = status;
+            m_expires = expires;
+        }
+
+        /**
+         * Returns if the URL is valid, that is, the server answered with a 2xx or 3xx status code.<p>
+         *
+         * @return <code>true</code> if the URL is valid
+         */
+        boolean isValid() {
+
+            return (m_status >= 200) && (m_status < 400);
+        }
+    }
+
+    /**
+     * Limits the requests sent to a single host.<p>
+     */
+    private class CmsHostLimit {
+
+        /** The permits for the connections to the host. */
+        private Semaphore m_connections = new Semaphore(m_hostConnections, true);
+
+        /** The earliest time the next request to the host may be sent. */
+        private long m_nextRequest;
+
+        /**
+         * Waits until a request to the host may be sent.<p>
+         *
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        void acquire() throws InterruptedException {
+
+            m_connections.acquire();
+            long wait;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                long start = Math.max(now, m_nextRequest);
+                m_nextRequest = start + m_hostDelay;
+                wait = start - now;
+            }
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    m_connections.release();
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Releases the connection acquired with {@link #acquire()}.<p>
+         */
+        void release() {
+
+            m_connections.release();
+        }
+    }
+
+    /** The default time to keep the state of broken URLs, 1 hour. */
+    public static final long DEFAULT_BROKEN_TTL = 60L * 60L * 1000L;
+
+    /** The default number of parallel connections to a single host. */
+    public static final int DEFAULT_HOST_CONNECTIONS = 2;
+
+    /** The default minimum delay between two requests to the same host. */
+    public static final long DEFAULT_HOST_DELAY = 100L;
+
+    /** The default number of threads checking URLs. */
+    public static final int DEFAULT_THREADS = 16;
+
+    /** The default connect and read timeout. */
+    public static final int DEFAULT_TIMEOUT = 15000;
+
+    /** The default time to keep the state of valid URLs, 24 hours. */
+    public static final long DEFAULT_VALID_TTL = 24L * 60L * 60L * 1000L;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsExternalLinkChecker.class);
+
+    /** The maximum number of response body bytes read to allow the connection to be reused. */
+    private static final int MAX_DRAINED_BYTES = 64 * 1024;
+
+    /** The number of checked URLs after which the state file is written during a check. */
+    private static final int SAVE_INTERVAL = 100;
+
+    /** The time to keep the state of broken URLs. */
+    private long m_brokenTtl = DEFAULT_BROKEN_TTL;
+
+    /** The number of parallel connections to a single host. */
+    private int m_hostConnections = DEFAULT_HOST_CONNECTIONS;
+
+    /** The minimum delay between two requests to the same host. */
+    private long m_hostDelay = DEFAULT_HOST_DELAY;
+
+    /** The request limits by host name. */
+    private Map<String, CmsHostLimit> m_hosts = new ConcurrentHashMap<String, CmsHostLimit>();
+
+    /** The file the URL states are stored in, may be <code>null</code>. */
+    private File m_stateFile;
+
+    /** The cached URL states by URL. */
+    private Map<String, CmsUrlState> m_states = new ConcurrentHashMap<String, CmsUrlState>();
+
+    /** The number of threads checking URLs. */
+    private int m_threads = DEFAULT_THREADS;
+
+    /** The connect and read timeout. */
+    private int m_timeout = DEFAULT_TIMEOUT;
+
+    /** The time to keep the state of valid URLs. */
+    private long m_validTtl = DEFAULT_VALID_TTL;
+
+    /**
+     * Creates a new external link checker.<p>
+     *
+     * @param stateFile the file to store the URL states in, or <code>null</code> to keep them only in memory
+     */
+    public CmsExternalLinkChecker(File stateFile) {
+
+        m_stateFile = stateFile;
+        readState();
+    }
+
+    /**
+     * Checks a single URL, using the cached state if it has not yet expired.<p>
+     *
+     * @param url the absolute http URL to check
+     *
+     * @return <code>true</code> if the URL is valid
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the host
+     */
+    public boolean checkUrl(String url) throws InterruptedException {
+
+        CmsUrlState state = m_states.get(url);
+        if ((state == null) || (state.m_expires <= System.currentTimeMillis())) {
+            state = check(url);
+        }
+        return state.isValid();
+    }
+
+    /**
+     * Checks the given URLs concurrently, using the cached states which have not yet expired.<p>
+     *
+     * If the thread is interrupted, the check stops and the returned map only contains the URLs
+     * checked so far.<p>
+     *
+     * @param urls the absolute http URLs to check
+     *
+     * @return a map from URL to <code>true</code> if the URL is valid
+     */
+    public Map<String, Boolean> checkUrls(Collection<String> urls) {
+
+        Map<String, Boolean> result = new HashMap<String, Boolean>();
+        Map<String, Future<CmsUrlState>> futures = new LinkedHashMap<String, Future<CmsUrlState>>();
+        long now = System.currentTimeMillis();
+        ExecutorService executor = null;
+        try {
+            for (final String url : new LinkedHashSet<String>(urls)) {
+                CmsUrlState state = m_states.get(url);
+                if ((state != null) && (state.m_expires > now)) {
+                    result.put(url, Boolean.valueOf(state.isValid()));
+                    continue;
+                }
+                if (executor == null) {
+                    executor = createExecutor();
+                }
+                futures.put(url, executor.submit(new Callable<CmsUrlState>() {
+
+                    public CmsUrlState call() throws Exception {
+
+                        return check(url);
+                    }
+                }));
+            }
+            int count = 0;
+            Iterator<Map.Entry<String, Future<CmsUrlState>>> it = futures.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Future<CmsUrlState>> entry = it.next();
+                try {
+                    result.put(entry.getKey(), Boolean.valueOf(entry.getValue().get().isValid()));
+                } catch (ExecutionException e) {
+                    // the check itself handles all errors, so this should never happen
+                    LOG.error(e.getLocalizedMessage(), e);
+                }
+                count++;
+                if ((count % SAVE_INTERVAL) == 0) {
+                    writeState();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        if (!futures.isEmpty()) {
+            writeState();
+        }
+        return result;
+    }
+
+    /**
+     * Removes the expired URL states from the cache.<p>
+     */
+    public void removeExpired() {
+
+        long now = System.currentTimeMillis();
+        Iterator<CmsUrlState> it = m_states.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().m_expires <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Sets the time to keep the state of broken URLs.<p>
+     *
+     * @param brokenTtl the time in milliseconds
+     */
+    public void setBrokenTtl(long brokenTtl) {
+
+        m_brokenTtl = brokenTtl;
+    }
+
+    /**
+     * Sets the number of parallel connections to a single host.<p>
+     *
+     * If the number changes, the limits of the hosts accessed so far are discarded, so they are created again
+     * with the new number. Requests which are already running are finished with their old limit.<p>
+     *
+     * @param hostConnections the number of connections
+     */
+    public synchronized void setHostConnections(int hostConnections) {
+
+        int connections = Math.max(1, hostConnections);
+        if (connections != m_hostConnections) {
+            m_hostConnections = connections;
+            m_hosts.clear();
+        }
+    }
+
+    /**
+     * Sets the minimum delay between two requests to the same host.<p>
+     *
+     * @param hostDelay the delay in milliseconds
+     */
+    public void setHostDelay(long hostDelay) {
+
+        m_hostDelay = Math.max(0, hostDelay);
+    }
+
+    /**
+     * Sets the number of threads checking URLs.<p>
+     *
+     * @param threads the number of threads
+     */
+    public void setThreads(int threads) {
+
+        m_threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the connect and read timeout.<p>
+     *
+     * @param timeout the timeout in milliseconds
+     */
+    public void setTimeout(int timeout) {
+
+        m_timeout = timeout;
+    }
+
+    /**
+     * Sets the time to keep the state of valid URLs.<p>
+     *
+     * @param validTtl the time in milliseconds
+     */
+    public void setValidTtl(long validTtl) {
+
+        m_validTtl = validTtl;
+    }
+
+    /**
+     * Checks the given URL and caches its state.<p>
+     *
+     * @param url the URL to check
+     *
+     * @return the state of the URL
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the host
+     */
+    CmsUrlState check(String url) throws InterruptedException {
+
+        int status = -1;
+        try {
+            URL location = new URL(url);
+            CmsHostLimit limit = getHostLimit(location.getHost());
+            limit.acquire();
+            try {
+                status = request(location, "HEAD");
+                if ((status == HttpURLConnection.HTTP_BAD_METHOD)
+                    || (status == HttpURLConnection.HTTP_NOT_IMPLEMENTED)
+                    || (status == HttpURLConnection.HTTP_FORBIDDEN)
+                    || (status == HttpURLConnection.HTTP_NOT_FOUND)) {
+                    // some servers do not answer HEAD requests correctly, so verify with GET
+                    status = request(location, "GET");
+                }
+            } finally {
+                limit.release();
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        CmsUrlState state = new CmsUrlState(
+            status,
+            System.currentTimeMillis() + (((status >= 200) && (status < 400)) ? m_validTtl : m_brokenTtl));
+        m_states.put(url, state);
+        return state;
+    }
+
+    /**
+     * Creates the executor for checking URLs.<p>
+     *
+     * @return the executor
+     */
+    private ExecutorService createExecutor() {
+
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(m_threads, new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "OpenCms external link checker " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the request limit for the given host.<p>
+     *
+     * @param host the host name
+     *
+     * @return the request limit
+     */
+    private synchronized CmsHostLimit getHostLimit(String host) {
+
+        String key = host.toLowerCase();
+        CmsHostLimit limit = m_hosts.get(key);
+        if (limit == null) {
+            limit = new CmsHostLimit();
+            m_hosts.put(key, limit);
+        }
+        return limit;
+    }
+
+    /**
+     * Reads the URL states from the state file.<p>
+     */
+    @SuppressWarnings("unchecked")
+    private void readState() {
+
+        if ((m_stateFile == null) || !m_stateFile.exists()) {
+            return;
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(m_stateFile)));
+            m_states.putAll((Map<String, CmsUrlState>)in.readObject());
+            removeExpired();
+        } catch (Exception e) {
+            LOG.warn(
+                Messages.get().getBundle().key(Messages.LOG_LINK_CHECK_STATE_READ_FAILED_1, m_stateFile.getPath()),
+                e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a request for the given URL and returns the response code.<p>
+     *
+     * @param url the URL
+     * @param method the request method
+     *
+     * @return the response code
+     *
+     * @throws Exception if the request fails
+     */
+    private int request(URL url, String method) throws Exception {
+
+        HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(m_timeout);
+        connection.setReadTimeout(m_timeout);
+        int status = connection.getResponseCode();
+        InputStream in = (status < 400) ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            // read the (limited) body, so the connection can be reused for the next request
+            byte[] buffer = new byte[4096];
+            int total = 0;
+            int read;
+            while ((total < MAX_DRAINED_BYTES) && ((read = in.read(buffer)) >= 0)) {
+                total += read;
+            }
+            if (total >= MAX_DRAINED_BYTES) {
+                connection.disconnect();
+            } else {
+                in.close();
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Writes the URL states to the state file.<p>
+     */
+    private synchronized void writeState() {
+
+        if (m_stateFile == null) {
+            return;
+        }
+        try {
+            CmsFileUtil.writeObject(m_stateFile, new HashMap<String, CmsUrlState>(m_states));
+        } catch (Exception e) {
+            LOG.warn(
+                Messages.get().getBundle().key(Messages.LOG_LINK_CHECK_STATE_WRITE_FAILED_1, m_stateFile.getPath()),
+                e);
+        }
+    }
+}
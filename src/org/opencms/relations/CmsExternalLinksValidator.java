@@ -39,11 +39,12 @@ import org.opencms.report.I_CmsReport;
 import org.opencms.scheduler.I_CmsScheduledJob;
 import org.opencms.util.CmsUriSplitter;
 
-import java.net.HttpURLConnection;
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -52,10 +53,34 @@ import java.util.Map;
 /**
  * Class to validate pointer links.<p>
  *
+ * External http links are checked concurrently with a shared {@link CmsExternalLinkChecker}, which caches
+ * the results and stores them in the file {@link #STATE_FILE}, so an interrupted validation continues where
+ * it stopped. The following optional job parameters configure the checker:
+ * <ul>
+ * <li><code>threads</code>: the number of threads checking links</li>
+ * <li><code>hostConnections</code>: the number of parallel connections to a single host</li>
+ * <li><code>hostDelay</code>: the minimum delay between two requests to the same host in milliseconds</li>
+ * </ul>
+ *
  * @since 6.0.0
  */
 public class CmsExternalLinksValidator implements I_CmsScheduledJob {
 
+    /** Job parameter for the number of parallel connections to a single host. */
+    public static final String PARAM_HOST_CONNECTIONS = "hostConnections";
+
+    /** Job parameter for the minimum delay between two requests to the same host. */
+    public static final String PARAM_HOST_DELAY = "hostDelay";
+
+    /** Job parameter for the number of threads checking links. */
+    public static final String PARAM_THREADS = "threads";
+
+    /** The file the external link states are stored in, relative to the WEB-INF folder. */
+    public static final String STATE_FILE = "cache/external-links.ser";
+
+    /** The shared checker for external links, created on first use. */
+    private static CmsExternalLinkChecker m_checker;
+
     /** The report for the output. */
     private I_CmsReport m_report;
 
@@ -82,11 +107,8 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
             } else {
                 URL url = uri.toURL();
                 if ("http".equals(url.getProtocol())) {
-                    // ensure that file is encoded properly
-                    HttpURLConnection httpcon = (HttpURLConnection)url.openConnection();
-                    int responseCode = httpcon.getResponseCode();
                     // accepting all status codes 2xx success and 3xx - redirect
-                    return ((responseCode >= 200) && (responseCode < 400));
+                    return getChecker().checkUrl(url.toString());
                 } else {
                     return true;
                 }
@@ -98,6 +120,20 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
         }
     }
 
+    /**
+     * Returns the shared checker for external links.<p>
+     *
+     * @return the shared checker for external links
+     */
+    public static synchronized CmsExternalLinkChecker getChecker() {
+
+        if (m_checker == null) {
+            m_checker = new CmsExternalLinkChecker(
+                new File(OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(STATE_FILE)));
+        }
+        return m_checker;
+    }
+
     /**
      * This method is called by the cron scheduler.<p>
      *
@@ -111,6 +147,16 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
         if (Boolean.valueOf(parameters.get("writeLog")).booleanValue()) {
             m_report = new CmsLogReport(cms.getRequestContext().getLocale(), CmsExternalLinksValidator.class);
         }
+        CmsExternalLinkChecker checker = getChecker();
+        if (parameters.containsKey(PARAM_THREADS)) {
+            checker.setThreads(Integer.parseInt(parameters.get(PARAM_THREADS)));
+        }
+        if (parameters.containsKey(PARAM_HOST_CONNECTIONS)) {
+            checker.setHostConnections(Integer.parseInt(parameters.get(PARAM_HOST_CONNECTIONS)));
+        }
+        if (parameters.containsKey(PARAM_HOST_DELAY)) {
+            checker.setHostDelay(Long.parseLong(parameters.get(PARAM_HOST_DELAY)));
+        }
         validateLinks(cms);
         return "CmsExternLinkValidator.launch(): Links checked.";
     }
@@ -149,11 +195,26 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
             CmsResourceTypePointer.getStaticTypeName()).getTypeId();
         CmsResourceFilter filter = CmsResourceFilter.ONLY_VISIBLE_NO_DELETED.addRequireType(pointerId);
         List<CmsResource> links = cms.readResources("/", filter);
+        List<CmsFile> linkFiles = new ArrayList<CmsFile>(links.size());
+        List<String> httpUrls = new ArrayList<String>(links.size());
         Iterator<CmsResource> iterator = links.iterator();
+        while (iterator.hasNext()) {
+            CmsFile link = cms.readFile(cms.getSitePath(iterator.next()), filter);
+            linkFiles.add(link);
+            String httpUrl = getHttpUrl(new String(link.getContents()));
+            if (httpUrl != null) {
+                httpUrls.add(httpUrl);
+            }
+        }
+
+        // check the external links concurrently
+        CmsExternalLinkChecker checker = getChecker();
+        checker.removeExpired();
+        Map<String, Boolean> results = checker.checkUrls(httpUrls);
         Map<String, String> brokenLinks = new HashMap<String, String>();
 
-        for (int i = 1; iterator.hasNext(); i++) {
-            CmsFile link = cms.readFile(cms.getSitePath(iterator.next()), filter);
+        for (int i = 1; i <= linkFiles.size(); i++) {
+            CmsFile link = linkFiles.get(i - 1);
             String linkUrl = new String(link.getContents());
 
             // print to the report
@@ -174,7 +235,14 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
             m_report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
 
             // check link and append it to the list of broken links, if test fails
-            if (!checkUrl(cms, linkUrl)) {
+            String httpUrl = getHttpUrl(linkUrl);
+            Boolean valid = (httpUrl != null) ? results.get(httpUrl) : Boolean.valueOf(checkUrl(cms, linkUrl));
+            if (valid == null) {
+                // the check was interrupted before this link was checked
+                m_report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
+                    I_CmsReport.FORMAT_WARNING);
+            } else if (!valid.booleanValue()) {
                 brokenLinks.put(link.getRootPath(), linkUrl);
                 m_report.println(Messages.get().container(Messages.RPT_BROKEN_0), I_CmsReport.FORMAT_ERROR);
             } else {
@@ -196,4 +264,27 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
 
         OpenCms.getLinkManager().setPointerLinkValidationResult(new CmsExternalLinksValidationResult(brokenLinks));
     }
+
+    /**
+     * Returns the encoded URL of the given link if it is an absolute http URL.<p>
+     *
+     * @param link the link
+     *
+     * @return the encoded URL, or <code>null</code> if the link is no absolute http URL
+     */
+    private static String getHttpUrl(String link) {
+
+        try {
+            URI uri = new CmsUriSplitter(link, true).toURI();
+            if (uri.isAbsolute()) {
+                URL url = uri.toURL();
+                if ("http".equals(url.getProtocol())) {
+                    return url.toString();
+                }
+            }
+        } catch (Exception e) {
+            // no valid http URL, this is handled by checkUrl
+        }
+        return null;
+    }
 }
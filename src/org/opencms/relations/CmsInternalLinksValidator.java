@@ -32,7 +32,7 @@ import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
-import org.opencms.util.CmsUUID;
+import org.opencms.util.CmsStringUtil;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -161,31 +161,48 @@ public class CmsInternalLinksValidator {
 
         Map<String, List<CmsRelation>> brokenRelations = new HashMap<String, List<CmsRelation>>();
 
-        CmsRelationFilter filter = CmsRelationFilter.TARGETS.filterIncludeChildren().filterStructureId(
-            CmsUUID.getNullUUID());
-
-        Iterator<String> itFolders = resourceNames.iterator();
-        while (itFolders.hasNext()) {
-            String folderName = itFolders.next();
-            List<CmsRelation> relations;
+        // read the broken relations of all resources at once
+        List<CmsRelation> relations;
+        if (resourceNames.contains("/")) {
             try {
-                relations = m_cms.getRelationsForResource(folderName, filter);
+                relations = m_cms.getBrokenRelationsInSite();
             } catch (CmsException e) {
-                LOG.error(Messages.get().getBundle().key(Messages.LOG_LINK_SEARCH_1, folderName), e);
-                continue;
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_LINK_SEARCH_1, "/"), e);
+                return brokenRelations;
             }
-            Iterator<CmsRelation> itRelations = relations.iterator();
-            while (itRelations.hasNext()) {
-                CmsRelation relation = itRelations.next();
-                // target is broken
-                String resourceName = relation.getSourcePath();
-                List<CmsRelation> broken = brokenRelations.get(resourceName);
-                if (broken == null) {
-                    broken = new ArrayList<CmsRelation>();
-                    brokenRelations.put(resourceName, broken);
+        } else {
+            List<CmsResource> resources = new ArrayList<CmsResource>(resourceNames.size());
+            Iterator<String> itFolders = resourceNames.iterator();
+            while (itFolders.hasNext()) {
+                String folderName = itFolders.next();
+                try {
+                    resources.add(m_cms.readResource(folderName, CmsResourceFilter.ALL));
+                } catch (CmsException e) {
+                    LOG.error(Messages.get().getBundle().key(Messages.LOG_LINK_SEARCH_1, folderName), e);
                 }
-                broken.add(relation);
             }
+            try {
+                relations = m_cms.getBrokenRelations(resources);
+            } catch (CmsException e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_LINK_SEARCH_1,
+                        CmsStringUtil.collectionAsString(resourceNames, ", ")),
+                    e);
+                return brokenRelations;
+            }
+        }
+        Iterator<CmsRelation> itRelations = relations.iterator();
+        while (itRelations.hasNext()) {
+            CmsRelation relation = itRelations.next();
+            // target is broken
+            String resourceName = relation.getSourcePath();
+            List<CmsRelation> broken = brokenRelations.get(resourceName);
+            if (broken == null) {
+                broken = new ArrayList<CmsRelation>();
+                brokenRelations.put(resourceName, broken);
+            }
+            broken.add(relation);
         }
         return brokenRelations;
     }
@@ -34,6 +34,7 @@ import org.opencms.file.CmsResourceFilter;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsUUID;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -226,32 +227,37 @@ public class CmsRelationDeleteValidator {
                 }
             }
 
-            // check every resource
+            // check every resource, reading the relations of all resources at once
+            Map<CmsUUID, List<CmsRelation>> relations;
+            try {
+                relations = m_cms.getRelationsForResources(resourceList, CmsRelationFilter.SOURCES);
+            } catch (CmsException e) {
+                // should never happen
+                if (LOG.isErrorEnabled()) {
+                    LOG.error(e.getLocalizedMessage(), e);
+                }
+                relations = Collections.emptyMap();
+            }
             itResources = resourceList.iterator();
             while (itResources.hasNext()) {
                 CmsResource resource = itResources.next();
                 String resourceName = resource.getRootPath();
-                try {
-                    Iterator<CmsRelation> it = m_cms.getRelationsForResource(
-                        resource,
-                        CmsRelationFilter.SOURCES).iterator();
-                    while (it.hasNext()) {
-                        CmsRelation relation = it.next();
-                        String relationName = relation.getSourcePath();
-                        // add only if the source is not to be deleted too
-                        if (!resources.contains(relationName)) {
-                            List<CmsRelation> broken = brokenRelations.get(resourceName);
-                            if (broken == null) {
-                                broken = new ArrayList<CmsRelation>();
-                                brokenRelations.put(resourceName, broken);
-                            }
-                            broken.add(relation);
+                List<CmsRelation> resourceRelations = relations.get(resource.getStructureId());
+                if (resourceRelations == null) {
+                    continue;
+                }
+                Iterator<CmsRelation> it = resourceRelations.iterator();
+                while (it.hasNext()) {
+                    CmsRelation relation = it.next();
+                    String relationName = relation.getSourcePath();
+                    // add only if the source is not to be deleted too
+                    if (!resources.contains(relationName)) {
+                        List<CmsRelation> broken = brokenRelations.get(resourceName);
+                        if (broken == null) {
+                            broken = new ArrayList<CmsRelation>();
+                            brokenRelations.put(resourceName, broken);
                         }
-                    }
-                } catch (CmsException e) {
-                    // should never happen
-                    if (LOG.isErrorEnabled()) {
-                        LOG.error(e.getLocalizedMessage(), e);
+                        broken.add(relation);
                     }
                 }
             }
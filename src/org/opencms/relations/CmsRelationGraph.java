@@ -0,0 +1,622 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.relations;
+
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact in-memory graph of all relations stored in the relation table of the offline or online project.<p>
+ *
+ * Every structure id occurring in a relation is mapped to an int node id, and the relations are stored
+ * as int edges in parallel arrays, with the incoming and outgoing edges of every node kept in int adjacency
+ * arrays. The graph answers the same queries as the relation table with a {@link CmsRelationFilter},
+ * e.g. "who references X" or "which relations below a folder are broken", without database access.<p>
+ *
+ * The graph is updated with the same operations the VFS driver executes on the relation table.
+ * Path conditions are evaluated with the semantics of the SQL <code>LIKE</code> operator the driver uses.<p>
+ *
+ * All methods are synchronized, so instances can be shared between threads.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsRelationGraph {
+
+    /** The initial size of the adjacency arrays of a node. */
+    private static final int INITIAL_ADJACENCY_SIZE = 2;
+
+    /** The number of allocated edges, including free edges. */
+    private int m_edgeCount;
+
+    /** The source node of each edge, or -1 for free edges. */
+    private int[] m_edgeSources;
+
+    /** The source path of each edge. */
+    private String[] m_edgeSourcePaths;
+
+    /** The target node of each edge. */
+    private int[] m_edgeTargets;
+
+    /** The target path of each edge. */
+    private String[] m_edgeTargetPaths;
+
+    /** The relation type of each edge. */
+    private CmsRelationType[] m_edgeTypes;
+
+    /** The number of free edges. */
+    private int m_freeEdgeCount;
+
+    /** The free edges which can be reused. */
+    private int[] m_freeEdges;
+
+    /** The number of incoming edges of each node. */
+    private int[] m_incomingCounts;
+
+    /** The incoming edges of each node. */
+    private int[][] m_incoming;
+
+    /** The number of nodes. */
+    private int m_nodeCount;
+
+    /** The structure id of each node. */
+    private CmsUUID[] m_nodeIds;
+
+    /** The last known root path of each node, used to share the path strings of the edges. */
+    private String[] m_nodePaths;
+
+    /** The node ids by structure id. */
+    private Map<CmsUUID, Integer> m_nodes;
+
+    /** The number of outgoing edges of each node. */
+    private int[] m_outgoingCounts;
+
+    /** The outgoing edges of each node. */
+    private int[][] m_outgoing;
+
+    /** The number of relations in the graph. */
+    private int m_size;
+
+    /**
+     * Creates a new relation graph.<p>
+     *
+     * @param relations the relations to add to the graph
+     */
+    public CmsRelationGraph(Collection<CmsRelation> relations) {
+
+        int capacity = Math.max(16, relations.size());
+        m_edgeSources = new int[capacity];
+        m_edgeSourcePaths = new String[capacity];
+        m_edgeTargets = new int[capacity];
+        m_edgeTargetPaths = new String[capacity];
+        m_edgeTypes = new CmsRelationType[capacity];
+        m_freeEdges = new int[16];
+        m_nodes = new HashMap<CmsUUID, Integer>(capacity);
+        m_nodeIds = new CmsUUID[capacity];
+        m_nodePaths = new String[capacity];
+        m_incoming = new int[capacity][];
+        m_incomingCounts = new int[capacity];
+        m_outgoing = new int[capacity][];
+        m_outgoingCounts = new int[capacity];
+        Iterator<CmsRelation> it = relations.iterator();
+        while (it.hasNext()) {
+            addRelation(it.next());
+        }
+    }
+
+    /**
+     * Adds a relation to the graph.<p>
+     *
+     * @param relation the relation to add
+     *
+     * @return <code>false</code> if the graph already contained an identical relation
+     */
+    public synchronized boolean addRelation(CmsRelation relation) {
+
+        int source = getOrCreateNode(relation.getSourceId(), relation.getSourcePath());
+        int target = getOrCreateNode(relation.getTargetId(), relation.getTargetPath());
+        String sourcePath = sharePath(source, relation.getSourcePath());
+        String targetPath = sharePath(target, relation.getTargetPath());
+        // the relation table is read as a set, so identical relations are only stored once
+        int[] outgoing = m_outgoing[source];
+        for (int i = 0; i < m_outgoingCounts[source]; i++) {
+            int edge = outgoing[i];
+            if ((m_edgeTargets[edge] == target)
+                && (m_edgeTypes[edge] == relation.getType())
+                && m_edgeSourcePaths[edge].equals(sourcePath)
+                && m_edgeTargetPaths[edge].equals(targetPath)) {
+                return false;
+            }
+        }
+        int edge;
+        if (m_freeEdgeCount > 0) {
+            edge = m_freeEdges[--m_freeEdgeCount];
+        } else {
+            if (m_edgeCount == m_edgeSources.length) {
+                int capacity = m_edgeCount * 2;
+                m_edgeSources = copyOf(m_edgeSources, capacity);
+                m_edgeSourcePaths = copyOf(m_edgeSourcePaths, capacity);
+                m_edgeTargets = copyOf(m_edgeTargets, capacity);
+                m_edgeTargetPaths = copyOf(m_edgeTargetPaths, capacity);
+                CmsRelationType[] types = new CmsRelationType[capacity];
+                System.arraycopy(m_edgeTypes, 0, types, 0, m_edgeCount);
+                m_edgeTypes = types;
+            }
+            edge = m_edgeCount++;
+        }
+        m_edgeSources[edge] = source;
+        m_edgeSourcePaths[edge] = sourcePath;
+        m_edgeTargets[edge] = target;
+        m_edgeTargetPaths[edge] = targetPath;
+        m_edgeTypes[edge] = relation.getType();
+        m_outgoing[source] = append(m_outgoing[source], m_outgoingCounts[source]++, edge);
+        m_incoming[target] = append(m_incoming[target], m_incomingCounts[target]++, edge);
+        m_size++;
+        return true;
+    }
+
+    /**
+     * Deletes the relations matching the given filter from the graph,
+     * like {@link org.opencms.db.I_CmsVfsDriver#deleteRelations} does in the relation table.<p>
+     *
+     * @param resource the resource to delete the relations for, may be <code>null</code>
+     * @param filter the filter to match the relations with
+     *
+     * @return the number of deleted relations
+     */
+    public synchronized int deleteRelations(CmsResource resource, CmsRelationFilter filter) {
+
+        BitSet edges = findRelations(resource, filter);
+        int count = 0;
+        for (int edge = edges.nextSetBit(0); edge >= 0; edge = edges.nextSetBit(edge + 1)) {
+            removeEdge(edge);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Updates the source and target paths of all relations of the given resource after the resource was moved.<p>
+     *
+     * @param structureId the structure id of the moved resource
+     * @param rootPath the new root path of the resource
+     */
+    public synchronized void moveRelations(CmsUUID structureId, String rootPath) {
+
+        Integer node = m_nodes.get(structureId);
+        if (node == null) {
+            return;
+        }
+        int n = node.intValue();
+        m_nodePaths[n] = rootPath;
+        for (int i = 0; i < m_outgoingCounts[n]; i++) {
+            m_edgeSourcePaths[m_outgoing[n][i]] = rootPath;
+        }
+        for (int i = 0; i < m_incomingCounts[n]; i++) {
+            m_edgeTargetPaths[m_incoming[n][i]] = rootPath;
+        }
+    }
+
+    /**
+     * Reads the broken relations whose source is one of the given paths or below them.<p>
+     *
+     * A relation is broken if its target does not exist, i.e. its target id is the null UUID.
+     * Only the relations pointing to the null UUID are checked, so the query does not depend on the size of the graph.
+     * To read the broken relations of a whole site, pass the root path of the site folder.<p>
+     *
+     * @param rootPaths the root paths of the sources, folder paths have to end with a slash
+     *
+     * @return the broken relations, sorted with {@link CmsRelation#COMPARATOR}
+     */
+    public synchronized List<CmsRelation> readBrokenRelations(Collection<String> rootPaths) {
+
+        BitSet edges = new BitSet(m_edgeCount);
+        Integer node = m_nodes.get(CmsUUID.getNullUUID());
+        if (node != null) {
+            int n = node.intValue();
+            for (int i = 0; i < m_incomingCounts[n]; i++) {
+                int edge = m_incoming[n][i];
+                String sourcePath = m_edgeSourcePaths[edge];
+                for (String rootPath : rootPaths) {
+                    // same as the LIKE condition of the VFS driver for the sub resources of a resource
+                    if (sourcePath.startsWith(rootPath)) {
+                        edges.set(edge);
+                        break;
+                    }
+                }
+            }
+        }
+        return getRelations(edges);
+    }
+
+    /**
+     * Reads the relations matching the given filter from the graph,
+     * like {@link org.opencms.db.I_CmsVfsDriver#readRelations} does from the relation table.<p>
+     *
+     * @param resource the resource to read the relations for, may be <code>null</code>
+     * @param filter the filter to match the relations with
+     *
+     * @return the matching relations, sorted with {@link CmsRelation#COMPARATOR}
+     */
+    public synchronized List<CmsRelation> readRelations(CmsResource resource, CmsRelationFilter filter) {
+
+        return getRelations(findRelations(resource, filter));
+    }
+
+    /**
+     * Reads the relations matching the given filter for each of the given resources.<p>
+     *
+     * This is the same as calling {@link #readRelations(CmsResource, CmsRelationFilter)} for every resource,
+     * but the graph is only locked once.<p>
+     *
+     * @param resources the resources to read the relations for
+     * @param filter the filter to match the relations with
+     *
+     * @return the matching relations of each resource, sorted with {@link CmsRelation#COMPARATOR},
+     *      keyed by the structure id of the resource, in the order of the resources
+     */
+    public synchronized Map<CmsUUID, List<CmsRelation>> readRelationsForResources(
+        Collection<CmsResource> resources,
+        CmsRelationFilter filter) {
+
+        Map<CmsUUID, List<CmsRelation>> result = new LinkedHashMap<CmsUUID, List<CmsRelation>>();
+        for (CmsResource resource : resources) {
+            result.put(resource.getStructureId(), getRelations(findRelations(resource, filter)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of relations in the graph.<p>
+     *
+     * @return the number of relations
+     */
+    public synchronized int size() {
+
+        return m_size;
+    }
+
+    /**
+     * Checks if the given value matches the given pattern of the SQL <code>LIKE</code> operator.<p>
+     *
+     * In the pattern, <code>%</code> matches any sequence of characters
+     * and <code>_</code> matches a single character.<p>
+     *
+     * @param value the value to check
+     * @param pattern the pattern
+     *
+     * @return <code>true</code> if the value matches the pattern
+     */
+    static boolean matchesLike(String value, String pattern) {
+
+        int v = 0;
+        int p = 0;
+        int wildcard = -1;
+        int wildcardMatch = 0;
+        while (v < value.length()) {
+            char c = (p < pattern.length()) ? pattern.charAt(p) : 0;
+            if ((p < pattern.length()) && (c == '%')) {
+                // remember the position to continue from if the rest does not match
+                wildcard = p++;
+                wildcardMatch = v;
+            } else if ((p < pattern.length()) && ((c == '_') || (c == value.charAt(v)))) {
+                v++;
+                p++;
+            } else if (wildcard >= 0) {
+                // let the last '%' match one more character
+                p = wildcard + 1;
+                v = ++wildcardMatch;
+            } else {
+                return false;
+            }
+        }
+        while ((p < pattern.length()) && (pattern.charAt(p) == '%')) {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * Appends a value to an adjacency array, growing the array if necessary.<p>
+     *
+     * @param array the array, may be <code>null</code>
+     * @param size the number of values in the array
+     * @param value the value to append
+     *
+     * @return the array containing the value
+     */
+    private int[] append(int[] array, int size, int value) {
+
+        int[] result = array;
+        if (result == null) {
+            result = new int[INITIAL_ADJACENCY_SIZE];
+        } else if (size == result.length) {
+            result = copyOf(result, size * 2);
+        }
+        result[size] = value;
+        return result;
+    }
+
+    /**
+     * Collects the edges matching the filter in one direction into the given set.<p>
+     *
+     * The conditions are the same the VFS driver uses to query the relation table.<p>
+     *
+     * @param resource the resource to read the relations for, may be <code>null</code>
+     * @param filter the filter
+     * @param checkSource <code>true</code> to look for the sources of the resource, <code>false</code> for its targets
+     * @param result the set to add the matching edges to
+     */
+    private void collectRelations(CmsResource resource, CmsRelationFilter filter, boolean checkSource, BitSet result) {
+
+        boolean subresources = filter.isIncludeSubresources();
+        CmsUUID structureId = filter.getStructureId();
+        String pathPattern = null;
+        if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(filter.getPath())) {
+            pathPattern = subresources ? filter.getPath() + '%' : filter.getPath();
+        }
+        String resourcePattern = ((resource != null) && subresources) ? resource.getRootPath() + '%' : null;
+        Set<CmsRelationType> types = filter.getTypes();
+
+        // use the adjacency arrays of a node if possible, otherwise check all edges
+        int[] candidates = null;
+        int count = m_edgeCount;
+        if ((resource != null) && !subresources) {
+            Integer node = m_nodes.get(resource.getStructureId());
+            if (node == null) {
+                return;
+            }
+            int n = node.intValue();
+            candidates = checkSource ? m_incoming[n] : m_outgoing[n];
+            count = checkSource ? m_incomingCounts[n] : m_outgoingCounts[n];
+        } else if (structureId != null) {
+            Integer node = m_nodes.get(structureId);
+            if (node == null) {
+                return;
+            }
+            int n = node.intValue();
+            candidates = checkSource ? m_outgoing[n] : m_incoming[n];
+            count = checkSource ? m_outgoingCounts[n] : m_incomingCounts[n];
+        }
+
+        for (int i = 0; i < count; i++) {
+            int edge = (candidates != null) ? candidates[i] : i;
+            if (m_edgeSources[edge] < 0) {
+                // free edge
+                continue;
+            }
+            CmsUUID sourceId = m_nodeIds[m_edgeSources[edge]];
+            CmsUUID targetId = m_nodeIds[m_edgeTargets[edge]];
+            String sourcePath = m_edgeSourcePaths[edge];
+            String targetPath = m_edgeTargetPaths[edge];
+            if (resource != null) {
+                if (subresources) {
+                    if (!matchesLike(checkSource ? targetPath : sourcePath, resourcePattern)) {
+                        continue;
+                    }
+                } else if (!resource.getStructureId().equals(checkSource ? targetId : sourceId)) {
+                    continue;
+                }
+            }
+            if ((structureId != null) && !structureId.equals(checkSource ? sourceId : targetId)) {
+                continue;
+            }
+            if ((pathPattern != null) && !matchesLike(checkSource ? sourcePath : targetPath, pathPattern)) {
+                continue;
+            }
+            if (!types.isEmpty() && !types.contains(m_edgeTypes[edge])) {
+                continue;
+            }
+            result.set(edge);
+        }
+    }
+
+    /**
+     * Returns a copy of the given array with the given length.<p>
+     *
+     * @param array the array
+     * @param length the length of the copy
+     *
+     * @return the copy
+     */
+    private int[] copyOf(int[] array, int length) {
+
+        int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    /**
+     * Returns a copy of the given array with the given length.<p>
+     *
+     * @param array the array
+     * @param length the length of the copy
+     *
+     * @return the copy
+     */
+    private String[] copyOf(String[] array, int length) {
+
+        String[] result = new String[length];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    /**
+     * Returns the edges matching the given filter.<p>
+     *
+     * @param resource the resource to read the relations for, may be <code>null</code>
+     * @param filter the filter
+     *
+     * @return the matching edges
+     */
+    private BitSet findRelations(CmsResource resource, CmsRelationFilter filter) {
+
+        BitSet result = new BitSet(m_edgeCount);
+        if (filter.isSource()) {
+            collectRelations(resource, filter, true, result);
+        }
+        if (filter.isTarget()) {
+            collectRelations(resource, filter, false, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the relations for the given edges.<p>
+     *
+     * @param edges the edges
+     *
+     * @return the relations, sorted with {@link CmsRelation#COMPARATOR}
+     */
+    private List<CmsRelation> getRelations(BitSet edges) {
+
+        Set<CmsRelation> relations = new HashSet<CmsRelation>();
+        for (int edge = edges.nextSetBit(0); edge >= 0; edge = edges.nextSetBit(edge + 1)) {
+            relations.add(
+                new CmsRelation(
+                    m_nodeIds[m_edgeSources[edge]],
+                    m_edgeSourcePaths[edge],
+                    m_nodeIds[m_edgeTargets[edge]],
+                    m_edgeTargetPaths[edge],
+                    m_edgeTypes[edge]));
+        }
+        List<CmsRelation> result = new ArrayList<CmsRelation>(relations);
+        Collections.sort(result, CmsRelation.COMPARATOR);
+        return result;
+    }
+
+    /**
+     * Returns the node for the given structure id, creating it if necessary.<p>
+     *
+     * @param structureId the structure id
+     * @param rootPath the root path of the resource with the structure id
+     *
+     * @return the node
+     */
+    private int getOrCreateNode(CmsUUID structureId, String rootPath) {
+
+        Integer node = m_nodes.get(structureId);
+        if (node != null) {
+            return node.intValue();
+        }
+        if (m_nodeCount == m_nodeIds.length) {
+            int capacity = m_nodeCount * 2;
+            CmsUUID[] ids = new CmsUUID[capacity];
+            System.arraycopy(m_nodeIds, 0, ids, 0, m_nodeCount);
+            m_nodeIds = ids;
+            m_nodePaths = copyOf(m_nodePaths, capacity);
+            int[][] incoming = new int[capacity][];
+            System.arraycopy(m_incoming, 0, incoming, 0, m_nodeCount);
+            m_incoming = incoming;
+            m_incomingCounts = copyOf(m_incomingCounts, capacity);
+            int[][] outgoing = new int[capacity][];
+            System.arraycopy(m_outgoing, 0, outgoing, 0, m_nodeCount);
+            m_outgoing = outgoing;
+            m_outgoingCounts = copyOf(m_outgoingCounts, capacity);
+        }
+        int n = m_nodeCount++;
+        m_nodeIds[n] = structureId;
+        m_nodePaths[n] = rootPath;
+        m_nodes.put(structureId, Integer.valueOf(n));
+        return n;
+    }
+
+    /**
+     * Removes a value from an adjacency array.<p>
+     *
+     * @param array the array
+     * @param size the number of values in the array
+     * @param value the value to remove
+     */
+    private void remove(int[] array, int size, int value) {
+
+        for (int i = 0; i < size; i++) {
+            if (array[i] == value) {
+                // the order of the edges does not matter
+                array[i] = array[size - 1];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes an edge from the graph.<p>
+     *
+     * @param edge the edge to remove
+     */
+    private void removeEdge(int edge) {
+
+        int source = m_edgeSources[edge];
+        int target = m_edgeTargets[edge];
+        remove(m_outgoing[source], m_outgoingCounts[source]--, edge);
+        remove(m_incoming[target], m_incomingCounts[target]--, edge);
+        m_edgeSources[edge] = -1;
+        m_edgeSourcePaths[edge] = null;
+        m_edgeTargets[edge] = -1;
+        m_edgeTargetPaths[edge] = null;
+        m_edgeTypes[edge] = null;
+        if (m_freeEdgeCount == m_freeEdges.length) {
+            m_freeEdges = copyOf(m_freeEdges, m_freeEdgeCount * 2);
+        }
+        m_freeEdges[m_freeEdgeCount++] = edge;
+        m_size--;
+    }
+
+    /**
+     * Returns the path string of the given node if it is equal to the given path, so that
+     * the edges share the path strings of their nodes.<p>
+     *
+     * @param node the node
+     * @param path the path
+     *
+     * @return the shared path string
+     */
+    private String sharePath(int node, String path) {
+
+        String nodePath = m_nodePaths[node];
+        if (path.equals(nodePath)) {
+            return nodePath;
+        }
+        if (nodePath == null) {
+            m_nodePaths[node] = path;
+        }
+        return path;
+    }
+}
@@ -41,6 +41,7 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.report.I_CmsReport;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 import org.opencms.workplace.threads.A_CmsProgressThread;
 
 import java.util.ArrayList;
@@ -195,6 +196,9 @@ public class CmsRelationSystemValidator {
             }
         }
 
+        // read the relations of all resources at once
+        Map<CmsUUID, List<CmsRelation>> relations = readRelations(dbc, resources, project);
+
         boolean foundBrokenLinks = false;
         for (int index = 0, size = resources.size(); index < size; index++) {
 
@@ -226,7 +230,13 @@ public class CmsRelationSystemValidator {
                         dbc.removeSiteRoot(resourceName)));
                 report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
             }
-            List<CmsRelation> brokenLinks = validateLinks(dbc, resource, offlineFilesLookup, project, report);
+            List<CmsRelation> brokenLinks;
+            if (relations != null) {
+                List<CmsRelation> resourceRelations = relations.get(resource.getStructureId());
+                brokenLinks = validateLinks(dbc, resource, resourceRelations, offlineFilesLookup, project, report);
+            } else {
+                brokenLinks = validateLinks(dbc, resource, offlineFilesLookup, project, report);
+            }
             if (brokenLinks.size() > 0) {
                 // the resource contains broken links
                 invalidResources.put(resourceName, brokenLinks);
@@ -376,28 +386,18 @@ public class CmsRelationSystemValidator {
         CmsProject project,
         I_CmsReport report) {
 
-        List<CmsRelation> brokenRelations = new ArrayList<CmsRelation>();
-        Map<String, Boolean> validatedLinks = new HashMap<String, Boolean>();
-
         // get the relations
-        List<CmsRelation> incomingRelationsOnline = new ArrayList<CmsRelation>();
-        List<CmsRelation> outgoingRelationsOffline = new ArrayList<CmsRelation>();
+        List<CmsRelation> relations;
         try {
             if (!resource.getState().isDeleted()) {
                 // search the target of links in the current (offline) project
-                outgoingRelationsOffline = m_driverManager.getRelationsForResource(
-                    dbc,
-                    resource,
-                    CmsRelationFilter.TARGETS);
+                relations = m_driverManager.getRelationsForResource(dbc, resource, CmsRelationFilter.TARGETS);
             } else {
                 // search the source of links in the online project
                 CmsProject currentProject = dbc.currentProject();
                 dbc.getRequestContext().setCurrentProject(project);
                 try {
-                    incomingRelationsOnline = m_driverManager.getRelationsForResource(
-                        dbc,
-                        resource,
-                        CmsRelationFilter.SOURCES);
+                    relations = m_driverManager.getRelationsForResource(dbc, resource, CmsRelationFilter.SOURCES);
                 } finally {
                     dbc.getRequestContext().setCurrentProject(currentProject);
                 }
@@ -409,12 +409,43 @@ public class CmsRelationSystemValidator {
                     Messages.get().container(Messages.LOG_LINK_SEARCH_1, dbc.removeSiteRoot(resource.getRootPath())),
                     I_CmsReport.FORMAT_ERROR);
             }
+            return new ArrayList<CmsRelation>();
+        }
+        return validateLinks(dbc, resource, relations, fileLookup, project, report);
+    }
+
+    /**
+     * Validates the given links of the specified resource.<p>
+     *
+     * @param dbc the database context
+     * @param resource the resource that will be validated
+     * @param relations the relations to validate, the outgoing relations in the current project if the resource
+     *      is not deleted, otherwise the incoming relations in the given project; <code>null</code> if there are none
+     * @param fileLookup a map for faster lookup with all resources keyed by their rootpath
+     * @param project the project to validate
+     * @param report the report to write to
+     *
+     * @return a list with the broken links as {@link CmsRelation} objects for the specified resource,
+     *          or an empty list if no broken links were found
+     */
+    protected List<CmsRelation> validateLinks(
+        CmsDbContext dbc,
+        CmsResource resource,
+        List<CmsRelation> relations,
+        Map<String, CmsResource> fileLookup,
+        CmsProject project,
+        I_CmsReport report) {
+
+        List<CmsRelation> brokenRelations = new ArrayList<CmsRelation>();
+        Map<String, Boolean> validatedLinks = new HashMap<String, Boolean>();
+        if (relations == null) {
             return brokenRelations;
         }
 
-        List<CmsRelation> relations = new ArrayList<CmsRelation>();
-        relations.addAll(incomingRelationsOnline);
-        relations.addAll(outgoingRelationsOffline);
+        List<CmsRelation> outgoingRelationsOffline = new ArrayList<CmsRelation>();
+        if (!resource.getState().isDeleted()) {
+            outgoingRelationsOffline = relations;
+        }
         HashMultimap<String, String> outgoingRelationTargets = HashMultimap.create();
         for (CmsRelation outRelation : outgoingRelationsOffline) {
             String sourcePath = outRelation.getSourcePath();
@@ -487,4 +518,48 @@ public class CmsRelationSystemValidator {
         return brokenRelations;
     }
 
-}
\ No newline at end of file
+    /**
+     * Reads the relations to validate for all given resources at once.<p>
+     *
+     * These are the outgoing relations in the current project for resources which are not deleted,
+     * and the incoming relations in the given project for deleted resources.<p>
+     *
+     * @param dbc the database context
+     * @param resources the resources to validate
+     * @param project the project to validate
+     *
+     * @return the relations to validate keyed by the structure id of the resource,
+     *      or <code>null</code> if the relations have to be read for each resource
+     */
+    private Map<CmsUUID, List<CmsRelation>> readRelations(
+        CmsDbContext dbc,
+        List<CmsResource> resources,
+        CmsProject project) {
+
+        List<CmsResource> changed = new ArrayList<CmsResource>();
+        List<CmsResource> deleted = new ArrayList<CmsResource>();
+        for (CmsResource resource : resources) {
+            if (resource.getState().isDeleted()) {
+                deleted.add(resource);
+            } else {
+                changed.add(resource);
+            }
+        }
+        try {
+            Map<CmsUUID, List<CmsRelation>> result = new HashMap<CmsUUID, List<CmsRelation>>();
+            result.putAll(m_driverManager.getRelationsForResources(dbc, changed, CmsRelationFilter.TARGETS));
+            CmsProject currentProject = dbc.currentProject();
+            dbc.getRequestContext().setCurrentProject(project);
+            try {
+                result.putAll(m_driverManager.getRelationsForResources(dbc, deleted, CmsRelationFilter.SOURCES));
+            } finally {
+                dbc.getRequestContext().setCurrentProject(currentProject);
+            }
+            return result;
+        } catch (CmsException e) {
+            // the errors are reported for the single resources
+            LOG.debug(e.getLocalizedMessage(), e);
+            return null;
+        }
+    }
+}
@@ -112,6 +112,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERR_CREATE_CATEGORY_FOLDER_1 = "LOG_ERR_CREATE_CATEGORY_FOLDER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_LINK_CHECK_STATE_READ_FAILED_1 = "LOG_LINK_CHECK_STATE_READ_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_LINK_CHECK_STATE_WRITE_FAILED_1 = "LOG_LINK_CHECK_STATE_WRITE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_LINK_SEARCH_1 = "LOG_LINK_SEARCH_1";
 
@@ -35,6 +35,7 @@ import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
 import org.opencms.relations.CmsCategory;
 import org.opencms.search.fields.CmsLuceneField;
+import org.opencms.search.fields.CmsLuceneFieldConfiguration;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.search.fields.CmsSearchFieldConfiguration;
 
@@ -54,10 +55,12 @@ import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.util.BytesRef;
 import org.apache.tika.io.IOUtils;
 
 /**
@@ -119,6 +122,9 @@ public class CmsLuceneDocument implements I_CmsSearchDocument {
     /** The Lucene document. */
     private Document m_doc;
 
+    /** The doc values fields stored in this document. */
+    private Map<String, Field> m_docValuesFields;
+
     /** The fields stored in this document. */
     private Map<String, Field> m_fields;
 
@@ -133,6 +139,7 @@ public class CmsLuceneDocument implements I_CmsSearchDocument {
     public CmsLuceneDocument(Document doc) {
 
         m_doc = doc;
+        m_docValuesFields = new HashMap<String, Field>();
         m_fields = new HashMap<String, Field>();
     }
 
@@ -217,12 +224,11 @@ public class CmsLuceneDocument implements I_CmsSearchDocument {
      */
     public void addDateField(String name, long date, boolean analyzed) {
 
-        Field field = new Field(
-            name,
-            DateTools.dateToString(new Date(date), DateTools.Resolution.MILLISECOND),
-            STORED_NOT_ANALYSED_TYPE);
+        String dateString = DateTools.dateToString(new Date(date), DateTools.Resolution.MILLISECOND);
+        Field field = new Field(name, dateString, STORED_NOT_ANALYSED_TYPE);
         field.setBoost(0.0F);
         add(field);
+        addDocValues(name, dateString);
 
         if (analyzed) {
             field = new Field(
@@ -274,7 +280,12 @@ public class CmsLuceneDocument implements I_CmsSearchDocument {
     public void addSearchField(CmsSearchField field, String value) {
 
         if (field instanceof CmsLuceneField) {
-            add(((CmsLuceneField)field).createField(value));
+            Field luceneField = ((CmsLuceneField)field).createField(value);
+            add(luceneField);
+            if (!((CmsLuceneField)field).isTokenizedAndIndexed()) {
+                // only untokenized fields can be sorted
+                addDocValues(field.getName(), luceneField.stringValue());
+            }
         } else {
             throw (new CmsRuntimeException(
                 Messages.get().container(Messages.LOG_INVALID_FIELD_CLASS_1, field.getClass().getName())));
@@ -432,6 +443,11 @@ public class CmsLuceneDocument implements I_CmsSearchDocument {
             f.setBoost(boost);
             m_doc.add(f);
         }
+        f = m_docValuesFields.get(CmsSearchField.FIELD_TITLE);
+        if (f != null) {
+            // the doc values have been removed together with the title field
+            m_doc.add(f);
+        }
         f = m_fields.get(CmsSearchField.FIELD_META);
         if (f != null) {
             f.setBoost(boost);
@@ -452,6 +468,25 @@ public class CmsLuceneDocument implements I_CmsSearchDocument {
         m_score = score;
     }
 
+    /**
+     * Adds the sorted doc values for a field to this document, if the field is configured to use doc values.<p>
+     *
+     * Only the first value is added, since a document can only have one sorted doc value per field.<p>
+     *
+     * @param name the field name
+     * @param value the field value
+     */
+    private void addDocValues(String name, String value) {
+
+        if ((value != null)
+            && CmsLuceneFieldConfiguration.isDocValuesField(name)
+            && !m_docValuesFields.containsKey(name)) {
+            Field field = new SortedDocValuesField(name, new BytesRef(value));
+            m_docValuesFields.put(name, field);
+            m_doc.add(field);
+        }
+    }
+
     /**
      * Adds a field to this document.<p>
      *
@@ -57,10 +57,12 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -76,6 +78,9 @@ import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.BooleanFilter;
@@ -90,6 +95,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MultiTermQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
@@ -98,6 +104,7 @@ import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.uninverting.UninvertingReader;
 import org.apache.lucene.uninverting.UninvertingReader.Type;
 
@@ -182,6 +189,12 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** Constant for additional parameter to enable permission checks (default: true). */
     public static final String PERMISSIONS = A_PARAM_PREFIX + ".checkPermissions";
 
+    /** Constant for additional parameter to filter the hits by the readable resources inside the index (default: false). */
+    public static final String PERMISSION_FILTER = A_PARAM_PREFIX + ".permissionFilter";
+
+    /** Constant for additional parameter to check the permissions for every hit also if the permission filter is used (default: true). */
+    public static final String PERMISSION_FILTER_VERIFY = A_PARAM_PREFIX + ".permissionFilterVerify";
+
     /** Constant for additional parameter to set the thread priority during search. */
     public static final String PRIORITY = A_PARAM_PREFIX + ".priority";
 
@@ -227,6 +240,10 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsSearchIndex.class);
 
+    /** The stored fields required to check the read permission for a hit. */
+    private static final Set<String> PERMISSION_FIELDS = new HashSet<String>(
+        Arrays.asList(CmsSearchField.FIELD_PATH, CmsSearchField.FIELD_TYPE));
+
     /** The configured Lucene analyzer used for this index. */
     private Analyzer m_analyzer;
 
@@ -290,6 +307,12 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The path where this index stores it's data in the "real" file system. */
     private String m_path;
 
+    /** Controls if the hits are filtered by the readable resources inside the index. */
+    private boolean m_permissionFilter;
+
+    /** Controls if the permissions are checked for every hit also if the permission filter is used. */
+    private boolean m_permissionFilterVerify;
+
     /** The thread priority for a search. */
     private int m_priority;
 
@@ -323,6 +346,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         m_documenttypes = new HashMap<String, List<String>>();
         m_enabled = true;
         m_checkPermissions = true;
+        m_permissionFilterVerify = true;
         m_extractContent = true;
         m_priority = -1;
         m_createExcerpt = true;
@@ -497,6 +521,10 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
 
         if (PERMISSIONS.equals(key)) {
             m_checkPermissions = Boolean.valueOf(value).booleanValue();
+        } else if (PERMISSION_FILTER.equals(key)) {
+            m_permissionFilter = Boolean.valueOf(value).booleanValue();
+        } else if (PERMISSION_FILTER_VERIFY.equals(key)) {
+            m_permissionFilterVerify = Boolean.valueOf(value).booleanValue();
         } else if (EXTRACT_CONTENT.equals(key)) {
             m_extractContent = Boolean.valueOf(value).booleanValue();
         } else if (BACKUP_REINDEXING.equals(key)) {
@@ -650,6 +678,12 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         if (!isCheckingPermissions()) {
             result.put(PERMISSIONS, String.valueOf(m_checkPermissions));
         }
+        if (isPermissionFiltering()) {
+            result.put(PERMISSION_FILTER, String.valueOf(m_permissionFilter));
+        }
+        if (!isPermissionFilterVerifying()) {
+            result.put(PERMISSION_FILTER_VERIFY, String.valueOf(m_permissionFilterVerify));
+        }
         if (isBackupReindexing()) {
             result.put(BACKUP_REINDEXING, String.valueOf(m_backupReindexing));
         }
@@ -1193,6 +1227,37 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_languageDetection;
     }
 
+    /**
+     * Returns <code>true</code> if the hits are filtered by the resources readable for the current user
+     * inside the index.<p>
+     *
+     * The filter is created from the access control entries of the resources, see {@link CmsSearchPermissionFilter}.
+     * Hits that are not readable are removed before they are loaded, which is much faster than checking
+     * the permissions for every hit if the user can read only a small part of a large index.<p>
+     *
+     * @return <code>true</code> if the hits are filtered by the readable resources inside the index
+     */
+    public boolean isPermissionFiltering() {
+
+        return m_permissionFilter;
+    }
+
+    /**
+     * Returns <code>true</code> if the permissions are checked for every hit also if the hits are already
+     * filtered by the readable resources.<p>
+     *
+     * Checking every hit is an additional safety net that also considers e.g. the visibility of the resources.
+     * Solr indexes always read the resources of the returned hits.<p>
+     *
+     * @return <code>true</code> if the permissions are checked for every hit also if the permission filter is used
+     *
+     * @see #isPermissionFiltering()
+     */
+    public boolean isPermissionFilterVerifying() {
+
+        return m_permissionFilterVerify;
+    }
+
     /**
      * Returns <code>true</code> if a resource requires read permission to be included in the result list.<p>
      *
@@ -1289,6 +1354,12 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 params.getMaxDateLastModified());
             // append date created filter
             filter = appendDateCreatedFilter(filter, params.getMinDateCreated(), params.getMaxDateCreated());
+            // append the filter for the resources readable by the current user
+            CmsSearchPermissionFilter.Rules permissionRules = getPermissionFilterRules(searchCms);
+            if (permissionRules != null) {
+                filter.add(new FilterClause(permissionRules.getLuceneFilter(), BooleanClause.Occur.MUST));
+            }
+            boolean verifyPermissions = (permissionRules == null) || isPermissionFilterVerifying();
 
             // the search query to use, will be constructed in the next lines
             Query query = null;
@@ -1392,13 +1463,13 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             }
 
             // perform the search operation
-            if ((params.getSort() == null) || (params.getSort() == CmsSearchParameters.SORT_DEFAULT)) {
-                // apparently scoring is always enabled by Lucene if no sort order is provided
-                hits = searcher.search(query, filter, getMaxHits());
+            ScoreDoc searchAfter = params.getSearchAfter();
+            if (searchAfter != null) {
+                // continue after the last hit of the previous page, so only the hits of this page are collected
+                int count = params.getMatchesPerPage() > 0 ? params.getMatchesPerPage() : getMaxHits();
+                hits = search(searcher, searchAfter, query, filter, params.getSort(), count);
             } else {
-                // if  a sort order is provided, we must check if scoring must be calculated by the searcher
-                boolean isSortScore = isSortScoring(searcher, params.getSort());
-                hits = searcher.search(query, filter, getMaxHits(), params.getSort(), isSortScore, isSortScore);
+                hits = search(searcher, null, query, filter, params.getSort(), getMaxHits());
             }
 
             timeLucene += System.currentTimeMillis();
@@ -1408,7 +1479,11 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 int hitCount = hits.totalHits > hits.scoreDocs.length ? hits.scoreDocs.length : hits.totalHits;
                 int page = params.getSearchPage();
                 int start = -1, end = -1;
-                if ((params.getMatchesPerPage() > 0) && (page > 0) && (hitCount > 0)) {
+                if (searchAfter != null) {
+                    // the hits already start with the requested page
+                    start = 0;
+                    end = hitCount;
+                } else if ((params.getMatchesPerPage() > 0) && (page > 0) && (hitCount > 0)) {
                     // calculate the final size of the search result
                     start = params.getMatchesPerPage() * (page - 1);
                     end = start + params.getMatchesPerPage();
@@ -1424,15 +1499,26 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 Set<String> returnFields = ((CmsLuceneFieldConfiguration)m_fieldConfiguration).getReturnFields();
                 Set<String> excerptFields = ((CmsLuceneFieldConfiguration)m_fieldConfiguration).getExcerptFields();
 
-                int visibleHitCount = hitCount;
+                // with a cursor the hits of the previous pages are not checked again, so start with the Lucene count
+                int visibleHitCount = searchAfter != null ? hits.totalHits : hitCount;
+                int lastHit = -1;
                 for (int i = 0, cnt = 0; (i < hitCount) && (cnt < end); i++) {
+                    lastHit = i;
                     try {
-                        Document doc = searcher.doc(hits.scoreDocs[i].doc, returnFields);
-                        I_CmsSearchDocument searchDoc = new CmsLuceneDocument(doc);
-                        searchDoc.setScore(hits.scoreDocs[i].score);
-                        if ((isInTimeRange(doc, params)) && (hasReadPermission(searchCms, searchDoc))) {
+                        // the time range is checked with the doc values, so no stored fields are loaded for it
+                        boolean isVisible = isInTimeRange(searcher.getIndexReader(), hits.scoreDocs[i].doc, params);
+                        Document doc = null;
+                        if (isVisible && verifyPermissions) {
+                            // for hits before the requested page only the fields for the permission check are loaded
+                            doc = searcher.doc(hits.scoreDocs[i].doc, cnt >= start ? returnFields : PERMISSION_FIELDS);
+                            isVisible = hasReadPermission(searchCms, new CmsLuceneDocument(doc));
+                        }
+                        if (isVisible) {
                             // user has read permission
                             if (cnt >= start) {
+                                if (doc == null) {
+                                    doc = searcher.doc(hits.scoreDocs[i].doc, returnFields);
+                                }
                                 // do not use the resource to obtain the raw content, read it from the lucene document!
                                 String excerpt = null;
                                 if (isCreatingExcerpt() && (fieldsQuery != null)) {
@@ -1457,6 +1543,11 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
 
                 // save the total count of search results
                 searchResults.setHitCount(visibleHitCount);
+                if ((lastHit >= 0)
+                    && (((lastHit + 1) < hits.scoreDocs.length) || (hits.scoreDocs.length < hits.totalHits))) {
+                    // there may be more hits, so store the cursor for the next page
+                    searchResults.setSearchAfter(hits.scoreDocs[lastHit]);
+                }
             } else {
                 searchResults.setHitCount(0);
             }
@@ -2138,6 +2229,33 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return result;
     }
 
+    /**
+     * Returns the permission filter rules for the user and project of the given context.<p>
+     *
+     * @param cms the OpenCms user context to get the rules for
+     *
+     * @return the rules, or <code>null</code> if the hits are not filtered and the permissions have to be checked for every hit
+     *
+     * @see #isPermissionFiltering()
+     */
+    protected CmsSearchPermissionFilter.Rules getPermissionFilterRules(CmsObject cms) {
+
+        CmsSearchPermissionFilter permissionFilter = OpenCms.getSearchManager().getPermissionFilter();
+        if (!isPermissionFiltering() || !isCheckingPermissions() || (permissionFilter == null)) {
+            return null;
+        }
+        try {
+            return permissionFilter.getRules(cms);
+        } catch (CmsException e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PERMISSION_FILTER_FAILED_1,
+                    cms.getRequestContext().getCurrentUser().getName()),
+                e);
+            return null;
+        }
+    }
+
     /**
      * Checks if the OpenCms resource referenced by the result document can be read
      * by the user of the given OpenCms context.
@@ -2363,6 +2481,50 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return true;
     }
 
+    /**
+     * Checks if the document with the given id is in the time range specified in the search parameters.<p>
+     *
+     * In contrast to {@link #isInTimeRange(Document, CmsSearchParameters)} the dates are read from the
+     * doc values of the index, so the stored document does not have to be loaded.<p>
+     *
+     * @param reader the index reader to read the doc values from
+     * @param docId the id of the document to check
+     * @param params the search parameters where the time ranges are specified
+     *
+     * @return true if document is in time range or not time range set otherwise false
+     *
+     * @throws IOException if reading the doc values fails
+     */
+    protected boolean isInTimeRange(IndexReader reader, int docId, CmsSearchParameters params) throws IOException {
+
+        if (!isCheckingTimeRange()) {
+            // time range check disabled
+            return true;
+        }
+        if ((params.getMinDateCreated() == Long.MIN_VALUE)
+            && (params.getMaxDateCreated() == Long.MAX_VALUE)
+            && (params.getMinDateLastModified() == Long.MIN_VALUE)
+            && (params.getMaxDateLastModified() == Long.MAX_VALUE)) {
+            // no time range set
+            return true;
+        }
+        List<LeafReaderContext> leaves = reader.leaves();
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        int leafDocId = docId - leaf.docBase;
+        return isInTimeRange(
+            leaf,
+            leafDocId,
+            CmsSearchField.FIELD_DATE_CREATED,
+            params.getMinDateCreated(),
+            params.getMaxDateCreated())
+            && isInTimeRange(
+                leaf,
+                leafDocId,
+                CmsSearchField.FIELD_DATE_LASTMODIFIED,
+                params.getMinDateLastModified(),
+                params.getMaxDateLastModified());
+    }
+
     /**
      * Checks if the score for the results must be calculated based on the provided sort option.<p>
      *
@@ -2472,4 +2634,64 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return uninvertingMap;
     }
 
+    /**
+     * Checks if the date stored in the doc values of the given field is in the given time range.<p>
+     *
+     * @param leaf the index segment containing the document
+     * @param docId the id of the document inside the segment
+     * @param fieldName the name of the date field
+     * @param min the minimum date
+     * @param max the maximum date
+     *
+     * @return true if the date is in the time range, or if the date is not available
+     *
+     * @throws IOException if reading the doc values fails
+     */
+    private boolean isInTimeRange(LeafReaderContext leaf, int docId, String fieldName, long min, long max)
+    throws IOException {
+
+        SortedDocValues values = leaf.reader().getSortedDocValues(fieldName);
+        if (values == null) {
+            // no doc values and not uninverted -> doc is in time range
+            return true;
+        }
+        BytesRef value = values.get(docId);
+        if (value.length == 0) {
+            return true;
+        }
+        try {
+            long date = DateTools.stringToTime(value.utf8ToString());
+            return (date >= min) && (date <= max);
+        } catch (ParseException ex) {
+            // date could not be parsed -> doc is in time range
+            return true;
+        }
+    }
+
+    /**
+     * Collects the top hits for the given query, optionally after the last hit of a previous page.<p>
+     *
+     * @param searcher the index searcher to use
+     * @param after the last hit of the previous page, or <code>null</code> to collect from the first hit
+     * @param query the query
+     * @param filter the filter
+     * @param sort the sort order, or <code>null</code> to sort by relevance
+     * @param count the number of hits to collect
+     *
+     * @return the top hits
+     *
+     * @throws IOException if the search fails
+     */
+    private TopDocs search(IndexSearcher searcher, ScoreDoc after, Query query, Filter filter, Sort sort, int count)
+    throws IOException {
+
+        if ((sort == null) || (sort == CmsSearchParameters.SORT_DEFAULT)) {
+            // apparently scoring is always enabled by Lucene if no sort order is provided
+            return searcher.searchAfter(after, query, filter, count);
+        }
+        // if  a sort order is provided, we must check if scoring must be calculated by the searcher
+        boolean isSortScore = isSortScoring(searcher, sort);
+        return searcher.searchAfter(after, query, filter, count, sort, isSortScore, isSortScore);
+    }
+
 }
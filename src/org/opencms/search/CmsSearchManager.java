@@ -35,6 +35,7 @@ import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.CmsUser;
 import org.opencms.file.types.CmsResourceTypeXmlContainerPage;
 import org.opencms.file.types.CmsResourceTypeXmlContent;
 import org.opencms.i18n.CmsMessageContainer;
@@ -45,6 +46,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.CmsIllegalStateException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsAsyncEventListener;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.main.OpenCmsSolrHandler;
@@ -54,6 +56,7 @@ import org.opencms.report.CmsLogReport;
 import org.opencms.report.I_CmsReport;
 import org.opencms.scheduler.I_CmsScheduledJob;
 import org.opencms.search.documents.A_CmsVfsDocument;
+import org.opencms.search.documents.CmsElementExtractionCache;
 import org.opencms.search.documents.CmsExtractionResultCache;
 import org.opencms.search.documents.I_CmsDocumentFactory;
 import org.opencms.search.documents.I_CmsTermHighlighter;
@@ -62,10 +65,12 @@ import org.opencms.search.fields.CmsLuceneFieldConfiguration;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.search.fields.CmsSearchFieldConfiguration;
 import org.opencms.search.fields.CmsSearchFieldMapping;
+import org.opencms.search.galleries.CmsGalleryIndex;
 import org.opencms.search.solr.CmsSolrConfiguration;
 import org.opencms.search.solr.CmsSolrFieldConfiguration;
 import org.opencms.search.solr.CmsSolrIndex;
 import org.opencms.search.solr.CmsSolrIndexWriter;
+import org.opencms.search.solr.CmsSolrUpdateClient;
 import org.opencms.search.solr.spellchecking.CmsSolrSpellchecker;
 import org.opencms.security.CmsRole;
 import org.opencms.security.CmsRoleViolationException;
@@ -95,7 +100,6 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
-import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.CoreDescriptor;
 import org.apache.solr.core.SolrCore;
@@ -157,7 +161,13 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /**
      * Handles offline index generation.<p>
      */
-    protected class CmsSearchOfflineHandler implements I_CmsEventListener {
+    protected class CmsSearchOfflineHandler implements I_CmsAsyncEventListener {
+
+        /** The key for the folders with changed properties in the data of merged events. */
+        private static final String KEY_CHANGED_FOLDERS = "changedFolders";
+
+        /** The structure ids of the folders whose properties may have changed. */
+        private Set<CmsUUID> m_changedFolders;
 
         /** Indicates if the event handlers for the offline search have been already registered. */
         private boolean m_isEventRegistered;
@@ -170,6 +180,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
          */
         protected CmsSearchOfflineHandler() {
 
+            m_changedFolders = new HashSet<CmsUUID>();
             m_resourcesToIndex = new ArrayList<CmsPublishedResource>();
         }
 
@@ -178,53 +189,55 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
          *
          * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
          */
-        @SuppressWarnings("unchecked")
         public void cmsEvent(CmsEvent event) {
 
-            switch (event.getType()) {
-                case I_CmsEventListener.EVENT_PROPERTY_MODIFIED:
-                case I_CmsEventListener.EVENT_RESOURCE_CREATED:
-                case I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED:
-                case I_CmsEventListener.EVENT_RESOURCE_MODIFIED:
-                    Object change = event.getData().get(I_CmsEventListener.KEY_CHANGE);
-                    if ((change != null) && change.equals(new Integer(CmsDriverManager.NOTHING_CHANGED))) {
-                        // skip lock & unlock
-                        return;
-                    }
-                    // skip indexing if flag is set in event
-                    Object skip = event.getData().get(I_CmsEventListener.KEY_SKIPINDEX);
-                    if (skip != null) {
-                        return;
-                    }
+            List<CmsResource> resources = getResourcesToReIndex(event);
+            if (resources != null) {
+                Set<CmsUUID> changedFolders = getChangedFolders(event);
+                synchronized (this) {
+                    m_changedFolders.addAll(changedFolders);
+                }
+                reIndexResources(resources);
+            }
+        }
 
-                    // a resource has been modified - offline indexes require (re)indexing
-                    List<CmsResource> resources = Collections.singletonList(
-                        (CmsResource)event.getData().get(I_CmsEventListener.KEY_RESOURCE));
-                    reIndexResources(resources);
-                    break;
-                case I_CmsEventListener.EVENT_RESOURCE_DELETED:
-                    List<CmsResource> eventResources = (List<CmsResource>)event.getData().get(
-                        I_CmsEventListener.KEY_RESOURCES);
-                    List<CmsResource> resourcesToDelete = new ArrayList<CmsResource>(eventResources);
-                    for (CmsResource res : resourcesToDelete) {
-                        if (res.getState().isNew()) {
-                            // if the resource is new and a delete action was performed
-                            // --> set the state of the resource to deleted
-                            res.setState(CmsResourceState.STATE_DELETED);
-                        }
-                    }
-                    reIndexResources(resourcesToDelete);
-                    break;
-                case I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED:
-                case I_CmsEventListener.EVENT_RESOURCE_MOVED:
-                case I_CmsEventListener.EVENT_RESOURCE_COPIED:
-                case I_CmsEventListener.EVENT_RESOURCES_MODIFIED:
-                    // a list of resources has been modified - offline indexes require (re)indexing
-                    reIndexResources((List<CmsResource>)event.getData().get(I_CmsEventListener.KEY_RESOURCES));
-                    break;
-                default:
-                    // no operation
+        /**
+         * The modified resources are only collected for the offline indexing thread, so all events can be handled asynchronously.<p>
+         *
+         * @see org.opencms.main.I_CmsAsyncEventListener#isAsyncEvent(org.opencms.main.CmsEvent)
+         */
+        public boolean isAsyncEvent(CmsEvent event) {
+
+            return true;
+        }
+
+        /**
+         * Merges the resources of two events into a single {@link I_CmsEventListener#EVENT_RESOURCES_MODIFIED} event.<p>
+         *
+         * @see org.opencms.main.I_CmsAsyncEventListener#mergeEvents(org.opencms.main.CmsEvent, org.opencms.main.CmsEvent)
+         */
+        public CmsEvent mergeEvents(CmsEvent first, CmsEvent second) {
+
+            List<CmsResource> firstResources = getResourcesToReIndex(first);
+            List<CmsResource> secondResources = getResourcesToReIndex(second);
+            if (firstResources == null) {
+                return second;
             }
+            if (secondResources == null) {
+                return first;
+            }
+            List<CmsResource> resources = new ArrayList<CmsResource>(firstResources.size() + secondResources.size());
+            resources.addAll(firstResources);
+            resources.addAll(secondResources);
+            Map<String, Object> data = new HashMap<String, Object>();
+            data.put(I_CmsEventListener.KEY_RESOURCES, resources);
+            // the merged event has no type that tells the changed properties apart
+            Set<CmsUUID> changedFolders = getChangedFolders(first);
+            changedFolders.addAll(getChangedFolders(second));
+            if (!changedFolders.isEmpty()) {
+                data.put(KEY_CHANGED_FOLDERS, changedFolders);
+            }
+            return new CmsEvent(I_CmsEventListener.EVENT_RESOURCES_MODIFIED, data);
         }
 
         /**
@@ -237,6 +250,44 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             m_resourcesToIndex.addAll(resourcesToIndex);
         }
 
+        /**
+         * Returns the structure ids of the folders whose properties may have been changed by the given event.<p>
+         *
+         * The resources below these folders inherit the properties, so the gallery index has to update them.<p>
+         *
+         * @param event the event
+         *
+         * @return the structure ids of the folders with changed properties
+         */
+        @SuppressWarnings("unchecked")
+        protected Set<CmsUUID> getChangedFolders(CmsEvent event) {
+
+            Set<CmsUUID> result = new HashSet<CmsUUID>();
+            switch (event.getType()) {
+                case I_CmsEventListener.EVENT_PROPERTY_MODIFIED:
+                case I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED:
+                case I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED:
+                    List<CmsResource> resources = getResourcesToReIndex(event);
+                    if (resources != null) {
+                        for (CmsResource resource : resources) {
+                            if (resource.isFolder()) {
+                                result.add(resource.getStructureId());
+                            }
+                        }
+                    }
+                    break;
+                case I_CmsEventListener.EVENT_RESOURCES_MODIFIED:
+                    Set<CmsUUID> changedFolders = (Set<CmsUUID>)event.getData().get(KEY_CHANGED_FOLDERS);
+                    if (changedFolders != null) {
+                        result.addAll(changedFolders);
+                    }
+                    break;
+                default:
+                    // no operation
+            }
+            return result;
+        }
+
         /**
          * Returns the list of {@link CmsPublishedResource} objects to index.<p>
          *
@@ -264,6 +315,59 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             return result;
         }
 
+        /**
+         * Returns the resources which have to be re-indexed because of the given event.<p>
+         *
+         * @param event the event
+         *
+         * @return the resources to re-index, or <code>null</code> if the event does not require re-indexing
+         */
+        @SuppressWarnings("unchecked")
+        protected List<CmsResource> getResourcesToReIndex(CmsEvent event) {
+
+            switch (event.getType()) {
+                case I_CmsEventListener.EVENT_PROPERTY_MODIFIED:
+                case I_CmsEventListener.EVENT_RESOURCE_CREATED:
+                case I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED:
+                case I_CmsEventListener.EVENT_RESOURCE_MODIFIED:
+                    Object change = event.getData().get(I_CmsEventListener.KEY_CHANGE);
+                    if ((change != null) && change.equals(new Integer(CmsDriverManager.NOTHING_CHANGED))) {
+                        // skip lock & unlock
+                        return null;
+                    }
+                    // skip indexing if flag is set in event
+                    Object skip = event.getData().get(I_CmsEventListener.KEY_SKIPINDEX);
+                    if (skip != null) {
+                        return null;
+                    }
+
+                    // a resource has been modified - offline indexes require (re)indexing
+                    return Collections.singletonList(
+                        (CmsResource)event.getData().get(I_CmsEventListener.KEY_RESOURCE));
+                case I_CmsEventListener.EVENT_RESOURCE_DELETED:
+                    List<CmsResource> eventResources = (List<CmsResource>)event.getData().get(
+                        I_CmsEventListener.KEY_RESOURCES);
+                    List<CmsResource> resourcesToDelete = new ArrayList<CmsResource>(eventResources);
+                    for (CmsResource res : resourcesToDelete) {
+                        if (res.getState().isNew()) {
+                            // if the resource is new and a delete action was performed
+                            // --> set the state of the resource to deleted
+                            res.setState(CmsResourceState.STATE_DELETED);
+                        }
+                    }
+                    return resourcesToDelete;
+                case I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED:
+                case I_CmsEventListener.EVENT_RESOURCE_MOVED:
+                case I_CmsEventListener.EVENT_RESOURCE_COPIED:
+                case I_CmsEventListener.EVENT_RESOURCES_MODIFIED:
+                    // a list of resources has been modified - offline indexes require (re)indexing
+                    return (List<CmsResource>)event.getData().get(I_CmsEventListener.KEY_RESOURCES);
+                default:
+                    // no operation
+                    return null;
+            }
+        }
+
         /**
          * Initializes this offline search handler, registering the event handlers if required.<p>
          */
@@ -320,6 +424,18 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 addResourcesToIndex(resourcesToIndex);
             }
         }
+
+        /**
+         * Returns the structure ids of the folders whose properties may have changed since the last call.<p>
+         *
+         * @return the structure ids of the folders with changed properties
+         */
+        protected synchronized Set<CmsUUID> removeChangedFolders() {
+
+            Set<CmsUUID> result = m_changedFolders;
+            m_changedFolders = new HashSet<CmsUUID>();
+            return result;
+        }
     }
 
     /**
@@ -636,6 +752,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** Default for the maximum number of modifications before a commit in the search index is triggered (500). */
     public static final int DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT = 500;
 
+    /** The default max number of cached search results per Solr index. */
+    public static final int DEFAULT_RESULT_CACHE_SIZE = 500;
+
     /** The default update frequency for offline indexes (15000 msec = 15 sec). */
     public static final int DEFAULT_OFFLINE_UPDATE_FREQNENCY = 15000;
 
@@ -681,9 +800,18 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** A map of document factories keyed by their matching Cms resource types and/or mimetypes. */
     private Map<String, I_CmsDocumentFactory> m_documentTypes;
 
+    /** The cache for the extraction results of container page elements, shared by all container page documents. */
+    private CmsElementExtractionCache m_elementExtractionCache;
+
     /** The max age for extraction results to remain in the cache. */
     private float m_extractionCacheMaxAge;
 
+    /** The max size of the extraction result segment store in megabytes, 0 for no limit. */
+    private long m_extractionCacheMaxSize;
+
+    /** Indicates if the extraction results are kept in a segment store instead of single files. */
+    private boolean m_extractionCacheSegmentStore;
+
     /** The cache for the extraction results. */
     private CmsExtractionResultCache m_extractionResultCache;
 
@@ -693,6 +821,12 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The force unlock type. */
     private CmsSearchForceUnlockMode m_forceUnlockMode;
 
+    /** The gallery index, <code>null</code> if not enabled. */
+    private CmsGalleryIndex m_galleryIndex;
+
+    /** Indicates if the gallery index is used. */
+    private boolean m_galleryIndexEnabled;
+
     /** The class used to highlight the search terms in the excerpt of a search result. */
     private I_CmsTermHighlighter m_highlighter;
 
@@ -723,6 +857,12 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** Path to index files below WEB-INF/. */
     private String m_path;
 
+    /** The filter restricting search results to the readable resources. */
+    private CmsSearchPermissionFilter m_permissionFilter;
+
+    /** The max number of cached search results per Solr index. */
+    private int m_resultCacheSize;
+
     /** The Solr configuration. */
     private CmsSolrConfiguration m_solrConfig;
 
@@ -745,6 +885,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         m_offlineUpdateFrequency = DEFAULT_OFFLINE_UPDATE_FREQNENCY;
         m_maxIndexWaitTime = DEFAULT_MAX_INDEX_WAITTIME;
         m_maxModificationsBeforeCommit = DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT;
+        m_resultCacheSize = DEFAULT_RESULT_CACHE_SIZE;
 
         m_fieldConfigurations = new HashMap<String, CmsSearchFieldConfiguration>();
         // make sure we have a "standard" field configuration
@@ -1000,6 +1141,26 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_EVENT_CLEAR_CACHES_0), new Exception());
                 }
+                clearSolrResultCaches();
+                if (m_elementExtractionCache != null) {
+                    m_elementExtractionCache.clear();
+                }
+                break;
+            case I_CmsEventListener.EVENT_USER_MODIFIED:
+                // the gallery index contains the full names of the users who created or modified the resources
+                CmsGalleryIndex galleryIndex = m_galleryIndex;
+                Integer changes = (Integer)event.getData().get(I_CmsEventListener.KEY_USER_CHANGES);
+                if ((galleryIndex != null)
+                    && (changes != null)
+                    && ((changes.intValue() & CmsUser.FLAG_CORE_DATA) != 0)) {
+                    try {
+                        galleryIndex.updateUser(
+                            getGalleryIndexCms(),
+                            new CmsUUID((String)event.getData().get(I_CmsEventListener.KEY_USER_ID)));
+                    } catch (CmsException e) {
+                        LOG.error(e.getLocalizedMessage(), e);
+                    }
+                }
                 break;
             case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
                 // event data contains a list of the published resources
@@ -1007,7 +1168,10 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_EVENT_PUBLISH_PROJECT_1, publishHistoryId));
                 }
+                // published permission changes do not necessarily change the index
+                clearSolrResultCaches();
                 updateAllIndexes(m_adminCms, publishHistoryId, getEventReport(event));
+                updateGalleryIndex(publishHistoryId);
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(
                         Messages.get().getBundle().key(
@@ -1020,6 +1184,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Clears the search result caches of all Solr indexes.<p>
+     */
+    public void clearSolrResultCaches() {
+
+        for (CmsSolrIndex index : getAllSolrIndexes()) {
+            index.clearResultCache();
+        }
+    }
+
     /**
      * Returns all Solr index.<p>
      *
@@ -1190,6 +1364,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return Collections.unmodifiableList(m_documentTypeConfigs);
     }
 
+    /**
+     * Returns the cache for the extraction results of container page elements.<p>
+     *
+     * @return the cache for the extraction results of container page elements
+     */
+    public CmsElementExtractionCache getElementExtractionCache() {
+
+        return m_elementExtractionCache;
+    }
+
     /**
      * Returns the maximum age a text extraction result is kept in the cache (in hours).<p>
      *
@@ -1200,6 +1384,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_extractionCacheMaxAge;
     }
 
+    /**
+     * Returns the maximum size of the extraction result segment store (in megabytes).<p>
+     *
+     * @return the maximum size of the extraction result segment store (in megabytes), 0 for no limit
+     */
+    public long getExtractionCacheMaxSize() {
+
+        return m_extractionCacheMaxSize;
+    }
+
     /**
      * Returns the search field configuration with the given name.<p>
      *
@@ -1271,6 +1465,17 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_forceUnlockMode;
     }
 
+    /**
+     * Returns the gallery index.<p>
+     *
+     * @return the gallery index, or <code>null</code> if it is not enabled or has not been built yet
+     */
+    public CmsGalleryIndex getGalleryIndex() {
+
+        CmsGalleryIndex galleryIndex = m_galleryIndex;
+        return (galleryIndex != null) && galleryIndex.isReady() ? galleryIndex : null;
+    }
+
     /**
      * Returns the highlighter.<p>
      *
@@ -1391,6 +1596,26 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_offlineUpdateFrequency;
     }
 
+    /**
+     * Returns the filter restricting search results to the resources readable by the current user.<p>
+     *
+     * @return the permission filter, <code>null</code> if the search manager is not initialized
+     */
+    public CmsSearchPermissionFilter getPermissionFilter() {
+
+        return m_permissionFilter;
+    }
+
+    /**
+     * Returns the max number of cached search results per Solr index.<p>
+     *
+     * @return the max number of cached search results per Solr index, 0 if the result cache is disabled
+     */
+    public int getResultCacheSize() {
+
+        return m_resultCacheSize;
+    }
+
     /**
      * Returns an unmodifiable list of all configured <code>{@link CmsSearchIndex}</code> instances.<p>
      *
@@ -1505,9 +1730,17 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         // create the extraction result cache
         m_extractionResultCache = new CmsExtractionResultCache(
             OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(getDirectory()),
-            "/extractCache");
+            "/extractCache",
+            m_extractionCacheSegmentStore,
+            m_extractionCacheMaxSize * 1024L * 1024L);
+        m_elementExtractionCache = new CmsElementExtractionCache(
+            CmsElementExtractionCache.DEFAULT_CACHE_SIZE,
+            CmsElementExtractionCache.getDefaultThreadCount());
+        // create the permission filter used by indexes with enabled permission filtering
+        m_permissionFilter = new CmsSearchPermissionFilter(m_adminCms, CmsSearchPermissionFilter.DEFAULT_CACHE_SIZE);
         initializeIndexes();
         initOfflineIndexes();
+        initGalleryIndex();
 
         // register this object as event listener
         OpenCms.addCmsEventListener(
@@ -1515,7 +1748,8 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             new int[] {
                 I_CmsEventListener.EVENT_CLEAR_CACHES,
                 I_CmsEventListener.EVENT_PUBLISH_PROJECT,
-                I_CmsEventListener.EVENT_REBUILD_SEARCHINDEXES});
+                I_CmsEventListener.EVENT_REBUILD_SEARCHINDEXES,
+                I_CmsEventListener.EVENT_USER_MODIFIED});
     }
 
     /**
@@ -1549,6 +1783,26 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
 
     }
 
+    /**
+     * Returns if the extraction results are kept in a segment store instead of single files.<p>
+     *
+     * @return <code>true</code> if the extraction results are kept in a segment store
+     */
+    public boolean isExtractionCacheSegmentStore() {
+
+        return m_extractionCacheSegmentStore;
+    }
+
+    /**
+     * Returns if the gallery dialogs are served from the gallery index.<p>
+     *
+     * @return <code>true</code> if the gallery index is used
+     */
+    public boolean isGalleryIndexEnabled() {
+
+        return m_galleryIndexEnabled;
+    }
+
     /**
      * Returns if the offline indexing is paused.<p>
      *
@@ -1664,6 +1918,14 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                         e);
                 }
             }
+            if (m_galleryIndex != null) {
+                try {
+                    rebuildGalleryIndex(report);
+                } catch (CmsException e) {
+                    container = e.getMessageContainer();
+                    LOG.error(e.getLocalizedMessage(), e);
+                }
+            }
             // clean up the extraction result cache
             cleanExtractionCache();
             if (container != null) {
@@ -1675,6 +1937,21 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Rebuilds the gallery index, if it is enabled.<p>
+     *
+     * @param report the report object to write messages (or <code>null</code>)
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void rebuildGalleryIndex(I_CmsReport report) throws CmsException {
+
+        CmsGalleryIndex galleryIndex = m_galleryIndex;
+        if (galleryIndex != null) {
+            galleryIndex.rebuild(getGalleryIndexCms(), report);
+        }
+    }
+
     /**
      * Rebuilds (if required creates) the index with the given name.<p>
      *
@@ -1749,7 +2026,13 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             // HTTP Server configured
             // TODO Implement multi core support for HTTP server
             // @see http://lucidworks.lucidimagination.com/display/solr/Configuring+solr.xml
-            index.setSolrServer(new HttpSolrClient(m_solrConfig.getServerUrl()));
+            // updates are streamed to the remote server through a bounded queue by a pool of worker threads,
+            // queries are delegated to a plain HTTP client, errors of the queued updates are reported to the writer
+            index.setSolrServer(
+                new CmsSolrUpdateClient(
+                    m_solrConfig.getServerUrl(),
+                    m_solrConfig.getUpdateQueueSize(),
+                    m_solrConfig.getUpdateThreads()));
         }
 
         // get the core container that contains one core for each configured index
@@ -2080,6 +2363,38 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the maximum size of the extraction result segment store (in megabytes) as a String.<p>
+     *
+     * @param extractionCacheMaxSize the maximum size of the extraction result segment store to set
+     */
+    public void setExtractionCacheMaxSize(String extractionCacheMaxSize) {
+
+        try {
+            m_extractionCacheMaxSize = Math.max(0L, Long.parseLong(extractionCacheMaxSize.trim()));
+        } catch (NumberFormatException e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PARSE_EXTRACTION_CACHE_SIZE_FAILED_2,
+                    extractionCacheMaxSize,
+                    new Long(0L)),
+                e);
+            m_extractionCacheMaxSize = 0L;
+        }
+    }
+
+    /**
+     * Sets if the extraction results are kept in a segment store instead of single files.<p>
+     *
+     * @param extractionCacheSegmentStore <code>"true"</code> to use a segment store
+     *
+     * @see CmsExtractionResultCache
+     */
+    public void setExtractionCacheSegmentStore(String extractionCacheSegmentStore) {
+
+        m_extractionCacheSegmentStore = Boolean.valueOf(extractionCacheSegmentStore.trim()).booleanValue();
+    }
+
     /**
      * Sets the unlock mode during indexing.<p>
      *
@@ -2090,6 +2405,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         m_forceUnlockMode = CmsSearchForceUnlockMode.valueOf(value);
     }
 
+    /**
+     * Sets if the gallery dialogs are served from the gallery index.<p>
+     *
+     * @param galleryIndexEnabled <code>"true"</code> if the gallery index should be used
+     */
+    public void setGalleryIndexEnabled(String galleryIndexEnabled) {
+
+        m_galleryIndexEnabled = Boolean.valueOf(galleryIndexEnabled.trim()).booleanValue();
+    }
+
     /**
      * Sets the highlighter.<p>
      *
@@ -2238,6 +2563,26 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the max number of cached search results per Solr index.<p>
+     *
+     * @param value the max number of cached search results, 0 disables the result cache
+     */
+    public void setResultCacheSize(String value) {
+
+        try {
+            m_resultCacheSize = Math.max(0, Integer.parseInt(value.trim()));
+        } catch (Exception e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PARSE_RESULT_CACHE_SIZE_FAILED_2,
+                    value,
+                    new Integer(DEFAULT_RESULT_CACHE_SIZE)),
+                e);
+            m_resultCacheSize = DEFAULT_RESULT_CACHE_SIZE;
+        }
+    }
+
     /**
      * Sets the Solr configuration.<p>
      *
@@ -2300,6 +2645,19 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
 
         shutDownSolrContainer();
 
+        if (m_galleryIndex != null) {
+            m_galleryIndex.close();
+            m_galleryIndex = null;
+        }
+
+        if (m_extractionResultCache != null) {
+            m_extractionResultCache.close();
+        }
+
+        if (m_elementExtractionCache != null) {
+            m_elementExtractionCache.shutDown();
+        }
+
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_SHUTDOWN_MANAGER_0));
         }
@@ -2563,6 +2921,45 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Opens the gallery index if it is enabled, and builds it in the background if it does not exist yet.<p>
+     */
+    protected void initGalleryIndex() {
+
+        if (!m_galleryIndexEnabled) {
+            return;
+        }
+        final CmsGalleryIndex galleryIndex = new CmsGalleryIndex(
+            OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+                getDirectory() + "/" + CmsGalleryIndex.FOLDER_NAME));
+        try {
+            galleryIndex.open();
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return;
+        }
+        m_galleryIndex = galleryIndex;
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_GALLERY_INDEX_1, galleryIndex.getPath()));
+        }
+        if (!galleryIndex.isReady()) {
+            // until the index is built, the galleries use the Solr offline index
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+
+                    try {
+                        galleryIndex.rebuild(getGalleryIndexCms(), null);
+                    } catch (CmsException e) {
+                        LOG.error(e.getLocalizedMessage(), e);
+                    }
+                }
+            }, "OpenCms: Gallery index");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
     /**
      * Initializes the configured search indexes.<p>
      *
@@ -2872,6 +3269,8 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                     }
                     // index has changed - initialize the index searcher instance
                     index.indexSearcherOpen(index.getPath());
+                    // the cached element results are only reused within a rebuild
+                    m_elementExtractionCache.clear();
                 }
 
                 // show information about indexing runtime
@@ -3037,6 +3436,15 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 }
             }
         }
+
+        CmsGalleryIndex galleryIndex = m_galleryIndex;
+        if (galleryIndex != null) {
+            try {
+                galleryIndex.update(getGalleryIndexCms(), resourcesToIndex, m_offlineHandler.removeChangedFolders());
+            } catch (CmsException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+        }
     }
 
     /**
@@ -3115,6 +3523,24 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return report;
     }
 
+    /**
+     * Returns the OpenCms context used to build the gallery index.<p>
+     *
+     * @return a copy of the administration context, in the project of the offline indexes
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private CmsObject getGalleryIndexCms() throws CmsException {
+
+        CmsObject cms = OpenCms.initCmsObject(m_adminCms);
+        cms.getRequestContext().setSiteRoot("/");
+        CmsProject offline = getOfflineIndexProject();
+        if (offline != null) {
+            cms.getRequestContext().setCurrentProject(offline);
+        }
+        return cms;
+    }
+
     /**
      * Gets all structure ids for which published resources of both states 'new' and 'deleted' exist in the given list.<p>
      *
@@ -3160,4 +3586,21 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Updates the gallery index for the published resources, since publishing changes their state and project.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish job
+     */
+    private void updateGalleryIndex(CmsUUID publishHistoryId) {
+
+        CmsGalleryIndex galleryIndex = m_galleryIndex;
+        if (galleryIndex != null) {
+            try {
+                galleryIndex.update(getGalleryIndexCms(), m_adminCms.readPublishedResources(publishHistoryId));
+            } catch (CmsException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
 }
@@ -44,6 +44,7 @@ import org.apache.commons.collections.ListUtils;
 import org.apache.commons.logging.Log;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 
@@ -285,6 +286,9 @@ public class CmsSearchParameters {
     /** Only resource that are sub-resource of one of the search roots are included in the search result. */
     private List<String> m_roots;
 
+    /** The last hit of the previous result page, used to continue the search after it. */
+    private ScoreDoc m_searchAfter;
+
     /** The sort order for the search. */
     private Sort m_sort;
 
@@ -583,6 +587,21 @@ public class CmsSearchParameters {
         return m_roots;
     }
 
+    /**
+     * Returns the last hit of the previous result page, after which the search is continued.<p>
+     *
+     * If this is set, the search result starts directly after the given hit and the search page
+     * is ignored, so the cost of a page does not grow with the page number.<p>
+     *
+     * @return the last hit of the previous result page, or <code>null</code> if the search page is used
+     *
+     * @see CmsSearchResultList#getSearchAfter()
+     */
+    public ScoreDoc getSearchAfter() {
+
+        return m_searchAfter;
+    }
+
     /**
      * Returns the list of categories to limit the search to.<p>
      *
@@ -1019,6 +1038,19 @@ public class CmsSearchParameters {
         m_roots = roots;
     }
 
+    /**
+     * Sets the last hit of the previous result page, after which the search is continued.<p>
+     *
+     * The hit must have been returned by {@link CmsSearchResultList#getSearchAfter()} for a search
+     * with the same query, filters and sort order.<p>
+     *
+     * @param searchAfter the last hit of the previous result page, or <code>null</code> to use the search page
+     */
+    public void setSearchAfter(ScoreDoc searchAfter) {
+
+        m_searchAfter = searchAfter;
+    }
+
     /**
      * Set the comma separated search root names to  restrict search to.<p>
      *
@@ -0,0 +1,691 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search;
+
+import org.opencms.db.CmsDriverManager;
+import org.opencms.file.CmsGroup;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.CmsUser;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsCacheStatistics;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSet;
+import org.opencms.security.CmsRole;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Restricts search results to the resources the current user is allowed to read, inside the search engine.<p>
+ *
+ * Only the resources that carry access control entries can change the read permission of a user,
+ * all other resources inherit it from their parent folder. For every project, these resources are collected
+ * once as "decision points" together with their access control lists. For a user, the read permission is evaluated
+ * on the decision points only, and the result is turned into a filter on the <code>path</code> and
+ * <code>parent-folders</code> fields of the index, so documents that are not readable are never loaded.<p>
+ *
+ * The evaluated filter depends only on the principals of a user that actually occur in an access control entry,
+ * so users with the same relevant principals share one cached filter. Solr and Lucene cache the filter
+ * as a bit set per index segment.<p>
+ *
+ * No filter is created for users with the {@link CmsRole#VFS_MANAGER} role, since they can read everything,
+ * or if the filter would become too complex. In these cases the permissions are checked for every hit.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsSearchPermissionFilter implements I_CmsEventListener {
+
+    /**
+     * The permission filter for a set of principals.<p>
+     */
+    public static class Rules {
+
+        /** The key of the rules. */
+        private String m_key;
+
+        /** The Lucene filter. */
+        private Filter m_luceneFilter;
+
+        /** The Solr filter query. */
+        private String m_solrFilterQuery;
+
+        /**
+         * Creates new rules.<p>
+         *
+         * @param key the key of the rules
+         * @param solrFilterQuery the Solr filter query
+         * @param luceneQuery the Lucene query matching all readable documents
+         */
+        protected Rules(String key, String solrFilterQuery, Query luceneQuery) {
+
+            m_key = key;
+            m_solrFilterQuery = solrFilterQuery;
+            m_luceneFilter = new CachingWrapperFilter(new QueryWrapperFilter(luceneQuery));
+        }
+
+        /**
+         * Returns the key of the rules.<p>
+         *
+         * The key identifies the project and the principals the rules are valid for.<p>
+         *
+         * @return the key of the rules
+         */
+        public String getKey() {
+
+            return m_key;
+        }
+
+        /**
+         * Returns the Lucene filter matching all readable documents.<p>
+         *
+         * @return the Lucene filter matching all readable documents
+         */
+        public Filter getLuceneFilter() {
+
+            return m_luceneFilter;
+        }
+
+        /**
+         * Returns the Solr filter query matching all readable documents.<p>
+         *
+         * @return the Solr filter query matching all readable documents
+         */
+        public String getSolrFilterQuery() {
+
+            return m_solrFilterQuery;
+        }
+    }
+
+    /**
+     * A filter expression, available both as Solr query string and as Lucene query.<p>
+     */
+    private static class Expression {
+
+        /** The Lucene query. */
+        Query m_lucene;
+
+        /** The Solr query string. */
+        String m_solr;
+
+        /**
+         * Creates a new expression.<p>
+         *
+         * @param solr the Solr query string
+         * @param lucene the Lucene query
+         */
+        Expression(String solr, Query lucene) {
+
+            m_solr = solr;
+            m_lucene = lucene;
+        }
+    }
+
+    /**
+     * The decision points of a project.<p>
+     */
+    private static class Model {
+
+        /** The principals that occur in the access control entries. */
+        Set<CmsUUID> m_principals;
+
+        /** The virtual root node. */
+        Node m_root;
+    }
+
+    /**
+     * A resource with access control entries.<p>
+     */
+    private static class Node {
+
+        /** The child decision points. */
+        List<Node> m_children = new ArrayList<Node>();
+
+        /** The access control list inherited to resources below the folder, <code>null</code> for files. */
+        CmsAccessControlList m_inheritedAcl;
+
+        /** The access control list of the resource. */
+        CmsAccessControlList m_ownAcl;
+
+        /** The root path of the resource. */
+        String m_path;
+
+        /**
+         * Returns if this node is a folder.<p>
+         *
+         * @return <code>true</code> if this node is a folder
+         */
+        boolean isFolder() {
+
+            return CmsResource.isFolder(m_path);
+        }
+    }
+
+    /**
+     * Thrown internally if the filter needs too many clauses.<p>
+     */
+    private static class TooComplexException extends Exception {
+
+        /** The serial version id. */
+        private static final long serialVersionUID = -1447024226452096862L;
+    }
+
+    /** The default number of cached rules. */
+    public static final int DEFAULT_CACHE_SIZE = 200;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSearchPermissionFilter.class);
+
+    /** The admin context used to read the access control entries. */
+    private CmsObject m_adminCms;
+
+    /** The cached rules. */
+    private Map<String, Rules> m_cache;
+
+    /** The generation of the cache, incremented whenever the cache is cleared. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /** The decision points by project id. */
+    private Map<CmsUUID, Model> m_models = new ConcurrentHashMap<CmsUUID, Model>();
+
+    /** The cache statistics. */
+    private CmsCacheStatistics m_statistics = new CmsCacheStatistics();
+
+    /**
+     * Creates a new permission filter.<p>
+     *
+     * @param adminCms an admin context used to read the access control entries of all resources
+     * @param size the max number of cached rules
+     */
+    public CmsSearchPermissionFilter(CmsObject adminCms, int size) {
+
+        m_adminCms = adminCms;
+        m_cache = CmsMemoryMonitor.createLRUCacheMap(size);
+        if (OpenCms.getMemoryMonitor() != null) {
+            String name = getClass().getName();
+            OpenCms.getMemoryMonitor().register(name, m_cache);
+            OpenCms.getMemoryMonitor().registerStatistics(name, m_statistics);
+        }
+        OpenCms.addCmsEventListener(
+            this,
+            new int[] {
+                I_CmsEventListener.EVENT_CLEAR_CACHES,
+                I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+                I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+                I_CmsEventListener.EVENT_RESOURCES_MODIFIED,
+                I_CmsEventListener.EVENT_RESOURCE_MOVED,
+                I_CmsEventListener.EVENT_RESOURCE_DELETED,
+                I_CmsEventListener.EVENT_RESOURCE_COPIED});
+    }
+
+    /**
+     * Removes all cached rules and decision points.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        m_models.clear();
+        m_cache.clear();
+        m_statistics.invalidate();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+            case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                clear();
+                break;
+            case I_CmsEventListener.EVENT_RESOURCE_MODIFIED:
+                Object change = event.getData().get(I_CmsEventListener.KEY_CHANGE);
+                if ((change instanceof Integer)
+                    && ((((Integer)change).intValue() & CmsDriverManager.CHANGED_ACCESSCONTROL) == 0)) {
+                    // the access control entries are unchanged
+                    return;
+                }
+                clearOffline();
+                break;
+            case I_CmsEventListener.EVENT_RESOURCES_MODIFIED:
+            case I_CmsEventListener.EVENT_RESOURCE_MOVED:
+            case I_CmsEventListener.EVENT_RESOURCE_DELETED:
+            case I_CmsEventListener.EVENT_RESOURCE_COPIED:
+                // the paths or the access control entries of offline resources may have changed
+                clearOffline();
+                break;
+            default:
+                // no operation
+        }
+    }
+
+    /**
+     * Returns the permission filter rules for the current user and project of the given context.<p>
+     *
+     * @param cms the current OpenCms context
+     *
+     * @return the rules, or <code>null</code> if no filter can be used and the permissions have to be checked for every hit
+     *
+     * @throws CmsException if something goes wrong reading the principals or the access control entries
+     */
+    public Rules getRules(CmsObject cms) throws CmsException {
+
+        CmsUser user = cms.getRequestContext().getCurrentUser();
+        List<CmsRole> roles = new ArrayList<CmsRole>();
+        if (!user.isGuestUser()) {
+            for (CmsRole role : OpenCms.getRoleManager().getRolesOfUser(cms, user.getName(), "", true, false, false)) {
+                if (role.getRoleName().equals(CmsRole.VFS_MANAGER.getRoleName())) {
+                    // the user can ignore the permissions, at least for some resources
+                    return null;
+                }
+                CmsRole givenRole = role.forOrgUnit(null);
+                if (!roles.contains(givenRole)) {
+                    roles.add(givenRole);
+                }
+            }
+        }
+        List<CmsGroup> groups = cms.getGroupsOfUser(user.getName(), false);
+
+        long generation = m_generation.get();
+        CmsProject project = cms.getRequestContext().getCurrentProject();
+        Model model = getModel(project);
+
+        // only the principals that occur in an access control entry matter
+        List<String> principals = new ArrayList<String>();
+        if (model.m_principals.contains(user.getId())) {
+            principals.add(user.getId().toString());
+        }
+        for (CmsGroup group : groups) {
+            if (model.m_principals.contains(group.getId())) {
+                principals.add(group.getId().toString());
+            }
+        }
+        for (CmsRole role : roles) {
+            if (model.m_principals.contains(role.getId())) {
+                principals.add(role.getId().toString());
+            }
+        }
+        Collections.sort(principals);
+        String key = project.getUuid() + ":" + principals;
+
+        Rules result = m_cache.get(key);
+        if (result != null) {
+            m_statistics.hit();
+            return result;
+        }
+        m_statistics.miss();
+        try {
+            Expression visible = getVisible(model.m_root, user, groups, roles, new int[] {0});
+            if (visible == null) {
+                // nothing is readable
+                BooleanQuery none = new BooleanQuery();
+                none.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST_NOT);
+                visible = new Expression("-*:*", none);
+            }
+            result = new Rules(key, visible.m_solr, visible.m_lucene);
+        } catch (TooComplexException e) {
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PERMISSION_FILTER_TOO_COMPLEX_2,
+                    user.getName(),
+                    new Integer(BooleanQuery.getMaxClauseCount())));
+            return null;
+        }
+        if (generation == m_generation.get()) {
+            m_cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cache statistics.<p>
+     *
+     * @return the cache statistics
+     */
+    public CmsCacheStatistics getStatistics() {
+
+        return m_statistics;
+    }
+
+    /**
+     * Removes the cached rules and the decision points of all offline projects.<p>
+     */
+    protected void clearOffline() {
+
+        m_generation.incrementAndGet();
+        for (CmsUUID projectId : new ArrayList<CmsUUID>(m_models.keySet())) {
+            if (!CmsProject.isOnlineProject(projectId)) {
+                m_models.remove(projectId);
+            }
+        }
+        // the online rules are cheap to evaluate again from the online decision points
+        m_cache.clear();
+        m_statistics.invalidate();
+    }
+
+    /**
+     * Combines the given base expression with the given expressions that must not match.<p>
+     *
+     * @param base the base expression
+     * @param excluded the expressions that must not match
+     *
+     * @return the combined expression
+     */
+    private Expression andNot(Expression base, List<Expression> excluded) {
+
+        if (excluded.isEmpty()) {
+            return base;
+        }
+        StringBuffer solr = new StringBuffer(base.m_solr.length() * (excluded.size() + 1));
+        solr.append('(').append(base.m_solr);
+        BooleanQuery lucene = new BooleanQuery();
+        lucene.add(base.m_lucene, BooleanClause.Occur.MUST);
+        for (Expression expression : excluded) {
+            solr.append(" -").append(expression.m_solr);
+            lucene.add(expression.m_lucene, BooleanClause.Occur.MUST_NOT);
+        }
+        solr.append(')');
+        return new Expression(solr.toString(), lucene);
+    }
+
+    /**
+     * Reads the decision points of the given project.<p>
+     *
+     * @param project the project
+     *
+     * @return the decision points of the project
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private Model createModel(CmsProject project) throws CmsException {
+
+        CmsObject cms = OpenCms.initCmsObject(m_adminCms);
+        cms.getRequestContext().setCurrentProject(project);
+        cms.getRequestContext().setSiteRoot("");
+
+        List<CmsAccessControlEntry> entries = cms.getAllAccessControlEntries();
+        Model model = new Model();
+        model.m_principals = new HashSet<CmsUUID>();
+        Set<CmsUUID> resourceIds = new HashSet<CmsUUID>();
+        for (CmsAccessControlEntry entry : entries) {
+            model.m_principals.add(entry.getPrincipal());
+            resourceIds.add(entry.getResource());
+        }
+        List<String> paths = new ArrayList<String>();
+        for (CmsUUID resourceId : resourceIds) {
+            for (CmsResource resource : cms.readSiblingsForResourceId(resourceId, CmsResourceFilter.ALL)) {
+                paths.add(resource.getRootPath());
+            }
+        }
+        // in lexicographical order, all resources below a folder directly follow the folder
+        Collections.sort(paths);
+        model.m_root = new Node();
+        model.m_root.m_path = "";
+        LinkedList<Node> parents = new LinkedList<Node>();
+        parents.add(model.m_root);
+        for (String path : paths) {
+            while ((parents.size() > 1) && !path.startsWith(parents.getLast().m_path)) {
+                parents.removeLast();
+            }
+            Node node = new Node();
+            node.m_path = path;
+            node.m_ownAcl = cms.getAccessControlList(path, false);
+            if (node.isFolder()) {
+                node.m_inheritedAcl = cms.getAccessControlList(path, true);
+            }
+            parents.getLast().m_children.add(node);
+            if (node.isFolder()) {
+                parents.add(node);
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PERMISSION_FILTER_MODEL_3,
+                    new Integer(entries.size()),
+                    new Integer(paths.size()),
+                    project.getName()));
+        }
+        return model;
+    }
+
+    /**
+     * Returns the expression matching the documents below the given node that the user can <b>not</b> read,
+     * assuming the parent folder is readable.<p>
+     *
+     * @param node the node
+     * @param user the user
+     * @param groups the groups of the user
+     * @param roles the roles of the user
+     * @param clauses the number of clauses used so far
+     *
+     * @return the expression, or <code>null</code> if all documents are readable
+     *
+     * @throws TooComplexException if the expression needs too many clauses
+     */
+    private Expression getHidden(Node node, CmsUser user, List<CmsGroup> groups, List<CmsRole> roles, int[] clauses)
+    throws TooComplexException {
+
+        boolean selfReadable = isReadable(node.m_ownAcl, user, groups, roles);
+        if (!node.isFolder()) {
+            return selfReadable ? null : getTerm(CmsSearchField.FIELD_PATH, node.m_path, clauses);
+        }
+        List<Expression> expressions = new ArrayList<Expression>();
+        if (isReadable(node.m_inheritedAcl, user, groups, roles)) {
+            if (!selfReadable) {
+                expressions.add(getTerm(CmsSearchField.FIELD_PATH, node.m_path, clauses));
+            }
+            for (Node child : node.m_children) {
+                Expression hidden = getHidden(child, user, groups, roles, clauses);
+                if (hidden != null) {
+                    expressions.add(hidden);
+                }
+            }
+            return or(expressions);
+        }
+        if (selfReadable) {
+            expressions.add(getTerm(CmsSearchField.FIELD_PATH, node.m_path, clauses));
+        }
+        for (Node child : node.m_children) {
+            Expression visible = getVisible(child, user, groups, roles, clauses);
+            if (visible != null) {
+                expressions.add(visible);
+            }
+        }
+        return andNot(getTerm(CmsSearchField.FIELD_PARENT_FOLDERS, node.m_path, clauses), expressions);
+    }
+
+    /**
+     * Returns the decision points of the given project, reading them if required.<p>
+     *
+     * @param project the project
+     *
+     * @return the decision points of the project
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private Model getModel(CmsProject project) throws CmsException {
+
+        Model model = m_models.get(project.getUuid());
+        if (model == null) {
+            long generation = m_generation.get();
+            model = createModel(project);
+            if (generation == m_generation.get()) {
+                m_models.put(project.getUuid(), model);
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Returns a term expression.<p>
+     *
+     * @param field the field name
+     * @param value the value
+     * @param clauses the number of clauses used so far
+     *
+     * @return the term expression
+     *
+     * @throws TooComplexException if the expression needs too many clauses
+     */
+    private Expression getTerm(String field, String value, int[] clauses) throws TooComplexException {
+
+        clauses[0]++;
+        if (clauses[0] > BooleanQuery.getMaxClauseCount()) {
+            throw new TooComplexException();
+        }
+        String quoted = "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        return new Expression(field + ":" + quoted, new TermQuery(new Term(field, value)));
+    }
+
+    /**
+     * Returns the expression matching the documents below the given node that the user can read,
+     * assuming the parent folder is not readable.<p>
+     *
+     * @param node the node
+     * @param user the user
+     * @param groups the groups of the user
+     * @param roles the roles of the user
+     * @param clauses the number of clauses used so far
+     *
+     * @return the expression, or <code>null</code> if no document is readable
+     *
+     * @throws TooComplexException if the expression needs too many clauses
+     */
+    private Expression getVisible(Node node, CmsUser user, List<CmsGroup> groups, List<CmsRole> roles, int[] clauses)
+    throws TooComplexException {
+
+        if (node.m_ownAcl == null) {
+            // the virtual root node, resources without any access control entry can not be read
+            List<Expression> expressions = new ArrayList<Expression>();
+            for (Node child : node.m_children) {
+                Expression visible = getVisible(child, user, groups, roles, clauses);
+                if (visible != null) {
+                    expressions.add(visible);
+                }
+            }
+            return or(expressions);
+        }
+        boolean selfReadable = isReadable(node.m_ownAcl, user, groups, roles);
+        if (!node.isFolder()) {
+            return selfReadable ? getTerm(CmsSearchField.FIELD_PATH, node.m_path, clauses) : null;
+        }
+        List<Expression> expressions = new ArrayList<Expression>();
+        if (isReadable(node.m_inheritedAcl, user, groups, roles)) {
+            if (!selfReadable) {
+                expressions.add(getTerm(CmsSearchField.FIELD_PATH, node.m_path, clauses));
+            }
+            for (Node child : node.m_children) {
+                Expression hidden = getHidden(child, user, groups, roles, clauses);
+                if (hidden != null) {
+                    expressions.add(hidden);
+                }
+            }
+            return andNot(getTerm(CmsSearchField.FIELD_PARENT_FOLDERS, node.m_path, clauses), expressions);
+        }
+        if (selfReadable) {
+            expressions.add(getTerm(CmsSearchField.FIELD_PATH, node.m_path, clauses));
+        }
+        for (Node child : node.m_children) {
+            Expression visible = getVisible(child, user, groups, roles, clauses);
+            if (visible != null) {
+                expressions.add(visible);
+            }
+        }
+        return or(expressions);
+    }
+
+    /**
+     * Checks if the given access control list grants read permission to the user.<p>
+     *
+     * @param acl the access control list
+     * @param user the user
+     * @param groups the groups of the user
+     * @param roles the roles of the user
+     *
+     * @return <code>true</code> if the user can read
+     */
+    private boolean isReadable(CmsAccessControlList acl, CmsUser user, List<CmsGroup> groups, List<CmsRole> roles) {
+
+        return (acl.getPermissions(user, groups, roles).getPermissions() & CmsPermissionSet.PERMISSION_READ) > 0;
+    }
+
+    /**
+     * Combines the given expressions with "or".<p>
+     *
+     * @param expressions the expressions
+     *
+     * @return the combined expression, or <code>null</code> if there are no expressions
+     */
+    private Expression or(List<Expression> expressions) {
+
+        if (expressions.isEmpty()) {
+            return null;
+        }
+        if (expressions.size() == 1) {
+            return expressions.get(0);
+        }
+        StringBuffer solr = new StringBuffer();
+        BooleanQuery lucene = new BooleanQuery();
+        for (Expression expression : expressions) {
+            solr.append(solr.length() == 0 ? "(" : " OR ").append(expression.m_solr);
+            lucene.add(expression.m_lucene, BooleanClause.Occur.SHOULD);
+        }
+        solr.append(')');
+        return new Expression(solr.toString(), lucene);
+    }
+}
@@ -30,6 +30,8 @@ package org.opencms.search;
 import java.util.ArrayList;
 import java.util.Map;
 
+import org.apache.lucene.search.ScoreDoc;
+
 /**
  * A search result object returned as result of a search in
  * <code>{@link org.opencms.search.CmsSearchIndex}</code>.<p>
@@ -47,6 +49,9 @@ public class CmsSearchResultList extends ArrayList<CmsSearchResult> {
     /** The total size of all results found in the last search. */
     private int m_hitCount;
 
+    /** The last hit that has been checked for this result page. */
+    private transient ScoreDoc m_searchAfter;
+
     /**
      * Creates a new result list with a default initial capacity of 100.<p>
      */
@@ -91,6 +96,20 @@ public class CmsSearchResultList extends ArrayList<CmsSearchResult> {
         return m_hitCount;
     }
 
+    /**
+     * Returns the last hit that has been checked for this result page, or <code>null</code>
+     * if there are no more hits.<p>
+     *
+     * Set this as {@link CmsSearchParameters#setSearchAfter(ScoreDoc)} to request the next result page
+     * without collecting all hits of the previous pages again.<p>
+     *
+     * @return the last hit that has been checked for this result page
+     */
+    public ScoreDoc getSearchAfter() {
+
+        return m_searchAfter;
+    }
+
     /**
      * Sets the categories found in the last the search.<p>
      *
@@ -115,4 +134,14 @@ public class CmsSearchResultList extends ArrayList<CmsSearchResult> {
 
         m_hitCount = hitCount;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sets the last hit that has been checked for this result page.<p>
+     *
+     * @param searchAfter the last hit that has been checked for this result page
+     */
+    public void setSearchAfter(ScoreDoc searchAfter) {
+
+        m_searchAfter = searchAfter;
+    }
+}
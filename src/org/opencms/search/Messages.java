@@ -55,6 +55,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_DOCTYPE_NO_CLASS_DEF_0 = "ERR_DOCTYPE_NO_CLASS_DEF_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_GALLERY_INDEX_OPEN_1 = "ERR_GALLERY_INDEX_OPEN_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_GALLERY_INDEX_SEARCH_1 = "ERR_GALLERY_INDEX_SEARCH_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_GALLERY_INDEX_WRITE_1 = "ERR_GALLERY_INDEX_WRITE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_SPELLCHECK_CORE_NOT_AVAILABLE_1 = "ERR_SPELLCHECK_CORE_NOT_AVAILABLE_1";
 
@@ -193,6 +202,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_ADD_SEARCH_INDEX_2 = "INIT_ADD_SEARCH_INDEX_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_GALLERY_INDEX_1 = "INIT_GALLERY_INDEX_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_INDEX_CONFIGURED_2 = "INIT_INDEX_CONFIGURED_2";
 
@@ -268,6 +280,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_GALLERIES_NO_REFERENCE_PATH_PROVIDED_0 = "LOG_GALLERIES_NO_REFERENCE_PATH_PROVIDED_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_GALLERY_INDEX_CLOSE_FAILED_1 = "LOG_GALLERY_INDEX_CLOSE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_GALLERY_INDEX_RESOURCE_FAILED_1 = "LOG_GALLERY_INDEX_RESOURCE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INDEX_ACCESS_FAILED_1 = "LOG_INDEX_ACCESS_FAILED_1";
 
@@ -355,6 +373,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_EXTRACTION_CACHE_AGE_FAILED_2 = "LOG_PARSE_EXTRACTION_CACHE_AGE_FAILED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PARSE_EXTRACTION_CACHE_SIZE_FAILED_2 = "LOG_PARSE_EXTRACTION_CACHE_SIZE_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_MAXCOMMIT_FAILED_2 = "LOG_PARSE_MAXCOMMIT_FAILED_2";
 
@@ -363,9 +384,22 @@ public final class Messages extends A_CmsMessageBundle {
 
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_MAX_INDEX_WAITTIME_FAILED_2 = "LOG_PARSE_MAX_INDEX_WAITTIME_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PARSE_RESULT_CACHE_SIZE_FAILED_2 = "LOG_PARSE_RESULT_CACHE_SIZE_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_TIMEOUT_FAILED_2 = "LOG_PARSE_TIMEOUT_FAILED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PERMISSION_FILTER_FAILED_1 = "LOG_PERMISSION_FILTER_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PERMISSION_FILTER_MODEL_3 = "LOG_PERMISSION_FILTER_MODEL_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PERMISSION_FILTER_TOO_COMPLEX_2 = "LOG_PERMISSION_FILTER_TOO_COMPLEX_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_READ_CATEGORY_FAILED_1 = "LOG_READ_CATEGORY_FAILED_1";
 
@@ -444,6 +478,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WRITING_INDEX_TO_WRITER_1 = "LOG_WRITING_INDEX_TO_WRITER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_GALLERY_INDEX_REBUILD_BEGIN_0 = "RPT_GALLERY_INDEX_REBUILD_BEGIN_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_GALLERY_INDEX_REBUILD_END_2 = "RPT_GALLERY_INDEX_REBUILD_END_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_SEARCH_INDEXING_FAILED_0 = "RPT_SEARCH_INDEXING_FAILED_0";
 
@@ -49,9 +49,11 @@ import org.opencms.xml.containerpage.CmsXmlContainerPageFactory;
 import org.opencms.xml.content.CmsXmlContentFactory;
 import org.opencms.xml.types.I_CmsXmlContentValue;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 
@@ -116,41 +118,52 @@ public class CmsDocumentContainerPage extends A_CmsVfsDocument {
         try {
             CmsFile file = readFile(cms, resource);
             CmsXmlContainerPage containerPage = CmsXmlContainerPageFactory.unmarshal(cms, file);
-            Locale locale = index.getLocaleForResource(cms, resource, null);
-
-            // initialize return values
-            StringBuffer content = new StringBuffer();
-            LinkedHashMap<String, String> items = new LinkedHashMap<String, String>();
+            final Locale locale = index.getLocaleForResource(cms, resource, null);
 
+            // collect the elements whose content must be included for the container page
+            List<CmsResource> elements = new ArrayList<CmsResource>();
             CmsContainerPageBean containerBean = containerPage.getContainerPage(cms);
+            CmsADEConfigData adeConfig = OpenCms.getADEManager().lookupConfiguration(cms, file.getRootPath());
             for (CmsContainerElementBean element : containerBean.getElements()) {
                 // check all elements in this container
 
                 // get the formatter configuration for this element
                 element.initResource(cms);
-                CmsADEConfigData adeConfig = OpenCms.getADEManager().lookupConfiguration(cms, file.getRootPath());
                 CmsFormatterConfiguration formatters = adeConfig.getFormatters(cms, element.getResource());
 
                 if (formatters.isSearchContent(element.getFormatterId())) {
-                    // the content of this element must be included for the container page
-
-                    element.initResource(cms);
-                    CmsFile elementFile = readFile(cms, element.getResource());
-                    A_CmsXmlDocument elementContent = CmsXmlContentFactory.unmarshal(cms, elementFile);
-                    List<String> elementNames = elementContent.getNames(locale);
-                    for (String xpath : elementNames) {
-                        // xpath will have the form "Text[1]" or "Nested[1]/Text[1]"
-                        I_CmsXmlContentValue value = elementContent.getValue(xpath, locale);
-                        if (value.getContentDefinition().getContentHandler().isSearchable(value)) {
-                            // the content value is searchable
-                            String extracted = value.getPlainText(cms);
-                            if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(extracted)) {
-                                items.put(elementFile.getRootPath() + "/" + xpath, extracted);
-                                content.append(extracted);
-                                content.append('\n');
-                            }
-                        }
+                    elements.add(element.getResource());
+                }
+            }
+
+            // elements used on many pages are only extracted once
+            CmsElementExtractionCache elementCache = OpenCms.getSearchManager().getElementExtractionCache();
+            List<I_CmsExtractionResult> elementResults = elementCache.getResults(
+                cms,
+                elements,
+                index.getName(),
+                locale,
+                getCache(),
+                new CmsElementExtractionCache.I_CmsElementExtractor() {
+
+                    public I_CmsExtractionResult extract(CmsObject elementCms, CmsResource element)
+                    throws CmsException {
+
+                        return extractElement(elementCms, element, locale);
                     }
+                });
+
+            // initialize return values
+            StringBuffer content = new StringBuffer();
+            LinkedHashMap<String, String> items = new LinkedHashMap<String, String>();
+            for (I_CmsExtractionResult elementResult : elementResults) {
+                for (Map.Entry<String, String> item : elementResult.getContentItems().entrySet()) {
+                    if (!I_CmsExtractionResult.ITEM_CONTENT.equals(item.getKey())) {
+                        items.put(item.getKey(), item.getValue());
+                    }
+                }
+                if (elementResult.getContent() != null) {
+                    content.append(elementResult.getContent());
                 }
             }
 
@@ -178,4 +191,38 @@ public class CmsDocumentContainerPage extends A_CmsVfsDocument {
 
         return true;
     }
+
+    /**
+     * Extracts the searchable content of a single container page element.<p>
+     *
+     * @param cms the current CmsObject
+     * @param element the element resource
+     * @param locale the locale to extract
+     *
+     * @return the extraction result of the element
+     *
+     * @throws CmsException if something goes wrong
+     */
+    I_CmsExtractionResult extractElement(CmsObject cms, CmsResource element, Locale locale) throws CmsException {
+
+        StringBuffer content = new StringBuffer();
+        LinkedHashMap<String, String> items = new LinkedHashMap<String, String>();
+        CmsFile elementFile = readFile(cms, element);
+        A_CmsXmlDocument elementContent = CmsXmlContentFactory.unmarshal(cms, elementFile);
+        List<String> elementNames = elementContent.getNames(locale);
+        for (String xpath : elementNames) {
+            // xpath will have the form "Text[1]" or "Nested[1]/Text[1]"
+            I_CmsXmlContentValue value = elementContent.getValue(xpath, locale);
+            if (value.getContentDefinition().getContentHandler().isSearchable(value)) {
+                // the content value is searchable
+                String extracted = value.getPlainText(cms);
+                if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(extracted)) {
+                    items.put(elementFile.getRootPath() + "/" + xpath, extracted);
+                    content.append(extracted);
+                    content.append('\n');
+                }
+            }
+        }
+        return new CmsExtractionResult(content.toString(), items);
+    }
 }
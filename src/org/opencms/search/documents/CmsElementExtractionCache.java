@@ -0,0 +1,376 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.search.documents;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsCacheStatistics;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.search.CmsIndexException;
+import org.opencms.search.extractors.I_CmsExtractionResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Caches the extraction results of the elements of container pages.<p>
+ *
+ * An element like a teaser is often used on many container pages. Instead of extracting it again for
+ * each page, the extraction result is cached in memory, keyed by the structure id and the date of last
+ * modification of the element, the locale and the index. If a persistent {@link CmsExtractionResultCache}
+ * is given, the results are also stored there, so they survive a restart.<p>
+ *
+ * Elements not found in the cache are extracted in parallel, each with its own copy of the CmsObject.<p>
+ *
+ * A single instance is shared by all container page document types, see
+ * {@link org.opencms.search.CmsSearchManager#getElementExtractionCache()}. The search manager clears it
+ * after each complete index rebuild and shuts down its executor when OpenCms is shut down.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsElementExtractionCache {
+
+    /**
+     * Extracts the content of a single container page element.<p>
+     */
+    public interface I_CmsElementExtractor {
+
+        /**
+         * Extracts the content of the given element.<p>
+         *
+         * @param cms the CmsObject to use, not shared with other threads
+         * @param element the element resource
+         *
+         * @return the extraction result
+         *
+         * @throws CmsException if the extraction fails
+         */
+        I_CmsExtractionResult extract(CmsObject cms, CmsResource element) throws CmsException;
+    }
+
+    /** The default maximum number of cached element extraction results. */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsElementExtractionCache.class);
+
+    /** The executor for extracting elements in parallel, created on first use. */
+    private ExecutorService m_executor;
+
+    /** The cached extraction results. */
+    private Map<String, I_CmsExtractionResult> m_results;
+
+    /** The statistics of this cache. */
+    private CmsCacheStatistics m_statistics = new CmsCacheStatistics();
+
+    /** The number of threads for extracting elements. */
+    private int m_threads;
+
+    /**
+     * Creates a new element extraction cache.<p>
+     *
+     * @param size the maximum number of cached extraction results
+     * @param threads the number of threads for extracting elements in parallel, 1 to extract them sequentially
+     */
+    public CmsElementExtractionCache(int size, int threads) {
+
+        m_results = CmsMemoryMonitor.createLRUCacheMap(size);
+        m_threads = threads;
+        if (OpenCms.getMemoryMonitor() != null) {
+            String name = getClass().getName();
+            OpenCms.getMemoryMonitor().register(name, m_results);
+            OpenCms.getMemoryMonitor().registerStatistics(name, m_statistics);
+        }
+    }
+
+    /**
+     * Returns the default number of threads for extracting elements.<p>
+     *
+     * @return the default number of threads
+     */
+    public static int getDefaultThreadCount() {
+
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Removes all cached extraction results.<p>
+     */
+    public void clear() {
+
+        m_results.clear();
+        m_statistics.invalidate();
+    }
+
+    /**
+     * Returns the extraction results for the given elements, in the order of the elements.<p>
+     *
+     * Elements used more than once share the same result.<p>
+     *
+     * @param cms the current CmsObject, may be <code>null</code> if the extractor does not need it
+     * @param elements the element resources
+     * @param indexName the name of the index the elements are extracted for
+     * @param locale the locale the elements are extracted for, may be <code>null</code>
+     * @param persistentCache the persistent cache to use in addition, may be <code>null</code>
+     * @param extractor the extractor for elements not found in the cache
+     *
+     * @return the extraction results
+     *
+     * @throws CmsException if extracting an element fails
+     */
+    public List<I_CmsExtractionResult> getResults(
+        CmsObject cms,
+        List<CmsResource> elements,
+        String indexName,
+        Locale locale,
+        CmsExtractionResultCache persistentCache,
+        I_CmsElementExtractor extractor)
+    throws CmsException {
+
+        Map<String, I_CmsExtractionResult> results = new HashMap<String, I_CmsExtractionResult>();
+        Map<String, CmsResource> missing = new LinkedHashMap<String, CmsResource>();
+        List<String> keys = new ArrayList<String>(elements.size());
+        for (CmsResource element : elements) {
+            String key = getKey(element, indexName, locale);
+            keys.add(key);
+            if (results.containsKey(key) || missing.containsKey(key)) {
+                continue;
+            }
+            I_CmsExtractionResult result = m_results.get(key);
+            if ((result == null) && (persistentCache != null)) {
+                result = persistentCache.getCacheObject(getPersistentName(persistentCache, element, indexName, locale));
+                if (result != null) {
+                    m_results.put(key, result);
+                }
+            }
+            if (result != null) {
+                m_statistics.hit();
+                results.put(key, result);
+            } else {
+                m_statistics.miss();
+                missing.put(key, element);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, I_CmsExtractionResult> extracted = extract(cms, missing, extractor);
+            for (Map.Entry<String, I_CmsExtractionResult> entry : extracted.entrySet()) {
+                m_results.put(entry.getKey(), entry.getValue());
+                if (persistentCache != null) {
+                    CmsResource element = missing.get(entry.getKey());
+                    try {
+                        persistentCache.saveCacheObject(
+                            getPersistentName(persistentCache, element, indexName, locale),
+                            entry.getValue());
+                    } catch (IOException e) {
+                        LOG.warn(e.getLocalizedMessage(), e);
+                    }
+                }
+            }
+            results.putAll(extracted);
+        }
+
+        List<I_CmsExtractionResult> result = new ArrayList<I_CmsExtractionResult>(keys.size());
+        for (String key : keys) {
+            result.add(results.get(key));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the statistics of this cache.<p>
+     *
+     * @return the statistics of this cache
+     */
+    public CmsCacheStatistics getStatistics() {
+
+        return m_statistics;
+    }
+
+    /**
+     * Shuts down the executor for extracting elements in parallel.<p>
+     *
+     * The cache can still be used afterwards, a new executor is then created on demand.<p>
+     */
+    public synchronized void shutDown() {
+
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+            m_executor = null;
+        }
+    }
+
+    /**
+     * Returns the executor for extracting elements in parallel.<p>
+     *
+     * @return the executor
+     */
+    private synchronized ExecutorService getExecutor() {
+
+        if (m_executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            m_executor = Executors.newFixedThreadPool(m_threads, new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+
+                    Thread thread = new Thread(
+                        runnable,
+                        "OpenCms container page element extractor " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return m_executor;
+    }
+
+    /**
+     * Extracts the given elements, in parallel if there is more than one.<p>
+     *
+     * @param cms the current CmsObject
+     * @param elements the elements to extract by cache key
+     * @param extractor the extractor
+     *
+     * @return the extraction results by cache key
+     *
+     * @throws CmsException if extracting an element fails
+     */
+    private Map<String, I_CmsExtractionResult> extract(
+        CmsObject cms,
+        Map<String, CmsResource> elements,
+        final I_CmsElementExtractor extractor)
+    throws CmsException {
+
+        Map<String, I_CmsExtractionResult> result = new HashMap<String, I_CmsExtractionResult>();
+        if ((elements.size() == 1) || (m_threads <= 1)) {
+            for (Map.Entry<String, CmsResource> entry : elements.entrySet()) {
+                result.put(entry.getKey(), extractor.extract(cms, entry.getValue()));
+            }
+            return result;
+        }
+
+        Map<String, Future<I_CmsExtractionResult>> futures = new LinkedHashMap<String, Future<I_CmsExtractionResult>>();
+        ExecutorService executor = getExecutor();
+        for (Map.Entry<String, CmsResource> entry : elements.entrySet()) {
+            // the CmsObject is not thread safe, so each task works on its own copy
+            final CmsObject taskCms = cms != null ? OpenCms.initCmsObject(cms) : null;
+            final CmsResource element = entry.getValue();
+            futures.put(entry.getKey(), executor.submit(new Callable<I_CmsExtractionResult>() {
+
+                public I_CmsExtractionResult call() throws Exception {
+
+                    return extractor.extract(taskCms, element);
+                }
+            }));
+        }
+        String key = null;
+        try {
+            Iterator<Map.Entry<String, Future<I_CmsExtractionResult>>> it = futures.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Future<I_CmsExtractionResult>> entry = it.next();
+                key = entry.getKey();
+                result.put(key, entry.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmsIndexException(
+                Messages.get().container(Messages.ERR_TEXT_EXTRACTION_1, elements.get(key).getRootPath()),
+                e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CmsException) {
+                throw (CmsException)e.getCause();
+            }
+            throw new CmsIndexException(
+                Messages.get().container(Messages.ERR_TEXT_EXTRACTION_1, elements.get(key).getRootPath()),
+                e.getCause());
+        } finally {
+            for (Future<I_CmsExtractionResult> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the memory cache key for the given element.<p>
+     *
+     * @param element the element resource
+     * @param indexName the index name
+     * @param locale the locale, may be <code>null</code>
+     *
+     * @return the cache key
+     */
+    private String getKey(CmsResource element, String indexName, Locale locale) {
+
+        StringBuffer result = new StringBuffer(96);
+        result.append(element.getStructureId().toString());
+        result.append('_');
+        result.append(element.getDateLastModified());
+        result.append('_');
+        result.append(locale);
+        result.append('_');
+        result.append(indexName);
+        return result.toString();
+    }
+
+    /**
+     * Returns the name of the given element in the persistent cache.<p>
+     *
+     * @param persistentCache the persistent cache
+     * @param element the element resource
+     * @param indexName the index name
+     * @param locale the locale, may be <code>null</code>
+     *
+     * @return the name in the persistent cache
+     */
+    private String getPersistentName(
+        CmsExtractionResultCache persistentCache,
+        CmsResource element,
+        String indexName,
+        Locale locale) {
+
+        return persistentCache.getCacheName(element, locale, "element_" + indexName.replace(' ', '_'));
+    }
+}
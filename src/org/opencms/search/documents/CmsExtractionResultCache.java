@@ -57,16 +57,26 @@ import org.apache.commons.logging.Log;
  * project will have a new hash code compared to the online project. If the resource is identical in the online and
  * the offline project, the generated hash codes will be the same.<p>
  *
+ * Optionally the results are kept in a {@link CmsExtractionResultStore} instead of single files. The store
+ * writes compressed records to a few large segment files and allows concurrent reads while it is cleaned up.
+ * The cache names are then used as keys in the store.<p>
+ *
  * @since 6.2.0
  */
 public class CmsExtractionResultCache {
 
+    /** The name of the folder for the segment store inside the repository folder. */
+    public static final String STORE_FOLDER = "segments";
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsExtractionResultCache.class);
 
     /** The name of the cache base repository folder in the RFS. */
     private String m_rfsRepository;
 
+    /** The segment store, <code>null</code> if single files are used. */
+    private CmsExtractionResultStore m_store;
+
     /**
      * Creates a new disk cache.<p>
      *
@@ -79,6 +89,36 @@ public class CmsExtractionResultCache {
         m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
     }
 
+    /**
+     * Creates a new disk cache, optionally using a segment store.<p>
+     *
+     * If the segment store can not be opened, single files are used.<p>
+     *
+     * @param basepath the base path for the cache in the RFS
+     * @param foldername the folder name for this cache, to be used a subfolder for the base folder
+     * @param useStore if <code>true</code>, the results are kept in a {@link CmsExtractionResultStore}
+     * @param maxSize the max size of the segment store in bytes, 0 for no limit
+     */
+    public CmsExtractionResultCache(String basepath, String foldername, boolean useStore, long maxSize) {
+
+        this(basepath, foldername);
+        if (useStore) {
+            File directory = new File(m_rfsRepository, STORE_FOLDER);
+            try {
+                m_store = new CmsExtractionResultStore(
+                    directory,
+                    maxSize,
+                    CmsExtractionResultStore.DEFAULT_SEGMENT_SIZE);
+            } catch (IOException e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_EXTRACTION_STORE_OPEN_ERROR_1,
+                        directory.getAbsolutePath()),
+                    e);
+            }
+        }
+    }
+
     /**
      * Removes all expired extraction result cache entries from the RFS cache.<p>
      *
@@ -86,38 +126,28 @@ public class CmsExtractionResultCache {
      *
      * @return the total number of deleted resources
      */
-    public synchronized int cleanCache(float maxAge) {
+    public int cleanCache(float maxAge) {
 
-        // calculate oldest possible date for the cache files
-        long expireDate = System.currentTimeMillis() - (long)(maxAge * 60.0f * 60.0f * 1000.0f);
-        File basedir = new File(m_rfsRepository);
-        // perform the cache cleanup
+        long maxAgeMillis = (long)(maxAge * 60.0f * 60.0f * 1000.0f);
         int count = 0;
-        if (basedir.canRead() && basedir.isDirectory()) {
-            File[] files = basedir.listFiles();
-            if (files != null) {
-                for (int i = 0; i < files.length; i++) {
-                    File f = files[i];
-                    if (f.canWrite()) {
-                        if (f.lastModified() < expireDate) {
-                            try {
-                                f.delete();
-                                count++;
-                            } catch (Exception e) {
-                                if (LOG.isWarnEnabled()) {
-                                    LOG.warn(
-                                        Messages.get().getBundle().key(
-                                            Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
-                                            f.getAbsolutePath()),
-                                        e);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        CmsExtractionResultStore store = m_store;
+        if (store != null) {
+            // the segment store does not block readers while it is cleaned up
+            count += store.clean(maxAgeMillis);
+        }
+        // also remove expired single files, which may be left over from before the store was enabled
+        return count + cleanFiles(maxAgeMillis);
+    }
+
+    /**
+     * Closes the segment store, if used.<p>
+     */
+    public void close() {
+
+        CmsExtractionResultStore store = m_store;
+        if (store != null) {
+            store.close();
         }
-        return count;
     }
 
     /**
@@ -169,6 +199,10 @@ public class CmsExtractionResultCache {
      */
     public CmsExtractionResult getCacheObject(String rfsName) {
 
+        CmsExtractionResultStore store = m_store;
+        if (store != null) {
+            return store.get(getStoreKey(rfsName));
+        }
         try {
             File f = new File(rfsName);
             if (f.exists()) {
@@ -197,6 +231,16 @@ public class CmsExtractionResultCache {
         return m_rfsRepository;
     }
 
+    /**
+     * Returns the segment store.<p>
+     *
+     * @return the segment store, or <code>null</code> if single files are used
+     */
+    public CmsExtractionResultStore getStore() {
+
+        return m_store;
+    }
+
     /**
      * Serializes the given extraction result and saves it in the disk cache.<p>
      *
@@ -209,7 +253,68 @@ public class CmsExtractionResultCache {
 
         byte[] byteContent = content.getBytes();
         if (byteContent != null) {
-            CmsVfsDiskCache.saveFile(rfsName, byteContent);
+            CmsExtractionResultStore store = m_store;
+            if (store != null) {
+                store.put(getStoreKey(rfsName), byteContent);
+            } else {
+                CmsVfsDiskCache.saveFile(rfsName, byteContent);
+            }
+        }
+    }
+
+    /**
+     * Removes all expired single cache files from the RFS.<p>
+     *
+     * @param maxAge the maximum age of the cache files in milliseconds
+     *
+     * @return the total number of deleted files
+     */
+    private synchronized int cleanFiles(long maxAge) {
+
+        // calculate oldest possible date for the cache files
+        long expireDate = System.currentTimeMillis() - maxAge;
+        File basedir = new File(m_rfsRepository);
+        // perform the cache cleanup
+        int count = 0;
+        if (basedir.canRead() && basedir.isDirectory()) {
+            File[] files = basedir.listFiles();
+            if (files != null) {
+                for (int i = 0; i < files.length; i++) {
+                    File f = files[i];
+                    if (f.isFile() && f.canWrite()) {
+                        if (f.lastModified() < expireDate) {
+                            try {
+                                f.delete();
+                                count++;
+                            } catch (Exception e) {
+                                if (LOG.isWarnEnabled()) {
+                                    LOG.warn(
+                                        Messages.get().getBundle().key(
+                                            Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
+                                            f.getAbsolutePath()),
+                                        e);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
         }
+        return count;
+    }
+
+    /**
+     * Returns the key in the segment store for the given cache name.<p>
+     *
+     * The key consists of the resource id, the document type, the locale and the date of the last content change,
+     * so it identifies the extracted content version and is shared by all siblings.<p>
+     *
+     * @param rfsName the cache name
+     *
+     * @return the key in the segment store
+     */
+    private String getStoreKey(String rfsName) {
+
+        return new File(rfsName).getName();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,701 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.documents;
+
+import org.opencms.main.CmsLog;
+import org.opencms.search.extractors.CmsExtractionResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Stores text extraction results compressed in a few large, append-only segment files in the RFS.<p>
+ *
+ * Every record holds the key, the creation date and the deflated serialized extraction result.
+ * An in-memory index maps the keys to the record positions; it is rebuilt by scanning the segments when the store
+ * is opened, so a later record for the same key replaces an earlier one. Reads use positional file access and do not
+ * block each other or the writer.<p>
+ *
+ * Removing an entry only removes it from the index. Segments in which most of the data is no longer referenced are
+ * compacted in the background: the remaining entries are copied to the active segment and the old segment file is
+ * deleted. Since the keys identify a content version, an entry that reappears after a restart because its segment was
+ * not compacted yet is still valid.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsExtractionResultStore {
+
+    /**
+     * The location of a stored entry.<p>
+     */
+    private static class Entry {
+
+        /** The creation date of the entry. */
+        final long m_dateCreated;
+
+        /** The length of the compressed data. */
+        final int m_length;
+
+        /** The position of the compressed data in the segment. */
+        final long m_position;
+
+        /** The id of the segment. */
+        final int m_segment;
+
+        /** The date of the last access to the entry. */
+        volatile long m_dateLastAccess;
+
+        /**
+         * Creates a new entry.<p>
+         *
+         * @param segment the id of the segment
+         * @param position the position of the compressed data in the segment
+         * @param length the length of the compressed data
+         * @param dateCreated the creation date of the entry
+         */
+        Entry(int segment, long position, int length, long dateCreated) {
+
+            m_segment = segment;
+            m_position = position;
+            m_length = length;
+            m_dateCreated = dateCreated;
+            m_dateLastAccess = dateCreated;
+        }
+    }
+
+    /** The default max size of a segment file (64 MB). */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L;
+
+    /** The prefix of the segment file names. */
+    public static final String SEGMENT_PREFIX = "segment_";
+
+    /** The suffix of the segment file names. */
+    public static final String SEGMENT_SUFFIX = ".seg";
+
+    /** Segments with less than this share of referenced data are compacted. */
+    private static final float COMPACTION_THRESHOLD = 0.5f;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsExtractionResultStore.class);
+
+    /** The magic number at the start of every record. */
+    private static final int RECORD_MAGIC = 0x4F435852;
+
+    /** The id of the segment new entries are written to. */
+    private volatile int m_activeSegment;
+
+    /** Indicates if a compaction is running. */
+    private AtomicBoolean m_compacting = new AtomicBoolean();
+
+    /** The directory of the segment files. */
+    private File m_directory;
+
+    /** The index of the stored entries. */
+    private Map<String, Entry> m_entries = new ConcurrentHashMap<String, Entry>();
+
+    /** The max size of the referenced data in bytes, 0 for no limit. */
+    private long m_maxSize;
+
+    /** The max size of a segment file in bytes. */
+    private long m_segmentSize;
+
+    /** The open segment files by id. */
+    private Map<Integer, FileChannel> m_segments = new ConcurrentHashMap<Integer, FileChannel>();
+
+    /**
+     * Opens the store in the given directory, creating the directory if required.<p>
+     *
+     * @param directory the directory of the segment files
+     * @param maxSize the max size of the stored data in bytes, 0 for no limit
+     * @param segmentSize the max size of a segment file in bytes
+     *
+     * @throws IOException if the segment files can not be read
+     */
+    public CmsExtractionResultStore(File directory, long maxSize, long segmentSize)
+    throws IOException {
+
+        m_directory = directory;
+        m_maxSize = maxSize;
+        m_segmentSize = segmentSize;
+        if (!m_directory.exists() && !m_directory.mkdirs()) {
+            throw new IOException(m_directory.getAbsolutePath());
+        }
+        File[] files = m_directory.listFiles();
+        List<Integer> ids = new ArrayList<Integer>();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (file.isFile() && name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        ids.add(
+                            Integer.valueOf(
+                                name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // not a segment file
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (Integer id : ids) {
+            FileChannel channel = openSegment(id.intValue());
+            readSegment(id.intValue(), channel);
+        }
+        m_activeSegment = ids.isEmpty() ? 1 : ids.get(ids.size() - 1).intValue();
+        if (!m_segments.containsKey(Integer.valueOf(m_activeSegment))) {
+            openSegment(m_activeSegment);
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_EXTRACTION_STORE_OPENED_3,
+                    m_directory.getAbsolutePath(),
+                    new Integer(m_entries.size()),
+                    new Integer(m_segments.size())));
+        }
+    }
+
+    /**
+     * Removes all entries that have not been accessed for the given time and, if the store is larger than its max size,
+     * the least recently accessed entries.<p>
+     *
+     * Segments that are mostly unused afterwards are compacted.<p>
+     *
+     * @param maxAge the max age of the entries in milliseconds
+     *
+     * @return the number of removed entries
+     */
+    public int clean(long maxAge) {
+
+        long expireDate = System.currentTimeMillis() - maxAge;
+        int count = 0;
+        for (Map.Entry<String, Entry> mapEntry : m_entries.entrySet()) {
+            if ((mapEntry.getValue().m_dateLastAccess < expireDate)
+                && m_entries.remove(mapEntry.getKey(), mapEntry.getValue())) {
+                count++;
+            }
+        }
+        count += evict();
+        compact();
+        return count;
+    }
+
+    /**
+     * Closes all segment files.<p>
+     */
+    public synchronized void close() {
+
+        for (FileChannel channel : m_segments.values()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        m_segments.clear();
+        m_entries.clear();
+    }
+
+    /**
+     * Compacts all segments in which less than half of the data is still referenced.<p>
+     *
+     * Does nothing if a compaction is already running.<p>
+     */
+    public void compact() {
+
+        if (!m_compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Map<Integer, Long> usedBytes = getUsedBytes();
+            for (Integer id : new ArrayList<Integer>(m_segments.keySet())) {
+                if (id.intValue() == m_activeSegment) {
+                    continue;
+                }
+                FileChannel channel = m_segments.get(id);
+                Long used = usedBytes.get(id);
+                long size = channel != null ? channel.size() : 0;
+                if ((size > 0) && ((used == null) || (used.longValue() < (size * COMPACTION_THRESHOLD)))) {
+                    compactSegment(id.intValue());
+                }
+            }
+        } catch (IOException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_EXTRACTION_STORE_COMPACTION_ERROR_0), e);
+        } finally {
+            m_compacting.set(false);
+        }
+    }
+
+    /**
+     * Returns the extraction result for the given key, or <code>null</code> if it is not stored.<p>
+     *
+     * @param key the key
+     *
+     * @return the extraction result, or <code>null</code>
+     */
+    public CmsExtractionResult get(String key) {
+
+        Entry entry = m_entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            byte[] data = read(entry);
+            entry.m_dateLastAccess = System.currentTimeMillis();
+            return CmsExtractionResult.fromBytes(inflate(data));
+        } catch (IOException e) {
+            // the segment may have been compacted in the meantime, check again
+            Entry current = m_entries.get(key);
+            if ((current != null) && (current != entry)) {
+                return get(key);
+            }
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_EXTRACTION_STORE_READ_ERROR_1, key), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the directory of the segment files.<p>
+     *
+     * @return the directory of the segment files
+     */
+    public File getDirectory() {
+
+        return m_directory;
+    }
+
+    /**
+     * Returns the number of stored entries.<p>
+     *
+     * @return the number of stored entries
+     */
+    public int getSize() {
+
+        return m_entries.size();
+    }
+
+    /**
+     * Stores the given serialized extraction result.<p>
+     *
+     * @param key the key
+     * @param content the serialized extraction result
+     *
+     * @throws IOException if writing the store fails
+     */
+    public void put(String key, byte[] content) throws IOException {
+
+        Entry entry = append(key, deflate(content), System.currentTimeMillis());
+        m_entries.put(key, entry);
+        if (entry.m_segment != m_activeSegment) {
+            // a new segment has just been started, compact the old ones in the background
+            startCompaction();
+        }
+    }
+
+    /**
+     * Removes the entry for the given key.<p>
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+
+        m_entries.remove(key);
+    }
+
+    /**
+     * Appends a record to the active segment.<p>
+     *
+     * @param key the key
+     * @param data the compressed data
+     * @param dateCreated the creation date of the entry
+     *
+     * @return the entry pointing to the written data
+     *
+     * @throws IOException if writing the record fails
+     */
+    private synchronized Entry append(String key, byte[] data, long dateCreated) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + key.length() + 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(RECORD_MAGIC);
+        out.writeUTF(key);
+        out.writeLong(dateCreated);
+        out.writeInt(data.length);
+        int headerLength = out.size();
+        out.write(data);
+        out.flush();
+
+        FileChannel channel = getChannel(m_activeSegment);
+        if (channel == null) {
+            throw new IOException(m_directory.getAbsolutePath());
+        }
+        long position = channel.size();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+        Entry entry = new Entry(m_activeSegment, position + headerLength, data.length, dateCreated);
+        if (pos >= m_segmentSize) {
+            // start a new segment for the next record
+            m_activeSegment++;
+            openSegment(m_activeSegment);
+        }
+        return entry;
+    }
+
+    /**
+     * Copies all entries of the given segment to the active segment and deletes the segment.<p>
+     *
+     * @param id the id of the segment
+     *
+     * @throws IOException if reading or writing the segments fails
+     */
+    private void compactSegment(int id) throws IOException {
+
+        int moved = 0;
+        for (Map.Entry<String, Entry> mapEntry : m_entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            if (entry.m_segment == id) {
+                Entry copy = append(mapEntry.getKey(), read(entry), entry.m_dateCreated);
+                copy.m_dateLastAccess = entry.m_dateLastAccess;
+                if (m_entries.replace(mapEntry.getKey(), entry, copy)) {
+                    moved++;
+                }
+            }
+        }
+        FileChannel channel;
+        synchronized (this) {
+            channel = m_segments.remove(Integer.valueOf(id));
+        }
+        if (channel != null) {
+            long size = channel.size();
+            channel.close();
+            File file = getSegmentFile(id);
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_EXTRACTION_STORE_COMPACTED_3,
+                        file.getName(),
+                        new Integer(moved),
+                        new Long(size)));
+            }
+        }
+    }
+
+    /**
+     * Compresses the given data.<p>
+     *
+     * @param data the data to compress
+     *
+     * @return the compressed data
+     */
+    private byte[] deflate(byte[] data) {
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Removes the least recently accessed entries until the stored data fits into the max size.<p>
+     *
+     * @return the number of removed entries
+     */
+    private int evict() {
+
+        if (m_maxSize <= 0) {
+            return 0;
+        }
+        long size = 0;
+        List<Map.Entry<String, Entry>> entries = new ArrayList<Map.Entry<String, Entry>>(m_entries.entrySet());
+        for (Map.Entry<String, Entry> mapEntry : entries) {
+            size += mapEntry.getValue().m_length;
+        }
+        if (size <= m_maxSize) {
+            return 0;
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<String, Entry>>() {
+
+            public int compare(Map.Entry<String, Entry> o1, Map.Entry<String, Entry> o2) {
+
+                long d1 = o1.getValue().m_dateLastAccess;
+                long d2 = o2.getValue().m_dateLastAccess;
+                return d1 < d2 ? -1 : (d1 == d2 ? 0 : 1);
+            }
+        });
+        int count = 0;
+        for (Map.Entry<String, Entry> mapEntry : entries) {
+            if (size <= m_maxSize) {
+                break;
+            }
+            if (m_entries.remove(mapEntry.getKey(), mapEntry.getValue())) {
+                size -= mapEntry.getValue().m_length;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the channel of the segment with the given id, or <code>null</code> if there is no such segment.<p>
+     *
+     * A channel is closed if a thread using it is interrupted, in this case the segment file is opened again.<p>
+     *
+     * @param id the id of the segment
+     *
+     * @return the channel of the segment
+     *
+     * @throws IOException if the segment file can not be opened again
+     */
+    private FileChannel getChannel(int id) throws IOException {
+
+        FileChannel channel = m_segments.get(Integer.valueOf(id));
+        if ((channel != null) && !channel.isOpen()) {
+            synchronized (this) {
+                channel = m_segments.get(Integer.valueOf(id));
+                if ((channel != null) && !channel.isOpen()) {
+                    channel = openSegment(id);
+                }
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Returns the file of the segment with the given id.<p>
+     *
+     * @param id the id of the segment
+     *
+     * @return the file of the segment
+     */
+    private File getSegmentFile(int id) {
+
+        char[] number = String.valueOf(id).toCharArray();
+        char[] padded = new char[Math.max(6, number.length)];
+        Arrays.fill(padded, '0');
+        System.arraycopy(number, 0, padded, padded.length - number.length, number.length);
+        return new File(m_directory, SEGMENT_PREFIX + new String(padded) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Returns the number of referenced bytes for every segment.<p>
+     *
+     * @return the number of referenced bytes by segment id
+     */
+    private Map<Integer, Long> getUsedBytes() {
+
+        Map<Integer, Long> result = new HashMap<Integer, Long>();
+        for (Entry entry : m_entries.values()) {
+            Integer id = Integer.valueOf(entry.m_segment);
+            Long used = result.get(id);
+            result.put(id, Long.valueOf((used != null ? used.longValue() : 0L) + entry.m_length));
+        }
+        return result;
+    }
+
+    /**
+     * Uncompresses the given data.<p>
+     *
+     * @param data the compressed data
+     *
+     * @return the uncompressed data
+     *
+     * @throws IOException if the data is corrupt
+     */
+    private byte[] inflate(byte[] data) throws IOException {
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if ((count == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException();
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Opens the segment file with the given id.<p>
+     *
+     * @param id the id of the segment
+     *
+     * @return the channel of the segment file
+     *
+     * @throws IOException if the file can not be opened
+     */
+    @SuppressWarnings("resource")
+    private FileChannel openSegment(int id) throws IOException {
+
+        FileChannel channel = new RandomAccessFile(getSegmentFile(id), "rw").getChannel();
+        m_segments.put(Integer.valueOf(id), channel);
+        return channel;
+    }
+
+    /**
+     * Reads the compressed data of the given entry.<p>
+     *
+     * @param entry the entry
+     *
+     * @return the compressed data
+     *
+     * @throws IOException if the segment can not be read
+     */
+    private byte[] read(Entry entry) throws IOException {
+
+        FileChannel channel = getChannel(entry.m_segment);
+        if (channel == null) {
+            throw new EOFException();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.m_length);
+        long pos = entry.m_position;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, pos);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            pos += count;
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Adds the records of the given segment to the index.<p>
+     *
+     * An incomplete record at the end of the segment, e.g. after a crash, is cut off.<p>
+     *
+     * @param id the id of the segment
+     * @param channel the channel of the segment file
+     *
+     * @throws IOException if the segment can not be read
+     */
+    private void readSegment(int id, FileChannel channel) throws IOException {
+
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(8192);
+        while (position < size) {
+            header.clear();
+            channel.read(header, position);
+            DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(header.array(), 0, header.position()));
+            try {
+                if (in.readInt() != RECORD_MAGIC) {
+                    break;
+                }
+                String key = in.readUTF();
+                long dateCreated = in.readLong();
+                int length = in.readInt();
+                int headerLength = header.position() - in.available();
+                long next = position + headerLength + length;
+                if ((length < 0) || (next > size)) {
+                    break;
+                }
+                m_entries.put(key, new Entry(id, position + headerLength, length, dateCreated));
+                position = next;
+            } catch (EOFException e) {
+                break;
+            }
+        }
+        if (position < size) {
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_EXTRACTION_STORE_TRUNCATED_2,
+                    getSegmentFile(id).getName(),
+                    new Long(position)));
+            channel.truncate(position);
+        }
+    }
+
+    /**
+     * Starts a compaction in a background thread.<p>
+     */
+    private void startCompaction() {
+
+        if (m_compacting.get()) {
+            return;
+        }
+        Thread thread = new Thread("OpenCms: Extraction result store compaction") {
+
+            @Override
+            public void run() {
+
+                evict();
+                compact();
+            }
+        };
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+}
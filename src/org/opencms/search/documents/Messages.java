@@ -73,6 +73,24 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_EXTRACT_VALUE_2 = "LOG_EXTRACT_VALUE_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXTRACTION_STORE_COMPACTED_3 = "LOG_EXTRACTION_STORE_COMPACTED_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXTRACTION_STORE_COMPACTION_ERROR_0 = "LOG_EXTRACTION_STORE_COMPACTION_ERROR_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXTRACTION_STORE_OPEN_ERROR_1 = "LOG_EXTRACTION_STORE_OPEN_ERROR_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXTRACTION_STORE_OPENED_3 = "LOG_EXTRACTION_STORE_OPENED_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXTRACTION_STORE_READ_ERROR_1 = "LOG_EXTRACTION_STORE_READ_ERROR_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXTRACTION_STORE_TRUNCATED_2 = "LOG_EXTRACTION_STORE_TRUNCATED_2";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.search.documents.messages";
 
@@ -59,6 +59,9 @@ public class CmsLuceneFieldConfiguration extends CmsSearchFieldConfiguration {
     /** The description for the standard field configuration. */
     public static final String STR_STANDARD_DESCRIPTION = "The standard OpenCms search index field configuration.";
 
+    /** The fields that are also written as sorted doc values, used for sorting and time range checks. */
+    private static Set<String> m_docValuesFields = new HashSet<String>();
+
     /** The fields that will be returned by a regular search (all stored and not lazy fields). */
     private static Set<String> m_returnFields = new HashSet<String>();
 
@@ -73,6 +76,13 @@ public class CmsLuceneFieldConfiguration extends CmsSearchFieldConfiguration {
         m_returnFields.add(CmsSearchField.FIELD_PATH);
         m_returnFields.add(CmsSearchField.FIELD_SUFFIX);
         m_returnFields.add(CmsSearchField.FIELD_TYPE);
+
+        m_docValuesFields.add(CmsSearchField.FIELD_DATE_CONTENT);
+        m_docValuesFields.add(CmsSearchField.FIELD_DATE_CREATED);
+        m_docValuesFields.add(CmsSearchField.FIELD_DATE_EXPIRED);
+        m_docValuesFields.add(CmsSearchField.FIELD_DATE_LASTMODIFIED);
+        m_docValuesFields.add(CmsSearchField.FIELD_DATE_RELEASED);
+        m_docValuesFields.add(CmsSearchField.FIELD_TITLE);
     }
 
     /** Contains all names of the fields that are used in the excerpt. */
@@ -81,6 +91,21 @@ public class CmsLuceneFieldConfiguration extends CmsSearchFieldConfiguration {
     /** The field added flag. */
     private boolean m_fieldAdded;
 
+    /**
+     * Returns if the field with the given name is written as sorted doc values in addition to the indexed field.<p>
+     *
+     * Doc values allow to sort and to check the time ranges of the hits without loading the stored documents,
+     * and without having to uninvert the indexed terms of the field.<p>
+     *
+     * @param fieldName the name of the field to check
+     *
+     * @return <code>true</code> if the field with the given name is written as sorted doc values
+     */
+    public static boolean isDocValuesField(String fieldName) {
+
+        return m_docValuesFields.contains(fieldName);
+    }
+
     /**
      * Creates the default standard search configuration.<p>
      *
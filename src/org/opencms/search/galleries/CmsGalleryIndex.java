@@ -0,0 +1,1137 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.search.galleries;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeXmlContainerPage;
+import org.opencms.file.types.CmsResourceTypeXmlContent;
+import org.opencms.i18n.CmsLocaleManager;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.relations.CmsCategory;
+import org.opencms.relations.CmsCategoryService;
+import org.opencms.report.I_CmsReport;
+import org.opencms.search.CmsSearchException;
+import org.opencms.search.CmsSearchPermissionFilter;
+import org.opencms.search.Messages;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.search.solr.CmsSolrIndex;
+import org.opencms.search.galleries.CmsGallerySearchParameters.CmsGallerySearchTimeRange;
+import org.opencms.security.CmsRole;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+import org.opencms.xml.content.CmsXmlContentFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.BooleanFilter;
+import org.apache.lucene.queries.FilterClause;
+import org.apache.lucene.queries.TermsFilter;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A compact Lucene index of the offline resources, used to answer gallery searches.<p>
+ *
+ * The index does not contain any extracted content. It only stores the attributes of the resources
+ * together with the few properties shown in the gallery dialog (title, description, copyright and image size)
+ * and the content locales, so the search results, including their resources, are created from the index without
+ * reading the VFS. The fields used for sorting and for counting the results per resource type are kept as
+ * doc values.<p>
+ *
+ * Read permissions are applied with the Lucene filter of the {@link CmsSearchPermissionFilter}.
+ * If no such filter is available for the current user, or if the search parameters use features
+ * the index does not support, {@link #search(CmsObject, CmsGallerySearchParameters)} returns <code>null</code>
+ * and the search has to be done with the Solr offline index. This is the case for a full text search,
+ * since the search words have to be matched against the extracted content.<p>
+ *
+ * The index is updated by the search manager with the same resources as the offline indexes, and with the
+ * published resources after each publish job, since publishing changes their state and project. Moved folders
+ * and folders with changed properties update all resources below them, because of the changed paths and
+ * inherited properties. Created or deleted siblings update the other siblings, and a changed user updates all
+ * resources created or last modified by the user.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsGalleryIndex {
+
+    /**
+     * Counts the results per resource type, using the sorted doc values of the type field.<p>
+     */
+    private static class CmsTypeCountCollector extends SimpleCollector {
+
+        /** The counts by resource type name. */
+        private Map<String, Integer> m_counts = new HashMap<String, Integer>();
+
+        /** The counts by type ordinal for the current segment. */
+        private int[] m_segmentCounts;
+
+        /** The type values of the current segment. */
+        private SortedDocValues m_types;
+
+        /**
+         * Creates a new collector.<p>
+         */
+        CmsTypeCountCollector() {
+
+            super();
+        }
+
+        /**
+         * @see org.apache.lucene.search.SimpleCollector#collect(int)
+         */
+        @Override
+        public void collect(int doc) {
+
+            int ord = m_types.getOrd(doc);
+            if (ord >= 0) {
+                m_segmentCounts[ord]++;
+            }
+        }
+
+        /**
+         * @see org.apache.lucene.search.Collector#needsScores()
+         */
+        @Override
+        public boolean needsScores() {
+
+            return false;
+        }
+
+        /**
+         * @see org.apache.lucene.search.SimpleCollector#doSetNextReader(org.apache.lucene.index.LeafReaderContext)
+         */
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+
+            addSegmentCounts();
+            m_types = DocValues.getSorted(context.reader(), CmsSearchField.FIELD_TYPE);
+            m_segmentCounts = new int[m_types.getValueCount()];
+        }
+
+        /**
+         * Returns the counts by resource type name.<p>
+         *
+         * @return the counts by resource type name
+         */
+        Map<String, Integer> getCounts() {
+
+            addSegmentCounts();
+            return new TreeMap<String, Integer>(m_counts);
+        }
+
+        /**
+         * Adds the counts of the current segment to the total counts.<p>
+         */
+        private void addSegmentCounts() {
+
+            if (m_segmentCounts == null) {
+                return;
+            }
+            for (int ord = 0; ord < m_segmentCounts.length; ord++) {
+                if (m_segmentCounts[ord] > 0) {
+                    String type = m_types.lookupOrd(ord).utf8ToString();
+                    Integer count = m_counts.get(type);
+                    m_counts.put(
+                        type,
+                        new Integer(m_segmentCounts[ord] + (count != null ? count.intValue() : 0)));
+                }
+            }
+            m_segmentCounts = null;
+        }
+    }
+
+    /** The field for the copyright property. */
+    public static final String FIELD_COPYRIGHT = "copyright";
+
+    /** The field for the image size property. */
+    public static final String FIELD_DIMENSIONS = "dimensions";
+
+    /** The field for the resource flags. */
+    public static final String FIELD_FLAGS = "flags";
+
+    /** The field for the project the resource was last modified in. */
+    public static final String FIELD_PROJECT = "project";
+
+    /** The field for the resource id. */
+    public static final String FIELD_RESOURCE_ID = "resource_id";
+
+    /** The field for the locales of the resource, as shown in the search result. */
+    public static final String FIELD_RESOURCE_LOCALES = "resource_locales";
+
+    /** The field for the number of siblings. */
+    public static final String FIELD_SIBLINGS = "siblings";
+
+    /** The field for the resource type id. */
+    public static final String FIELD_TYPE_ID = "type_id";
+
+    /** The field for the id of the user who created the resource. */
+    public static final String FIELD_USER_CREATED_ID = "userCreated_id";
+
+    /** The field for the id of the user who last modified the resource. */
+    public static final String FIELD_USER_LAST_MODIFIED_ID = "userLastModified_id";
+
+    /** The name of the folder for the gallery index below the search index directory. */
+    public static final String FOLDER_NAME = "gallery";
+
+    /** The search exclude property values which exclude a resource from the gallery search. */
+    private static final List<String> EXCLUDE_VALUES = Collections.unmodifiableList(
+        Arrays.asList("all", "gallery"));
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsGalleryIndex.class);
+
+    /** The filter for the resources in the index. */
+    private static final CmsResourceFilter RESOURCE_FILTER = CmsResourceFilter.IGNORE_EXPIRATION.addRequireFile();
+
+    /** The analyzer used by the index writer. */
+    private Analyzer m_analyzer;
+
+    /** The index directory. */
+    private Directory m_directory;
+
+    /** The RFS path of the index. */
+    private String m_path;
+
+    /** Indicates if the index contains all resources and can be used for searching. */
+    private volatile boolean m_ready;
+
+    /** The searcher manager. */
+    private SearcherManager m_searcherManager;
+
+    /** The index writer. */
+    private IndexWriter m_writer;
+
+    /**
+     * Creates a new gallery index.<p>
+     *
+     * @param path the RFS path of the index
+     */
+    public CmsGalleryIndex(String path) {
+
+        m_path = path;
+        m_analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+    }
+
+    /**
+     * Closes the index.<p>
+     */
+    public synchronized void close() {
+
+        m_ready = false;
+        try {
+            if (m_searcherManager != null) {
+                m_searcherManager.close();
+            }
+            if (m_writer != null) {
+                m_writer.close();
+            }
+            if (m_directory != null) {
+                m_directory.close();
+            }
+        } catch (IOException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_GALLERY_INDEX_CLOSE_FAILED_1, m_path), e);
+        } finally {
+            m_searcherManager = null;
+            m_writer = null;
+            m_directory = null;
+        }
+    }
+
+    /**
+     * Returns the RFS path of the index.<p>
+     *
+     * @return the RFS path of the index
+     */
+    public String getPath() {
+
+        return m_path;
+    }
+
+    /**
+     * Returns if the index contains all resources and can be used for searching.<p>
+     *
+     * This is not the case before the index has been built for the first time.<p>
+     *
+     * @return <code>true</code> if the index can be used for searching
+     */
+    public boolean isReady() {
+
+        return m_ready;
+    }
+
+    /**
+     * Returns if the gallery index supports all features used by the given search parameters.<p>
+     *
+     * @param params the search parameters
+     *
+     * @return <code>true</code> if the gallery index supports the given search parameters
+     */
+    public boolean isSupported(CmsGallerySearchParameters params) {
+
+        if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(params.getSearchWords())) {
+            // the search words are matched against the extracted content, which is only available in the Solr index
+            return false;
+        }
+        if (params.getSearchLocale() != null) {
+            CmsSolrIndex solrIndex = OpenCms.getSearchManager().getIndexSolr(CmsSolrIndex.DEFAULT_INDEX_NAME_OFFLINE);
+            if ((solrIndex != null) && solrIndex.isLanguageDetection()) {
+                // the content locales detected from the extracted text are only available in the Solr index
+                return false;
+            }
+        }
+        // the container types depend on the formatter configuration, they are only available in the Solr index
+        return (params.getContainerTypes() == null) || params.getContainerTypes().isEmpty();
+    }
+
+    /**
+     * Opens the index, creating it if required.<p>
+     *
+     * If the index did not exist before, it has to be built with {@link #rebuild(CmsObject, I_CmsReport)}
+     * before it can be used for searching.<p>
+     *
+     * @throws CmsSearchException if the index can not be opened
+     */
+    public synchronized void open() throws CmsSearchException {
+
+        try {
+            m_directory = FSDirectory.open(Paths.get(m_path));
+            boolean exists = DirectoryReader.indexExists(m_directory);
+            IndexWriterConfig config = new IndexWriterConfig(m_analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            m_writer = new IndexWriter(m_directory, config);
+            if (!exists) {
+                // make sure a searcher can be opened
+                m_writer.commit();
+            }
+            m_searcherManager = new SearcherManager(m_writer, true, null);
+            m_ready = exists;
+        } catch (IOException e) {
+            close();
+            throw new CmsSearchException(Messages.get().container(Messages.ERR_GALLERY_INDEX_OPEN_1, m_path), e);
+        }
+    }
+
+    /**
+     * Rebuilds the index with all files of the offline project.<p>
+     *
+     * @param cms the OpenCms context, with a offline project and permissions to read all resources
+     * @param report the report to write to, may be <code>null</code>
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public synchronized void rebuild(CmsObject cms, I_CmsReport report) throws CmsException {
+
+        long start = System.currentTimeMillis();
+        if (report != null) {
+            report.println(
+                Messages.get().container(Messages.RPT_GALLERY_INDEX_REBUILD_BEGIN_0),
+                I_CmsReport.FORMAT_HEADLINE);
+        }
+        List<CmsResource> resources = cms.readResources("/", RESOURCE_FILTER, true);
+        int count = 0;
+        try {
+            m_writer.deleteAll();
+            for (CmsResource resource : resources) {
+                if (addResource(cms, resource)) {
+                    count++;
+                }
+            }
+            m_writer.commit();
+            m_searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new CmsSearchException(Messages.get().container(Messages.ERR_GALLERY_INDEX_WRITE_1, m_path), e);
+        }
+        m_ready = true;
+        if (report != null) {
+            report.println(
+                Messages.get().container(
+                    Messages.RPT_GALLERY_INDEX_REBUILD_END_2,
+                    new Integer(count),
+                    new Long(System.currentTimeMillis() - start)),
+                I_CmsReport.FORMAT_OK);
+        }
+    }
+
+    /**
+     * Searches the index.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param params the search parameters
+     *
+     * @return the search result, or <code>null</code> if the search can not be answered by the gallery index
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public CmsGallerySearchResultList search(CmsObject cms, CmsGallerySearchParameters params) throws CmsException {
+
+        if (!m_ready || !isSupported(params) || cms.getRequestContext().getCurrentProject().isOnlineProject()) {
+            return null;
+        }
+        CmsSearchPermissionFilter.Rules permissionRules = null;
+        CmsSearchPermissionFilter permissionFilter = OpenCms.getSearchManager().getPermissionFilter();
+        if (permissionFilter != null) {
+            permissionRules = permissionFilter.getRules(cms);
+        }
+        if ((permissionRules == null) && !OpenCms.getRoleManager().hasRole(cms, CmsRole.VFS_MANAGER)) {
+            // the permissions would have to be checked for every hit
+            return null;
+        }
+
+        BooleanFilter filter = new BooleanFilter();
+        List<Term> terms = new ArrayList<Term>();
+        for (String folder : params.getFoldersToSearchIn(cms)) {
+            terms.add(new Term(CmsSearchField.FIELD_PARENT_FOLDERS, folder));
+        }
+        if (!terms.isEmpty()) {
+            filter.add(new FilterClause(new TermsFilter(terms), BooleanClause.Occur.MUST));
+        }
+        if ((params.getResourceTypes() != null) && !params.getResourceTypes().isEmpty()) {
+            terms = new ArrayList<Term>();
+            for (String type : params.getResourceTypes()) {
+                terms.add(new Term(CmsSearchField.FIELD_TYPE, type));
+            }
+            filter.add(new FilterClause(new TermsFilter(terms), BooleanClause.Occur.MUST));
+        }
+        if (params.getCategories() != null) {
+            for (String category : params.getCategories()) {
+                filter.add(
+                    new FilterClause(
+                        new QueryWrapperFilter(new TermQuery(new Term(CmsSearchField.FIELD_CATEGORY, category))),
+                        BooleanClause.Occur.MUST));
+            }
+        }
+        if (params.getSearchLocale() != null) {
+            filter.add(
+                new FilterClause(
+                    new QueryWrapperFilter(
+                        new TermQuery(
+                            new Term(
+                                CmsSearchField.FIELD_CONTENT_LOCALES,
+                                CmsLocaleManager.getLocale(params.getSearchLocale()).toString()))),
+                    BooleanClause.Occur.MUST));
+        }
+        addDateRangeFilter(filter, CmsSearchField.FIELD_DATE_CREATED, params.getDateCreatedRange());
+        addDateRangeFilter(filter, CmsSearchField.FIELD_DATE_LASTMODIFIED, params.getDateLastModifiedRange());
+        if (!params.isIgnoreSearchExclude()) {
+            terms = new ArrayList<Term>();
+            for (String value : EXCLUDE_VALUES) {
+                terms.add(new Term(CmsSearchField.FIELD_SEARCH_EXCLUDE, value));
+            }
+            filter.add(new FilterClause(new TermsFilter(terms), BooleanClause.Occur.MUST_NOT));
+        }
+        if (permissionRules != null) {
+            filter.add(new FilterClause(permissionRules.getLuceneFilter(), BooleanClause.Occur.MUST));
+        }
+
+        int page = Math.max(1, params.getResultPage());
+        int matchesPerPage = Math.max(1, params.getMatchesPerPage());
+        CmsGallerySearchResultList result = new CmsGallerySearchResultList(matchesPerPage);
+        IndexSearcher searcher = null;
+        try {
+            searcher = m_searcherManager.acquire();
+            Query query = new MatchAllDocsQuery();
+            Sort sort = getSort(params.getSortOrder());
+            boolean isScoreSort = sort.needsScores();
+            TopFieldCollector topCollector = TopFieldCollector.create(
+                sort,
+                page * matchesPerPage,
+                false,
+                isScoreSort,
+                false);
+            CmsTypeCountCollector typeCollector = new CmsTypeCountCollector();
+            searcher.search(
+                query,
+                filter.clauses().isEmpty() ? null : filter,
+                MultiCollector.wrap(topCollector, typeCollector));
+
+            TopDocs hits = topCollector.topDocs((page - 1) * matchesPerPage, matchesPerPage);
+            for (ScoreDoc hit : hits.scoreDocs) {
+                int score = isScoreSort ? (int)(hit.score * 100) : 100;
+                result.add(createResult(searcher.doc(hit.doc), score));
+            }
+            result.setHitCount(topCollector.getTotalHits());
+            result.setTypeCounts(typeCollector.getCounts());
+        } catch (IOException e) {
+            throw new CmsSearchException(Messages.get().container(Messages.ERR_GALLERY_INDEX_SEARCH_1, m_path), e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    m_searcherManager.release(searcher);
+                } catch (IOException e) {
+                    LOG.error(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates the index for the given changed resources.<p>
+     *
+     * @param cms the OpenCms context, with a offline project and permissions to read all resources
+     * @param resources the changed resources
+     */
+    public void update(CmsObject cms, List<CmsPublishedResource> resources) {
+
+        update(cms, resources, Collections.<CmsUUID> emptySet());
+    }
+
+    /**
+     * Updates the index for the given changed resources and folders with changed properties.<p>
+     *
+     * Folders contained in the changed resources only update the resources below them if they have been moved
+     * or deleted. This way the parent folders of e.g. a moved resource do not update their whole subtree.<p>
+     *
+     * @param cms the OpenCms context, with a offline project and permissions to read all resources
+     * @param resources the changed resources
+     * @param changedFolders the structure ids of the folders whose properties may have changed
+     */
+    public synchronized void update(
+        CmsObject cms,
+        List<CmsPublishedResource> resources,
+        Collection<CmsUUID> changedFolders) {
+
+        if ((m_writer == null) || (resources.isEmpty() && changedFolders.isEmpty())) {
+            return;
+        }
+        Set<CmsUUID> updated = new HashSet<CmsUUID>();
+        try {
+            for (CmsPublishedResource published : resources) {
+                if (published.isFolder()) {
+                    if (published.getState().isDeleted()) {
+                        // the folder was deleted or moved, so the paths of all resources below have changed
+                        m_writer.deleteDocuments(
+                            new Term(CmsSearchField.FIELD_PARENT_FOLDERS, published.getRootPath()));
+                    }
+                    CmsResource folder = readResource(cms, published.getStructureId());
+                    if ((folder != null)
+                        && (published.getState().isDeleted()
+                            || published.isMoved()
+                            || !folder.getRootPath().equals(published.getRootPath()))) {
+                        updateFolder(cms, folder, updated);
+                    }
+                } else {
+                    updateResource(cms, published.getStructureId(), updated);
+                    if (published.getState().isNew() || published.getState().isDeleted()) {
+                        // the sibling count of the other siblings has changed
+                        for (CmsUUID siblingId : findDocuments(FIELD_RESOURCE_ID, published.getResourceId())) {
+                            updateResource(cms, siblingId, updated);
+                        }
+                    }
+                }
+            }
+            for (CmsUUID folderId : changedFolders) {
+                // the resources below inherit e.g. the search exclude property from the folder
+                CmsResource folder = readResource(cms, folderId);
+                if ((folder != null) && folder.isFolder()) {
+                    updateFolder(cms, folder, updated);
+                }
+            }
+            m_writer.commit();
+            m_searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.ERR_GALLERY_INDEX_WRITE_1, m_path), e);
+        }
+    }
+
+    /**
+     * Updates the documents of all resources created or last modified by the given user, e.g. after the name
+     * of the user has been changed.<p>
+     *
+     * @param cms the OpenCms context, with a offline project and permissions to read all resources
+     * @param userId the id of the changed user
+     */
+    public synchronized void updateUser(CmsObject cms, CmsUUID userId) {
+
+        if (m_writer == null) {
+            return;
+        }
+        Set<CmsUUID> updated = new HashSet<CmsUUID>();
+        try {
+            for (CmsUUID structureId : findDocuments(FIELD_USER_CREATED_ID, userId)) {
+                updateResource(cms, structureId, updated);
+            }
+            for (CmsUUID structureId : findDocuments(FIELD_USER_LAST_MODIFIED_ID, userId)) {
+                updateResource(cms, structureId, updated);
+            }
+            if (!updated.isEmpty()) {
+                m_writer.commit();
+                m_searcherManager.maybeRefresh();
+            }
+        } catch (IOException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.ERR_GALLERY_INDEX_WRITE_1, m_path), e);
+        }
+    }
+
+    /**
+     * Adds an indexed, stored and sortable date field.<p>
+     *
+     * @param document the document
+     * @param field the field name
+     * @param value the date
+     */
+    private void addDate(Document document, String field, long value) {
+
+        document.add(new LongField(field, value, Field.Store.YES));
+        document.add(new NumericDocValuesField(field, value));
+    }
+
+    /**
+     * Adds a filter for a date range.<p>
+     *
+     * @param filter the filter to extend
+     * @param field the date field
+     * @param range the date range
+     */
+    private void addDateRangeFilter(BooleanFilter filter, String field, CmsGallerySearchTimeRange range) {
+
+        if ((range.getStartTime() == Long.MIN_VALUE) && (range.getEndTime() == Long.MAX_VALUE)) {
+            return;
+        }
+        filter.add(
+            new FilterClause(
+                new QueryWrapperFilter(
+                    NumericRangeQuery.newLongRange(
+                        field,
+                        Long.valueOf(range.getStartTime()),
+                        Long.valueOf(range.getEndTime()),
+                        true,
+                        true)),
+                BooleanClause.Occur.MUST));
+    }
+
+    /**
+     * Adds the content locales used for filtering and the resource locales shown in the search result.<p>
+     *
+     * The locales are determined like in the Solr index, except for the language detection: the locales of
+     * XML contents are the locales of the content, for other resources the locale is taken from the file name
+     * or from the configured locales of the resource.<p>
+     *
+     * @param document the document
+     * @param cms the current OpenCms context
+     * @param resource the resource
+     */
+    private void addLocales(Document document, CmsObject cms, CmsResource resource) {
+
+        Collection<Locale> resourceLocales = Collections.emptyList();
+        Collection<Locale> contentLocales;
+        if (CmsResourceTypeXmlContent.isXmlContent(resource)) {
+            try {
+                resourceLocales = CmsXmlContentFactory.unmarshal(cms, cms.readFile(resource)).getLocales();
+            } catch (CmsException e) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        if (!resourceLocales.isEmpty()) {
+            if (OpenCms.getResourceManager().matchResourceType(
+                CmsResourceTypeXmlContainerPage.GROUP_CONTAINER_TYPE_NAME,
+                resource.getTypeId())
+                || OpenCms.getResourceManager().matchResourceType(
+                    CmsResourceTypeXmlContainerPage.INHERIT_CONTAINER_TYPE_NAME,
+                    resource.getTypeId())) {
+                // groups are locale independent, so they are found for each locale
+                contentLocales = OpenCms.getLocaleManager().getAvailableLocales();
+            } else {
+                contentLocales = resourceLocales;
+            }
+        } else {
+            resourceLocales = OpenCms.getLocaleManager().getDefaultLocales(cms, resource);
+            List<Locale> availableLocales = OpenCms.getLocaleManager().getAvailableLocales(cms, resource);
+            Locale nameLocale = CmsStringUtil.getLocaleForName(resource.getRootPath());
+            contentLocales = availableLocales.contains(nameLocale)
+            ? Collections.singletonList(nameLocale)
+            : availableLocales;
+        }
+        for (Locale locale : contentLocales) {
+            document.add(new StringField(CmsSearchField.FIELD_CONTENT_LOCALES, locale.toString(), Field.Store.NO));
+        }
+        StringBuffer locales = new StringBuffer();
+        for (Locale locale : resourceLocales) {
+            if (locales.length() > 0) {
+                locales.append(' ');
+            }
+            locales.append(locale.toString());
+        }
+        document.add(new StoredField(FIELD_RESOURCE_LOCALES, locales.toString()));
+    }
+
+    /**
+     * Adds a stored and sortable number field.<p>
+     *
+     * @param document the document
+     * @param field the field name
+     * @param value the number
+     */
+    private void addNumber(Document document, String field, int value) {
+
+        document.add(new StoredField(field, value));
+        document.add(new NumericDocValuesField(field, value));
+    }
+
+    /**
+     * Adds a document for the given resource to the index.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param resource the resource to add
+     *
+     * @return <code>true</code> if the resource was added
+     *
+     * @throws IOException if writing the index fails
+     */
+    private boolean addResource(CmsObject cms, CmsResource resource) throws IOException {
+
+        if (resource.isTemporaryFile()) {
+            return false;
+        }
+        Document document;
+        try {
+            document = createDocument(cms, resource);
+        } catch (CmsException e) {
+            LOG.warn(
+                Messages.get().getBundle().key(Messages.LOG_GALLERY_INDEX_RESOURCE_FAILED_1, resource.getRootPath()),
+                e);
+            return false;
+        }
+        m_writer.addDocument(document);
+        return true;
+    }
+
+    /**
+     * Adds an indexed and stored string field.<p>
+     *
+     * @param document the document
+     * @param field the field name
+     * @param value the value
+     * @param sortable if the field is also added as doc values for sorting and counting
+     */
+    private void addString(Document document, String field, String value, boolean sortable) {
+
+        document.add(new StringField(field, value, Field.Store.YES));
+        if (sortable) {
+            document.add(new SortedDocValuesField(field, new BytesRef(value)));
+        }
+    }
+
+    /**
+     * Creates the index document for a resource.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param resource the resource
+     *
+     * @return the index document
+     *
+     * @throws CmsException if reading the properties or categories of the resource fails
+     */
+    private Document createDocument(CmsObject cms, CmsResource resource) throws CmsException {
+
+        Map<String, String> properties = CmsProperty.toMap(cms.readPropertyObjects(resource, false));
+        String title = properties.get(CmsPropertyDefinition.PROPERTY_TITLE);
+        String description = properties.get(CmsPropertyDefinition.PROPERTY_DESCRIPTION);
+        String exclude = cms.readPropertyObject(
+            resource,
+            CmsPropertyDefinition.PROPERTY_SEARCH_EXCLUDE,
+            true).getValue();
+        String rootPath = resource.getRootPath();
+        String typeName = OpenCms.getResourceManager().getResourceType(resource).getTypeName();
+
+        Document document = new Document();
+        addString(document, CmsSearchField.FIELD_ID, resource.getStructureId().toString(), false);
+        addString(document, CmsSearchField.FIELD_PATH, rootPath, true);
+        for (int i = 0; i < rootPath.length(); i++) {
+            if (rootPath.charAt(i) == '/') {
+                document.add(
+                    new StringField(CmsSearchField.FIELD_PARENT_FOLDERS, rootPath.substring(0, i + 1), Field.Store.NO));
+            }
+        }
+        addString(document, CmsSearchField.FIELD_TYPE, typeName, true);
+        for (CmsCategory category : CmsCategoryService.getInstance().readResourceCategories(cms, resource)) {
+            document.add(new StringField(CmsSearchField.FIELD_CATEGORY, category.getPath(), Field.Store.NO));
+        }
+        if (exclude != null) {
+            document.add(
+                new StringField(
+                    CmsSearchField.FIELD_SEARCH_EXCLUDE,
+                    exclude.trim().toLowerCase(Locale.ENGLISH),
+                    Field.Store.NO));
+        }
+
+        if (title != null) {
+            document.add(new StoredField(CmsSearchField.FIELD_TITLE_UNSTORED, title));
+        }
+        if (description != null) {
+            document.add(new StoredField(CmsSearchField.FIELD_DESCRIPTION, description));
+        }
+        addLocales(document, cms, resource);
+        String sortTitle = CmsStringUtil.isEmptyOrWhitespaceOnly(title) ? resource.getName() : title;
+        document.add(
+            new SortedDocValuesField(
+                CmsSearchField.FIELD_SORT_TITLE,
+                new BytesRef(sortTitle.trim().toLowerCase(Locale.ENGLISH))));
+        if (properties.get(CmsPropertyDefinition.PROPERTY_COPYRIGHT) != null) {
+            document.add(new StoredField(FIELD_COPYRIGHT, properties.get(CmsPropertyDefinition.PROPERTY_COPYRIGHT)));
+        }
+        if (properties.get(CmsPropertyDefinition.PROPERTY_IMAGE_SIZE) != null) {
+            document.add(new StoredField(FIELD_DIMENSIONS, properties.get(CmsPropertyDefinition.PROPERTY_IMAGE_SIZE)));
+        }
+
+        addDate(document, CmsSearchField.FIELD_DATE_CREATED, resource.getDateCreated());
+        addDate(document, CmsSearchField.FIELD_DATE_LASTMODIFIED, resource.getDateLastModified());
+        addDate(document, CmsSearchField.FIELD_DATE_RELEASED, resource.getDateReleased());
+        addDate(document, CmsSearchField.FIELD_DATE_EXPIRED, resource.getDateExpired());
+        addNumber(document, CmsSearchField.FIELD_SIZE, resource.getLength());
+        addNumber(document, CmsSearchField.FIELD_STATE, resource.getState().getState());
+        addString(document, CmsSearchField.FIELD_USER_CREATED, getUserName(cms, resource.getUserCreated()), true);
+        addString(
+            document,
+            CmsSearchField.FIELD_USER_LAST_MODIFIED,
+            getUserName(cms, resource.getUserLastModified()),
+            true);
+
+        // the resource and user ids are indexed to find the documents to update for changed siblings and users
+        addString(document, FIELD_RESOURCE_ID, resource.getResourceId().toString(), false);
+        addString(document, FIELD_USER_CREATED_ID, resource.getUserCreated().toString(), false);
+        addString(document, FIELD_USER_LAST_MODIFIED_ID, resource.getUserLastModified().toString(), false);
+
+        // the remaining attributes are only stored to create the resource
+        document.add(new StoredField(FIELD_TYPE_ID, resource.getTypeId()));
+        document.add(new StoredField(FIELD_FLAGS, resource.getFlags()));
+        document.add(new StoredField(FIELD_PROJECT, resource.getProjectLastModified().toString()));
+        document.add(new StoredField(FIELD_SIBLINGS, resource.getSiblingCount()));
+        document.add(new StoredField(CmsSearchField.FIELD_DATE_CONTENT, resource.getDateContent()));
+        document.add(new StoredField(CmsSearchField.FIELD_VERSION, resource.getVersion()));
+        return document;
+    }
+
+    /**
+     * Creates the search result for an index document, without reading the VFS.<p>
+     *
+     * @param document the index document
+     * @param score the score
+     *
+     * @return the search result
+     */
+    private CmsGallerySearchResult createResult(Document document, int score) {
+
+        CmsGallerySearchResult result = new CmsGallerySearchResult();
+        result.m_score = score;
+        result.m_structureId = document.get(CmsSearchField.FIELD_ID);
+        result.m_path = document.get(CmsSearchField.FIELD_PATH);
+        result.m_resourceType = document.get(CmsSearchField.FIELD_TYPE);
+        result.m_title = document.get(CmsSearchField.FIELD_TITLE_UNSTORED);
+        if (result.m_title == null) {
+            result.m_title = CmsResource.getName(result.m_path);
+        }
+        result.m_description = document.get(CmsSearchField.FIELD_DESCRIPTION);
+        if (result.m_description == null) {
+            result.m_description = "";
+        }
+        result.m_copyright = document.get(FIELD_COPYRIGHT);
+        result.m_dimensions = document.get(FIELD_DIMENSIONS);
+        result.m_dateCreated = new Date(getLong(document, CmsSearchField.FIELD_DATE_CREATED));
+        result.m_dateLastModified = new Date(getLong(document, CmsSearchField.FIELD_DATE_LASTMODIFIED));
+        result.m_dateReleased = new Date(getLong(document, CmsSearchField.FIELD_DATE_RELEASED));
+        result.m_dateExpired = new Date(getLong(document, CmsSearchField.FIELD_DATE_EXPIRED));
+        result.m_length = (int)getLong(document, CmsSearchField.FIELD_SIZE);
+        result.m_state = (int)getLong(document, CmsSearchField.FIELD_STATE);
+        result.m_userCreated = document.get(CmsSearchField.FIELD_USER_CREATED);
+        result.m_userLastModified = document.get(CmsSearchField.FIELD_USER_LAST_MODIFIED);
+        result.m_containerTypes = new ArrayList<String>(0);
+        String locales = document.get(FIELD_RESOURCE_LOCALES);
+        result.m_locales = locales != null
+        ? CmsStringUtil.splitAsList(locales, ' ')
+        : new ArrayList<String>(0);
+        result.m_resource = new CmsResource(
+            new CmsUUID(result.m_structureId),
+            new CmsUUID(document.get(FIELD_RESOURCE_ID)),
+            result.m_path,
+            (int)getLong(document, FIELD_TYPE_ID),
+            false,
+            (int)getLong(document, FIELD_FLAGS),
+            new CmsUUID(document.get(FIELD_PROJECT)),
+            CmsResourceState.valueOf(result.m_state),
+            result.m_dateCreated.getTime(),
+            new CmsUUID(document.get(FIELD_USER_CREATED_ID)),
+            result.m_dateLastModified.getTime(),
+            new CmsUUID(document.get(FIELD_USER_LAST_MODIFIED_ID)),
+            result.m_dateReleased.getTime(),
+            result.m_dateExpired.getTime(),
+            (int)getLong(document, FIELD_SIBLINGS),
+            result.m_length,
+            getLong(document, CmsSearchField.FIELD_DATE_CONTENT),
+            (int)getLong(document, CmsSearchField.FIELD_VERSION));
+        return result;
+    }
+
+    /**
+     * Returns the structure ids of all documents with the given id in the given field.<p>
+     *
+     * Only the committed state of the index is searched.<p>
+     *
+     * @param field the field name
+     * @param id the id
+     *
+     * @return the structure ids of the found documents
+     *
+     * @throws IOException if searching the index fails
+     */
+    private List<CmsUUID> findDocuments(String field, CmsUUID id) throws IOException {
+
+        List<CmsUUID> result = new ArrayList<CmsUUID>();
+        IndexSearcher searcher = m_searcherManager.acquire();
+        try {
+            int maxDoc = Math.max(1, searcher.getIndexReader().maxDoc());
+            TopDocs hits = searcher.search(new TermQuery(new Term(field, id.toString())), maxDoc);
+            for (ScoreDoc hit : hits.scoreDocs) {
+                result.add(new CmsUUID(searcher.doc(hit.doc).get(CmsSearchField.FIELD_ID)));
+            }
+        } finally {
+            m_searcherManager.release(searcher);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of a stored number field.<p>
+     *
+     * @param document the document
+     * @param field the field name
+     *
+     * @return the value of the field
+     */
+    private long getLong(Document document, String field) {
+
+        IndexableField value = document.getField(field);
+        return value.numericValue().longValue();
+    }
+
+    /**
+     * Returns the sort for the given sort order.<p>
+     *
+     * @param sortOrder the sort order
+     *
+     * @return the sort
+     */
+    private Sort getSort(CmsGallerySearchParameters.CmsGallerySortParam sortOrder) {
+
+        SortField field;
+        switch (sortOrder) {
+            case dateCreated_asc:
+            case dateCreated_desc:
+                field = new SortField(CmsSearchField.FIELD_DATE_CREATED, SortField.Type.LONG);
+                break;
+            case dateExpired_asc:
+            case dateExpired_desc:
+                field = new SortField(CmsSearchField.FIELD_DATE_EXPIRED, SortField.Type.LONG);
+                break;
+            case dateLastModified_asc:
+            case dateLastModified_desc:
+                field = new SortField(CmsSearchField.FIELD_DATE_LASTMODIFIED, SortField.Type.LONG);
+                break;
+            case dateReleased_asc:
+            case dateReleased_desc:
+                field = new SortField(CmsSearchField.FIELD_DATE_RELEASED, SortField.Type.LONG);
+                break;
+            case length_asc:
+            case length_desc:
+                field = new SortField(CmsSearchField.FIELD_SIZE, SortField.Type.LONG);
+                break;
+            case path_asc:
+            case path_desc:
+                field = new SortField(CmsSearchField.FIELD_PATH, SortField.Type.STRING);
+                break;
+            case score:
+                field = SortField.FIELD_SCORE;
+                break;
+            case state_asc:
+            case state_desc:
+                field = new SortField(CmsSearchField.FIELD_STATE, SortField.Type.LONG);
+                break;
+            case type_asc:
+            case type_desc:
+                field = new SortField(CmsSearchField.FIELD_TYPE, SortField.Type.STRING);
+                break;
+            case userCreated_asc:
+            case userCreated_desc:
+                field = new SortField(CmsSearchField.FIELD_USER_CREATED, SortField.Type.STRING);
+                break;
+            case userLastModified_asc:
+            case userLastModified_desc:
+                field = new SortField(CmsSearchField.FIELD_USER_LAST_MODIFIED, SortField.Type.STRING);
+                break;
+            case title_asc:
+            case title_desc:
+            default:
+                field = new SortField(CmsSearchField.FIELD_SORT_TITLE, SortField.Type.STRING);
+                break;
+        }
+        if (sortOrder.name().endsWith("_desc")) {
+            field = new SortField(field.getField(), field.getType(), true);
+        }
+        // the path makes the order of the result pages stable
+        return new Sort(field, new SortField(CmsSearchField.FIELD_PATH, SortField.Type.STRING));
+    }
+
+    /**
+     * Returns the full name of a user.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param userId the user id
+     *
+     * @return the full name of the user, or the id if the user can not be read
+     */
+    private String getUserName(CmsObject cms, CmsUUID userId) {
+
+        try {
+            return cms.readUser(userId).getFullName();
+        } catch (CmsException e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+            return userId.toString();
+        }
+    }
+
+    /**
+     * Reads a resource that belongs into the index.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param structureId the structure id of the resource
+     *
+     * @return the resource, or <code>null</code> if the resource does not exist (anymore)
+     */
+    private CmsResource readResource(CmsObject cms, CmsUUID structureId) {
+
+        try {
+            return cms.readResource(structureId, CmsResourceFilter.IGNORE_EXPIRATION);
+        } catch (CmsException e) {
+            // the resource has been deleted
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the documents of all resources below a folder.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param folder the folder
+     * @param updated the structure ids of the resources already updated, extended by this method
+     *
+     * @throws IOException if writing the index fails
+     */
+    private void updateFolder(CmsObject cms, CmsResource folder, Set<CmsUUID> updated) throws IOException {
+
+        List<CmsResource> resources;
+        try {
+            resources = cms.readResources(folder.getRootPath(), RESOURCE_FILTER, true);
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return;
+        }
+        for (CmsResource resource : resources) {
+            if (updated.add(resource.getStructureId())) {
+                m_writer.deleteDocuments(new Term(CmsSearchField.FIELD_ID, resource.getStructureId().toString()));
+                addResource(cms, resource);
+            }
+        }
+    }
+
+    /**
+     * Replaces the document of a single resource.<p>
+     *
+     * A moved resource keeps its structure id, so reading it by id returns the new path.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param structureId the structure id of the resource
+     * @param updated the structure ids of the resources already updated, extended by this method
+     *
+     * @throws IOException if writing the index fails
+     */
+    private void updateResource(CmsObject cms, CmsUUID structureId, Set<CmsUUID> updated) throws IOException {
+
+        if (updated.add(structureId)) {
+            m_writer.deleteDocuments(new Term(CmsSearchField.FIELD_ID, structureId.toString()));
+            CmsResource resource = readResource(cms, structureId);
+            if ((resource != null) && resource.isFile()) {
+                addResource(cms, resource);
+            }
+        }
+    }
+}
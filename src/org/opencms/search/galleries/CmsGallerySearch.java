@@ -123,7 +123,13 @@ public class CmsGallerySearch {
         if ((m_cms == null) || (m_index == null)) {
             throw new CmsException(Messages.get().container(Messages.ERR_SEARCH_NOT_INITIALIZED_0));
         }
-        result = m_index.gallerySearch(m_cms, params);
+        CmsGalleryIndex galleryIndex = OpenCms.getSearchManager().getGalleryIndex();
+        if (galleryIndex != null) {
+            result = galleryIndex.search(m_cms, params);
+        }
+        if (result == null) {
+            result = m_index.gallerySearch(m_cms, params);
+        }
 
         if (result.size() > 0) {
 
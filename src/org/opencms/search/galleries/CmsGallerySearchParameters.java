@@ -326,6 +326,22 @@ public class CmsGallerySearchParameters {
         return m_folders;
     }
 
+    /**
+     * Returns the folders to search in, computed from the folders, the galleries and the search scope.<p>
+     *
+     * @param cms the current OpenCms context
+     *
+     * @return the root paths of the folders to search in
+     */
+    public List<String> getFoldersToSearchIn(CmsObject cms) {
+
+        m_foldersToSearchIn = new ArrayList<String>();
+        addFoldersToSearchIn(m_folders);
+        addFoldersToSearchIn(m_galleries);
+        setSearchFolders(cms);
+        return new ArrayList<String>(m_foldersToSearchIn);
+    }
+
     /**
      * Returns the galleries that have been included in the search.<p>
      *
@@ -403,15 +419,7 @@ public class CmsGallerySearchParameters {
         }
 
         // set scope / folders to search in
-        m_foldersToSearchIn = new ArrayList<String>();
-        addFoldersToSearchIn(m_folders);
-        addFoldersToSearchIn(m_galleries);
-        setSearchFolders(cms);
-        query.addFilterQuery(
-            CmsSearchField.FIELD_PARENT_FOLDERS,
-            new ArrayList<String>(m_foldersToSearchIn),
-            false,
-            true);
+        query.addFilterQuery(CmsSearchField.FIELD_PARENT_FOLDERS, getFoldersToSearchIn(cms), false, true);
 
         // TODO: ignoresearchexclude
         if (!m_ignoreSearchExclude) {
@@ -499,6 +507,16 @@ public class CmsGallerySearchParameters {
         return m_scope;
     }
 
+    /**
+     * Returns the locale set for the search, without falling back to the default locale like {@link #getLocale()}.<p>
+     *
+     * @return the locale set for the search, or <code>null</code> if results for all locales are searched
+     */
+    public String getSearchLocale() {
+
+        return m_locale;
+    }
+
     /**
      * Returns the words (terms) that have been used for the full text search.<p>
      *
@@ -70,6 +70,9 @@ public class CmsGallerySearchResult implements Comparable<CmsGallerySearchResult
     /** The supported container types of this search result. */
     protected List<String> m_containerTypes;
 
+    /** The copyright of this search result, only available for results from the gallery index. */
+    protected String m_copyright;
+
     /** The creation date of this search result. */
     protected Date m_dateCreated;
 
@@ -85,6 +88,9 @@ public class CmsGallerySearchResult implements Comparable<CmsGallerySearchResult
     /** The description of this search result. */
     protected String m_description;
 
+    /** The image dimensions of this search result, only available for results from the gallery index. */
+    protected String m_dimensions;
+
     /** The excerpt of this search result. */
     protected String m_excerpt;
 
@@ -97,6 +103,9 @@ public class CmsGallerySearchResult implements Comparable<CmsGallerySearchResult
     /** The resource path of this search result. */
     protected String m_path;
 
+    /** The resource of this search result, only available for results from the gallery index. */
+    protected CmsResource m_resource;
+
     /** The resource type of the search result. */
     protected String m_resourceType;
 
@@ -118,6 +127,14 @@ public class CmsGallerySearchResult implements Comparable<CmsGallerySearchResult
     /** The user who last modified the search result resource. */
     protected String m_userLastModified;
 
+    /**
+     * Creates an empty gallery search result, the fields are set by the {@link CmsGalleryIndex}.<p>
+     */
+    protected CmsGallerySearchResult() {
+
+        // fields are set directly
+    }
+
     /**
      * Creates a fake gallery search result by reading the necessary data from a VFS resource.<p>
      *
@@ -315,6 +332,18 @@ public class CmsGallerySearchResult implements Comparable<CmsGallerySearchResult
         return m_containerTypes;
     }
 
+    /**
+     * Returns the copyright of the resource.<p>
+     *
+     * This is only available for results from the gallery index, otherwise <code>null</code> is returned.<p>
+     *
+     * @return the copyright of the resource
+     */
+    public String getCopyright() {
+
+        return m_copyright;
+    }
+
     /**
      * Returns the date created.<p>
      *
@@ -369,6 +398,18 @@ public class CmsGallerySearchResult implements Comparable<CmsGallerySearchResult
         return m_description;
     }
 
+    /**
+     * Returns the value of the image size property of the resource.<p>
+     *
+     * This is only available for results from the gallery index, otherwise <code>null</code> is returned.<p>
+     *
+     * @return the value of the image size property of the resource
+     */
+    public String getDimensions() {
+
+        return m_dimensions;
+    }
+
     /**
      * Returns the excerpt.<p>
      *
@@ -413,6 +454,19 @@ public class CmsGallerySearchResult implements Comparable<CmsGallerySearchResult
         return m_path;
     }
 
+    /**
+     * Returns the resource of this search result.<p>
+     *
+     * The resource is only available for results from the gallery index, which are created without
+     * reading the VFS, otherwise <code>null</code> is returned.<p>
+     *
+     * @return the resource of this search result
+     */
+    public CmsResource getResource() {
+
+        return m_resource;
+    }
+
     /**
      * Returns the resource type of the search result document.<p>
      *
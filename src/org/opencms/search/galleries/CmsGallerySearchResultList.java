@@ -28,6 +28,7 @@
 package org.opencms.search.galleries;
 
 import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * The search result list for the gallery search index.<p>
@@ -48,6 +49,9 @@ public class CmsGallerySearchResultList extends ArrayList<CmsGallerySearchResult
     /** The current result-page-index. */
     private int m_pageIndex;
 
+    /** The number of results per resource type. */
+    private Map<String, Integer> m_typeCounts;
+
     /**
      * Creates a new result list with a default initial capacity of 100.<p>
      */
@@ -116,6 +120,18 @@ public class CmsGallerySearchResultList extends ArrayList<CmsGallerySearchResult
         return m_pageIndex;
     }
 
+    /**
+     * Returns the number of results for each resource type.<p>
+     *
+     * The counts are only calculated by the gallery index, otherwise <code>null</code> is returned.<p>
+     *
+     * @return the number of results for each resource type, keyed by the resource type name
+     */
+    public Map<String, Integer> getTypeCounts() {
+
+        return m_typeCounts;
+    }
+
     /**
      * Sets the hit count of all results found in the last search.<p>
      *
@@ -129,6 +145,16 @@ public class CmsGallerySearchResultList extends ArrayList<CmsGallerySearchResult
         m_hitCount = hitCount;
     }
 
+    /**
+     * Sets the number of results for each resource type.<p>
+     *
+     * @param typeCounts the number of results for each resource type, keyed by the resource type name
+     */
+    public void setTypeCounts(Map<String, Integer> typeCounts) {
+
+        m_typeCounts = typeCounts;
+    }
+
     /**
      * Calculates the result pages.<p>
      *
@@ -72,6 +72,23 @@ public class CmsSolrConfiguration {
      */
     public static final long SOLR_DEFAULT_COMMIT_MS = 10000;
 
+    /**
+     * The default number of documents sent to Solr in a single update request.<p>
+     *
+     * Can be configured in 'opencms-search.xml'.<p>
+     */
+    public static final int SOLR_DEFAULT_UPDATE_BATCH_SIZE = 100;
+
+    /**
+     * The default max time in ms a document may wait in the update batch before the batch is sent (1 second by default).<p>
+     *
+     * Can be configured in 'opencms-search.xml'.<p>
+     */
+    public static final long SOLR_DEFAULT_UPDATE_MAX_LATENCY_MS = 1000;
+
+    /** The default number of threads used to stream updates to a remote Solr server. */
+    public static final int SOLR_DEFAULT_UPDATE_THREADS = 2;
+
     /** The default name of the Solr home directory. */
     public static final String SOLR_HOME_DEFAULT = "solr" + File.separatorChar;
 
@@ -111,6 +128,15 @@ public class CmsSolrConfiguration {
     /** The file name of the Solr configuration. */
     private String m_solrFileName;
 
+    /** The number of documents sent to Solr in a single update request. */
+    private int m_updateBatchSize = SOLR_DEFAULT_UPDATE_BATCH_SIZE;
+
+    /** Max time (in ms) a document may wait in the update batch before the batch is sent. */
+    private long m_updateMaxLatencyMs = SOLR_DEFAULT_UPDATE_MAX_LATENCY_MS;
+
+    /** The number of threads used to stream updates to a remote Solr server. */
+    private int m_updateThreads = SOLR_DEFAULT_UPDATE_THREADS;
+
     /**
      * Default constructor.<p>
      */
@@ -265,6 +291,49 @@ public class CmsSolrConfiguration {
         return new File(getHome() + DEFAULT_CONFIGSET_FOLDER + CONF_FOLDER + IndexSchema.DEFAULT_SCHEMA_FILE);
     }
 
+    /**
+     * Returns the number of documents sent to Solr in a single update request.<p>
+     *
+     * @return the number of documents sent to Solr in a single update request
+     */
+    public int getUpdateBatchSize() {
+
+        return m_updateBatchSize;
+    }
+
+    /**
+     * Returns the max time (in ms) a document may wait in the update batch before the batch is sent.<p>
+     *
+     * @return the max time (in ms) a document may wait in the update batch
+     */
+    public long getUpdateMaxLatencyMs() {
+
+        return m_updateMaxLatencyMs;
+    }
+
+    /**
+     * Returns the size of the update queue used for a remote Solr server.<p>
+     *
+     * The queue holds two batches per update thread, so the indexer can prepare the next
+     * batches while the previous ones are still being transferred.<p>
+     *
+     * @return the size of the update queue used for a remote Solr server
+     */
+    public int getUpdateQueueSize() {
+
+        return 2 * m_updateThreads * m_updateBatchSize;
+    }
+
+    /**
+     * Returns the number of threads used to stream updates to a remote Solr server.<p>
+     *
+     * @return the number of threads used to stream updates to a remote Solr server
+     */
+    public int getUpdateThreads() {
+
+        return m_updateThreads;
+    }
+
     /**
      * Returns <code>true</code> if the Solr server is embedded, <code>false</code> otherwise.<p>
      *
@@ -324,4 +393,36 @@ public class CmsSolrConfiguration {
 
         m_solrFileName = name;
     }
+
+    /**
+     * Sets the number of documents sent to Solr in a single update request.<p>
+     *
+     * A value of 1 or less disables batching.<p>
+     *
+     * @param size the batch size as String
+     */
+    public void setUpdateBatchSize(String size) {
+
+        m_updateBatchSize = Math.max(1, Integer.parseInt(size.trim()));
+    }
+
+    /**
+     * Sets the max time (in ms) a document may wait in the update batch before the batch is sent.<p>
+     *
+     * @param time the time as long value
+     */
+    public void setUpdateMaxLatencyMs(String time) {
+
+        m_updateMaxLatencyMs = Long.parseLong(time.trim());
+    }
+
+    /**
+     * Sets the number of threads used to stream updates to a remote Solr server.<p>
+     *
+     * @param threads the number of threads as String
+     */
+    public void setUpdateThreads(String threads) {
+
+        m_updateThreads = Math.max(1, Integer.parseInt(threads.trim()));
+    }
 }
\ No newline at end of file
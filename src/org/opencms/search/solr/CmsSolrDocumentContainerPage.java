@@ -35,6 +35,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
 import org.opencms.search.CmsIndexException;
 import org.opencms.search.CmsSearchIndex;
+import org.opencms.search.documents.CmsElementExtractionCache;
 import org.opencms.search.documents.Messages;
 import org.opencms.search.extractors.CmsExtractionResult;
 import org.opencms.search.extractors.I_CmsExtractionResult;
@@ -100,8 +101,8 @@ public class CmsSolrDocumentContainerPage extends CmsSolrDocumentXmlContent {
     public I_CmsExtractionResult extractContent(
         CmsObject cms,
         CmsResource resource,
-        CmsSearchIndex index,
-        Locale forceLocale)
+        final CmsSearchIndex index,
+        final Locale forceLocale)
     throws CmsException {
 
         logContentExtraction(resource, index);
@@ -113,25 +114,40 @@ public class CmsSolrDocumentContainerPage extends CmsSolrDocumentXmlContent {
             List<I_CmsExtractionResult> all = new ArrayList<I_CmsExtractionResult>();
             CmsContainerPageBean containerBean = containerPage.getContainerPage(cms);
             if (containerBean != null) {
+                List<CmsResource> elements = new ArrayList<CmsResource>();
+                CmsADEConfigData adeConfig = OpenCms.getADEManager().lookupConfiguration(cms, file.getRootPath());
                 for (CmsContainerElementBean element : containerBean.getElements()) {
                     // check all elements in this container
                     // get the formatter configuration for this element
                     element.initResource(cms);
-                    CmsADEConfigData adeConfig = OpenCms.getADEManager().lookupConfiguration(cms, file.getRootPath());
                     CmsFormatterConfiguration formatters = adeConfig.getFormatters(cms, element.getResource());
                     if ((formatters != null)
                         && (element.getFormatterId() != null)
                         && formatters.isSearchContent(element.getFormatterId())) {
                         // the content of this element must be included for the container page
-                        element.initResource(cms);
-                        all.add(
-                            CmsSolrDocumentXmlContent.extractXmlContent(
-                                cms,
-                                element.getResource(),
-                                index,
-                                forceLocale));
+                        elements.add(element.getResource());
                     }
                 }
+                // elements used on many pages are only extracted once
+                all.addAll(
+                    OpenCms.getSearchManager().getElementExtractionCache().getResults(
+                        cms,
+                        elements,
+                        index.getName(),
+                        forceLocale,
+                        getCache(),
+                        new CmsElementExtractionCache.I_CmsElementExtractor() {
+
+                            public I_CmsExtractionResult extract(CmsObject elementCms, CmsResource element)
+                            throws CmsException {
+
+                                return CmsSolrDocumentXmlContent.extractXmlContent(
+                                    elementCms,
+                                    element,
+                                    index,
+                                    forceLocale);
+                            }
+                        }));
             }
             // we have to overwrite the resource and content locales with the one from this container page
             // TODO: Is this really the wanted behavior? It seems to be done like this before.
@@ -55,7 +55,6 @@ import org.opencms.search.galleries.CmsGalleryNameMacroResolver;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.xml.A_CmsXmlDocument;
 import org.opencms.xml.CmsXmlContentDefinition;
-import org.opencms.xml.CmsXmlUtils;
 import org.opencms.xml.content.CmsXmlContent;
 import org.opencms.xml.content.CmsXmlContentFactory;
 import org.opencms.xml.content.I_CmsXmlContentHandler;
@@ -75,8 +74,6 @@ import java.util.Set;
 
 import org.apache.commons.logging.Log;
 
-import com.google.common.collect.Sets;
-
 /**
  * Special document text extraction factory for Solr index.<p>
  *
@@ -290,6 +287,8 @@ public class CmsSolrDocumentXmlContent extends A_CmsVfsDocument {
         ? Collections.singletonList(forceLocale)
         : xmlContent.getLocales();
         Locale resourceLocale = index.getLocaleForResource(cms, resource, contentLocales);
+        // the parts that only depend on the content definition are resolved once per definition
+        CmsSolrExtractionPlan plan = CmsSolrExtractionPlan.get(cms, xmlContent.getContentDefinition());
 
         LinkedHashMap<String, String> localeItems = null;
 
@@ -321,8 +320,7 @@ public class CmsSolrDocumentXmlContent extends A_CmsVfsDocument {
                 if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(extracted)) {
                     localeItems.put(xpath, extracted);
                 }
-                if (value.getContentDefinition().getContentHandler().isSearchable(value)
-                    && CmsStringUtil.isNotEmptyOrWhitespaceOnly(extracted)) {
+                if (plan.isSearchable(value) && CmsStringUtil.isNotEmptyOrWhitespaceOnly(extracted)) {
                     // value is search-able and the extraction is not empty, so added to the textual content
                     textContent.append(extracted);
                     textContent.append('\n');
@@ -359,29 +357,13 @@ public class CmsSolrDocumentXmlContent extends A_CmsVfsDocument {
                 }
             }
 
-            Set<String> xpaths = Sets.newHashSet();
-            collectSchemaXpathsForSimpleValues(cms, xmlContent.getContentDefinition(), "", xpaths);
-            for (String xpath : xpaths) {
-                // mappings always are stored with indexes, so we add them to the xpath
-                List<String> mappings = xmlContent.getHandler().getMappings(CmsXmlUtils.createXpath(xpath, 1));
-                for (String mapping : mappings) {
-
-                    if (mapping.equals(MAPPING_GALLERY_NAME)
-                        || mapping.equals(
-                            I_CmsXmlContentHandler.MAPTO_PROPERTY + CmsPropertyDefinition.PROPERTY_TITLE)) {
-                        String defaultValue = xmlContent.getHandler().getDefault(
-                            cms,
-                            xmlContent.getFile(),
-                            null,
-                            xpath,
-                            locale);
-                        if (mapping.equals(MAPPING_GALLERY_NAME)) {
-                            galleryNameChooser.setDefaultGalleryNameValue(defaultValue);
-                        } else {
-                            galleryNameChooser.setDefaultTitleValue(defaultValue);
-                        }
-                    }
-                }
+            for (String xpath : plan.getGalleryNameXpaths()) {
+                galleryNameChooser.setDefaultGalleryNameValue(
+                    xmlContent.getHandler().getDefault(cms, xmlContent.getFile(), null, xpath, locale));
+            }
+            for (String xpath : plan.getTitleXpaths()) {
+                galleryNameChooser.setDefaultTitleValue(
+                    xmlContent.getHandler().getDefault(cms, xmlContent.getFile(), null, xpath, locale));
             }
 
             final String galleryTitleFieldKey = CmsSearchFieldConfiguration.getLocaleExtendedName(
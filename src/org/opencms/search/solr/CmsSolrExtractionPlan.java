@@ -0,0 +1,239 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.solr;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.xml.CmsXmlContentDefinition;
+import org.opencms.xml.CmsXmlUtils;
+import org.opencms.xml.content.I_CmsXmlContentHandler;
+import org.opencms.xml.types.I_CmsXmlContentValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Describes what the Solr indexing extracts from the XML contents of one content definition.<p>
+ *
+ * The search field mappings, search settings and gallery name mappings are the same for all
+ * contents of a content definition, so they are resolved once per content definition instead of
+ * walking the content handler for each indexed document.<p>
+ *
+ * The plans are cached by the identity of the content definition. Since a changed schema or
+ * resource type configuration results in a new content definition instance, the plan of the old
+ * definition is no longer used, and is removed once the old definition has been garbage collected.<p>
+ *
+ * @since 10.5.0
+ */
+public final class CmsSolrExtractionPlan {
+
+    /** The cached plans, weak keys are compared by identity. */
+    private static final Cache<CmsXmlContentDefinition, CmsSolrExtractionPlan> PLANS;
+
+    static {
+        PLANS = CacheBuilder.newBuilder().concurrencyLevel(4).weakKeys().build();
+    }
+
+    /** Indicates if the contents are only indexed as part of container pages. */
+    private final boolean m_containerPageOnly;
+
+    /** The xpaths of the simple values mapped to the gallery name. */
+    private final List<String> m_galleryNameXpaths;
+
+    /** The search settings by xpath without indexes, resolved when first needed. */
+    private final Map<String, Boolean> m_searchable;
+
+    /** The search fields mapped in the content definition. */
+    private final Set<CmsSearchField> m_searchFields;
+
+    /** The search fields mapped in the content definition that are applied to container pages. */
+    private final Set<CmsSearchField> m_searchFieldsForPage;
+
+    /** The xpaths of the simple values mapped to the title property. */
+    private final List<String> m_titleXpaths;
+
+    /**
+     * Creates the plan for a content definition.<p>
+     *
+     * The plan must not keep a reference to the content definition, since it is the weak key of the cache.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param contentDefinition the content definition
+     */
+    private CmsSolrExtractionPlan(CmsObject cms, CmsXmlContentDefinition contentDefinition) {
+
+        I_CmsXmlContentHandler handler = contentDefinition.getContentHandler();
+        m_containerPageOnly = handler.isContainerPageOnly();
+        m_searchFields = Collections.unmodifiableSet(new HashSet<CmsSearchField>(handler.getSearchFields()));
+        m_searchFieldsForPage = Collections.unmodifiableSet(
+            new HashSet<CmsSearchField>(handler.getSearchFieldsForPage()));
+        m_searchable = new ConcurrentHashMap<String, Boolean>();
+
+        List<String> galleryNameXpaths = new ArrayList<String>();
+        List<String> titleXpaths = new ArrayList<String>();
+        Set<String> xpaths = new HashSet<String>();
+        CmsSolrDocumentXmlContent.collectSchemaXpathsForSimpleValues(cms, contentDefinition, "", xpaths);
+        for (String xpath : xpaths) {
+            // mappings always are stored with indexes, so we add them to the xpath
+            for (String mapping : handler.getMappings(CmsXmlUtils.createXpath(xpath, 1))) {
+                if (mapping.equals(CmsSolrDocumentXmlContent.MAPPING_GALLERY_NAME)) {
+                    galleryNameXpaths.add(xpath);
+                } else if (mapping.equals(
+                    I_CmsXmlContentHandler.MAPTO_PROPERTY + CmsPropertyDefinition.PROPERTY_TITLE)) {
+                    titleXpaths.add(xpath);
+                }
+            }
+        }
+        m_galleryNameXpaths = Collections.unmodifiableList(galleryNameXpaths);
+        m_titleXpaths = Collections.unmodifiableList(titleXpaths);
+    }
+
+    /**
+     * Returns the plan for the given content definition.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param contentDefinition the content definition
+     *
+     * @return the plan for the given content definition
+     */
+    public static CmsSolrExtractionPlan get(CmsObject cms, CmsXmlContentDefinition contentDefinition) {
+
+        CmsSolrExtractionPlan plan = PLANS.getIfPresent(contentDefinition);
+        if (plan == null) {
+            // creating a plan twice for the same definition does no harm
+            plan = new CmsSolrExtractionPlan(cms, contentDefinition);
+            PLANS.put(contentDefinition, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the plan for the content definition of the given XML content resource.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param resource the XML content resource
+     *
+     * @return the plan for the content definition of the given resource
+     *
+     * @throws CmsException if the content definition can not be read
+     */
+    public static CmsSolrExtractionPlan get(CmsObject cms, CmsResource resource) throws CmsException {
+
+        return get(cms, CmsXmlContentDefinition.getContentDefinitionForResource(cms, resource));
+    }
+
+    /**
+     * Returns the xpaths without indexes of the simple values mapped to the gallery name.<p>
+     *
+     * @return the xpaths of the simple values mapped to the gallery name
+     */
+    public List<String> getGalleryNameXpaths() {
+
+        return m_galleryNameXpaths;
+    }
+
+    /**
+     * Returns the search fields mapped in the content definition.<p>
+     *
+     * @return the search fields mapped in the content definition
+     *
+     * @see I_CmsXmlContentHandler#getSearchFields()
+     */
+    public Set<CmsSearchField> getSearchFields() {
+
+        return m_searchFields;
+    }
+
+    /**
+     * Returns the search fields mapped in the content definition that are applied to container pages.<p>
+     *
+     * @return the search fields that are applied to container pages
+     *
+     * @see I_CmsXmlContentHandler#getSearchFieldsForPage()
+     */
+    public Set<CmsSearchField> getSearchFieldsForPage() {
+
+        return m_searchFieldsForPage;
+    }
+
+    /**
+     * Returns the xpaths without indexes of the simple values mapped to the title property.<p>
+     *
+     * @return the xpaths of the simple values mapped to the title property
+     */
+    public List<String> getTitleXpaths() {
+
+        return m_titleXpaths;
+    }
+
+    /**
+     * Returns if the contents are only indexed as part of container pages.<p>
+     *
+     * @return <code>true</code> if the contents are only indexed as part of container pages
+     *
+     * @see I_CmsXmlContentHandler#isContainerPageOnly()
+     */
+    public boolean isContainerPageOnly() {
+
+        return m_containerPageOnly;
+    }
+
+    /**
+     * Returns if the given value of a content of this plan's content definition is searchable.<p>
+     *
+     * The search setting only depends on the xpath of the value without indexes, so it is resolved
+     * once for each xpath.<p>
+     *
+     * @param value the content value
+     *
+     * @return <code>true</code> if the value is searchable
+     *
+     * @see I_CmsXmlContentHandler#isSearchable(I_CmsXmlContentValue)
+     */
+    public boolean isSearchable(I_CmsXmlContentValue value) {
+
+        String path = CmsXmlUtils.removeXpath(value.getPath());
+        Boolean searchable = m_searchable.get(path);
+        if (searchable == null) {
+            searchable = Boolean.valueOf(value.getContentDefinition().getContentHandler().isSearchable(value));
+            m_searchable.put(path, searchable);
+        }
+        return searchable.booleanValue();
+    }
+}
@@ -56,12 +56,10 @@ import org.opencms.search.fields.CmsSearchFieldMapping;
 import org.opencms.search.fields.CmsSearchFieldMappingType;
 import org.opencms.search.fields.I_CmsSearchFieldMapping;
 import org.opencms.util.CmsStringUtil;
-import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.containerpage.CmsContainerElementBean;
 import org.opencms.xml.containerpage.CmsContainerPageBean;
 import org.opencms.xml.containerpage.CmsXmlContainerPage;
 import org.opencms.xml.containerpage.CmsXmlContainerPageFactory;
-import org.opencms.xml.content.I_CmsXmlContentHandler;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -199,8 +197,7 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
         //        }
         try {
             if (CmsResourceTypeXmlContent.isXmlContent(resource)) {
-                I_CmsXmlContentHandler handler = CmsXmlContentDefinition.getContentHandlerForResource(cms, resource);
-                if ((handler != null) && handler.isContainerPageOnly()) {
+                if (CmsSolrExtractionPlan.get(cms, resource).isContainerPageOnly()) {
                     if (document.getDocument() instanceof SolrInputDocument) {
                         SolrInputDocument doc = (SolrInputDocument)document.getDocument();
                         doc.removeField(CmsSearchField.FIELD_SEARCH_EXCLUDE);
@@ -651,9 +648,9 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
 
         try {
             if (CmsResourceTypeXmlContent.isXmlContent(resource)) {
-                I_CmsXmlContentHandler handler = CmsXmlContentDefinition.getContentHandlerForResource(cms, resource);
-                if ((handler != null) && !handler.getSearchFields().isEmpty()) {
-                    return handler.getSearchFields();
+                Set<CmsSearchField> searchFields = CmsSolrExtractionPlan.get(cms, resource).getSearchFields();
+                if (!searchFields.isEmpty()) {
+                    return searchFields;
                 }
             }
         } catch (CmsException e) {
@@ -674,9 +671,9 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
 
         try {
             if (CmsResourceTypeXmlContent.isXmlContent(resource)) {
-                I_CmsXmlContentHandler handler = CmsXmlContentDefinition.getContentHandlerForResource(cms, resource);
-                if ((handler != null) && !handler.getSearchFieldsForPage().isEmpty()) {
-                    return handler.getSearchFieldsForPage();
+                Set<CmsSearchField> searchFields = CmsSolrExtractionPlan.get(cms, resource).getSearchFieldsForPage();
+                if (!searchFields.isEmpty()) {
+                    return searchFields;
                 }
             }
         } catch (CmsException e) {
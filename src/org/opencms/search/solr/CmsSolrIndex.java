@@ -51,6 +51,7 @@ import org.opencms.search.CmsSearchIndex;
 import org.opencms.search.CmsSearchIndexSource;
 import org.opencms.search.CmsSearchManager;
 import org.opencms.search.CmsSearchParameters;
+import org.opencms.search.CmsSearchPermissionFilter;
 import org.opencms.search.CmsSearchResource;
 import org.opencms.search.CmsSearchResultList;
 import org.opencms.search.I_CmsIndexWriter;
@@ -72,8 +73,10 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.servlet.ServletResponse;
 
@@ -81,6 +84,7 @@ import org.apache.commons.logging.Log;
 import org.apache.lucene.index.Term;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
@@ -177,6 +181,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** The core name for the index. */
     private String m_coreName;
 
+    /** The search result cache, <code>null</code> if result caching is disabled. */
+    private CmsSolrResultCache m_resultCache;
+
     /**
      * Default constructor.<p>
      */
@@ -240,6 +247,16 @@ public class CmsSolrIndex extends CmsSearchIndex {
         super.addConfigurationParameter(key, value);
     }
 
+    /**
+     * Removes all cached search results of this index.<p>
+     */
+    public void clearResultCache() {
+
+        if (m_resultCache != null) {
+            m_resultCache.clear();
+        }
+    }
+
     /**
      * @see org.opencms.search.CmsSearchIndex#createEmptyDocument(org.opencms.file.CmsResource)
      */
@@ -416,6 +433,16 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return m_postProcessor;
     }
 
+    /**
+     * Returns the search result cache of this index.<p>
+     *
+     * @return the search result cache, or <code>null</code> if result caching is disabled
+     */
+    public CmsSolrResultCache getResultCache() {
+
+        return m_resultCache;
+    }
+
     /**
      * @see org.opencms.search.CmsSearchIndex#initialize()
      */
@@ -430,6 +457,10 @@ public class CmsSolrIndex extends CmsSearchIndex {
             LOG.error(ex.getMessage(), ex);
             setEnabled(false);
         }
+        int resultCacheSize = OpenCms.getSearchManager().getResultCacheSize();
+        if ((m_resultCache == null) && (resultCacheSize > 0)) {
+            m_resultCache = new CmsSolrResultCache(getName(), resultCacheSize);
+        }
     }
 
     /** Returns a flag, indicating if the Solr server is not yet set.
@@ -589,6 +620,36 @@ public class CmsSolrIndex extends CmsSearchIndex {
         // remember the initial query
         SolrQuery initQuery = query.clone();
 
+        // restrict the hits to the resources readable by the current user
+        CmsSearchPermissionFilter.Rules permissionRules = getPermissionFilterRules(cms);
+
+        // results written directly to the response and highlighted results are not cached
+        String cacheKey = null;
+        long cacheGeneration = 0;
+        if ((m_resultCache != null) && (response == null) && !initQuery.getHighlight()) {
+            cacheGeneration = m_resultCache.getGeneration();
+            cacheKey = m_resultCache.getKey(cms, initQuery, ignoreMaxRows, filter);
+            if ((cacheKey != null) && (permissionRules != null)) {
+                // the permission rules decide which of the found documents are visible
+                cacheKey += permissionRules.getKey();
+            }
+            if (cacheKey != null) {
+                CmsSolrResultCache.Entry entry = m_resultCache.get(cacheKey);
+                if (entry != null) {
+                    try {
+                        return getCachedResult(cms, initQuery, entry, filter, startTime);
+                    } catch (Exception e) {
+                        throw new CmsSearchException(
+                            Messages.get().container(
+                                Messages.LOG_SOLR_ERR_SEARCH_EXECUTION_FAILD_1,
+                                CmsEncoder.decode(query.toString()),
+                                e),
+                            e);
+                    }
+                }
+            }
+        }
+
         query.setHighlight(false);
         LocalSolrQueryRequest solrQueryRequest = null;
         try {
@@ -619,10 +680,23 @@ public class CmsSolrIndex extends CmsSearchIndex {
 
             // set the start to '0' and expand the rows before performing the query
             query.setStart(new Integer(0));
-            query.setRows(new Integer((5 * rows * page) + start));
+            if (permissionRules != null) {
+                // unreadable documents are already filtered by Solr, the permission check is only a safety net
+                query.setRows(new Integer(end));
+                query.addFilterQuery(permissionRules.getSolrFilterQuery());
+            } else {
+                query.setRows(new Integer((5 * rows * page) + start));
+            }
 
             // perform the Solr query and remember the original Solr response
-            QueryResponse queryResponse = m_solr.query(query);
+            QueryResponse queryResponse;
+            try {
+                queryResponse = m_solr.query(query);
+            } finally {
+                if (permissionRules != null) {
+                    query.removeFilterQuery(permissionRules.getSolrFilterQuery());
+                }
+            }
             long solrTime = System.currentTimeMillis() - startTime;
 
             // initialize the counts
@@ -845,6 +919,38 @@ public class CmsSolrIndex extends CmsSearchIndex {
                 if (response != null) {
                     writeResp(response, solrQueryRequest, solrQueryResponse);
                 }
+                if (cacheKey != null) {
+                    // only the ids and scores are cached, the documents are read again when the result is served
+                    List<String> pageIds = new ArrayList<String>(resourceDocumentList.size());
+                    float[] pageScores = new float[resourceDocumentList.size()];
+                    for (CmsSearchResource r : resourceDocumentList) {
+                        String id = (String)((CmsSolrDocument)r.getDocument()).getSolrDocument().getFirstValue(
+                            CmsSearchField.FIELD_ID);
+                        if (id == null) {
+                            pageIds = null;
+                            break;
+                        }
+                        pageScores[pageIds.size()] = r.getDocument().getScore();
+                        pageIds.add(id);
+                    }
+                    NamedList<Object> cachedResponse = queryResponse.getResponse().clone();
+                    cachedResponse.setVal(cachedResponse.indexOf(QUERY_RESPONSE_NAME, 0), new SolrDocumentList());
+                    if (pageIds != null) {
+                        m_resultCache.put(
+                            cacheKey,
+                            cacheGeneration,
+                            new CmsSolrResultCache.Entry(
+                                cachedResponse,
+                                pageIds,
+                                pageScores,
+                                start,
+                                rows,
+                                end,
+                                page,
+                                visibleHitCount,
+                                maxScore));
+                    }
+                }
             } finally {
                 if (solrQueryRequest != null) {
                     solrQueryRequest.close();
@@ -1135,6 +1241,18 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return false;
     }
 
+    /**
+     * Notifies the index that its content has been changed by an index writer.<p>
+     *
+     * @param visibleAfterMs the time in ms after which the change is visible to searches, 0 or less if it is visible immediately
+     */
+    void indexChanged(long visibleAfterMs) {
+
+        if (m_resultCache != null) {
+            m_resultCache.indexChanged(visibleAfterMs);
+        }
+    }
+
     /**
      * Checks if the current user is allowed to access non-online indexes.<p>
      *
@@ -1176,6 +1294,135 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return null;
     }
 
+    /**
+     * Creates a search result from a cached result.<p>
+     *
+     * The documents of the cached page are read from Solr by their ids, and their resources are read again with
+     * the current user, so documents the user is not allowed to read are still removed from the result.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param initQuery the initial query
+     * @param entry the cached result
+     * @param filter the resource filter to use, may be <code>null</code>
+     * @param startTime the time the search was started
+     *
+     * @return the search result
+     *
+     * @throws CmsException if something goes wrong
+     * @throws SolrServerException if reading the cached documents from Solr fails
+     * @throws IOException if reading the cached documents from Solr fails
+     */
+    private CmsSolrResultList getCachedResult(
+        CmsObject cms,
+        SolrQuery initQuery,
+        CmsSolrResultCache.Entry entry,
+        CmsResourceFilter filter,
+        long startTime)
+    throws CmsException, SolrServerException, IOException {
+
+        CmsObject searchCms = OpenCms.initCmsObject(cms);
+        if (m_postProcessor != null) {
+            m_postProcessor.init();
+        }
+        List<CmsSearchResource> resourceDocumentList = new ArrayList<CmsSearchResource>();
+        SolrDocumentList solrDocumentList = new SolrDocumentList();
+        long visibleHitCount = entry.getNumFound();
+        for (SolrDocument doc : readCachedDocuments(initQuery, entry)) {
+            CmsSolrDocument searchDoc = new CmsSolrDocument(doc);
+            if (needsPermissionCheck(searchDoc)) {
+                CmsResource resource = filter == null
+                ? getResource(searchCms, searchDoc)
+                : getResource(searchCms, searchDoc, filter);
+                if (resource == null) {
+                    visibleHitCount--;
+                    continue;
+                }
+                SolrDocument resultDoc = doc;
+                if (m_postProcessor != null) {
+                    resultDoc = m_postProcessor.process(
+                        searchCms,
+                        resource,
+                        (SolrInputDocument)searchDoc.getDocument());
+                }
+                resourceDocumentList.add(new CmsSearchResource(resource, searchDoc));
+                if (null != resultDoc) {
+                    solrDocumentList.add(resultDoc);
+                }
+            } else {
+                resourceDocumentList.add(new CmsSearchResource(PSEUDO_RES, searchDoc));
+                solrDocumentList.add(doc);
+            }
+        }
+        solrDocumentList.setStart(entry.getStart());
+        solrDocumentList.setMaxScore(new Float(entry.getMaxScore()));
+        solrDocumentList.setNumFound(visibleHitCount);
+        NamedList<Object> values = entry.getResponse();
+        values.setVal(values.indexOf(QUERY_RESPONSE_NAME, 0), solrDocumentList);
+        QueryResponse queryResponse = new QueryResponse(values, m_solr);
+        return new CmsSolrResultList(
+            initQuery,
+            queryResponse,
+            solrDocumentList,
+            resourceDocumentList,
+            entry.getStart(),
+            new Integer(entry.getRows()),
+            entry.getEnd(),
+            entry.getPage(),
+            visibleHitCount,
+            new Float(entry.getMaxScore()),
+            startTime,
+            System.currentTimeMillis());
+    }
+
+    /**
+     * Reads the documents of a cached result page from Solr, in the order of the cached page.<p>
+     *
+     * @param initQuery the initial query, used for the list of returned fields
+     * @param entry the cached result
+     *
+     * @return the documents of the cached page
+     *
+     * @throws SolrServerException if the Solr query fails
+     * @throws IOException if the Solr query fails
+     */
+    private List<SolrDocument> readCachedDocuments(SolrQuery initQuery, CmsSolrResultCache.Entry entry)
+    throws SolrServerException, IOException {
+
+        List<String> ids = entry.getIds();
+        List<SolrDocument> result = new ArrayList<SolrDocument>(ids.size());
+        if (ids.isEmpty()) {
+            return result;
+        }
+        StringBuffer idQuery = new StringBuffer(CmsSearchField.FIELD_ID).append(":(");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                idQuery.append(" OR ");
+            }
+            idQuery.append('"').append(ids.get(i)).append('"');
+        }
+        idQuery.append(')');
+        SolrQuery query = new SolrQuery(idQuery.toString());
+        String[] fields = initQuery.getParams(CommonParams.FL);
+        if (fields != null) {
+            query.set(CommonParams.FL, fields);
+        }
+        query.setStart(new Integer(0));
+        query.setRows(new Integer(ids.size()));
+        Map<String, SolrDocument> documents = new HashMap<String, SolrDocument>();
+        for (SolrDocument doc : m_solr.query(query).getResults()) {
+            documents.put((String)doc.getFirstValue(CmsSearchField.FIELD_ID), doc);
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            SolrDocument doc = documents.get(ids.get(i));
+            if (doc != null) {
+                // the score of the id query is meaningless, restore the score of the original query
+                doc.setField(CmsSearchField.FIELD_SCORE, new Float(entry.getScore(i)));
+                result.add(doc);
+            }
+        }
+        return result;
+    }
+
     /**
      * Updates the core name to be in sync with the index name.
      */
@@ -36,8 +36,22 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.search.I_CmsIndexWriter;
 import org.opencms.search.I_CmsSearchDocument;
+import org.opencms.search.fields.CmsSearchField;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.solr.client.solrj.SolrClient;
@@ -48,6 +62,18 @@ import org.apache.solr.common.SolrInputDocument;
 /**
  * Implements the index writer for the Solr server used by OpenCms.<p>
  *
+ * Updated documents are collected and sent to Solr in batches. A batch is sent if either the configured
+ * batch size is reached, the oldest document of the batch has waited longer than the configured max latency,
+ * or if an operation is requested that depends on the order of the updates (delete, commit, close).
+ * A partial batch is also sent by a timer once the max latency has passed, so documents never wait
+ * for the next update.<p>
+ *
+ * A remote server is updated with a {@link CmsSolrUpdateClient}, which sends the requests asynchronously and may
+ * reorder them. The writer does not wait for each request: the delete sent before an add spares the ids which
+ * are added, so the two requests give the same result in any order. The writer only waits for the queued
+ * requests if a document is sent again before the previous request for it is known to be processed, and on
+ * commit and close. The errors of the queued requests are checked once per batch and on commit and close.<p>
+ *
  * @since 8.5.0
  */
 public class CmsSolrIndexWriter implements I_CmsIndexWriter {
@@ -55,13 +81,43 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
     /** The log object for this class. */
     protected static final Log LOG = CmsLog.getLog(CmsSolrIndexWriter.class);
 
+    /** The timer used to send partial batches after the max latency has passed. */
+    private static final ScheduledExecutorService FLUSH_TIMER = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "OpenCms: Solr update batch timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
     /** The time to wait before a commit is sent to the Solr index.  */
     private int m_commitMs = new Long(
         OpenCms.getSearchManager().getSolrServerConfiguration().getSolrCommitMs()).intValue();
 
+    /** The number of documents sent to Solr in a single update request. */
+    private int m_batchSize = OpenCms.getSearchManager().getSolrServerConfiguration().getUpdateBatchSize();
+
+    /** The time the first document was added to the current batch. */
+    private long m_batchStart;
+
+    /** The scheduled timed flush of the current batch. */
+    private ScheduledFuture<?> m_flushTask;
+
     /** The Solr index. */
     private CmsSolrIndex m_index;
 
+    /** Max time (in ms) a document may wait in the batch before the batch is sent. */
+    private long m_maxLatencyMs = OpenCms.getSearchManager().getSolrServerConfiguration().getUpdateMaxLatencyMs();
+
+    /** The documents of the current batch, by root path. */
+    private Map<String, SolrInputDocument> m_pending = new LinkedHashMap<String, SolrInputDocument>();
+
+    /** The root paths and ids of the documents sent to a streaming client since it was last waited for. */
+    private Set<String> m_sentKeys = new HashSet<String>();
+
     /** The Solr client. */
     private SolrClient m_server;
 
@@ -101,9 +157,15 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
     /**
      * @see org.opencms.search.I_CmsIndexWriter#close()
      */
-    public void close() {
+    public void close() throws IOException {
 
-        // nothing to do here
+        // the writer may be used again after it has been closed, so only send the pending documents
+        flush();
+        try {
+            waitForUpdates();
+        } catch (SolrServerException e) {
+            throw new IOException(e.getLocalizedMessage(), e);
+        }
     }
 
     /**
@@ -112,15 +174,19 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
     public void commit() throws IOException {
 
         if ((m_server != null) && (m_index != null)) {
+            flush();
             try {
                 LOG.info(
                     Messages.get().getBundle().key(
                         Messages.LOG_SOLR_WRITER_COMMIT_2,
                         m_index.getName(),
                         m_index.getPath()));
+                waitForUpdates();
                 m_server.commit();
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
+            } finally {
+                m_index.indexChanged(0);
             }
         }
     }
@@ -133,15 +199,23 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
     public void deleteAllDocuments() throws IOException {
 
         if ((m_server != null) && (m_index != null)) {
+            synchronized (this) {
+                // pending documents would be deleted anyway
+                m_pending.clear();
+            }
             try {
                 LOG.info(
                     Messages.get().getBundle().key(
                         Messages.LOG_SOLR_WRITER_DELETE_ALL_2,
                         m_index.getName(),
                         m_index.getPath()));
+                // documents which are still queued must not be added after the delete
+                waitForUpdates();
                 m_server.deleteByQuery("*:*", m_commitMs);
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
+            } finally {
+                m_index.indexChanged(m_commitMs);
             }
         }
     }
@@ -152,6 +226,8 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
     public void deleteDocument(CmsPublishedResource resource) throws IOException {
 
         if ((m_server != null) && (m_index != null)) {
+            // the document to delete may still be part of the current batch
+            flush();
             try {
                 LOG.info(
                     Messages.get().getBundle().key(
@@ -159,12 +235,97 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
                         resource.getRootPath(),
                         m_index.getName(),
                         m_index.getPath()));
-                m_server.deleteById(resource.getStructureId().toString(), m_commitMs);
+                String id = resource.getStructureId().toString();
+                // a queued add of the document must not be processed after the delete
+                IOException queueError = waitIfSent(Collections.singletonList(id));
+                m_server.deleteById(id, m_commitMs);
+                if (queueError != null) {
+                    throw queueError;
+                }
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
             } catch (SolrException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
+            } finally {
+                m_index.indexChanged(m_commitMs);
+            }
+        }
+    }
+
+    /**
+     * Sends all documents of the current batch to the Solr server.<p>
+     *
+     * The documents previously indexed for the root paths of the batch are deleted with a single request
+     * and the batch is added with a second one. If a synchronous client can not add the batch as a whole,
+     * the documents are sent one by one, so that a single broken document does not prevent the rest of the
+     * batch from being indexed.<p>
+     *
+     * @throws IOException if one of the documents could not be added
+     */
+    public synchronized void flush() throws IOException {
+
+        if (m_flushTask != null) {
+            m_flushTask.cancel(false);
+            m_flushTask = null;
+        }
+        if (m_pending.isEmpty() || (m_server == null) || (m_index == null)) {
+            return;
+        }
+        Map<String, SolrInputDocument> batch = m_pending;
+        m_pending = new LinkedHashMap<String, SolrInputDocument>();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SOLR_WRITER_BATCH_3,
+                    Integer.valueOf(batch.size()),
+                    m_index.getName(),
+                    m_index.getPath()));
+        }
+        try {
+            List<String> keys = new ArrayList<String>(batch.keySet());
+            for (SolrInputDocument document : batch.values()) {
+                keys.add(getId(document));
+            }
+            // an error of the queued updates must not prevent this batch from being sent
+            IOException queueError = waitIfSent(keys);
+            try {
+                m_server.deleteByQuery(getDeleteQuery(batch), m_commitMs);
+            } catch (Exception e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+            try {
+                m_server.add(new ArrayList<SolrInputDocument>(batch.values()), m_commitMs);
+            } catch (Exception e) {
+                // only a synchronous client reports the error here, so the documents can be retried one by one
+                LOG.warn(e.getLocalizedMessage(), e);
+                List<String> failed = new ArrayList<String>();
+                IOException firstError = null;
+                for (Map.Entry<String, SolrInputDocument> entry : batch.entrySet()) {
+                    try {
+                        m_server.add(entry.getValue(), m_commitMs);
+                    } catch (Exception e1) {
+                        failed.add(entry.getKey());
+                        if (firstError == null) {
+                            firstError = new IOException(e1.getLocalizedMessage(), e1);
+                        }
+                    }
+                }
+                if (firstError != null) {
+                    throw new IOException(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_SOLR_ERR_WRITER_BATCH_FAILED_2,
+                            Integer.valueOf(failed.size()),
+                            failed),
+                        firstError.getCause());
+                }
+            }
+            markSent(keys);
+            if (queueError != null) {
+                throw queueError;
             }
+            checkUpdateErrors();
+        } finally {
+            m_index.indexChanged(m_commitMs);
         }
     }
 
@@ -185,23 +346,205 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
         if ((m_server != null) && (m_index != null)) {
 
             if (document.getDocument() != null) {
-                try {
-                    m_server.deleteByQuery("path:\"" + rootPath + "\"", m_commitMs);
-                } catch (Exception e1) {
-                    LOG.error(e1.getLocalizedMessage(), e1);
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_SOLR_WRITER_DOC_UPDATE_3,
+                        rootPath,
+                        m_index.getName(),
+                        m_index.getPath()));
+                if (m_batchSize <= 1) {
+                    updateDocumentDirectly(rootPath, (SolrInputDocument)document.getDocument());
+                } else {
+                    addToBatch(rootPath, (SolrInputDocument)document.getDocument());
                 }
-                try {
-                    LOG.info(
-                        Messages.get().getBundle().key(
-                            Messages.LOG_SOLR_WRITER_DOC_UPDATE_3,
-                            rootPath,
-                            m_index.getName(),
-                            m_index.getPath()));
-                    m_server.add((SolrInputDocument)document.getDocument(), m_commitMs);
-                } catch (SolrServerException e) {
-                    throw new IOException(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Adds a document to the current batch and sends the batch if it is full or has waited too long.<p>
+     *
+     * @param rootPath the root path of the document
+     * @param document the document
+     *
+     * @throws IOException if sending the batch fails
+     */
+    private synchronized void addToBatch(String rootPath, SolrInputDocument document) throws IOException {
+
+        if (m_pending.isEmpty()) {
+            m_batchStart = System.currentTimeMillis();
+        }
+        // a document updated twice only has to be sent in its latest version
+        m_pending.put(rootPath, document);
+        if ((m_pending.size() >= m_batchSize) || ((System.currentTimeMillis() - m_batchStart) >= m_maxLatencyMs)) {
+            flush();
+        } else if (m_flushTask == null) {
+            m_flushTask = FLUSH_TIMER.schedule(new Runnable() {
+
+                public void run() {
+
+                    flushTimed();
                 }
+            }, m_maxLatencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Throws the errors which occurred while a streaming client sent the queued updates, without waiting.<p>
+     *
+     * @throws IOException if one of the queued updates failed
+     */
+    private void checkUpdateErrors() throws IOException {
+
+        if (m_server instanceof CmsSolrUpdateClient) {
+            try {
+                ((CmsSolrUpdateClient)m_server).checkErrors();
+            } catch (SolrServerException e) {
+                throw new IOException(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Sends the current batch if it has waited longer than the max latency, called by the flush timer.<p>
+     */
+    private synchronized void flushTimed() {
+
+        m_flushTask = null;
+        if (!m_pending.isEmpty() && ((System.currentTimeMillis() - m_batchStart) >= m_maxLatencyMs)) {
+            try {
+                flush();
+            } catch (IOException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the query deleting the documents previously indexed for the root paths of the given documents.<p>
+     *
+     * The ids of the given documents are excluded, since these documents are replaced by the add anyway.
+     * So the result does not depend on whether the delete is processed before or after the add.<p>
+     *
+     * @param documents the documents by root path
+     *
+     * @return the delete query
+     */
+    private String getDeleteQuery(Map<String, SolrInputDocument> documents) {
+
+        StringBuffer query = new StringBuffer("+").append(CmsSearchField.FIELD_PATH).append(":(");
+        boolean first = true;
+        for (String rootPath : documents.keySet()) {
+            if (!first) {
+                query.append(" OR ");
+            }
+            query.append('"').append(rootPath).append('"');
+            first = false;
+        }
+        query.append(") -").append(CmsSearchField.FIELD_ID).append(":(");
+        first = true;
+        for (SolrInputDocument document : documents.values()) {
+            if (!first) {
+                query.append(" OR ");
+            }
+            query.append('"').append(getId(document)).append('"');
+            first = false;
+        }
+        query.append(')');
+        return query.toString();
+    }
+
+    /**
+     * Returns the id of the given document.<p>
+     *
+     * @param document the document
+     *
+     * @return the id
+     */
+    private String getId(SolrInputDocument document) {
+
+        return String.valueOf(document.getFieldValue(CmsSearchField.FIELD_ID));
+    }
+
+    /**
+     * Remembers the root paths and ids of documents sent to a streaming client.<p>
+     *
+     * @param keys the root paths and ids
+     */
+    private synchronized void markSent(Collection<String> keys) {
+
+        if (m_server instanceof CmsSolrUpdateClient) {
+            m_sentKeys.addAll(keys);
+        }
+    }
+
+    /**
+     * Sends a single document to the Solr server without batching.<p>
+     *
+     * @param rootPath the root path of the document
+     * @param document the document
+     *
+     * @throws IOException if the document could not be added
+     */
+    private synchronized void updateDocumentDirectly(String rootPath, SolrInputDocument document)
+    throws IOException {
+
+        Map<String, SolrInputDocument> documents = Collections.singletonMap(rootPath, document);
+        List<String> keys = new ArrayList<String>();
+        keys.add(rootPath);
+        keys.add(getId(document));
+        try {
+            IOException queueError = waitIfSent(keys);
+            try {
+                m_server.deleteByQuery(getDeleteQuery(documents), m_commitMs);
+            } catch (Exception e1) {
+                LOG.error(e1.getLocalizedMessage(), e1);
+            }
+            try {
+                m_server.add(document, m_commitMs);
+            } catch (SolrServerException e) {
+                throw new IOException(e.getLocalizedMessage(), e);
+            }
+            markSent(keys);
+            if (queueError != null) {
+                throw queueError;
+            }
+            checkUpdateErrors();
+        } finally {
+            m_index.indexChanged(m_commitMs);
+        }
+    }
+
+    /**
+     * Waits until a streaming update client has sent the queued updates, so failed updates are reported.<p>
+     *
+     * @throws SolrServerException if one of the queued updates failed
+     */
+    private synchronized void waitForUpdates() throws SolrServerException {
+
+        if (m_server instanceof CmsSolrUpdateClient) {
+            m_sentKeys.clear();
+            ((CmsSolrUpdateClient)m_server).blockUntilSent();
+        }
+    }
+
+    /**
+     * Waits for the queued updates of a streaming client if one of the given root paths or ids was sent
+     * since the client was last waited for, so the requests for a document are processed in order.<p>
+     *
+     * @param keys the root paths and ids
+     *
+     * @return the error if one of the queued updates failed, or <code>null</code>
+     */
+    private synchronized IOException waitIfSent(Collection<String> keys) {
+
+        if (!Collections.disjoint(m_sentKeys, keys)) {
+            try {
+                waitForUpdates();
+            } catch (SolrServerException e) {
+                return new IOException(e.getLocalizedMessage(), e);
             }
         }
+        return null;
     }
 }
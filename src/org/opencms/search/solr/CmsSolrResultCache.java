@@ -0,0 +1,390 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.solr;
+
+import org.opencms.file.CmsGroup;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsCacheStatistics;
+import org.opencms.monitor.CmsMemoryMonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * Caches the post-processed results of Solr searches for a single index.<p>
+ *
+ * The cache key is built from the normalized query parameters, the current project, the current locale,
+ * the current user and the groups of the user, since these determine which of the found documents are visible.
+ * For every cached search only the ids and scores of the documents of the requested page are stored, together
+ * with the Solr response without its document list, e.g. for the facets. The over-fetched documents needed for the
+ * permission check are dropped. When the result is served from the cache, the documents of the page are read
+ * from Solr by their ids and the OpenCms resources are read again, so the permission check on the single
+ * documents stays in place.<p>
+ *
+ * The cache is cleared whenever the index is changed. If changes are sent with a <code>commitWithin</code>
+ * time, no new results are stored until that time has passed, because Solr may still return the old state.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsSolrResultCache {
+
+    /**
+     * A cached search result.<p>
+     */
+    public static class Entry {
+
+        /** The end index of the page. */
+        private int m_end;
+
+        /** The ids of the documents of the requested page. */
+        private List<String> m_ids;
+
+        /** The max score. */
+        private float m_maxScore;
+
+        /** The number of visible hits. */
+        private long m_numFound;
+
+        /** The page number. */
+        private int m_page;
+
+        /** The Solr response without the document list. */
+        private NamedList<Object> m_response;
+
+        /** The number of rows. */
+        private int m_rows;
+
+        /** The scores of the documents of the requested page. */
+        private float[] m_scores;
+
+        /** The start index of the page. */
+        private int m_start;
+
+        /**
+         * Creates a new cache entry.<p>
+         *
+         * @param response the Solr response without the document list
+         * @param ids the ids of the documents of the requested page
+         * @param scores the scores of the documents of the requested page
+         * @param start the start index of the page
+         * @param rows the number of rows
+         * @param end the end index of the page
+         * @param page the page number
+         * @param numFound the number of visible hits
+         * @param maxScore the max score
+         */
+        public Entry(
+            NamedList<Object> response,
+            List<String> ids,
+            float[] scores,
+            int start,
+            int rows,
+            int end,
+            int page,
+            long numFound,
+            float maxScore) {
+
+            m_response = response;
+            m_ids = Collections.unmodifiableList(new ArrayList<String>(ids));
+            m_scores = scores.clone();
+            m_start = start;
+            m_rows = rows;
+            m_end = end;
+            m_page = page;
+            m_numFound = numFound;
+            m_maxScore = maxScore;
+        }
+
+        /**
+         * Returns the end index of the page.<p>
+         *
+         * @return the end index of the page
+         */
+        public int getEnd() {
+
+            return m_end;
+        }
+
+        /**
+         * Returns the ids of the documents of the requested page.<p>
+         *
+         * @return the ids of the documents of the requested page
+         */
+        public List<String> getIds() {
+
+            return m_ids;
+        }
+
+        /**
+         * Returns the max score.<p>
+         *
+         * @return the max score
+         */
+        public float getMaxScore() {
+
+            return m_maxScore;
+        }
+
+        /**
+         * Returns the number of visible hits.<p>
+         *
+         * @return the number of visible hits
+         */
+        public long getNumFound() {
+
+            return m_numFound;
+        }
+
+        /**
+         * Returns the page number.<p>
+         *
+         * @return the page number
+         */
+        public int getPage() {
+
+            return m_page;
+        }
+
+        /**
+         * Returns a copy of the Solr response without the document list.<p>
+         *
+         * @return a copy of the Solr response without the document list
+         */
+        public NamedList<Object> getResponse() {
+
+            return m_response.clone();
+        }
+
+        /**
+         * Returns the number of rows.<p>
+         *
+         * @return the number of rows
+         */
+        public int getRows() {
+
+            return m_rows;
+        }
+
+        /**
+         * Returns the score of the document with the given position in the page.<p>
+         *
+         * @param index the position of the document in the page
+         *
+         * @return the score of the document
+         */
+        public float getScore(int index) {
+
+            return m_scores[index];
+        }
+
+        /**
+         * Returns the start index of the page.<p>
+         *
+         * @return the start index of the page
+         */
+        public int getStart() {
+
+            return m_start;
+        }
+    }
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSolrResultCache.class);
+
+    /** The cached results. */
+    private Map<String, Entry> m_cache;
+
+    /** The generation of the cache, incremented whenever the cache is cleared. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /** The time until which no results are stored, because changes may not yet be visible. */
+    private volatile long m_noCacheUntil;
+
+    /** The cache statistics. */
+    private CmsCacheStatistics m_statistics = new CmsCacheStatistics();
+
+    /**
+     * Creates a new result cache.<p>
+     *
+     * @param indexName the name of the index, used for monitoring
+     * @param size the max number of cached results
+     */
+    public CmsSolrResultCache(String indexName, int size) {
+
+        m_cache = CmsMemoryMonitor.createLRUCacheMap(size);
+        if (OpenCms.getMemoryMonitor() != null) {
+            String name = getClass().getName() + "." + indexName;
+            OpenCms.getMemoryMonitor().register(name, m_cache);
+            OpenCms.getMemoryMonitor().registerStatistics(name, m_statistics);
+        }
+    }
+
+    /**
+     * Removes all cached results.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        m_cache.clear();
+        m_statistics.invalidate();
+    }
+
+    /**
+     * Returns the cached result for the given key, or <code>null</code> if there is none.<p>
+     *
+     * @param key the cache key
+     *
+     * @return the cached result or <code>null</code>
+     */
+    public Entry get(String key) {
+
+        Entry result = m_cache.get(key);
+        if (result != null) {
+            m_statistics.hit();
+        } else {
+            m_statistics.miss();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current generation of the cache.<p>
+     *
+     * A search has to read the generation before it queries the index and pass it to
+     * {@link #put(String, long, Entry)}, so results of searches that overlap with an index change are not stored.<p>
+     *
+     * @return the current generation of the cache
+     */
+    public long getGeneration() {
+
+        return m_generation.get();
+    }
+
+    /**
+     * Returns the cache key for a search, or <code>null</code> if the search can not be cached.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param query the query, including all filter queries added by the index
+     * @param ignoreMaxRows the "ignore max rows" flag of the search
+     * @param filter the resource filter used for the permission check, may be <code>null</code>
+     *
+     * @return the cache key or <code>null</code>
+     */
+    public String getKey(CmsObject cms, SolrQuery query, boolean ignoreMaxRows, CmsResourceFilter filter) {
+
+        StringBuffer key = new StringBuffer(256);
+        key.append(cms.getRequestContext().getCurrentProject().getUuid()).append('|');
+        key.append(cms.getRequestContext().getLocale()).append('|');
+        // permissions may be granted to single users, so results are never shared between users
+        key.append(cms.getRequestContext().getCurrentUser().getId()).append('|');
+        key.append(ignoreMaxRows).append('|');
+        key.append(filter).append('|');
+        try {
+            List<CmsGroup> groups = cms.getGroupsOfUser(cms.getRequestContext().getCurrentUser().getName(), false);
+            List<String> groupIds = new ArrayList<String>(groups.size());
+            for (CmsGroup group : groups) {
+                groupIds.add(group.getId().toString());
+            }
+            Collections.sort(groupIds);
+            key.append(groupIds).append('|');
+        } catch (CmsException e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+            return null;
+        }
+        List<String> names = new ArrayList<String>(query.getParameterNames());
+        Collections.sort(names);
+        for (String name : names) {
+            String[] values = query.getParams(name);
+            if (values == null) {
+                continue;
+            }
+            if ("fq".equals(name)) {
+                // the order of the filter queries does not matter
+                values = values.clone();
+                Arrays.sort(values);
+            }
+            for (String value : values) {
+                key.append(name).append('=').append(value).append('&');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the cache statistics.<p>
+     *
+     * @return the cache statistics
+     */
+    public CmsCacheStatistics getStatistics() {
+
+        return m_statistics;
+    }
+
+    /**
+     * Clears the cache because the index has changed.<p>
+     *
+     * @param visibleAfterMs the time in ms after which the change is visible to searches, 0 or less if it is visible immediately
+     */
+    public void indexChanged(long visibleAfterMs) {
+
+        if (visibleAfterMs > 0) {
+            m_noCacheUntil = Math.max(m_noCacheUntil, System.currentTimeMillis() + visibleAfterMs);
+        }
+        clear();
+    }
+
+    /**
+     * Stores a search result.<p>
+     *
+     * @param key the cache key
+     * @param generation the generation of the cache read before the search was started
+     * @param entry the result to store
+     */
+    public void put(String key, long generation, Entry entry) {
+
+        if ((System.currentTimeMillis() >= m_noCacheUntil) && (generation == m_generation.get())) {
+            m_cache.put(key, entry);
+            if (generation != m_generation.get()) {
+                // the cache was cleared concurrently
+                m_cache.remove(key);
+            }
+        }
+    }
+}
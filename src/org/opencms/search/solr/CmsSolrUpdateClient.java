@@ -0,0 +1,114 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.solr;
+
+import org.opencms.main.CmsLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient;
+
+/**
+ * Streaming update client for a remote Solr server that remembers the errors of the asynchronous requests.<p>
+ *
+ * The plain {@link ConcurrentUpdateSolrClient} only logs errors that occur while the queued updates are sent,
+ * so the caller never learns that documents have been lost. This client collects these errors, so the index writer
+ * can check them with {@link #checkErrors()} without waiting for the queue, or with {@link #blockUntilSent()}
+ * once the queued updates have been processed.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsSolrUpdateClient extends ConcurrentUpdateSolrClient {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSolrUpdateClient.class);
+
+    /** The serial version id. */
+    private static final long serialVersionUID = -4326451735279581347L;
+
+    /** The errors that occurred since they were last checked. */
+    private List<Throwable> m_errors = new ArrayList<Throwable>();
+
+    /**
+     * Creates a new update client.<p>
+     *
+     * @param serverUrl the URL of the Solr server
+     * @param queueSize the number of update requests that are buffered
+     * @param threadCount the number of threads used to send the updates
+     */
+    public CmsSolrUpdateClient(String serverUrl, int queueSize, int threadCount) {
+
+        super(serverUrl, queueSize, threadCount);
+    }
+
+    /**
+     * Waits until all queued updates have been sent and throws the first error that occurred meanwhile.<p>
+     *
+     * @throws SolrServerException if sending one of the queued updates failed
+     */
+    public void blockUntilSent() throws SolrServerException {
+
+        blockUntilFinished();
+        checkErrors();
+    }
+
+    /**
+     * Throws the first error that occurred while sending the queued updates since the errors were last checked.<p>
+     *
+     * In contrast to {@link #blockUntilSent()}, this does not wait for the updates which are still queued.<p>
+     *
+     * @throws SolrServerException if sending one of the queued updates failed
+     */
+    public void checkErrors() throws SolrServerException {
+
+        Throwable error;
+        synchronized (m_errors) {
+            if (m_errors.isEmpty()) {
+                return;
+            }
+            error = m_errors.get(0);
+            m_errors.clear();
+        }
+        throw new SolrServerException(error.getLocalizedMessage(), error);
+    }
+
+    /**
+     * @see org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient#handleError(java.lang.Throwable)
+     */
+    @Override
+    public void handleError(Throwable ex) {
+
+        LOG.error(ex.getLocalizedMessage(), ex);
+        synchronized (m_errors) {
+            m_errors.add(ex);
+        }
+    }
+}
@@ -67,9 +67,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_FIELD_NOT_FOUND_1 = "LOG_SOLR_FIELD_NOT_FOUND_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_ERR_WRITER_BATCH_FAILED_2 = "LOG_SOLR_ERR_WRITER_BATCH_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_SEARCH_EXECUTED_5 = "LOG_SOLR_SEARCH_EXECUTED_5";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_WRITER_BATCH_3 = "LOG_SOLR_WRITER_BATCH_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_WRITER_COMMIT_2 = "LOG_SOLR_WRITER_COMMIT_2";
 
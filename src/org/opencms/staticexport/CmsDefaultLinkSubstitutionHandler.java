@@ -29,6 +29,7 @@ package org.opencms.staticexport;
 
 import org.opencms.ade.detailpage.I_CmsDetailPageFinder;
 import org.opencms.file.CmsObject;
+import org.opencms.file.CmsRequestContext;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.CmsVfsException;
@@ -39,6 +40,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.CmsStaticResourceHandler;
 import org.opencms.main.OpenCms;
+import org.opencms.security.CmsSecurityException;
 import org.opencms.site.CmsSite;
 import org.opencms.site.CmsSiteMatcher;
 import org.opencms.util.CmsFileUtil;
@@ -79,6 +81,9 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
     /** Prefix used for request context attributes to control whether a different site root should be used in appendServerPrefix. */
     public static final String OVERRIDE_SITEROOT_PREFIX = "OVERRIDE_SITEROOT:";
 
+    /** The cache for the generated links, created when first needed. */
+    private volatile CmsLinkSubstitutionCache m_linkCache;
+
     /**
      * Returns the resource root path in the OpenCms VFS for the given link, or <code>null</code> in
      * case the link points to an external site.<p>
@@ -130,6 +135,57 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
             return CmsWorkplace.getStaticResourceUri(link);
         }
 
+        CmsLinkSubstitutionCache cache = getLinkCache();
+        if (cache == null) {
+            return useLink(cms, computeLink(cms, link, siteRoot, targetDetailPage, forceSecure));
+        }
+        String key = getLinkCacheKey(cms, link, siteRoot, targetDetailPage, forceSecure);
+        CmsLinkSubstitutionCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            long generation = cache.getGeneration();
+            entry = computeLink(cms, link, siteRoot, targetDetailPage, forceSecure);
+            cache.put(key, generation, entry);
+        }
+        return useLink(cms, entry);
+    }
+
+    /**
+     * Returns the cache for the generated links.<p>
+     *
+     * The cache is created on first access, after OpenCms has been fully initialized.<p>
+     *
+     * @return the cache for the generated links, or <code>null</code> if OpenCms is not initialized yet
+     */
+    public CmsLinkSubstitutionCache getLinkCache() {
+
+        if ((m_linkCache == null) && (OpenCms.getRunLevel() >= OpenCms.RUNLEVEL_3_SHELL_ACCESS)) {
+            synchronized (this) {
+                if (m_linkCache == null) {
+                    m_linkCache = new CmsLinkSubstitutionCache(CmsLinkSubstitutionCache.DEFAULT_MAX_SIZE);
+                }
+            }
+        }
+        return m_linkCache;
+    }
+
+    /**
+     * Generates the link for the given target, without using the link cache.<p>
+     *
+     * @param cms the current OpenCms user context
+     * @param link the link to process which is assumed to point to a VFS resource, with optional parameters
+     * @param siteRoot the site root of the <code>link</code>
+     * @param targetDetailPage the target detail page, in case of linking to a specific detail page
+     * @param forceSecure forces the secure server prefix if the target is secure
+     *
+     * @return the generated link together with the root paths it depends on
+     */
+    protected CmsLinkSubstitutionCache.Entry computeLink(
+        CmsObject cms,
+        String link,
+        String siteRoot,
+        String targetDetailPage,
+        boolean forceSecure) {
+
         // make sure we have an absolute link
         String absoluteLink = CmsLinkManager.getAbsoluteUri(link, cms.getRequestContext().getUri());
         String overrideSiteRoot = null;
@@ -171,20 +227,23 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
         String targetSiteRoot = targetSite.getSiteRoot();
         String originalVfsName = vfsName;
         String detailPage = null;
+        String detailPageRootPath = null;
         CmsResource detailContent = null;
+        boolean cacheable = true;
+        String rootVfsName;
+        if (!vfsName.startsWith(targetSiteRoot)
+            && !vfsName.startsWith(CmsResource.VFS_FOLDER_SYSTEM + "/")
+            && !OpenCms.getSiteManager().startsWithShared(vfsName)) {
+            rootVfsName = CmsStringUtil.joinPaths(targetSiteRoot, vfsName);
+        } else {
+            rootVfsName = vfsName;
+        }
         try {
-            String rootVfsName;
-            if (!vfsName.startsWith(targetSiteRoot)
-                && !vfsName.startsWith(CmsResource.VFS_FOLDER_SYSTEM + "/")
-                && !OpenCms.getSiteManager().startsWithShared(vfsName)) {
-                rootVfsName = CmsStringUtil.joinPaths(targetSiteRoot, vfsName);
-            } else {
-                rootVfsName = vfsName;
-            }
             if (!rootVfsName.startsWith(CmsWorkplace.VFS_PATH_WORKPLACE)) {
                 // never use the ADE manager for workplace links, to be sure the workplace stays usable in case of configuration errors
                 I_CmsDetailPageFinder finder = OpenCms.getADEManager().getDetailPageFinder();
                 detailPage = finder.getDetailPage(cms, rootVfsName, cms.getRequestContext().getUri(), targetDetailPage);
+                detailPageRootPath = detailPage;
             }
             if (detailPage != null) {
                 CmsSite detailPageSite = OpenCms.getSiteManager().getSiteForRootPath(detailPage);
@@ -210,6 +269,7 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
 
                 } catch (CmsVfsException e) {
                     LOG.error(e.getLocalizedMessage(), e);
+                    cacheable = false;
                 } finally {
                     cms.getRequestContext().setSiteRoot(originalSiteRoot);
 
@@ -219,6 +279,7 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
             LOG.info(e.getLocalizedMessage(), e);
         } catch (CmsException e) {
             LOG.error(e.getLocalizedMessage(), e);
+            cacheable = false;
         }
 
         // if the link points to another site, there needs to be a server prefix
@@ -306,6 +367,10 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
                         linkType = cms.readResource(originalVfsName).getTypeId();
                     } catch (CmsException e) {
                         // the resource could not be read
+                        if (e instanceof CmsSecurityException) {
+                            // other users may be allowed to read it
+                            cacheable = false;
+                        }
                         if (LOG.isInfoEnabled()) {
                             String message = Messages.get().getBundle().key(
                                 Messages.LOG_RESOURCE_ACESS_ERROR_3,
@@ -389,11 +454,16 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
         if ((anchor != null) && (resultLink != null)) {
             resultLink = resultLink.concat(anchor);
         }
-        if (overrideSiteRoot != null) {
-            cms.getRequestContext().setAttribute(OVERRIDE_SITEROOT_PREFIX + resultLink, overrideSiteRoot);
-        }
 
-        return serverPrefix.concat(resultLink);
+        CmsLinkSubstitutionCache.Entry result = new CmsLinkSubstitutionCache.Entry(
+            serverPrefix,
+            resultLink,
+            overrideSiteRoot,
+            rootVfsName,
+            cms.getRequestContext().addSiteRoot(cms.getRequestContext().getUri()),
+            detailPageRootPath);
+        result.setCacheable(cacheable);
+        return result;
     }
 
     /**
@@ -447,6 +517,46 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
         return cms.getRequestContext().getSiteRoot() + ":" + targetSiteRoot + ":" + detailPagePart + absoluteLink;
     }
 
+    /**
+     * Returns the key used to store a generated link in the link cache.<p>
+     *
+     * The key contains everything from the request context the generated link depends on.
+     * The target part of the key is created with {@link #generateCacheKey(CmsObject, String, String, String)},
+     * so subclasses which add information to that key also extend this one.<p>
+     *
+     * @param cms the current OpenCms user context
+     * @param link the link to process
+     * @param siteRoot the site root of the <code>link</code>
+     * @param targetDetailPage the target detail page, in case of linking to a specific detail page
+     * @param forceSecure forces the secure server prefix if the target is secure
+     *
+     * @return the link cache key
+     */
+    protected String getLinkCacheKey(
+        CmsObject cms,
+        String link,
+        String siteRoot,
+        String targetDetailPage,
+        boolean forceSecure) {
+
+        CmsRequestContext context = cms.getRequestContext();
+        StringBuffer key = new StringBuffer(256);
+        key.append(context.getCurrentProject().getUuid()).append('|');
+        if (!context.getCurrentProject().isOnlineProject()) {
+            // online links only depend on the user if a resource can not be read, and those links are not cached
+            key.append(context.getCurrentUser().getId());
+        }
+        key.append('|');
+        key.append(context.getUri()).append('|');
+        key.append(context.getLocale()).append('|');
+        key.append(context.getDetailContentId()).append('|');
+        key.append(context.isSecureRequest()).append('|');
+        key.append(forceSecure).append('|');
+        key.append(Boolean.parseBoolean("" + context.getAttribute(ATTR_IS_IMAGE_LINK))).append('|');
+        key.append(generateCacheKey(cms, String.valueOf(siteRoot), String.valueOf(targetDetailPage) + ":", link));
+        return key.toString();
+    }
+
     /**
      * Returns the root path for given site.<p>
      * This method is required as a hook used in {@link CmsLocalePrefixLinkSubstitutionHandler}.<p>
@@ -800,4 +910,25 @@ public class CmsDefaultLinkSubstitutionHandler implements I_CmsLinkSubstitutionH
         return targetSiteRoot;
     }
 
+    /**
+     * Returns the final link for a generated or cached link.<p>
+     *
+     * If the link points to a detail page in another site, the site root is stored in the request context,
+     * so it is used when the server prefix is appended later.<p>
+     *
+     * @param cms the current OpenCms user context
+     * @param entry the generated or cached link
+     *
+     * @return the final link
+     */
+    private String useLink(CmsObject cms, CmsLinkSubstitutionCache.Entry entry) {
+
+        if (entry.getOverrideSiteRoot() != null) {
+            cms.getRequestContext().setAttribute(
+                OVERRIDE_SITEROOT_PREFIX + entry.getResultLink(),
+                entry.getOverrideSiteRoot());
+        }
+        return entry.getServerPrefix().concat(entry.getResultLink());
+    }
+
 }
@@ -33,6 +33,7 @@ import org.opencms.file.wrapper.CmsObjectWrapper;
 import org.opencms.i18n.CmsEncoder;
 import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsCacheStatistics;
 import org.opencms.relations.CmsLink;
 import org.opencms.relations.CmsRelationType;
 import org.opencms.util.CmsHtmlParser;
@@ -40,6 +41,9 @@ import org.opencms.util.CmsMacroResolver;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 import org.htmlparser.Attribute;
@@ -51,6 +55,10 @@ import org.htmlparser.tags.ObjectTag;
 import org.htmlparser.util.ParserException;
 import org.htmlparser.util.SimpleNodeIterator;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
 /**
  * Implements the HTML parser node visitor pattern to
  * exchange all links on the page.<p>
@@ -83,18 +91,40 @@ public class CmsLinkProcessor extends CmsHtmlParser {
     /** Constant for the tag name. */
     public static final String TAG_PARAM = "PARAM";
 
+    /** The max total length of the HTML for which link templates are cached. */
+    public static final int TEMPLATE_CACHE_MAX_CHARS = 4 * 1024 * 1024;
+
     /** List of attributes that may contain links for the embed tag. */
     private static final String[] EMBED_TAG_LINKED_ATTRIBS = new String[] {ATTRIBUTE_SRC, "pluginurl", "pluginspage"};
 
     /** List of attributes that may contain links for the object tag ("codebase" has to be first). */
     private static final String[] OBJECT_TAG_LINKED_ATTRIBS = new String[] {"codebase", "data", "datasrc"};
 
+    /** Processing mode "prepare link template". */
+    private static final int PREPARE_LINKS = 2;
+
     /** Processing mode "process links". */
     private static final int PROCESS_LINKS = 1;
 
     /** Processing mode "replace links". */
     private static final int REPLACE_LINKS = 0;
 
+    /** The cached link templates, with the HTML as key. */
+    private static final Cache<String, CmsLinkTemplate> TEMPLATE_CACHE = CacheBuilder.newBuilder().concurrencyLevel(
+        8).maximumWeight(TEMPLATE_CACHE_MAX_CHARS).weigher(new Weigher<String, CmsLinkTemplate>() {
+
+            public int weigh(String key, CmsLinkTemplate value) {
+
+                return key.length() + value.getLength();
+            }
+        }).build();
+
+    /** The link template cache statistics. */
+    private static final CmsCacheStatistics TEMPLATE_STATISTICS = new CmsCacheStatistics();
+
+    /** Indicates if the link template cache has been registered with the memory monitor. */
+    private static volatile boolean m_templateCacheRegistered;
+
     /** The current users OpenCms context, containing the users permission and site root context. */
     private CmsObject m_cms;
 
@@ -113,6 +143,9 @@ public class CmsLinkProcessor extends CmsHtmlParser {
     /** Another OpenCms context based on the current users OpenCms context, but with the site root set to '/'. */
     private CmsObject m_rootCms;
 
+    /** The link slots found while preparing a link template. */
+    private List<CmsLinkTemplate.Slot> m_templateSlots;
+
     /**
      * Creates a new link processor.<p>
      *
@@ -127,15 +160,6 @@ public class CmsLinkProcessor extends CmsHtmlParser {
         super(true);
 
         m_cms = cms;
-        if (m_cms != null) {
-            try {
-                m_rootCms = OpenCms.initCmsObject(cms);
-                m_rootCms.getRequestContext().setSiteRoot("/");
-            } catch (CmsException e) {
-                // this should not happen
-                m_rootCms = null;
-            }
-        }
         m_linkTable = linkTable;
         m_encoding = encoding;
         m_relativePath = relativePath;
@@ -178,6 +202,16 @@ public class CmsLinkProcessor extends CmsHtmlParser {
         return new String(result);
     }
 
+    /**
+     * Returns the statistics of the link template cache.<p>
+     *
+     * @return the statistics of the link template cache
+     */
+    public static CmsCacheStatistics getTemplateCacheStatistics() {
+
+        return TEMPLATE_STATISTICS;
+    }
+
     /**
      * Unescapes all <code>&amp;amp;</code>, that is replaces them with a <code>&</code>.<p>
      *
@@ -215,6 +249,22 @@ public class CmsLinkProcessor extends CmsHtmlParser {
      */
     public String processLinks(String content) throws ParserException {
 
+        if (isTemplateSupported(content)) {
+            String linkNames = getLinkNames();
+            CmsLinkTemplate template = TEMPLATE_CACHE.getIfPresent(content);
+            if ((template != null) && template.matches(m_encoding, linkNames)) {
+                TEMPLATE_STATISTICS.hit();
+            } else {
+                TEMPLATE_STATISTICS.miss();
+                template = prepareLinks(content, linkNames);
+                TEMPLATE_CACHE.put(content, template);
+                registerTemplateCache();
+            }
+            String result = processLinks(template);
+            if (result != null) {
+                return result;
+            }
+        }
         m_mode = PROCESS_LINKS;
         return process(content, m_encoding);
     }
@@ -312,22 +362,21 @@ public class CmsLinkProcessor extends CmsHtmlParser {
                 // macros are replaced with links
                 link = m_linkTable.getLink(CmsMacroResolver.stripMacro(tag.getAttribute(attr)));
                 if (link != null) {
-                    // link management check
-                    String l = link.getLink(m_cms);
-                    if (TAG_PARAM.equals(tag.getTagName())) {
-                        // HACK: to distinguish link parameters the link itself has to end with '&' or '?'
-                        // another solution should be a kind of macro...
-                        if (!l.endsWith(CmsRequestUtil.URL_DELIMITER)
-                            && !l.endsWith(CmsRequestUtil.PARAMETER_DELIMITER)) {
-                            if (l.indexOf(CmsRequestUtil.URL_DELIMITER) > 0) {
-                                l += CmsRequestUtil.PARAMETER_DELIMITER;
-                            } else {
-                                l += CmsRequestUtil.URL_DELIMITER;
-                            }
-                        }
-                    }
                     // set the real target
-                    tag.setAttribute(attr, CmsEncoder.escapeXml(l));
+                    tag.setAttribute(attr, getProcessedLink(link, TAG_PARAM.equals(tag.getTagName())));
+                }
+                break;
+            case PREPARE_LINKS:
+                // macros are replaced with slot markers
+                link = m_linkTable.getLink(CmsMacroResolver.stripMacro(tag.getAttribute(attr)));
+                if (link != null) {
+                    Attribute attribute = tag.getAttributeEx(attr);
+                    m_templateSlots.add(
+                        new CmsLinkTemplate.Slot(
+                            link.getName(),
+                            TAG_PARAM.equals(tag.getTagName()),
+                            attribute.getQuote() == '"'));
+                    tag.setAttribute(attr, CmsLinkTemplate.getMarker(m_templateSlots.size() - 1));
                 }
                 break;
             case REPLACE_LINKS:
@@ -422,7 +471,7 @@ public class CmsLinkProcessor extends CmsHtmlParser {
         boolean hasAltAttrib = (tag.getAttribute("alt") != null);
         if (!hasAltAttrib) {
             String value = null;
-            if ((internalUri != null) && (m_rootCms != null)) {
+            if ((internalUri != null) && (getRootCms() != null)) {
                 // internal image: try to read the "alt" text from the "Title" property
                 try {
                     value = m_rootCms.readPropertyObject(
@@ -442,6 +491,155 @@ public class CmsLinkProcessor extends CmsHtmlParser {
         }
     }
 
+    /**
+     * Returns the names of the links in the link table, used to check if a link template can be used.<p>
+     *
+     * @return the names of the links in the link table
+     */
+    private String getLinkNames() {
+
+        StringBuffer result = new StringBuffer(128);
+        Iterator<CmsLink> it = m_linkTable.iterator();
+        while (it.hasNext()) {
+            result.append(it.next().getName()).append(',');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the escaped link to write in a link attribute.<p>
+     *
+     * @param link the link from the link table
+     * @param param true if the link is the value of a PARAM tag
+     *
+     * @return the escaped link
+     */
+    private String getProcessedLink(CmsLink link, boolean param) {
+
+        // link management check
+        String l = link.getLink(m_cms);
+        if (param) {
+            // HACK: to distinguish link parameters the link itself has to end with '&' or '?'
+            // another solution should be a kind of macro...
+            if (!l.endsWith(CmsRequestUtil.URL_DELIMITER) && !l.endsWith(CmsRequestUtil.PARAMETER_DELIMITER)) {
+                if (l.indexOf(CmsRequestUtil.URL_DELIMITER) > 0) {
+                    l += CmsRequestUtil.PARAMETER_DELIMITER;
+                } else {
+                    l += CmsRequestUtil.URL_DELIMITER;
+                }
+            }
+        }
+        return CmsEncoder.escapeXml(l);
+    }
+
+    /**
+     * Returns the OpenCms context with the site root set to '/', which is created when first needed.<p>
+     *
+     * @return the OpenCms context with the site root set to '/', or <code>null</code> if not available
+     */
+    private CmsObject getRootCms() {
+
+        if ((m_rootCms == null) && (m_cms != null)) {
+            try {
+                m_rootCms = OpenCms.initCmsObject(m_cms);
+                m_rootCms.getRequestContext().setSiteRoot("/");
+            } catch (CmsException e) {
+                // this should not happen
+                m_rootCms = null;
+            }
+        }
+        return m_rootCms;
+    }
+
+    /**
+     * Checks if the links in the given content can be processed with a link template.<p>
+     *
+     * Subclasses may change the way tags are written, so they always use the HTML parser.<p>
+     *
+     * @param content the content to process
+     *
+     * @return true if a link template can be used
+     */
+    private boolean isTemplateSupported(String content) {
+
+        return (getClass() == CmsLinkProcessor.class)
+            && ((m_noAutoCloseTags == null) || m_noAutoCloseTags.isEmpty())
+            && (content != null)
+            && (content.indexOf(CmsLinkTemplate.MARKER) < 0)
+            && !m_linkTable.isEmpty();
+    }
+
+    /**
+     * Parses the given content once and creates the link template for it.<p>
+     *
+     * @param content the content to process
+     * @param linkNames the names of the links in the link table
+     *
+     * @return the link template
+     *
+     * @throws ParserException if something goes wrong
+     */
+    private CmsLinkTemplate prepareLinks(String content, String linkNames) throws ParserException {
+
+        m_mode = PREPARE_LINKS;
+        m_templateSlots = new ArrayList<CmsLinkTemplate.Slot>();
+        try {
+            String html = process(content, m_encoding);
+            return new CmsLinkTemplate(html, m_templateSlots, m_encoding, linkNames);
+        } finally {
+            m_templateSlots = null;
+        }
+    }
+
+    /**
+     * Fills the slots of the given link template with the links from the link table.<p>
+     *
+     * Returns <code>null</code> if a link can not be written without changing the quotes of its attribute,
+     * in that case the content has to be processed with the HTML parser.<p>
+     *
+     * @param template the link template
+     *
+     * @return the processed content, or <code>null</code>
+     */
+    private String processLinks(CmsLinkTemplate template) {
+
+        int count = template.getSlotCount();
+        StringBuffer result = new StringBuffer(template.getLength() + (count * 64));
+        for (int i = 0; i < count; i++) {
+            result.append(template.getSegment(i));
+            CmsLinkTemplate.Slot slot = template.getSlot(i);
+            CmsLink link = m_linkTable.getLink(slot.getLinkName());
+            if (link == null) {
+                return null;
+            }
+            String l = getProcessedLink(link, slot.isParam());
+            if (!slot.isDoubleQuoted()) {
+                // the HTML parser adds quotes to attribute values containing whitespace
+                for (int j = 0; j < l.length(); j++) {
+                    if (Character.isWhitespace(l.charAt(j))) {
+                        return null;
+                    }
+                }
+            }
+            result.append(l);
+        }
+        result.append(template.getSegment(count));
+        return result.toString();
+    }
+
+    /**
+     * Registers the link template cache with the memory monitor, once it is available.<p>
+     */
+    private void registerTemplateCache() {
+
+        if (!m_templateCacheRegistered && (OpenCms.getMemoryMonitor() != null)) {
+            m_templateCacheRegistered = true;
+            String name = CmsLinkProcessor.class.getName() + ".templateCache";
+            OpenCms.getMemoryMonitor().register(name, TEMPLATE_CACHE.asMap());
+            OpenCms.getMemoryMonitor().registerStatistics(name, TEMPLATE_STATISTICS);
+        }
+    }
+
     /**
      * Use the {@link org.opencms.file.wrapper.CmsObjectWrapper} to restore the link in the VFS.<p>
      *
@@ -0,0 +1,632 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.staticexport;
+
+import org.opencms.ade.configuration.CmsADEManager;
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsCacheStatistics;
+import org.opencms.site.CmsSite;
+import org.opencms.site.CmsSiteMatcher;
+import org.opencms.util.CmsUUID;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Caches the links generated by the {@link CmsDefaultLinkSubstitutionHandler}.<p>
+ *
+ * Every cached link remembers the root paths it depends on: the link target, the current request URI
+ * and the detail page, if any. When a resource is changed in the offline project or published,
+ * only the links depending on it are removed. Since the export and secure settings are inherited properties,
+ * a changed folder removes all links depending on a path below it. Changes to sitemap or module configurations,
+ * moved resources, changed sites and explicit cache clear events remove all cached links.<p>
+ *
+ * The cache keys are indexed by the root paths the links depend on, so the cost of removing links
+ * depends on the number of affected links and not on the size of the cache.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsLinkSubstitutionCache implements I_CmsEventListener {
+
+    /**
+     * A cached link.<p>
+     */
+    public static class Entry {
+
+        /** Flag indicating if the link may be cached. */
+        private boolean m_cacheable = true;
+
+        /** The root paths the link depends on. */
+        private String[] m_dependencies;
+
+        /** The site root to store in the request context for the link, or <code>null</code>. */
+        private String m_overrideSiteRoot;
+
+        /** The link without the server prefix. */
+        private String m_resultLink;
+
+        /** The server prefix. */
+        private String m_serverPrefix;
+
+        /**
+         * Creates a new cache entry.<p>
+         *
+         * @param serverPrefix the server prefix
+         * @param resultLink the link without the server prefix
+         * @param overrideSiteRoot the site root to store in the request context for the link, or <code>null</code>
+         * @param dependencies the root paths the link depends on, <code>null</code> values are ignored
+         */
+        public Entry(String serverPrefix, String resultLink, String overrideSiteRoot, String... dependencies) {
+
+            m_serverPrefix = serverPrefix;
+            m_resultLink = resultLink;
+            m_overrideSiteRoot = overrideSiteRoot;
+            Set<String> paths = new HashSet<String>();
+            for (String path : dependencies) {
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+            m_dependencies = paths.toArray(new String[paths.size()]);
+        }
+
+        /**
+         * Returns the root paths the link depends on.<p>
+         *
+         * @return the root paths the link depends on
+         */
+        public String[] getDependencies() {
+
+            return m_dependencies.clone();
+        }
+
+        /**
+         * Returns the site root to store in the request context for the link, or <code>null</code>.<p>
+         *
+         * @return the site root to store in the request context for the link, or <code>null</code>
+         */
+        public String getOverrideSiteRoot() {
+
+            return m_overrideSiteRoot;
+        }
+
+        /**
+         * Returns the link without the server prefix.<p>
+         *
+         * @return the link without the server prefix
+         */
+        public String getResultLink() {
+
+            return m_resultLink;
+        }
+
+        /**
+         * Returns the server prefix.<p>
+         *
+         * @return the server prefix
+         */
+        public String getServerPrefix() {
+
+            return m_serverPrefix;
+        }
+
+        /**
+         * Returns if the link may be cached.<p>
+         *
+         * @return <code>true</code> if the link may be cached
+         */
+        public boolean isCacheable() {
+
+            return m_cacheable;
+        }
+
+        /**
+         * Sets if the link may be cached.<p>
+         *
+         * Links generated while an unexpected error occurred should not be cached.<p>
+         *
+         * @param cacheable <code>true</code> if the link may be cached
+         */
+        public void setCacheable(boolean cacheable) {
+
+            m_cacheable = cacheable;
+        }
+
+        /**
+         * Checks if the link depends on one of the given paths.<p>
+         *
+         * @param files the root paths of changed files
+         * @param folders the root paths of changed folders, all ending with a slash
+         *
+         * @return <code>true</code> if the link depends on one of the given paths
+         */
+        boolean dependsOn(Set<String> files, Set<String> folders) {
+
+            for (String path : m_dependencies) {
+                String folderPath = path + "/";
+                if (files.contains(path) || files.contains(folderPath) || folders.contains(folderPath)) {
+                    return true;
+                }
+                String parent = path;
+                while (parent != null) {
+                    if (folders.contains(parent)) {
+                        return true;
+                    }
+                    parent = CmsResource.getParentFolder(parent);
+                }
+            }
+            return false;
+        }
+    }
+
+    /** The default max number of cached links. */
+    public static final int DEFAULT_MAX_SIZE = 20000;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsLinkSubstitutionCache.class);
+
+    /** The cached links. */
+    private Map<String, Entry> m_cache;
+
+    /** The CMS context used to read the published resources. */
+    private CmsObject m_cms;
+
+    /** The generation of the cache, incremented whenever links are removed. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /** The keys of the cached links by the root paths they depend on, sorted to find the paths below a folder. */
+    private TreeMap<String, Set<String>> m_keysByPath = new TreeMap<String, Set<String>>();
+
+    /** The site configuration the cached links were generated for. */
+    private volatile Map<CmsSiteMatcher, CmsSite> m_sites;
+
+    /** The cache statistics. */
+    private CmsCacheStatistics m_statistics = new CmsCacheStatistics();
+
+    /**
+     * Creates a new link cache and registers it for the events which change links.<p>
+     *
+     * @param size the max number of cached links
+     */
+    public CmsLinkSubstitutionCache(int size) {
+
+        Cache<String, Entry> cache = CacheBuilder.newBuilder().concurrencyLevel(8).maximumSize(size).removalListener(
+            new RemovalListener<String, Entry>() {
+
+                @SuppressWarnings("synthetic-access")
+                public void onRemoval(RemovalNotification<String, Entry> notification) {
+
+                    unindex(notification.getKey(), notification.getValue());
+                }
+            }).build();
+        m_cache = cache.asMap();
+        if (OpenCms.getMemoryMonitor() != null) {
+            String name = getClass().getName();
+            OpenCms.getMemoryMonitor().register(name, m_cache);
+            OpenCms.getMemoryMonitor().registerStatistics(name, m_statistics);
+        }
+        OpenCms.addCmsEventListener(
+            this,
+            new int[] {
+                I_CmsEventListener.EVENT_CLEAR_CACHES,
+                I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES,
+                I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES,
+                I_CmsEventListener.EVENT_PROPERTY_MODIFIED,
+                I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+                I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
+                I_CmsEventListener.EVENT_RESOURCE_COPIED,
+                I_CmsEventListener.EVENT_RESOURCE_CREATED,
+                I_CmsEventListener.EVENT_RESOURCE_DELETED,
+                I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+                I_CmsEventListener.EVENT_RESOURCE_MOVED,
+                I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED,
+                I_CmsEventListener.EVENT_RESOURCES_MODIFIED,
+                I_CmsEventListener.EVENT_UPDATE_EXPORTS});
+    }
+
+    /**
+     * Removes all cached links.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        synchronized (m_keysByPath) {
+            m_keysByPath.clear();
+        }
+        m_cache.clear();
+        m_statistics.invalidate();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
+            case I_CmsEventListener.EVENT_UPDATE_EXPORTS:
+            case I_CmsEventListener.EVENT_RESOURCE_MOVED:
+                clear();
+                break;
+            case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                invalidatePublished(event);
+                break;
+            case I_CmsEventListener.EVENT_PROPERTY_MODIFIED:
+            case I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED:
+            case I_CmsEventListener.EVENT_RESOURCE_COPIED:
+            case I_CmsEventListener.EVENT_RESOURCE_CREATED:
+            case I_CmsEventListener.EVENT_RESOURCE_DELETED:
+            case I_CmsEventListener.EVENT_RESOURCE_MODIFIED:
+            case I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED:
+            case I_CmsEventListener.EVENT_RESOURCES_MODIFIED:
+                invalidateModified(event);
+                break;
+            default:
+                // no operation
+        }
+    }
+
+    /**
+     * Returns the cached link for the given key, or <code>null</code> if there is none.<p>
+     *
+     * @param key the cache key
+     *
+     * @return the cached link or <code>null</code>
+     */
+    public Entry get(String key) {
+
+        // the site manager replaces the site map whenever a site is changed, and the links contain the server names
+        Map<CmsSiteMatcher, CmsSite> sites = OpenCms.getSiteManager().getSites();
+        if (sites != m_sites) {
+            m_sites = sites;
+            clear();
+        }
+        Entry result = m_cache.get(key);
+        if (result != null) {
+            m_statistics.hit();
+        } else {
+            m_statistics.miss();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current generation of the cache.<p>
+     *
+     * The link generation has to read the generation before it starts and pass it to
+     * {@link #put(String, long, Entry)}, so links which overlap with a resource change are not stored.<p>
+     *
+     * @return the current generation of the cache
+     */
+    public long getGeneration() {
+
+        return m_generation.get();
+    }
+
+    /**
+     * Returns the cache statistics.<p>
+     *
+     * @return the cache statistics
+     */
+    public CmsCacheStatistics getStatistics() {
+
+        return m_statistics;
+    }
+
+    /**
+     * Removes all cached links depending on one of the given root paths.<p>
+     *
+     * @param files the root paths of changed files
+     * @param folders the root paths of changed folders, all ending with a slash
+     *
+     * @return the number of removed links
+     */
+    public int invalidate(Set<String> files, Set<String> folders) {
+
+        if (files.isEmpty() && folders.isEmpty()) {
+            return 0;
+        }
+        m_generation.incrementAndGet();
+        Set<String> keys = new HashSet<String>();
+        synchronized (m_keysByPath) {
+            for (String path : files) {
+                addKeys(path, keys);
+                if (path.endsWith("/")) {
+                    addKeys(path.substring(0, path.length() - 1), keys);
+                }
+            }
+            for (String folder : folders) {
+                addKeys(folder.substring(0, folder.length() - 1), keys);
+                // all paths starting with the folder path, including the folder itself
+                Map<String, Set<String>> below = m_keysByPath.subMap(folder, true, folder + Character.MAX_VALUE, false);
+                for (Set<String> pathKeys : below.values()) {
+                    keys.addAll(pathKeys);
+                }
+            }
+        }
+        int count = 0;
+        for (String key : keys) {
+            Entry entry = m_cache.get(key);
+            if ((entry != null) && entry.dependsOn(files, folders) && m_cache.remove(key, entry)) {
+                count++;
+            }
+        }
+        if (count > 0) {
+            m_statistics.invalidate();
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(
+                    Messages.LOG_LINK_CACHE_INVALIDATED_2,
+                    new Integer(count),
+                    m_statistics));
+        }
+        return count;
+    }
+
+    /**
+     * Stores a link in the cache.<p>
+     *
+     * The link is only stored if it is cacheable and no links were removed since the given generation was read.<p>
+     *
+     * @param key the cache key
+     * @param generation the generation of the cache read before the link was generated
+     * @param entry the link to store
+     */
+    public void put(String key, long generation, Entry entry) {
+
+        if (!entry.isCacheable() || (m_generation.get() != generation)) {
+            return;
+        }
+        m_cache.put(key, entry);
+        synchronized (m_keysByPath) {
+            // the link may have been evicted right after it was stored, and the removal listener
+            // only cleans up index entries which exist when it runs, so never index a removed link
+            if (m_cache.get(key) == entry) {
+                index(key, entry);
+            }
+        }
+        if (m_generation.get() != generation) {
+            // links were removed while the link was stored, and the removal may have missed it
+            m_cache.remove(key, entry);
+        }
+    }
+
+    /**
+     * Returns the number of cached links.<p>
+     *
+     * @return the number of cached links
+     */
+    public int size() {
+
+        return m_cache.size();
+    }
+
+    /**
+     * Adds the root path of a changed resource to the matching set of paths.<p>
+     *
+     * The parent folder of a changed file is added too, since links to a folder depend on its default file.<p>
+     *
+     * @param rootPath the root path of the changed resource
+     * @param isFolder <code>true</code> if the changed resource is a folder
+     * @param files the root paths of changed files
+     * @param folders the root paths of changed folders
+     */
+    private void addChangedPath(String rootPath, boolean isFolder, Set<String> files, Set<String> folders) {
+
+        if (isFolder) {
+            folders.add(rootPath.endsWith("/") ? rootPath : rootPath + "/");
+        } else {
+            files.add(rootPath);
+            String parent = CmsResource.getParentFolder(rootPath);
+            if (parent != null) {
+                files.add(parent);
+            }
+        }
+    }
+
+    /**
+     * Adds the keys of the links depending on the given root path to a set.<p>
+     *
+     * Must be called while holding the lock on the index.<p>
+     *
+     * @param path the root path
+     * @param keys the set to add the keys to
+     */
+    private void addKeys(String path, Set<String> keys) {
+
+        Set<String> pathKeys = m_keysByPath.get(path);
+        if (pathKeys != null) {
+            keys.addAll(pathKeys);
+        }
+    }
+
+    /**
+     * Returns the CMS context used to read the published resources.<p>
+     *
+     * @return the CMS context
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private CmsObject getCms() throws CmsException {
+
+        if (m_cms == null) {
+            m_cms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+        }
+        return m_cms;
+    }
+
+    /**
+     * Adds the key of a cached link to the index of the root paths the link depends on.<p>
+     *
+     * @param key the cache key
+     * @param entry the cached link
+     */
+    private void index(String key, Entry entry) {
+
+        synchronized (m_keysByPath) {
+            for (String path : entry.m_dependencies) {
+                Set<String> pathKeys = m_keysByPath.get(path);
+                if (pathKeys == null) {
+                    pathKeys = new HashSet<String>();
+                    m_keysByPath.put(path, pathKeys);
+                }
+                pathKeys.add(key);
+            }
+        }
+    }
+
+    /**
+     * Removes the links depending on the resources changed in the offline project.<p>
+     *
+     * @param event the resource event
+     */
+    private void invalidateModified(CmsEvent event) {
+
+        Set<CmsResource> resources = new HashSet<CmsResource>();
+        Object resource = event.getData().get(I_CmsEventListener.KEY_RESOURCE);
+        if (resource instanceof CmsResource) {
+            resources.add((CmsResource)resource);
+        }
+        Object resourceList = event.getData().get(I_CmsEventListener.KEY_RESOURCES);
+        if (resourceList instanceof List) {
+            for (Object element : (List<?>)resourceList) {
+                if (element instanceof CmsResource) {
+                    resources.add((CmsResource)element);
+                }
+            }
+        }
+        if (resources.isEmpty()) {
+            clear();
+            return;
+        }
+        Set<String> files = new HashSet<String>();
+        Set<String> folders = new HashSet<String>();
+        for (CmsResource res : resources) {
+            if (isConfiguration(res.getTypeId())) {
+                clear();
+                return;
+            }
+            addChangedPath(res.getRootPath(), res.isFolder(), files, folders);
+        }
+        invalidate(files, folders);
+    }
+
+    /**
+     * Removes the links depending on the published resources.<p>
+     *
+     * @param event the publish event
+     */
+    private void invalidatePublished(CmsEvent event) {
+
+        String publishId = (String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
+        if (publishId == null) {
+            clear();
+            return;
+        }
+        List<CmsPublishedResource> publishedResources;
+        try {
+            publishedResources = getCms().readPublishedResources(new CmsUUID(publishId));
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            clear();
+            return;
+        }
+        Set<String> files = new HashSet<String>();
+        Set<String> folders = new HashSet<String>();
+        for (CmsPublishedResource res : publishedResources) {
+            if (res.isMoved() || isConfiguration(res.getType())) {
+                clear();
+                return;
+            }
+            addChangedPath(res.getRootPath(), res.isFolder(), files, folders);
+        }
+        invalidate(files, folders);
+    }
+
+    /**
+     * Checks if the given resource type is a sitemap or module configuration, which may change the detail pages.<p>
+     *
+     * @param type the resource type id
+     *
+     * @return <code>true</code> if the resource type is a sitemap or module configuration
+     */
+    private boolean isConfiguration(int type) {
+
+        return OpenCms.getResourceManager().matchResourceType(CmsADEManager.CONFIG_TYPE, type)
+            || OpenCms.getResourceManager().matchResourceType(CmsADEManager.MODULE_CONFIG_TYPE, type);
+    }
+
+    /**
+     * Removes the key of a link removed from the cache from the index.<p>
+     *
+     * The link may already have been replaced by a new link for the same key, which still needs its index entries.<p>
+     *
+     * @param key the cache key
+     * @param entry the removed link
+     */
+    private void unindex(String key, Entry entry) {
+
+        synchronized (m_keysByPath) {
+            Entry current = m_cache.get(key);
+            for (String path : entry.m_dependencies) {
+                if ((current != null) && Arrays.asList(current.m_dependencies).contains(path)) {
+                    continue;
+                }
+                Set<String> pathKeys = m_keysByPath.get(path);
+                if (pathKeys != null) {
+                    pathKeys.remove(key);
+                    if (pathKeys.isEmpty()) {
+                        m_keysByPath.remove(path);
+                    }
+                }
+            }
+        }
+    }
+}
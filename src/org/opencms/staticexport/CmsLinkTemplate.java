@@ -0,0 +1,224 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.staticexport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HTML of a content value split into literal text and link slots.<p>
+ *
+ * A template is created by the {@link CmsLinkProcessor} by running the HTML parser once with a marker
+ * in place of every link macro. The HTML around the markers is exactly what the parser writes, so filling
+ * the slots with the substituted links gives the same result as processing the links with the parser.<p>
+ *
+ * Templates are immutable and only depend on the HTML, the encoding and the names in the link table,
+ * so they can be shared between requests and users.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsLinkTemplate {
+
+    /**
+     * A link slot in the template.<p>
+     */
+    static class Slot {
+
+        /** True if the attribute value is enclosed in double quotes. */
+        private boolean m_doubleQuoted;
+
+        /** The name of the link in the link table. */
+        private String m_linkName;
+
+        /** True if the link is the value of a PARAM tag. */
+        private boolean m_param;
+
+        /**
+         * Creates a new slot.<p>
+         *
+         * @param linkName the name of the link in the link table
+         * @param param true if the link is the value of a PARAM tag
+         * @param doubleQuoted true if the attribute value is enclosed in double quotes
+         */
+        Slot(String linkName, boolean param, boolean doubleQuoted) {
+
+            m_linkName = linkName;
+            m_param = param;
+            m_doubleQuoted = doubleQuoted;
+        }
+
+        /**
+         * Returns the name of the link in the link table.<p>
+         *
+         * @return the name of the link in the link table
+         */
+        String getLinkName() {
+
+            return m_linkName;
+        }
+
+        /**
+         * Returns true if the attribute value is enclosed in double quotes.<p>
+         *
+         * @return true if the attribute value is enclosed in double quotes
+         */
+        boolean isDoubleQuoted() {
+
+            return m_doubleQuoted;
+        }
+
+        /**
+         * Returns true if the link is the value of a PARAM tag.<p>
+         *
+         * @return true if the link is the value of a PARAM tag
+         */
+        boolean isParam() {
+
+            return m_param;
+        }
+    }
+
+    /** The character used to mark the link slots in the parser output, which can not occur in XML. */
+    static final char MARKER = '\u0000';
+
+    /** The encoding the HTML was parsed with. */
+    private String m_encoding;
+
+    /** The total length of the literal text. */
+    private int m_length;
+
+    /** The names of the links in the link table the template was created for. */
+    private String m_linkNames;
+
+    /** The literal text segments, one more than slots. */
+    private String[] m_segments;
+
+    /** The link slots. */
+    private Slot[] m_slots;
+
+    /**
+     * Creates a new template from the parser output.<p>
+     *
+     * @param html the parser output with a marker for every link slot
+     * @param slots the slots referenced by the markers
+     * @param encoding the encoding the HTML was parsed with
+     * @param linkNames the names of the links in the link table
+     */
+    CmsLinkTemplate(String html, List<Slot> slots, String encoding, String linkNames) {
+
+        m_encoding = encoding;
+        m_linkNames = linkNames;
+        List<String> segments = new ArrayList<String>();
+        List<Slot> usedSlots = new ArrayList<Slot>();
+        int start = 0;
+        int pos = html.indexOf(MARKER);
+        while (pos >= 0) {
+            int end = html.indexOf(MARKER, pos + 1);
+            segments.add(html.substring(start, pos));
+            usedSlots.add(slots.get(Integer.parseInt(html.substring(pos + 1, end))));
+            start = end + 1;
+            pos = html.indexOf(MARKER, start);
+        }
+        segments.add(html.substring(start));
+        m_segments = segments.toArray(new String[segments.size()]);
+        m_slots = usedSlots.toArray(new Slot[usedSlots.size()]);
+        for (String segment : m_segments) {
+            m_length += segment.length();
+        }
+    }
+
+    /**
+     * Returns the total length of the literal text.<p>
+     *
+     * @return the total length of the literal text
+     */
+    public int getLength() {
+
+        return m_length;
+    }
+
+    /**
+     * Returns the number of link slots.<p>
+     *
+     * @return the number of link slots
+     */
+    public int getSlotCount() {
+
+        return m_slots.length;
+    }
+
+    /**
+     * Returns the marker for the slot with the given index.<p>
+     *
+     * @param index the slot index
+     *
+     * @return the marker for the slot
+     */
+    static String getMarker(int index) {
+
+        return MARKER + String.valueOf(index) + MARKER;
+    }
+
+    /**
+     * Returns the literal text segment with the given index.<p>
+     *
+     * @param index the segment index, from 0 to the number of slots
+     *
+     * @return the literal text segment
+     */
+    String getSegment(int index) {
+
+        return m_segments[index];
+    }
+
+    /**
+     * Returns the link slot with the given index.<p>
+     *
+     * @param index the slot index
+     *
+     * @return the link slot
+     */
+    Slot getSlot(int index) {
+
+        return m_slots[index];
+    }
+
+    /**
+     * Checks if the template was created for the given encoding and link names.<p>
+     *
+     * @param encoding the encoding
+     * @param linkNames the names of the links in the link table
+     *
+     * @return true if the template can be used
+     */
+    boolean matches(String encoding, String linkNames) {
+
+        return m_linkNames.equals(linkNames)
+            && ((m_encoding == null) ? (encoding == null) : m_encoding.equals(encoding));
+    }
+}
@@ -211,6 +211,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INVALID_PARAM_1 = "LOG_INVALID_PARAM_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_LINK_CACHE_INVALIDATED_2 = "LOG_LINK_CACHE_INVALIDATED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MALFORMED_URI_1 = "LOG_MALFORMED_URI_1";
 
@@ -40,18 +40,35 @@ import org.opencms.main.OpenCms;
 import org.opencms.report.I_CmsReport;
 import org.opencms.util.CmsFileUtil;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.LineNumberReader;
-import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
@@ -69,15 +86,21 @@ public class CmsSynchronize {
     /** Flag to export a resource from the VFS to the FS. */
     static final int EXPORT_VFS = 1;
 
-    /** File name of the synclist file on the server FS. */
+    /** File name of the legacy text synclist file on the server FS. */
     static final String SYNCLIST_FILENAME = "#synclist.txt";
 
+    /** File name of the binary sync state file on the server FS. */
+    static final String SYNCSTATE_FILENAME = "#syncstate.bin";
+
     /** Flag to import a resource from the FS to the VFS. */
     static final int UPDATE_VFS = 2;
 
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsSynchronize.class);
 
+    /** Header of the binary sync state file, used to detect the file format version. */
+    private static final int SYNCSTATE_HEADER = 0x4F435301;
+
     /** List to store all file modification interface implementations. */
     private static List<I_CmsSynchronizeModification> m_synchronizeModifications = new ArrayList<I_CmsSynchronizeModification>();
 
@@ -99,6 +122,9 @@ public class CmsSynchronize {
     /** Hash map for the synchronization list of the last sync process. */
     private HashMap<String, CmsSynchronizeList> m_syncList;
 
+    /** The translated resource names of the current sync process. */
+    private Map<String, String> m_translations;
+
     /**
      * Creates a new CmsSynchronize object which automatically start the
      * synchronization process.<p>
@@ -144,6 +170,7 @@ public class CmsSynchronize {
             }
 
             // create the sync list for this run
+            m_translations = new HashMap<String, String>();
             m_syncList = readSyncList();
             m_newSyncList = new HashMap<String, CmsSynchronizeList>();
 
@@ -178,12 +205,23 @@ public class CmsSynchronize {
             // free memory
             m_syncList = null;
             m_newSyncList = null;
+            m_translations = null;
             m_cms = null;
         } else {
             throw new CmsSynchronizeException(Messages.get().container(Messages.ERR_INIT_SYNC_0));
         }
     }
 
+    /**
+     * Returns the default number of threads computing the content hashes of files in the RFS.<p>
+     *
+     * @return the default number of hashing threads
+     */
+    public static int getDefaultThreadCount() {
+
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
     /**
      * Returns the count.<p>
      *
@@ -194,6 +232,82 @@ public class CmsSynchronize {
         return m_count;
     }
 
+    /**
+     * Returns the MD5 hash of the given content.<p>
+     *
+     * @param content the content
+     *
+     * @return the MD5 hash of the content, or <code>null</code> if MD5 is not available
+     */
+    static byte[] getContentHash(byte[] content) {
+
+        MessageDigest digest = getDigest();
+        return digest != null ? digest.digest(content) : null;
+    }
+
+    /**
+     * Returns the MD5 hash of the content of the given file, reading it in chunks.<p>
+     *
+     * @param file the file
+     *
+     * @return the MD5 hash of the file content, or <code>null</code> if MD5 is not available
+     *
+     * @throws IOException if the file can not be read
+     */
+    static byte[] getContentHash(File file) throws IOException {
+
+        MessageDigest digest = getDigest();
+        if (digest == null) {
+            return null;
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Returns a new MD5 message digest.<p>
+     *
+     * @return the message digest, or <code>null</code> if MD5 is not available
+     */
+    private static MessageDigest getDigest() {
+
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // without hashes the synchronization falls back to the modification dates
+            LOG.error(e.getLocalizedMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates the executor used to compute the content hashes of files in the RFS.<p>
+     *
+     * @return the executor
+     */
+    private static ExecutorService createHashExecutor() {
+
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(getDefaultThreadCount(), new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "OpenCms synchronize hasher " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     /**
      * Copys all resources from the FS which are not existing in the VFS yet. <p>
      *
@@ -205,50 +319,55 @@ public class CmsSynchronize {
         // get the corresponding folder in the FS
         File[] res;
         File fsFile = getFileInRfs(folder);
-        // first of all, test if this folder existis in the VFS. If not, create it
-        try {
-            m_cms.readFolder(translate(folder), CmsResourceFilter.IGNORE_EXPIRATION);
-        } catch (CmsException e) {
-            // the folder could not be read, so create it
-            String foldername = translate(folder);
-            m_report.print(org.opencms.report.Messages.get().container(
-                org.opencms.report.Messages.RPT_SUCCESSION_1,
-                String.valueOf(m_count++)), I_CmsReport.FORMAT_NOTE);
-            m_report.print(Messages.get().container(Messages.RPT_IMPORT_FOLDER_0), I_CmsReport.FORMAT_NOTE);
-            m_report.print(
-                org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    fsFile.getAbsolutePath().replace('\\', '/')));
-            m_report.print(Messages.get().container(Messages.RPT_FROM_FS_TO_0), I_CmsReport.FORMAT_NOTE);
-            m_report.print(
-                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ARGUMENT_1, foldername));
-            m_report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+        // first of all, test if this folder existis in the VFS. If not, create it.
+        // Folders which have been synchronized already in this run are known to exist.
+        if (!m_newSyncList.containsKey(translate(folder))) {
+            try {
+                m_cms.readFolder(translate(folder), CmsResourceFilter.IGNORE_EXPIRATION);
+            } catch (CmsException e) {
+                // the folder could not be read, so create it
+                String foldername = translate(folder);
+                m_report.print(org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_SUCCESSION_1,
+                    String.valueOf(m_count++)), I_CmsReport.FORMAT_NOTE);
+                m_report.print(Messages.get().container(Messages.RPT_IMPORT_FOLDER_0), I_CmsReport.FORMAT_NOTE);
+                m_report.print(
+                    org.opencms.report.Messages.get().container(
+                        org.opencms.report.Messages.RPT_ARGUMENT_1,
+                        fsFile.getAbsolutePath().replace('\\', '/')));
+                m_report.print(Messages.get().container(Messages.RPT_FROM_FS_TO_0), I_CmsReport.FORMAT_NOTE);
+                m_report.print(
+                    org.opencms.report.Messages.get().container(
+                        org.opencms.report.Messages.RPT_ARGUMENT_1,
+                        foldername));
+                m_report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
 
-            CmsResource newFolder = m_cms.createResource(foldername, CmsResourceTypeFolder.RESOURCE_TYPE_ID);
-            // now check if there is some external method to be called which
-            // should modify the imported resource in the VFS
-            Iterator<I_CmsSynchronizeModification> i = m_synchronizeModifications.iterator();
-            while (i.hasNext()) {
-                try {
-                    i.next().modifyVfs(m_cms, newFolder, fsFile);
-                } catch (CmsSynchronizeException e1) {
-                    break;
+                CmsResource newFolder = m_cms.createResource(foldername, CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+                // now check if there is some external method to be called which
+                // should modify the imported resource in the VFS
+                Iterator<I_CmsSynchronizeModification> i = m_synchronizeModifications.iterator();
+                while (i.hasNext()) {
+                    try {
+                        i.next().modifyVfs(m_cms, newFolder, fsFile);
+                    } catch (CmsSynchronizeException e1) {
+                        break;
+                    }
                 }
-            }
-            // we have to read the new resource again, to get the correct timestamp
-            newFolder = m_cms.readFolder(foldername, CmsResourceFilter.IGNORE_EXPIRATION);
-            String resourcename = m_cms.getSitePath(newFolder);
-            // add the folder to the sync list
-            CmsSynchronizeList sync = new CmsSynchronizeList(
-                folder,
-                resourcename,
-                newFolder.getDateLastModified(),
-                fsFile.lastModified());
-            m_newSyncList.put(resourcename, sync);
+                // we have to read the new resource again, to get the correct timestamp
+                newFolder = m_cms.readFolder(foldername, CmsResourceFilter.IGNORE_EXPIRATION);
+                String resourcename = m_cms.getSitePath(newFolder);
+                // add the folder to the sync list
+                CmsSynchronizeList sync = new CmsSynchronizeList(
+                    folder,
+                    resourcename,
+                    newFolder.getDateLastModified(),
+                    fsFile.lastModified());
+                m_newSyncList.put(resourcename, sync);
 
-            m_report.println(
-                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                I_CmsReport.FORMAT_OK);
+                m_report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                    I_CmsReport.FORMAT_OK);
+            }
         }
         // since the check has been done on folder basis, this must be a folder
         if (fsFile.isDirectory()) {
@@ -356,6 +475,26 @@ public class CmsSynchronize {
             I_CmsReport.FORMAT_OK);
     }
 
+    /**
+     * Deletes the folders in the VFS whose contents have been processed completely.<p>
+     *
+     * @param deletedFolders the folders to delete, parent folders before their sub folders
+     * @param rootPath the root path of the next resource to process, or <code>null</code> to delete all folders
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private void deleteFolders(List<CmsResource> deletedFolders, String rootPath) throws CmsException {
+
+        while (!deletedFolders.isEmpty()) {
+            CmsResource folder = deletedFolders.get(deletedFolders.size() - 1);
+            if ((rootPath != null) && rootPath.startsWith(folder.getRootPath())) {
+                break;
+            }
+            deletedFolders.remove(deletedFolders.size() - 1);
+            deleteFromVfs(folder);
+        }
+    }
+
     /**
      * Exports a resource from the VFS to the FS and updates the
      * synchronization lists.<p>
@@ -395,6 +534,7 @@ public class CmsSynchronize {
             resourcename += "/";
         }
         fsFile = getFileInRfs(resourcename);
+        byte[] contentHash = null;
 
         try {
             // if the resource is marked for deletion, do not export it!
@@ -420,15 +560,26 @@ public class CmsSynchronize {
                     m_report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
 
                     // create the resource if nescessary
-                    if (!fsFile.exists()) {
+                    long fsModified = fsFile.lastModified();
+                    if ((fsModified == 0L) && !fsFile.exists()) {
                         createNewLocalFile(fsFile);
                     }
                     // write the file content to the FS
                     vfsFile = m_cms.readFile(m_cms.getSitePath(res), CmsResourceFilter.IGNORE_EXPIRATION);
-                    try {
-                        writeFileByte(vfsFile.getContents(), fsFile);
-                    } catch (IOException e) {
-                        throw new CmsSynchronizeException(Messages.get().container(Messages.ERR_WRITE_FILE_0));
+                    contentHash = getContentHash(vfsFile.getContents());
+                    // the file in the FS is still unchanged since the last synchronization,
+                    // so it does not have to be written again if the VFS content is the same
+                    boolean unchanged = (sync != null)
+                        && (fsModified != 0L)
+                        && (sync.getModifiedFs() == fsModified)
+                        && (contentHash != null)
+                        && Arrays.equals(contentHash, sync.getContentHash());
+                    if (!unchanged) {
+                        try {
+                            writeFileByte(vfsFile.getContents(), fsFile);
+                        } catch (IOException e) {
+                            throw new CmsSynchronizeException(Messages.get().container(Messages.ERR_WRITE_FILE_0));
+                        }
                     }
                     // now check if there is some external method to be called
                     // which should modify the exported resource in the FS
@@ -470,7 +621,8 @@ public class CmsSynchronize {
                     resourcename,
                     translate(resourcename),
                     res.getDateLastModified(),
-                    fsFile.lastModified());
+                    fsFile.lastModified(),
+                    contentHash);
                 m_newSyncList.put(translate(resourcename), syncList);
                 // and remove it fomr the old one
                 m_syncList.remove(translate(resourcename));
@@ -503,12 +655,13 @@ public class CmsSynchronize {
      * Gets the corresponding filename of the VFS to a resource in the FS. <p>
      *
      * @param res the resource in the FS
+     * @param isDirectory if the resource in the FS is a directory
      * @return the corresponding filename in the VFS
      */
-    private String getFilenameInVfs(File res) {
+    private String getFilenameInVfs(File res, boolean isDirectory) {
 
         String resname = res.getAbsolutePath();
-        if (res.isDirectory()) {
+        if (isDirectory) {
             resname += "/";
         }
         // translate the folder separator if necessary
@@ -582,7 +735,8 @@ public class CmsSynchronize {
                 resName,
                 translate(resName),
                 newRes.getDateLastModified(),
-                fsFile.lastModified());
+                fsFile.lastModified(),
+                getContentHash(content));
             m_newSyncList.put(translate(resName), syncList);
 
             m_report.println(
@@ -629,11 +783,19 @@ public class CmsSynchronize {
      * system and stores the information in a HashMap. <p>
      *
      * Filenames are stored as keys, CmsSynchronizeList objects as values.
+     * The binary sync state file is used if it exists, otherwise the
+     * sync list is read from the text file written by older versions.<p>
+     *
      * @return HashMap with synchronization information of the last sync process
      * @throws CmsException if something goes wrong
      */
     private HashMap<String, CmsSynchronizeList> readSyncList() throws CmsException {
 
+        File syncStateFile = new File(m_destinationPathInRfs, SYNCSTATE_FILENAME);
+        if (syncStateFile.exists()) {
+            return readSyncState(syncStateFile);
+        }
+
         HashMap<String, CmsSynchronizeList> syncList = new HashMap<String, CmsSynchronizeList>();
 
         // the sync list file in the server fs
@@ -683,6 +845,59 @@ public class CmsSynchronize {
         return syncList;
     }
 
+    /**
+     * Reads the synchronization list from the binary sync state file.<p>
+     *
+     * @param syncStateFile the sync state file
+     *
+     * @return HashMap with synchronization information of the last sync process
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private HashMap<String, CmsSynchronizeList> readSyncState(File syncStateFile) throws CmsException {
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(syncStateFile)));
+            if (in.readInt() != SYNCSTATE_HEADER) {
+                throw new CmsSynchronizeException(Messages.get().container(Messages.ERR_READ_SYNC_LIST_0));
+            }
+            int size = in.readInt();
+            HashMap<String, CmsSynchronizeList> syncList = new HashMap<String, CmsSynchronizeList>(
+                Math.max(16, (size * 4) / 3 + 1));
+            for (int i = 0; i < size; i++) {
+                String resName = in.readUTF();
+                String tranResName = in.readUTF();
+                long modifiedVfs = in.readLong();
+                long modifiedFs = in.readLong();
+                byte[] contentHash = null;
+                int hashLength = in.readUnsignedByte();
+                if (hashLength > 0) {
+                    contentHash = new byte[hashLength];
+                    in.readFully(contentHash);
+                }
+                CmsSynchronizeList sync = new CmsSynchronizeList(
+                    resName,
+                    tranResName,
+                    modifiedVfs,
+                    modifiedFs,
+                    contentHash);
+                syncList.put(translate(resName), sync);
+            }
+            return syncList;
+        } catch (IOException e) {
+            throw new CmsSynchronizeException(Messages.get().container(Messages.ERR_READ_SYNC_LIST_0), e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
     /**
      * Removes all resources in the RFS which are deleted in the VFS.<p>
      *
@@ -701,11 +916,12 @@ public class CmsSynchronize {
             if (isExcluded(res[i])) {
                 continue;
             }
+            boolean isDirectory = res[i].isDirectory();
             // get the corresponding name in the VFS
-            String vfsFile = getFilenameInVfs(res[i]);
+            String vfsFile = getFilenameInVfs(res[i], isDirectory);
             // recurse if it is an directory, we must go depth first to delete
             // files
-            if (res[i].isDirectory()) {
+            if (isDirectory) {
                 removeFromRfs(res[i].getAbsolutePath());
             }
             // now check if this resource is still in the old sync list.
@@ -721,7 +937,7 @@ public class CmsSynchronize {
                         org.opencms.report.Messages.RPT_SUCCESSION_1,
                         String.valueOf(m_count++)),
                     I_CmsReport.FORMAT_NOTE);
-                if (res[i].isFile()) {
+                if (!isDirectory) {
                     m_report.print(Messages.get().container(Messages.RPT_DEL_FS_FILE_0), I_CmsReport.FORMAT_NOTE);
                 } else {
                     m_report.print(Messages.get().container(Messages.RPT_DEL_FS_FOLDER_0), I_CmsReport.FORMAT_NOTE);
@@ -778,40 +994,88 @@ public class CmsSynchronize {
      * has been deleted</li>
      * </ul>
      *
+     * The whole tree is read from the VFS at once and the actions are determined
+     * from the modification dates first. The content of the files in the FS which
+     * may have to be imported is then hashed in parallel, so that files with
+     * an unchanged content do not have to be written to the VFS.<p>
+     *
+     * The imports, exports and deletions themselves are processed one after another:
+     * they all use the single CMS context of the synchronization, whose request context
+     * is not thread safe, and the {@link I_CmsSynchronizeModification} implementations
+     * are called with this context as well. The VFS writes also have to follow the tree
+     * order, so that a folder exists before its contents are imported and is deleted
+     * after them. Hashing is the part which reads whole files without touching the VFS,
+     * so it is the only part done by the thread pool.<p>
+     *
      * @param folder The folder in the VFS to be synchronized with the FS
      * @throws CmsException if something goes wrong
      */
     private void syncVfsToRfs(String folder) throws CmsException {
 
-        int action = 0;
-        //get all resources in the given folder
-        List<CmsResource> resources = m_cms.getResourcesInFolder(folder, CmsResourceFilter.IGNORE_EXPIRATION);
-        // now look through all resources in the folder
-        for (int i = 0; i < resources.size(); i++) {
-            CmsResource res = resources.get(i);
-            // test if the resource is marked as deleted. if so,
-            // do nothing, the corresponding file in the FS will be removed later
-            if (!res.getState().isDeleted()) {
-                // do a recursion if the current resource is a folder
+        // get all resources below the given folder, sorted so that every folder
+        // is directly followed by its contents
+        List<CmsResource> resources = new ArrayList<CmsResource>(
+            m_cms.readResources(folder, CmsResourceFilter.IGNORE_EXPIRATION, true));
+        Collections.sort(resources, new Comparator<CmsResource>() {
+
+            public int compare(CmsResource res1, CmsResource res2) {
+
+                return res1.getRootPath().compareTo(res2.getRootPath());
+            }
+        });
+
+        // determine what to do with all resources and start hashing the files which might have to be updated
+        int[] actions = new int[resources.size()];
+        Map<Integer, Future<byte[]>> hashes = new HashMap<Integer, Future<byte[]>>();
+        ExecutorService executor = null;
+        try {
+            for (int i = 0; i < resources.size(); i++) {
+                CmsResource res = resources.get(i);
+                // test if the resource is marked as deleted. if so,
+                // do nothing, the corresponding file in the FS will be removed later
+                if (res.getState().isDeleted()) {
+                    actions[i] = -1;
+                    continue;
+                }
+                actions[i] = testSyncVfs(res);
+                if ((actions[i] == UPDATE_VFS) && res.isFile()) {
+                    CmsSynchronizeList sync = m_syncList.get(translate(m_cms.getSitePath(res)));
+                    if ((sync.getContentHash() != null) && (res.getDateLastModified() <= sync.getModifiedVfs())) {
+                        if (executor == null) {
+                            executor = createHashExecutor();
+                        }
+                        final File fsFile = getFileInRfs(sync.getResName());
+                        hashes.put(Integer.valueOf(i), executor.submit(new Callable<byte[]>() {
+
+                            public byte[] call() throws Exception {
+
+                                return getContentHash(fsFile);
+                            }
+                        }));
+                    }
+                }
+            }
+
+            // the folders to delete after their contents have been processed
+            List<CmsResource> deletedFolders = new ArrayList<CmsResource>();
+            for (int i = 0; i < resources.size(); i++) {
+                CmsResource res = resources.get(i);
+                int action = actions[i];
+                if (action == -1) {
+                    continue;
+                }
+                deleteFolders(deletedFolders, res.getRootPath());
                 if (res.isFolder()) {
-                    // first check if this folder must be synchronized
-                    action = testSyncVfs(res);
                     // do the correct action according to the test result
                     if (action == EXPORT_VFS) {
                         exportToRfs(res);
-                    } else if (action != DELETE_VFS) {
+                    } else if (action == DELETE_VFS) {
+                        // the folder must be deleted after its sub folders!
+                        deletedFolders.add(res);
+                    } else {
                         skipResource(res);
                     }
-                    // recurse into the sub folders. This must be done before
-                    // the folder might be deleted!
-                    syncVfsToRfs(m_cms.getSitePath(res));
-                    if (action == DELETE_VFS) {
-                        deleteFromVfs(res);
-                    }
                 } else {
-                    // if the current resource is a file, check if it has to
-                    // be synchronized
-                    action = testSyncVfs(res);
                     // do the correct action according to the test result
                     switch (action) {
                         case EXPORT_VFS:
@@ -819,7 +1083,7 @@ public class CmsSynchronize {
                             break;
 
                         case UPDATE_VFS:
-                            updateFromRfs(res);
+                            updateFromRfs(res, waitForContentHash(hashes.remove(Integer.valueOf(i))));
                             break;
 
                         case DELETE_VFS:
@@ -831,12 +1095,13 @@ public class CmsSynchronize {
 
                     }
                 }
-                // free memory
-                res = null;
+            }
+            deleteFolders(deletedFolders, null);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
             }
         }
-        //  free memory
-        resources = null;
     }
 
     /**
@@ -857,6 +1122,8 @@ public class CmsSynchronize {
             CmsSynchronizeList sync = m_syncList.get(translate(resourcename));
             // get the corresponding resource from the FS
             fsFile = getFileInRfs(sync.getResName());
+            // a single stat is enough for unchanged resources, a missing file has the modification date 0
+            long fsModified = fsFile.lastModified();
             // now check what to do with this resource.
             // if the modification date is newer than the logged modification
             // date in the sync list, this resource must be exported too
@@ -867,8 +1134,7 @@ public class CmsSynchronize {
                 // check if it has been modified since the last sync process
                 // and its newer than the resource in the VFS, only then this
                 // resource must be imported form the FS
-                if ((fsFile.lastModified() > sync.getModifiedFs())
-                    && (fsFile.lastModified() > res.getDateLastModified())) {
+                if ((fsModified > sync.getModifiedFs()) && (fsModified > res.getDateLastModified())) {
                     action = UPDATE_VFS;
                 } else {
 
@@ -877,11 +1143,11 @@ public class CmsSynchronize {
             } else {
                 // test if the resource in the FS does not exist anymore.
                 // if so, remove the resource in the VFS
-                if (!fsFile.exists()) {
+                if ((fsModified == 0L) && !fsFile.exists()) {
                     action = DELETE_VFS;
                 } else {
                     // now check if the resource in the FS might have changed
-                    if (fsFile.lastModified() > sync.getModifiedFs()) {
+                    if (fsModified > sync.getModifiedFs()) {
                         action = UPDATE_VFS;
                     }
                 }
@@ -907,7 +1173,10 @@ public class CmsSynchronize {
      */
     private String translate(String name) {
 
-        String translation = null;
+        String translation = m_translations.get(name);
+        if (translation != null) {
+            return translation;
+        }
         // test if an external translation should be used
         Iterator<I_CmsSynchronizeModification> i = m_synchronizeModifications.iterator();
         while (i.hasNext()) {
@@ -925,6 +1194,7 @@ public class CmsSynchronize {
         if (translation == null) {
             translation = m_cms.getRequestContext().getFileTranslator().translateResource(name);
         }
+        m_translations.put(name, translation);
         return translation;
     }
 
@@ -932,12 +1202,16 @@ public class CmsSynchronize {
      * Imports a resource from the FS to the VFS and updates the
      * synchronization lists.<p>
      *
+     * If the hash of the content in the FS is known and equals the hash stored in
+     * the sync list, only the modification date of the resource in the VFS is updated.<p>
+     *
      * @param res the resource to be exported
+     * @param fsHash the hash of the content of the file in the FS, or <code>null</code> if not known
      *
      * @throws CmsSynchronizeException if the resource could not be synchronized
      * @throws CmsException if something goes wrong
      */
-    private void updateFromRfs(CmsResource res) throws CmsSynchronizeException, CmsException {
+    private void updateFromRfs(CmsResource res, byte[] fsHash) throws CmsSynchronizeException, CmsException {
 
         CmsFile vfsFile;
         // to get the name of the file in the FS, we must look it up in the
@@ -959,29 +1233,35 @@ public class CmsSynchronize {
 
         // lock the file in the VFS, so that it can be updated
         m_cms.lockResource(resourcename);
-        // read the file in the VFS
-        vfsFile = m_cms.readFile(resourcename, CmsResourceFilter.IGNORE_EXPIRATION);
-        // import the content from the FS
-        try {
-            vfsFile.setContents(CmsFileUtil.readFile(fsFile));
-        } catch (IOException e) {
-            throw new CmsSynchronizeException(Messages.get().container(Messages.ERR_IMPORT_1, fsFile.getName()));
-        }
-        m_cms.writeFile(vfsFile);
-        // now check if there is some external method to be called which
-        // should modify
-        // the updated resource in the VFS
-        Iterator<I_CmsSynchronizeModification> i = m_synchronizeModifications.iterator();
-        while (i.hasNext()) {
+        byte[] contentHash = sync.getContentHash();
+        if ((fsHash == null) || !Arrays.equals(fsHash, contentHash)) {
+            // read the file in the VFS
+            vfsFile = m_cms.readFile(resourcename, CmsResourceFilter.IGNORE_EXPIRATION);
+            // import the content from the FS
             try {
-                i.next().modifyVfs(m_cms, vfsFile, fsFile);
-            } catch (CmsSynchronizeException e) {
-                if (LOG.isInfoEnabled()) {
-                    LOG.info(
-                        Messages.get().getBundle().key(Messages.LOG_SYNCHRONIZE_UPDATE_FAILED_1, res.getRootPath()),
-                        e);
+                vfsFile.setContents(CmsFileUtil.readFile(fsFile));
+            } catch (IOException e) {
+                throw new CmsSynchronizeException(Messages.get().container(Messages.ERR_IMPORT_1, fsFile.getName()));
+            }
+            contentHash = getContentHash(vfsFile.getContents());
+            m_cms.writeFile(vfsFile);
+            // now check if there is some external method to be called which
+            // should modify
+            // the updated resource in the VFS
+            Iterator<I_CmsSynchronizeModification> i = m_synchronizeModifications.iterator();
+            while (i.hasNext()) {
+                try {
+                    i.next().modifyVfs(m_cms, vfsFile, fsFile);
+                } catch (CmsSynchronizeException e) {
+                    if (LOG.isInfoEnabled()) {
+                        LOG.info(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_SYNCHRONIZE_UPDATE_FAILED_1,
+                                res.getRootPath()),
+                            e);
+                    }
+                    break;
                 }
-                break;
             }
         }
         // everything is done now, so unlock the resource
@@ -994,7 +1274,8 @@ public class CmsSynchronize {
             sync.getResName(),
             translate(resourcename),
             res.getDateLastModified(),
-            fsFile.lastModified());
+            fsFile.lastModified(),
+            contentHash);
         m_newSyncList.put(translate(resourcename), syncList);
         // and remove it from the old one
         m_syncList.remove(translate(resourcename));
@@ -1005,6 +1286,30 @@ public class CmsSynchronize {
             I_CmsReport.FORMAT_OK);
     }
 
+    /**
+     * Returns the content hash computed by the given task.<p>
+     *
+     * @param future the task computing the hash, may be <code>null</code>
+     *
+     * @return the content hash, or <code>null</code> if it could not be computed
+     */
+    private byte[] waitForContentHash(Future<byte[]> future) {
+
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            LOG.debug(e.getLocalizedMessage(), e);
+        } catch (ExecutionException e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+        return null;
+    }
+
     /**
      * This writes the byte content of a resource to the file on the server
      * file system.<p>
@@ -1048,48 +1353,66 @@ public class CmsSynchronize {
      * Writes the synchronization list of the current sync process to the
      * server file system. <p>
      *
-     * The file can be found in the synchronization folder
+     * The list is written to a compact binary sync state file in the synchronization folder.
+     * The file is written to a temporary file first and then renamed, so that an
+     * interrupted synchronization does not leave a damaged sync state behind.<p>
+     *
      * @throws CmsException if something goes wrong
      */
     private void writeSyncList() throws CmsException {
 
-        // the sync list file in the server file system
-        File syncListFile;
-        syncListFile = new File(m_destinationPathInRfs, SYNCLIST_FILENAME);
+        // the sync state file in the server file system
+        File syncStateFile = new File(m_destinationPathInRfs, SYNCSTATE_FILENAME);
+        File tempFile = new File(m_destinationPathInRfs, SYNCSTATE_FILENAME + ".tmp");
 
         // prepare the streams to write the data
-        FileOutputStream fOut = null;
-        PrintWriter pOut = null;
+        DataOutputStream out = null;
         try {
-            fOut = new FileOutputStream(syncListFile);
-            pOut = new PrintWriter(fOut);
-            pOut.println(CmsSynchronizeList.getFormatDescription());
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(SYNCSTATE_HEADER);
+            out.writeInt(m_newSyncList.size());
 
-            // get all keys from the hash map and make an iterator on it
+            // loop through all values and write them to the sync state file
             Iterator<CmsSynchronizeList> values = m_newSyncList.values().iterator();
-            // loop through all values and write them to the sync list file in
-            // a human readable format
             while (values.hasNext()) {
                 CmsSynchronizeList sync = values.next();
-                //fOut.write(sync.toString().getBytes());
-                pOut.println(sync.toString());
+                out.writeUTF(sync.getResName());
+                out.writeUTF(sync.getTransResName());
+                out.writeLong(sync.getModifiedVfs());
+                out.writeLong(sync.getModifiedFs());
+                byte[] contentHash = sync.getContentHash();
+                if (contentHash != null) {
+                    out.writeByte(contentHash.length);
+                    out.write(contentHash);
+                } else {
+                    out.writeByte(0);
+                }
+            }
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(syncStateFile)) {
+                // renaming does not replace an existing file on all platforms
+                syncStateFile.delete();
+                if (!tempFile.renameTo(syncStateFile)) {
+                    throw new IOException(syncStateFile.getAbsolutePath());
+                }
             }
         } catch (IOException e) {
             throw new CmsDbIoException(Messages.get().container(Messages.ERR_IO_WRITE_SYNCLIST_0), e);
         } finally {
             // close all streams that were used
-            try {
-                if (pOut != null) {
-                    pOut.flush();
-                    pOut.close();
-                }
-                if (fOut != null) {
-                    fOut.flush();
-                    fOut.close();
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
                 }
-            } catch (IOException e) {
-                // ignore
             }
         }
+        // the text sync list of older versions is outdated now
+        File syncListFile = new File(m_destinationPathInRfs, SYNCLIST_FILENAME);
+        if (syncListFile.exists()) {
+            syncListFile.delete();
+        }
     }
-}
\ No newline at end of file
+}
@@ -42,6 +42,12 @@ public class CmsSynchronizeList implements Serializable {
     /** Serial version UID required for safe serialization. */
     private static final long serialVersionUID = -4460686435282590290L;
 
+    /**
+     * MD5 hash of the content of this resource at the time of the last synchronization,
+     * or <code>null</code> if not known.
+     */
+    private byte[] m_contentHash;
+
     /**
      * Last modification data of this resource in the FS.
      */
@@ -81,6 +87,26 @@ public class CmsSynchronizeList implements Serializable {
         m_modifiedFs = modifiedFs;
     }
 
+    /**
+     * Constructor, creates a new CmsSynchronizeList object with a content hash.
+     *
+     * @param resName The name of the resource
+     * @param transResName The name of the resource
+     * @param modifiedVfs last modification date in the Vfs
+     * @param modifiedFs last modification date in the Fs
+     * @param contentHash the MD5 hash of the synchronized content, or <code>null</code> if not known
+     */
+    public CmsSynchronizeList(
+        String resName,
+        String transResName,
+        long modifiedVfs,
+        long modifiedFs,
+        byte[] contentHash) {
+
+        this(resName, transResName, modifiedVfs, modifiedFs);
+        m_contentHash = contentHash;
+    }
+
     /**
      * Returns a format description of the sync-list file on the server FS.<p>
      *
@@ -94,6 +120,15 @@ public class CmsSynchronizeList implements Serializable {
         return output;
     }
 
+    /**
+     * Returns the MD5 hash of the content synchronized the last time.
+     * @return the MD5 hash of the content, or <code>null</code> if not known
+     */
+    public byte[] getContentHash() {
+
+        return m_contentHash;
+    }
+
     /**
      * Returns the last modification date in the Fs.
      * @return last modification date in the Fs
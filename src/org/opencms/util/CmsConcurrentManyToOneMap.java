@@ -0,0 +1,258 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Variant of {@link CmsManyToOneMap} which can be updated in place while other threads read from it.<p>
+ *
+ * Lookups by key do not block. Modifications are serialized, and each of them only touches the entries
+ * of the affected keys and values, so the map never has to be copied to publish a change.<p>
+ *
+ * To keep the footprint small for large maps in which most values only have a single key, the reverse index
+ * stores a single key directly and only uses an array for values with more than one key.<p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @since 10.5.0
+ */
+public class CmsConcurrentManyToOneMap<K, V> {
+
+    /** Map from keys to values. */
+    private ConcurrentHashMap<K, V> m_forwardMap;
+
+    /** Map from values to either a single key or an array of keys. */
+    private ConcurrentHashMap<V, Object> m_reverseMap;
+
+    /**
+     * Creates a new instance.<p>
+     */
+    public CmsConcurrentManyToOneMap() {
+
+        this(16);
+    }
+
+    /**
+     * Creates a new instance with an initial capacity.<p>
+     *
+     * @param initialCapacity the expected number of keys
+     */
+    public CmsConcurrentManyToOneMap(int initialCapacity) {
+
+        m_forwardMap = new ConcurrentHashMap<K, V>(initialCapacity);
+        m_reverseMap = new ConcurrentHashMap<V, Object>(initialCapacity);
+    }
+
+    /**
+     * Gets the value for a key.<p>
+     *
+     * @param key the key
+     * @return the value for the key, or null
+     */
+    public V get(K key) {
+
+        return m_forwardMap.get(key);
+    }
+
+    /**
+     * Gets the (immutable) live view of the map from keys to values.<p>
+     *
+     * @return the map from keys to values
+     */
+    public Map<K, V> getForwardMap() {
+
+        return Collections.unmodifiableMap(m_forwardMap);
+    }
+
+    /**
+     * Gets the keys which are associated with a value.<p>
+     *
+     * @param value the value
+     * @return the keys for the value
+     */
+    public Set<K> getKeys(V value) {
+
+        return toSet(m_reverseMap.get(value));
+    }
+
+    /**
+     * Associates a value with a key.<p>
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public synchronized void put(K key, V value) {
+
+        V oldValue = m_forwardMap.put(key, value);
+        if (oldValue != null) {
+            if (oldValue.equals(value)) {
+                return;
+            }
+            removeReverse(oldValue, key);
+        }
+        addReverse(value, key);
+    }
+
+    /**
+     * Removes the entry with the given key.<p>
+     *
+     * @param key the key
+     */
+    public synchronized void remove(K key) {
+
+        V removedValue = m_forwardMap.remove(key);
+        if (removedValue != null) {
+            removeReverse(removedValue, key);
+        }
+    }
+
+    /**
+     * Removes all entries with the given value.<p>
+     *
+     * @param value the value
+     */
+    public synchronized void removeValue(V value) {
+
+        for (K key : toSet(m_reverseMap.remove(value))) {
+            m_forwardMap.remove(key, value);
+        }
+    }
+
+    /**
+     * Replaces the keys associated with a value.<p>
+     *
+     * New keys are added before stale keys are removed, so a key which is associated with the value both
+     * before and after the call is visible to readers at all times.<p>
+     *
+     * @param value the value
+     * @param keys the new keys for the value
+     */
+    public synchronized void replaceKeys(V value, Collection<K> keys) {
+
+        Set<K> oldKeys = toSet(m_reverseMap.get(value));
+        for (K key : keys) {
+            if (!oldKeys.contains(key)) {
+                put(key, value);
+            }
+        }
+        for (K key : oldKeys) {
+            if (!keys.contains(key)) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of keys.<p>
+     *
+     * @return the number of keys
+     */
+    public int size() {
+
+        return m_forwardMap.size();
+    }
+
+    /**
+     * Adds a key to the reverse index entry of a value.<p>
+     *
+     * @param value the value
+     * @param key the key to add
+     */
+    private void addReverse(V value, K key) {
+
+        Object entry = m_reverseMap.get(value);
+        if (entry == null) {
+            m_reverseMap.put(value, key);
+        } else if (entry instanceof Object[]) {
+            Object[] keys = (Object[])entry;
+            Object[] newKeys = new Object[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, keys.length);
+            newKeys[keys.length] = key;
+            m_reverseMap.put(value, newKeys);
+        } else {
+            m_reverseMap.put(value, new Object[] {entry, key});
+        }
+    }
+
+    /**
+     * Removes a key from the reverse index entry of a value.<p>
+     *
+     * @param value the value
+     * @param key the key to remove
+     */
+    private void removeReverse(V value, K key) {
+
+        Object entry = m_reverseMap.get(value);
+        if (entry instanceof Object[]) {
+            Object[] keys = (Object[])entry;
+            Object[] newKeys = new Object[keys.length - 1];
+            int i = 0;
+            for (Object k : keys) {
+                if (!k.equals(key)) {
+                    if (i == newKeys.length) {
+                        // key not contained
+                        return;
+                    }
+                    newKeys[i++] = k;
+                }
+            }
+            m_reverseMap.put(value, newKeys.length == 1 ? newKeys[0] : newKeys);
+        } else if ((entry != null) && entry.equals(key)) {
+            m_reverseMap.remove(value);
+        }
+    }
+
+    /**
+     * Converts a reverse index entry to a set of keys.<p>
+     *
+     * @param entry the reverse index entry, may be null
+     * @return the set of keys
+     */
+    @SuppressWarnings("unchecked")
+    private Set<K> toSet(Object entry) {
+
+        if (entry == null) {
+            return Collections.emptySet();
+        }
+        if (entry instanceof Object[]) {
+            Set<K> result = new HashSet<K>();
+            for (Object key : (Object[])entry) {
+                result.add((K)key);
+            }
+            return result;
+        }
+        return Collections.singleton((K)entry);
+    }
+}
@@ -41,6 +41,7 @@ import org.opencms.main.CmsSystemInfo;
 import org.opencms.main.OpenCms;
 import org.opencms.staticexport.CmsLinkManager;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -50,7 +51,9 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Serializable;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -942,6 +945,48 @@ public final class CmsFileUtil {
         }
     }
 
+    /**
+     * Writes a serialized object to a file, replacing the file only if the object was written completely.<p>
+     *
+     * The object is first written to a temporary file next to the target file, which is then renamed.
+     * The temporary file is always removed, also if writing the object fails.<p>
+     *
+     * @param file the file to write
+     * @param object the object to write
+     *
+     * @throws IOException if writing the object or replacing the file fails
+     */
+    public static void writeObject(File file, Serializable object) throws IOException {
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        ObjectOutputStream out = null;
+        try {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeObject(object);
+            out.close();
+            out = null;
+            if (file.exists() && !file.delete()) {
+                throw new IOException(Messages.get().getBundle().key(Messages.ERR_DELETE_FILE_1, file.getPath()));
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException(
+                    Messages.get().getBundle().key(Messages.ERR_RENAME_FILE_2, tempFile.getPath(), file.getPath()));
+            }
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
     /**
      * Helper method for creating a FileWalkState object from a File object.<p>
      *
@@ -83,6 +83,16 @@ public class CmsManyToOneMap<K, V> {
         return m_forwardMap.get(key);
     }
 
+    /**
+     * Gets the (immutable) map from keys to values.
+     *
+     * @return the map from keys to values
+     */
+    public Map<K, V> getForwardMap() {
+
+        return Collections.unmodifiableMap(m_forwardMap);
+    }
+
     /**
      * Associates a value with a key.<p>
      *
@@ -122,16 +132,6 @@ public class CmsManyToOneMap<K, V> {
         }
     }
 
-    /**
-     * Gets the (immutable) map from keys to values.
-     *
-     * @return the map from keys to values
-     */
-    Map<K, V> getForwardMap() {
-
-        return Collections.unmodifiableMap(m_forwardMap);
-    }
-
     /**
      * Gets the multimap from values to keys.<p>
      *
@@ -55,6 +55,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CSV_XML_TRANSFORMATION_FAILED_0 = "ERR_CSV_XML_TRANSFORMATION_FAILED_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_DELETE_FILE_1 = "ERR_DELETE_FILE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_FILE_ARG_ACCESS_1 = "ERR_FILE_ARG_ACCESS_1";
 
@@ -94,6 +97,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_MISSING_RESOURCES_1 = "ERR_MISSING_RESOURCES_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_RENAME_FILE_2 = "ERR_RENAME_FILE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_UNABLE_TO_PARSE_COLOR_2 = "ERR_UNABLE_TO_PARSE_COLOR_2";
 
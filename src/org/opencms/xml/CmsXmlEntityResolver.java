@@ -47,19 +47,34 @@ import org.opencms.xml.page.CmsXmlPage;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
 import org.apache.commons.logging.Log;
+import org.apache.xerces.dom.DOMInputImpl;
 
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 
 /**
  * Resolves XML entities (e.g. external DTDs) in the OpenCms VFS.<p>
  *
- * Also provides a cache for XML content schema definitions.<p>
+ * Also provides a cache for XML content schema definitions and compiled XML schemas.
+ * The system ids each cached definition and schema was built from are tracked, so changing
+ * or publishing a schema only removes the definitions and schemas which actually use it.<p>
  *
  * @since 6.0.0
  */
@@ -91,9 +106,15 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
     /** A temporary cache for XML content definitions. */
     private static Map<String, CmsXmlContentDefinition> m_cacheContentDefinitions;
 
+    /** The cache keys of the content definitions and schemas built from a system id, by cache key of the system id. */
+    private static ConcurrentHashMap<String, Set<String>> m_cacheDependencies;
+
     /** A permanent cache to avoid multiple readings of often used files from the VFS. */
     private static Map<String, byte[]> m_cachePermanent;
 
+    /** A temporary cache for compiled XML schemas. */
+    private static Map<String, Schema> m_cacheSchemas;
+
     /** A temporary cache to avoid multiple readings of often used files from the VFS. */
     private static Map<String, byte[]> m_cacheTemporary;
 
@@ -211,6 +232,10 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
             m_cachePermanent = new ConcurrentHashMap<String, byte[]>(32);
 
             m_cacheContentDefinitions = CmsMemoryMonitor.createLRUCacheMap(CONTENT_DEFINITION_CACHE_SIZE);
+
+            m_cacheSchemas = CmsMemoryMonitor.createLRUCacheMap(CONTENT_DEFINITION_CACHE_SIZE);
+
+            m_cacheDependencies = new ConcurrentHashMap<String, Set<String>>();
         }
         if (OpenCms.getRunLevel() > OpenCms.RUNLEVEL_1_CORE_OBJECT) {
             if ((OpenCms.getMemoryMonitor() != null)
@@ -237,6 +262,13 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
                 OpenCms.getMemoryMonitor().register(
                     CmsXmlEntityResolver.class.getName() + ".cacheContentDefinitions",
                     cacheContentDefinitions);
+
+                Map<String, Schema> cacheSchemas = CmsMemoryMonitor.createLRUCacheMap(CONTENT_DEFINITION_CACHE_SIZE);
+                cacheSchemas.putAll(m_cacheSchemas);
+                m_cacheSchemas = cacheSchemas;
+                OpenCms.getMemoryMonitor().register(
+                    CmsXmlEntityResolver.class.getName() + ".cacheSchemas",
+                    cacheSchemas);
             }
         }
     }
@@ -273,6 +305,9 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
     public void cacheContentDefinition(String systemId, CmsXmlContentDefinition contentDefinition) {
 
         String cacheKey = getCacheKeyForCurrentProject(systemId);
+        Set<String> dependencies = new HashSet<String>();
+        addDependencies(dependencies, contentDefinition);
+        registerDependencies(cacheKey, dependencies);
         m_cacheContentDefinitions.put(cacheKey, contentDefinition);
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_CACHED_SYSTEM_ID_1, cacheKey));
@@ -289,18 +324,23 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
             case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
                 // only flush cache if a schema definition where published
                 CmsUUID publishHistoryId = new CmsUUID((String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID));
-                if (isSchemaDefinitionInPublishList(publishHistoryId)) {
-                    m_cacheTemporary.clear();
-                    m_cacheContentDefinitions.clear();
+                List<String> publishedSchemas = getSchemaDefinitionsInPublishList(publishHistoryId);
+                if (publishedSchemas == null) {
+                    clearCaches();
                     if (LOG.isDebugEnabled()) {
                         LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_FLUSHED_CACHES_0));
                     }
+                } else {
+                    for (String rootPath : publishedSchemas) {
+                        // the offline entries were already removed when the resources were changed
+                        m_cacheTemporary.remove(getCacheKey(rootPath, true));
+                        uncacheDependencies(getCacheKey(rootPath, true));
+                    }
                 }
                 break;
             case I_CmsEventListener.EVENT_CLEAR_CACHES:
                 // flush cache
-                m_cacheTemporary.clear();
-                m_cacheContentDefinitions.clear();
+                clearCaches();
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_FLUSHED_CACHES_0));
                 }
@@ -345,6 +385,66 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
         return result;
     }
 
+    /**
+     * Returns the compiled XML schema for the given system id.<p>
+     *
+     * The schema is compiled on first use and cached until it or one of the schemas it includes is changed.<p>
+     *
+     * @param systemId the system id of the XML schema
+     *
+     * @return the compiled XML schema, or <code>null</code> if the schema could not be resolved or compiled
+     */
+    public Schema getSchema(String systemId) {
+
+        String cacheKey = getCacheKeyForCurrentProject(systemId);
+        Schema result = m_cacheSchemas.get(cacheKey);
+        if (result != null) {
+            return result;
+        }
+        InputSource source = resolveEntity(null, systemId);
+        if (source == null) {
+            return null;
+        }
+        final Set<String> dependencies = new HashSet<String>();
+        addDependency(dependencies, systemId);
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        factory.setResourceResolver(new LSResourceResolver() {
+
+            public LSInput resolveResource(
+                String type,
+                String namespaceURI,
+                String publicId,
+                String includedSystemId,
+                String baseURI) {
+
+                if (includedSystemId == null) {
+                    return null;
+                }
+                InputSource included = resolveEntity(publicId, includedSystemId);
+                if (included == null) {
+                    return null;
+                }
+                addDependency(dependencies, includedSystemId);
+                return new DOMInputImpl(publicId, includedSystemId, baseURI, included.getByteStream(), null);
+            }
+        });
+        try {
+            result = factory.newSchema(new StreamSource(source.getByteStream(), systemId));
+        } catch (Exception e) {
+            // the schema is validated the conventional way, which also reports the error
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+            return null;
+        }
+        registerDependencies(cacheKey, dependencies);
+        m_cacheSchemas.put(cacheKey, result);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_CACHED_SYSTEM_ID_1, cacheKey));
+        }
+        return result;
+    }
+
     /**
      * @see org.xml.sax.EntityResolver#resolveEntity(java.lang.String, java.lang.String)
      */
@@ -458,24 +558,17 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
 
         Object o;
         o = m_cacheTemporary.remove(getCacheKey(systemId, false));
-        if (null != o) {
-            // if an object was removed from the temporary cache, all XML content definitions must be cleared
-            // because this may be a nested subschema
-            m_cacheContentDefinitions.clear();
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(
-                    Messages.get().getBundle().key(Messages.LOG_ERR_UNCACHED_SYS_ID_1, getCacheKey(systemId, false)));
-            }
-        } else {
-            // check if a cached content definition has to be removed based on the system id
-            o = m_cacheContentDefinitions.remove(getCacheKey(systemId, false));
-            if ((null != o) && LOG.isDebugEnabled()) {
-                LOG.debug(
-                    Messages.get().getBundle().key(
-                        Messages.LOG_ERR_UNCACHED_CONTENT_DEF_1,
-                        getCacheKey(systemId, false)));
-            }
+        if ((null != o) && LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(Messages.LOG_ERR_UNCACHED_SYS_ID_1, getCacheKey(systemId, false)));
         }
+        // remove the content definitions and schemas built from the system id, since it may be a nested subschema
+        o = m_cacheContentDefinitions.remove(getCacheKey(systemId, false));
+        if ((null != o) && LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(Messages.LOG_ERR_UNCACHED_CONTENT_DEF_1, getCacheKey(systemId, false)));
+        }
+        uncacheDependencies(getCacheKey(systemId, false));
     }
 
     /**
@@ -493,6 +586,49 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
         return result;
     }
 
+    /**
+     * Adds the cache keys of the system ids the given content definition and its nested definitions were built from.<p>
+     *
+     * @param dependencies the set to add the cache keys to
+     * @param contentDefinition the content definition
+     */
+    private void addDependencies(Set<String> dependencies, CmsXmlContentDefinition contentDefinition) {
+
+        if ((contentDefinition.getSchemaLocation() == null)
+            || !addDependency(dependencies, contentDefinition.getSchemaLocation())) {
+            // avoid endless loops for recursive definitions
+            return;
+        }
+        for (CmsXmlContentDefinition include : contentDefinition.getIncludes()) {
+            addDependencies(dependencies, include);
+        }
+    }
+
+    /**
+     * Adds the cache keys for the given system id and its translated form.<p>
+     *
+     * @param dependencies the set to add the cache keys to
+     * @param systemId the system id
+     *
+     * @return <code>true</code> if the set did not already contain the system id
+     */
+    private boolean addDependency(Set<String> dependencies, String systemId) {
+
+        dependencies.add(getCacheKeyForCurrentProject(translateLegacySystemId(systemId)));
+        return dependencies.add(getCacheKeyForCurrentProject(systemId));
+    }
+
+    /**
+     * Clears the temporary caches for system ids, content definitions and schemas.<p>
+     */
+    private void clearCaches() {
+
+        m_cacheTemporary.clear();
+        m_cacheContentDefinitions.clear();
+        m_cacheSchemas.clear();
+        m_cacheDependencies.clear();
+    }
+
     /**
      * Returns a cache key for the given system id (filename) based on the status
      * of the given project flag.<p>
@@ -532,18 +668,19 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
     }
 
     /**
-     * Proves if there is at least one xsd or dtd file in the list of resources to publish.<p>
+     * Returns the root paths of the xsd and dtd files and other cached system ids in the published resources.<p>
      *
      * @param publishHistoryId the publish history id
      *
-     * @return true, if there is at least one xsd or dtd file in the list of resources to publish, otherwise false
+     * @return the root paths, or <code>null</code> if the published resources are not available
      */
-    private boolean isSchemaDefinitionInPublishList(CmsUUID publishHistoryId) {
+    private List<String> getSchemaDefinitionsInPublishList(CmsUUID publishHistoryId) {
 
         if (m_cms == null) {
-            // CmsObject not available, assume there may be a schema definition in the publish history
-            return true;
+            // CmsObject not available, assume there may be any schema definition in the publish history
+            return null;
         }
+        List<String> result = new ArrayList<String>();
         try {
             List<CmsPublishedResource> publishedResources = m_cms.readPublishedResources(publishHistoryId);
             for (CmsPublishedResource cmsPublishedResource : publishedResources) {
@@ -551,14 +688,60 @@ public class CmsXmlEntityResolver implements EntityResolver, I_CmsEventListener
                 String resourceRootPathLowerCase = resourceRootPath.toLowerCase();
                 if (resourceRootPathLowerCase.endsWith(".xsd")
                     || resourceRootPathLowerCase.endsWith(".dtd")
-                    || m_cacheTemporary.containsKey(getCacheKey(resourceRootPath, true))) {
-                    return true;
+                    || m_cacheTemporary.containsKey(getCacheKey(resourceRootPath, true))
+                    || m_cacheDependencies.containsKey(getCacheKey(resourceRootPath, true))) {
+                    result.add(resourceRootPath);
                 }
             }
         } catch (CmsException e) {
             // error reading published Resources.
             LOG.warn(e.getMessage(), e);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Registers the given cached content definition or schema as depending on the given system ids.<p>
+     *
+     * @param cacheKey the cache key of the content definition or schema
+     * @param dependencies the cache keys of the system ids it was built from
+     */
+    private void registerDependencies(String cacheKey, Set<String> dependencies) {
+
+        for (String dependency : dependencies) {
+            Set<String> dependents = m_cacheDependencies.get(dependency);
+            if (dependents == null) {
+                dependents = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                Set<String> existing = m_cacheDependencies.putIfAbsent(dependency, dependents);
+                if (existing != null) {
+                    dependents = existing;
+                }
+            }
+            dependents.add(cacheKey);
+        }
+    }
+
+    /**
+     * Removes the cached content definitions and schemas which were built from the given system id.<p>
+     *
+     * @param cacheKey the cache key of the system id
+     */
+    private void uncacheDependencies(String cacheKey) {
+
+        m_cacheContentDefinitions.remove(cacheKey);
+        m_cacheSchemas.remove(cacheKey);
+        Set<String> dependents = m_cacheDependencies.remove(cacheKey);
+        if (dependents != null) {
+            Iterator<String> it = dependents.iterator();
+            while (it.hasNext()) {
+                String dependent = it.next();
+                m_cacheContentDefinitions.remove(dependent);
+                m_cacheSchemas.remove(dependent);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_UNCACHED_CONTENT_DEF_1, dependent));
+                }
+            }
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -41,7 +41,11 @@ import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
 
+import javax.xml.XMLConstants;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
 
 import org.apache.commons.logging.Log;
 import org.apache.xerces.parsers.SAXParser;
@@ -52,12 +56,14 @@ import org.dom4j.Node;
 import org.dom4j.io.OutputFormat;
 import org.dom4j.io.SAXReader;
 import org.dom4j.io.XMLWriter;
+import org.xml.sax.Attributes;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 /**
@@ -804,6 +810,17 @@ public final class CmsXmlUtils {
      */
     public static void validateXmlStructure(byte[] xmlData, EntityResolver resolver) throws CmsXmlException {
 
+        if (resolver instanceof CmsXmlEntityResolver) {
+            // validate with the compiled and cached XML schema if the document declares one
+            String schemaLocation = getSchemaLocation(xmlData);
+            if (schemaLocation != null) {
+                Schema schema = ((CmsXmlEntityResolver)resolver).getSchema(schemaLocation);
+                if (schema != null) {
+                    validateXmlStructure(xmlData, schema);
+                    return;
+                }
+            }
+        }
         validateXmlStructure(new ByteArrayInputStream(xmlData), resolver);
     }
 
@@ -899,6 +916,18 @@ public final class CmsXmlUtils {
             return;
         }
 
+        checkValidationErrors(errorHandler);
+    }
+
+    /**
+     * Throws an exception containing the validation errors collected by the given error handler, if there are any.<p>
+     *
+     * @param errorHandler the error handler
+     *
+     * @throws CmsXmlException if there was at least one validation error
+     */
+    private static void checkValidationErrors(CmsXmlValidationErrorHandler errorHandler) throws CmsXmlException {
+
         if (errorHandler.getErrors().elements().size() > 0) {
             // there was at last one validation error, so throw an exception
             StringWriter out = new StringWriter(256);
@@ -918,4 +947,83 @@ public final class CmsXmlUtils {
             throw new CmsXmlException(Messages.get().container(Messages.ERR_XML_VALIDATION_1, out.toString()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the XML schema location declared by the root element of the given XML document.<p>
+     *
+     * Only the document up to the root element is parsed.<p>
+     *
+     * @param xmlData the XML document
+     *
+     * @return the schema location, or <code>null</code> if the document declares no schema location or uses a DTD
+     */
+    private static String getSchemaLocation(byte[] xmlData) {
+
+        final String[] result = new String[1];
+        DefaultHandler handler = new DefaultHandler() {
+
+            @Override
+            public InputSource resolveEntity(String publicId, String systemId) throws SAXException {
+
+                // documents using a DTD are validated the conventional way
+                throw new SAXException(systemId);
+            }
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+
+                result[0] = attributes.getValue(
+                    XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+                    "noNamespaceSchemaLocation");
+                // the root element is all that is needed
+                throw new SAXException(qName);
+            }
+        };
+        try {
+            XMLReader reader = new SAXParser();
+            reader.setContentHandler(handler);
+            reader.setEntityResolver(handler);
+            reader.setErrorHandler(handler);
+            reader.parse(new InputSource(new ByteArrayInputStream(xmlData)));
+        } catch (SAXException e) {
+            // expected, parsing stops at the root element
+        } catch (IOException e) {
+            // should not happen since we read from a byte array
+            return null;
+        }
+        return result[0];
+    }
+
+    /**
+     * Validates the structure of a XML document contained in a byte array with the given compiled XML schema.<p>
+     *
+     * @param xmlData a byte array containing a XML document that should be validated
+     * @param schema the compiled XML schema
+     *
+     * @throws CmsXmlException if the validation fails
+     */
+    private static void validateXmlStructure(byte[] xmlData, Schema schema) throws CmsXmlException {
+
+        // add an error handler which turns any errors into XML
+        CmsXmlValidationErrorHandler errorHandler = new CmsXmlValidationErrorHandler();
+        Validator validator = schema.newValidator();
+        validator.setErrorHandler(errorHandler);
+        try {
+            validator.validate(new StreamSource(new ByteArrayInputStream(xmlData)));
+        } catch (IOException e) {
+            // should not happen since we read form a byte array
+            if (LOG.isErrorEnabled()) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_READ_XML_FROM_BYTE_ARR_FAILED_0), e);
+            }
+            return;
+        } catch (SAXException e) {
+            // should not happen since all errors are handled in the XML error handler
+            if (LOG.isErrorEnabled()) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_PARSE_SAX_EXC_0), e);
+            }
+            return;
+        }
+        checkValidationErrors(errorHandler);
+    }
+}
@@ -838,6 +838,68 @@ public class TestConfig extends OpenCmsTestCase {
         assertEquals(typeConf2.getTypeName(), resourceTypeConfig.get(0).getTypeName());
     }
 
+    /**
+     * Tests the lookup of sitemap configurations with many nested sub-sitemaps, and measures its speed.<p>
+     *
+     * @throws Exception -
+     */
+    public void testLookupConfigurationNestedSubsites() throws Exception {
+
+        int count = 500;
+        Map<CmsUUID, CmsADEConfigDataInternal> siteConfigs = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        String[] basePaths = new String[count];
+        String[] pagePaths = new String[count];
+        String path = "/sites/default/";
+        for (int i = 0; i < count; i++) {
+            path = path + "subsite" + i + "/";
+            basePaths[i] = path;
+            pagePaths[i] = path + "index.html";
+            siteConfigs.put(new CmsUUID(), CmsADEConfigDataInternal.emptyConfiguration(path));
+        }
+        long start = System.currentTimeMillis();
+        CmsADEConfigCacheState state = new CmsADEConfigCacheState(
+            rootCms(),
+            siteConfigs,
+            new ArrayList<CmsADEConfigDataInternal>(),
+            new HashMap<CmsUUID, CmsElementView>());
+        echo(
+            "Creating the configuration state for "
+                + count
+                + " nested sub-sitemaps took "
+                + (System.currentTimeMillis() - start)
+                + " ms");
+
+        assertNull(state.lookupConfiguration("/sites/default/index.html").getBasePath());
+        assertEquals(basePaths[0], state.lookupConfiguration(basePaths[0]).getBasePath());
+        String folderPath = basePaths[0].substring(0, basePaths[0].length() - 1);
+        assertEquals(basePaths[0], state.lookupConfiguration(folderPath).getBasePath());
+        assertEquals(basePaths[9], state.lookupConfiguration(pagePaths[9]).getBasePath());
+        assertEquals(basePaths[count - 1], state.lookupConfiguration(pagePaths[count - 1]).getBasePath());
+        assertEquals(basePaths[9], state.lookupConfiguration(basePaths[9] + "unknown/folder/").getBasePath());
+        assertEquals(count, state.getSiteConfigPaths(pagePaths[count - 1]).size());
+        assertEquals(basePaths[count - 2], state.lookupConfiguration(pagePaths[count - 1]).parent().getBasePath());
+        // the configuration objects are only created once for each state
+        assertSame(state.lookupConfiguration(pagePaths[100]), state.lookupConfiguration(basePaths[100]));
+        assertSame(
+            state.lookupConfiguration(pagePaths[100]).parent(),
+            state.lookupConfiguration(pagePaths[100]).parent());
+
+        int lookups = 50000;
+        start = System.currentTimeMillis();
+        for (int i = 0; i < lookups; i++) {
+            CmsADEConfigData config = state.lookupConfiguration(pagePaths[i % count]);
+            config.getPropertyConfiguration();
+            config.getFormatterChangeSets();
+        }
+        echo(
+            lookups
+                + " configuration lookups with "
+                + count
+                + " nested sub-sitemaps took "
+                + (System.currentTimeMillis() - start)
+                + " ms");
+    }
+
     /**
      * Tests inheritance of model pages.<p>
      *
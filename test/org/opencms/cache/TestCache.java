@@ -27,10 +27,17 @@
 
 package org.opencms.cache;
 
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
+import org.opencms.main.OpenCms;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.io.File;
+import java.io.Serializable;
+import java.util.List;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -42,6 +49,43 @@ import junit.framework.TestSuite;
  */
 public class TestCache extends OpenCmsTestCase {
 
+    /**
+     * Snapshot cache implementation which just stores a string.<p>
+     */
+    private static class CmsTestSnapshotCache implements I_CmsSnapshotCache {
+
+        /** The resources published since the snapshot was written. */
+        List<CmsPublishedResource> m_publishedResources;
+
+        /** The cached state. */
+        String m_state;
+
+        /**
+         * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotKey()
+         */
+        public String getSnapshotKey() {
+
+            return "test";
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsSnapshotCache#getSnapshotState()
+         */
+        public Serializable getSnapshotState() {
+
+            return m_state;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsSnapshotCache#restoreSnapshotState(java.io.Serializable, java.util.List)
+         */
+        public void restoreSnapshotState(Serializable state, List<CmsPublishedResource> publishedResources) {
+
+            m_state = (String)state;
+            m_publishedResources = publishedResources;
+        }
+    }
+
     /**
      * Default JUnit constructor.<p>
      *
@@ -65,6 +109,7 @@ public class TestCache extends OpenCmsTestCase {
         suite.setName(TestCache.class.getName());
 
         suite.addTest(new TestCache("testVfsMemoryObjectCache"));
+        suite.addTest(new TestCache("testCacheSnapshot"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -84,6 +129,49 @@ public class TestCache extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests writing and restoring a cache snapshot with resources published in between.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testCacheSnapshot() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        File file = File.createTempFile("cache-snapshot", ".ser");
+        file.delete();
+        try {
+            CmsTestSnapshotCache cache = new CmsTestSnapshotCache();
+            CmsCacheSnapshotManager manager = new CmsCacheSnapshotManager(cms, file);
+            // no snapshot yet
+            assertFalse(manager.register(cache));
+            cache.m_state = "cached";
+            manager.writeSnapshot();
+            assertTrue(file.exists());
+
+            // publish a resource after the snapshot was written
+            String path = "/index.html";
+            cms.lockResource(path);
+            cms.setDateLastModified(path, System.currentTimeMillis(), false);
+            cms.unlockResource(path);
+            OpenCms.getPublishManager().publishResource(cms, path);
+            OpenCms.getPublishManager().waitWhileRunning();
+
+            CmsTestSnapshotCache restoredCache = new CmsTestSnapshotCache();
+            CmsCacheSnapshotManager restoredManager = new CmsCacheSnapshotManager(cms, file);
+            assertTrue(restoredManager.register(restoredCache));
+            assertEquals("cached", restoredCache.m_state);
+            boolean found = false;
+            for (CmsPublishedResource pubRes : restoredCache.m_publishedResources) {
+                if (pubRes.getRootPath().equals(cms.getRequestContext().addSiteRoot(path))) {
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        } finally {
+            file.delete();
+        }
+    }
+
     /**
      * Tests the decoration postprocessor.<p>
      *
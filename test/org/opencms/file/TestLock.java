@@ -30,7 +30,9 @@ package org.opencms.file;
 import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.file.types.CmsResourceTypePlain;
 import org.opencms.lock.CmsLockException;
+import org.opencms.lock.CmsLock;
 import org.opencms.lock.CmsLockFilter;
+import org.opencms.lock.CmsLockIndex;
 import org.opencms.lock.CmsLockType;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsAccessControlEntry;
@@ -44,6 +46,7 @@ import org.opencms.test.OpenCmsTestResourceFilter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -77,6 +80,7 @@ public class TestLock extends OpenCmsTestCase {
         suite.setName(TestLock.class.getName());
 
         suite.addTest(new TestLock("testLockFilter"));
+        suite.addTest(new TestLock("testLockIndex"));
         suite.addTest(new TestLock("testLockWithDeletedNewFiles"));
         suite.addTest(new TestLock("testLockOtherUser"));
         suite.addTest(new TestLock("testLockForFile"));
@@ -192,6 +196,56 @@ public class TestLock extends OpenCmsTestCase {
         assertTrue(lockedRes.isEmpty());
     }
 
+    /**
+     * Tests that the lock index is updated when resources are locked and unlocked.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testLockIndex() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the lock index");
+
+        String folderName = "/testLockIndex/";
+        String fileName = folderName + "index.txt";
+        cms.createResource(folderName, CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource(fileName, CmsResourceTypePlain.getStaticTypeId());
+        OpenCms.getPublishManager().publishResource(cms, folderName);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsLockIndex index = OpenCms.getMemoryMonitor().getCachedLockIndex();
+        String folderRootPath = cms.getRequestContext().addSiteRoot(folderName);
+        String fileRootPath = cms.getRequestContext().addSiteRoot(fileName);
+        assertTrue(index.getLocksByPrefix(folderRootPath).isEmpty());
+
+        cms.lockResource(folderName);
+        List<CmsLock> locks = index.getLocksByPrefix(folderRootPath);
+        assertEquals(1, locks.size());
+        assertEquals(folderRootPath, locks.get(0).getResourceName());
+        assertEquals(1, index.getParentFolderLocks(fileRootPath).size());
+        assertTrue(index.getParentFolderLocks(folderRootPath).isEmpty());
+        assertTrue(cms.getLock(fileName).isInherited());
+        assertTrue(index.getAllPaths().contains(folderRootPath));
+        boolean found = false;
+        for (CmsLock lock : index.getLocksByUser(cms.getRequestContext().getCurrentUser().getId())) {
+            found |= lock.getResourceName().equals(folderRootPath);
+        }
+        assertTrue(found);
+        assertEquals(1, cms.getLockedResources(folderName, CmsLockFilter.FILTER_ALL).size());
+        Set<String> changedPaths = index.removeChangedPaths();
+        assertTrue(changedPaths.contains(folderRootPath));
+        // keep the changes for writing the locks to the database
+        index.markChanged(changedPaths);
+
+        cms.unlockResource(folderName);
+        assertNull(index.get(folderRootPath));
+        assertTrue(index.getLocksByPrefix(folderRootPath).isEmpty());
+        assertTrue(cms.getLock(fileName).isUnlocked());
+        changedPaths = index.removeChangedPaths();
+        assertTrue(changedPaths.contains(folderRootPath));
+        index.markChanged(changedPaths);
+    }
+
     /**
      * Tests lock status of a resource for basic operations.<p>
      *
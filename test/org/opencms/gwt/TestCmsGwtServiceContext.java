@@ -0,0 +1,382 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.gwt;
+
+import org.opencms.file.CmsObject;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the pooling of GWT service instances in the {@link CmsGwtServiceContext}.<p>
+ */
+public class TestCmsGwtServiceContext extends OpenCmsTestCase {
+
+    /**
+     * Service class used for the tests.<p>
+     */
+    public static class CmsTestGwtService extends CmsGwtService {
+
+        /** Serialization id. */
+        private static final long serialVersionUID = 1L;
+
+        /** Flag indicating a request is currently handled by this instance. */
+        private AtomicBoolean m_inUse = new AtomicBoolean();
+
+        /** The number of requests served by this instance. */
+        private int m_requestCount;
+
+        /**
+         * Marks the end of a request handled by this instance.<p>
+         */
+        public void endRequest() {
+
+            m_inUse.set(false);
+        }
+
+        /**
+         * Simulates the handling of a RPC call.<p>
+         *
+         * @return the number of requests served by this instance so far
+         */
+        public int handleRequest() {
+
+            m_requestCount++;
+            return m_requestCount;
+        }
+
+        /**
+         * Marks the start of a request handled by this instance.<p>
+         *
+         * @return <code>false</code> if the instance is already handling another request
+         */
+        public boolean startRequest() {
+
+            return m_inUse.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Obtains and releases service instances for the benchmark.<p>
+     */
+    private interface I_Dispatcher {
+
+        /**
+         * Returns a service instance for a single call.<p>
+         *
+         * @return the service instance
+         *
+         * @throws Exception if something goes wrong
+         */
+        CmsGwtService acquire() throws Exception;
+
+        /**
+         * Releases the service instance after the call.<p>
+         *
+         * @param service the service instance
+         */
+        void release(CmsGwtService service);
+    }
+
+    /** The number of concurrent editor sessions used for the benchmark. */
+    private static final int SESSIONS = 100;
+
+    /** The number of RPC calls per editor session used for the benchmark. */
+    private static final int CALLS_PER_SESSION = 200;
+
+    /** The servlet configuration used for initializing the services. */
+    private static final ServletConfig SERVLET_CONFIG = new ServletConfig() {
+
+        public String getInitParameter(String name) {
+
+            return null;
+        }
+
+        public Enumeration<String> getInitParameterNames() {
+
+            return Collections.enumeration(Collections.<String> emptyList());
+        }
+
+        public ServletContext getServletContext() {
+
+            return null;
+        }
+
+        public String getServletName() {
+
+            return "opencms";
+        }
+    };
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsGwtServiceContext(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsGwtServiceContext.class.getName());
+
+        suite.addTest(new TestCmsGwtServiceContext("testServicePool"));
+        suite.addTest(new TestCmsGwtServiceContext("testConcurrentDispatch"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Benchmarks the RPC dispatch overhead with concurrent editor sessions and checks instances are not shared.<p>
+     *
+     * @throws Throwable if the test fails
+     */
+    public void testConcurrentDispatch() throws Throwable {
+
+        echo("Benchmarking GWT service dispatch with " + SESSIONS + " concurrent editor sessions");
+
+        CmsGwtServiceContext context = new CmsGwtServiceContext(CmsTestGwtService.class.getName());
+        try {
+            runConcurrentDispatch(context);
+        } finally {
+            OpenCms.removeCmsEventListener(context);
+        }
+    }
+
+    /**
+     * Tests that service instances are reused and that dropped pools are not refilled.<p>
+     *
+     * @throws Throwable if the test fails
+     */
+    public void testServicePool() throws Throwable {
+
+        echo("Testing the GWT service instance pool");
+
+        CmsGwtServiceContext context = new CmsGwtServiceContext(CmsTestGwtService.class.getName());
+        try {
+            runServicePool(context);
+        } finally {
+            OpenCms.removeCmsEventListener(context);
+        }
+    }
+
+    /**
+     * Runs the concurrent dispatch benchmark with the given service context.<p>
+     *
+     * @param context the service context
+     *
+     * @throws Throwable if the test fails
+     */
+    private void runConcurrentDispatch(final CmsGwtServiceContext context) throws Throwable {
+
+        final CmsObject[] sessionCms = new CmsObject[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionCms[i] = OpenCms.initCmsObject(getCmsObject());
+        }
+
+        // dispatch with the service pool
+        final AtomicInteger errors = new AtomicInteger();
+        long pooledTime = runSessions(sessionCms, new I_Dispatcher() {
+
+            public CmsGwtService acquire() throws Exception {
+
+                return context.getService(SERVLET_CONFIG, false);
+            }
+
+            public void release(CmsGwtService service) {
+
+                context.releaseService(service);
+            }
+        }, errors);
+        assertEquals("Pooled instances must not be used by two sessions at once", 0, errors.get());
+        assertTrue(context.getIdleServiceCount(false) <= CmsGwtServiceContext.MAX_IDLE_SERVICES);
+        assertEquals(0, context.getIdleServiceCount(true));
+
+        // dispatch with a new service instance for every call, like it was done before the pool was introduced
+        long unpooledTime = runSessions(sessionCms, new I_Dispatcher() {
+
+            public CmsGwtService acquire() throws Exception {
+
+                CmsGwtService service = (CmsGwtService)Class.forName(
+                    CmsTestGwtService.class.getName()).newInstance();
+                service.init(SERVLET_CONFIG);
+                service.setContext(context);
+                return service;
+            }
+
+            public void release(CmsGwtService service) {
+
+                service.clearThreadStorage();
+            }
+        }, errors);
+        assertEquals("Service instances must not be used by two sessions at once", 0, errors.get());
+
+        int calls = SESSIONS * CALLS_PER_SESSION;
+        echo("Pooled dispatch of " + calls + " calls: " + pooledTime + " ms");
+        echo("Unpooled dispatch of " + calls + " calls: " + unpooledTime + " ms");
+    }
+
+    /**
+     * Runs the service pool test with the given service context.<p>
+     *
+     * @param context the service context
+     *
+     * @throws Throwable if the test fails
+     */
+    private void runServicePool(CmsGwtServiceContext context) throws Throwable {
+
+        CmsObject cms = getCmsObject();
+
+        CmsTestGwtService first = (CmsTestGwtService)context.getService(SERVLET_CONFIG, true);
+        CmsTestGwtService second = (CmsTestGwtService)context.getService(SERVLET_CONFIG, true);
+        assertNotSame("Instances in use must not be shared", first, second);
+        first.setCms(cms);
+        assertSame(cms, first.getCmsObject());
+        assertEquals(1, first.handleRequest());
+
+        context.releaseService(first);
+        assertNull("Request state must be cleared on release", first.getCmsObject());
+        assertEquals(1, context.getIdleServiceCount(true));
+        assertEquals(0, context.getIdleServiceCount(false));
+
+        // the idle instance is reused for the next online request, but not for offline requests
+        CmsTestGwtService offline = (CmsTestGwtService)context.getService(SERVLET_CONFIG, false);
+        assertNotSame(first, offline);
+        CmsTestGwtService reused = (CmsTestGwtService)context.getService(SERVLET_CONFIG, true);
+        assertSame(first, reused);
+        assertEquals(2, reused.handleRequest());
+        context.releaseService(reused);
+        context.releaseService(offline);
+        assertEquals(1, context.getIdleServiceCount(true));
+        assertEquals(1, context.getIdleServiceCount(false));
+
+        // clearing the caches drops the pools, instances in use at that time are discarded on release
+        context.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>()));
+        assertEquals(0, context.getIdleServiceCount(true));
+        assertEquals(0, context.getIdleServiceCount(false));
+        context.releaseService(second);
+        assertEquals(0, context.getIdleServiceCount(true));
+    }
+
+    /**
+     * Runs the given number of concurrent editor sessions, each dispatching a number of RPC calls.<p>
+     *
+     * @param sessionCms the CMS contexts of the sessions
+     * @param dispatcher the dispatcher used to obtain the service instances
+     * @param errors counter for calls that got an instance which was used by another session at the same time
+     *
+     * @return the time used in milliseconds
+     *
+     * @throws Exception if something goes wrong
+     */
+    private long runSessions(final CmsObject[] sessionCms, final I_Dispatcher dispatcher, final AtomicInteger errors)
+    throws Exception {
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(sessionCms.length);
+        for (int i = 0; i < sessionCms.length; i++) {
+            final CmsObject cms = sessionCms[i];
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+
+                    try {
+                        start.await();
+                        for (int j = 0; j < CALLS_PER_SESSION; j++) {
+                            CmsTestGwtService service = (CmsTestGwtService)dispatcher.acquire();
+                            boolean started = service.startRequest();
+                            if (!started) {
+                                errors.incrementAndGet();
+                            }
+                            try {
+                                service.setCms(cms);
+                                service.handleRequest();
+                                Thread.yield();
+                            } finally {
+                                if (started) {
+                                    service.endRequest();
+                                }
+                                dispatcher.release(service);
+                            }
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            thread.start();
+        }
+        long startTime = System.currentTimeMillis();
+        start.countDown();
+        done.await();
+        return System.currentTimeMillis() - startTime;
+    }
+}
@@ -28,6 +28,12 @@
 package org.opencms.importexport;
 
 import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Basic test cases for import/export utilities.<p>
@@ -36,6 +42,58 @@ import org.opencms.test.OpenCmsTestCase;
  */
 public class TestCmsImport extends OpenCmsTestCase {
 
+    /**
+     * Tests reading the file contents of an import ahead of the import of the resources.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testContentReader() throws Throwable {
+
+        final File folder = File.createTempFile("import", "");
+        folder.delete();
+        folder.mkdirs();
+        CmsContentReaderTestHelper helper = null;
+        CmsImportContentReader reader = null;
+        try {
+            List<String> sources = new ArrayList<String>();
+            for (int i = 0; i < 100; i++) {
+                String name = "file" + i + ".txt";
+                FileOutputStream out = new FileOutputStream(new File(folder, name));
+                try {
+                    out.write(("content " + i).getBytes("UTF-8"));
+                } finally {
+                    out.close();
+                }
+                sources.add(name);
+            }
+            helper = new CmsContentReaderTestHelper(folder);
+            assertTrue(helper.existsFile("file1.txt"));
+            assertFalse(helper.existsFile("missing.txt"));
+
+            reader = new CmsImportContentReader(helper, sources, 2);
+            for (int i = 0; i < 100; i++) {
+                if ((i % 3) == 0) {
+                    // skipped resources, e.g. immutable ones, do not request their content
+                    continue;
+                }
+                assertEquals("content " + i, new String(reader.getFileBytes("file" + i + ".txt"), "UTF-8"));
+            }
+            // files not in the manifest order are read directly
+            assertEquals("content 5", new String(reader.getFileBytes("file5.txt"), "UTF-8"));
+            try {
+                reader.getFileBytes("missing.txt");
+                fail("missing file must not be found");
+            } catch (CmsImportExportException e) {
+                // expected
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
     /**
      * Runs a test for the conversion of the digest encoding.<p>
      *
@@ -132,4 +190,33 @@ public class TestCmsImport extends OpenCmsTestCase {
 
         assertEquals(content, result);
     }
+
+    /**
+     * Import helper reading from a given folder.<p>
+     */
+    private static class CmsContentReaderTestHelper extends CmsImportHelper {
+
+        /** The folder to read from. */
+        private File m_testFolder;
+
+        /**
+         * Constructor.<p>
+         *
+         * @param folder the folder to read from
+         */
+        CmsContentReaderTestHelper(File folder) {
+
+            super(new CmsImportParameters(folder.getAbsolutePath(), "/", true));
+            m_testFolder = folder;
+        }
+
+        /**
+         * @see org.opencms.importexport.CmsImportHelper#getFolder()
+         */
+        @Override
+        public File getFolder() {
+
+            return m_testFolder;
+        }
+    }
 }
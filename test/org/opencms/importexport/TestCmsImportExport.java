@@ -59,6 +59,7 @@ import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.test.OpenCmsTestResourceConfigurableFilter;
 import org.opencms.test.OpenCmsTestResourceFilter;
 import org.opencms.util.CmsDateUtil;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsResourceTranslator;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.xml.CmsXmlEntityResolver;
@@ -68,11 +69,15 @@ import org.opencms.xml.page.CmsXmlPage;
 import org.opencms.xml.page.CmsXmlPageFactory;
 
 import java.io.File;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -113,6 +118,7 @@ public class TestCmsImportExport extends OpenCmsTestCase {
         suite.addTest(new TestCmsImportExport("testImportWrongSite"));
         suite.addTest(new TestCmsImportExport("testSetup"));
         suite.addTest(new TestCmsImportExport("testImportExportFolder"));
+        suite.addTest(new TestCmsImportExport("testExportStoreCompressedMedia"));
         suite.addTest(new TestCmsImportExport("testImportExportId"));
         suite.addTest(new TestCmsImportExport("testImportExportBrokenLinksHtml"));
         suite.addTest(new TestCmsImportExport("testImportExportBrokenLinksXml"));
@@ -144,6 +150,98 @@ public class TestCmsImportExport extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests that the parallel export writes all file contents and stores already compressed media uncompressed.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testExportStoreCompressedMedia() throws Exception {
+
+        CmsObject cms = getCmsObject();
+
+        echo("Testing the export with already compressed media stored uncompressed.");
+        String filename = "folder1/";
+        String zipExportFilename = OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+            "packages/testExportStoreCompressedMedia.zip");
+
+        List<CmsResource> startResources = cms.readResources(filename, CmsResourceFilter.ALL, true);
+
+        try {
+            CmsVfsImportExportHandler vfsExportHandler = new CmsVfsImportExportHandler();
+            List exportPaths = new ArrayList(1);
+            exportPaths.add(filename);
+            CmsExportParameters params = new CmsExportParameters(
+                zipExportFilename,
+                null,
+                true,
+                false,
+                false,
+                exportPaths,
+                false,
+                true,
+                0,
+                true,
+                false,
+                ExportMode.DEFAULT);
+            params.setStoreCompressedMedia(true);
+            vfsExportHandler.setExportParams(params);
+            OpenCms.getImportExportManager().exportData(
+                cms,
+                vfsExportHandler,
+                new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            // the temporary manifest file must have been removed
+            assertFalse(new File(zipExportFilename + ".manifest.tmp").exists());
+
+            ZipFile zip = new ZipFile(zipExportFilename);
+            try {
+                assertNotNull(zip.getEntry(CmsImportExportManager.EXPORT_MANIFEST));
+                int files = 0;
+                for (CmsResource resource : startResources) {
+                    if (!resource.isFile()) {
+                        continue;
+                    }
+                    String name = cms.getSitePath(resource).substring(1);
+                    ZipEntry entry = zip.getEntry(name);
+                    if (entry == null) {
+                        // sibling whose content was exported with another name
+                        continue;
+                    }
+                    files++;
+                    if (name.endsWith(".gif")) {
+                        assertEquals(ZipEntry.STORED, entry.getMethod());
+                    } else {
+                        assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+                    }
+                    // the contents must be written in full, also for files read in parallel
+                    InputStream in = zip.getInputStream(entry);
+                    try {
+                        assertTrue(
+                            Arrays.equals(cms.readFile(resource).getContents(), CmsFileUtil.readFully(in, false)));
+                    } finally {
+                        in.close();
+                    }
+                }
+                assertTrue(files > 0);
+            } finally {
+                zip.close();
+            }
+
+            // re-import the exported folder
+            OpenCms.getImportExportManager().importData(
+                cms,
+                new CmsShellReport(cms.getRequestContext().getLocale()),
+                new CmsImportParameters(zipExportFilename, "/", true));
+        } finally {
+            File file = new File(zipExportFilename);
+            if (file.exists()) {
+                file.delete();
+            }
+        }
+
+        assertResources(cms, filename, startResources);
+    }
+
     /**
      * Tests the import of a resource that has been edited.<p>
      *
@@ -32,6 +32,14 @@ import org.opencms.file.CmsProject;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -64,6 +72,7 @@ public class TestCmsEvents extends OpenCmsTestCase {
         suite.setName(TestCmsEvents.class.getName());
 
         suite.addTest(new TestCmsEvents("testBeforeAfterPublishEvent"));
+        suite.addTest(new TestCmsEvents("testAsyncEventManager"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -83,6 +92,89 @@ public class TestCmsEvents extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests the ordered, asynchronous delivery of events.<p>
+     *
+     * @throws Throwable if the test fails
+     */
+    public void testAsyncEventManager() throws Throwable {
+
+        echo("Testing the asynchronous event manager");
+
+        final CountDownLatch deliveryLatch = new CountDownLatch(1);
+        final CountDownLatch publishLatch = new CountDownLatch(1);
+        final List<CmsEvent> received = Collections.synchronizedList(new ArrayList<CmsEvent>());
+        I_CmsAsyncEventListener asyncListener = new I_CmsAsyncEventListener() {
+
+            public void cmsEvent(CmsEvent event) {
+
+                if (event.getType() == I_CmsEventListener.EVENT_PUBLISH_PROJECT) {
+                    // block the delivery, so that the following events have to wait in the queue
+                    deliveryLatch.countDown();
+                    try {
+                        publishLatch.await();
+                    } catch (InterruptedException e) {
+                        fail(e.getMessage());
+                    }
+                }
+                received.add(event);
+            }
+
+            public boolean isAsyncEvent(CmsEvent event) {
+
+                return event.getType() != I_CmsEventListener.EVENT_CLEAR_CACHES;
+            }
+
+            public CmsEvent mergeEvents(CmsEvent first, CmsEvent second) {
+
+                if ((first.getType() != I_CmsEventListener.EVENT_RESOURCE_MODIFIED)
+                    || (second.getType() != I_CmsEventListener.EVENT_RESOURCE_MODIFIED)) {
+                    return null;
+                }
+                return createEvent(
+                    I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+                    ((Integer)first.getData().get("count")).intValue()
+                        + ((Integer)second.getData().get("count")).intValue());
+            }
+        };
+        CmsTestEventListener syncListener = new CmsTestEventListener();
+
+        CmsAsyncEventManager manager = new CmsAsyncEventManager();
+        manager.addCmsEventListener(asyncListener);
+        manager.addCmsEventListener(syncListener);
+
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, 1));
+        // wait until the worker is blocked in the delivery of the publish event, it is no longer in the queue then
+        assertTrue(deliveryLatch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, 1));
+        }
+        // events which the listener wants to receive synchronously are delivered immediately
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, 1));
+        assertEquals(1, received.size());
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_CACHES, received.get(0).getType());
+        // other listeners are not affected
+        assertEquals(5, syncListener.getEvents().size());
+
+        CmsAsyncEventManager.CmsEventQueue queue = manager.getEventQueues().get(0);
+        assertSame(asyncListener, queue.getListener());
+        assertEquals(1, queue.getSize());
+        assertEquals(2, queue.getMergedCount());
+
+        publishLatch.countDown();
+        manager.shutDown();
+        assertEquals(3, received.size());
+        assertEquals(I_CmsEventListener.EVENT_PUBLISH_PROJECT, received.get(1).getType());
+        assertEquals(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, received.get(2).getType());
+        assertEquals(new Integer(3), received.get(2).getData().get("count"));
+        assertEquals(2, queue.getHandledCount());
+        assertEquals(0, queue.getSize());
+
+        // after the shutdown, events are delivered synchronously
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, 1));
+        assertEquals(4, received.size());
+    }
+
     /**
      * Test the before and after publish event.<p>
      *
@@ -128,4 +220,19 @@ public class TestCmsEvents extends OpenCmsTestCase {
         // only 2 events should be been recieved
         assertEquals(2, handler.getEvents().size());
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates an event with a counter as event data.<p>
+     *
+     * @param type the event type
+     * @param count the counter value
+     *
+     * @return the event
+     */
+    private CmsEvent createEvent(int type, int count) {
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("count", new Integer(count));
+        return new CmsEvent(type, data);
+    }
+}
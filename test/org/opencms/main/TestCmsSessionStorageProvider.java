@@ -0,0 +1,220 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.file.CmsObject;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+
+import org.apache.commons.collections.Buffer;
+import org.apache.commons.collections.BufferUnderflowException;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the session storage providers and the broadcast queue.<p>
+ */
+public class TestCmsSessionStorageProvider extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSessionStorageProvider(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsSessionStorageProvider.class.getName());
+
+        suite.addTest(new TestCmsSessionStorageProvider("testBroadcastQueue"));
+        suite.addTest(new TestCmsSessionStorageProvider("testUserIndex"));
+        suite.addTest(new TestCmsSessionStorageProvider("testValidate"));
+        suite.addTest(new TestCmsSessionStorageProvider("testFileStorage"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests the FIFO order and the underflow behavior of the broadcast queue.<p>
+     */
+    public void testBroadcastQueue() {
+
+        Buffer queue = new CmsBroadcastQueue();
+        assertTrue(queue.isEmpty());
+        queue.add("first");
+        queue.add("second");
+        assertEquals(2, queue.size());
+        assertEquals("first", queue.get());
+        assertEquals("first", queue.remove());
+        assertEquals("second", queue.remove());
+        assertTrue(queue.isEmpty());
+        try {
+            queue.remove();
+            fail("Removing from an empty queue must fail");
+        } catch (BufferUnderflowException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that the session infos are stored on shutdown and restored on startup by the file based provider.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testFileStorage() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        File file = new File(OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+            CmsFileSessionStorageProvider.DEFAULT_FILE));
+        try {
+            CmsFileSessionStorageProvider provider = new CmsFileSessionStorageProvider();
+            provider.initialize();
+            CmsSessionInfo info = new CmsSessionInfo(cms.getRequestContext(), new CmsUUID(), 1000);
+            provider.put(info);
+            provider.put(new CmsSessionInfo(cms.getRequestContext(), new CmsUUID(), -1));
+            provider.shutdown();
+            assertTrue(file.exists());
+
+            CmsFileSessionStorageProvider restored = new CmsFileSessionStorageProvider();
+            restored.initialize();
+            // the expired session info must not be restored
+            assertEquals(1, restored.getSize());
+            CmsSessionInfo restoredInfo = restored.get(info.getSessionId());
+            assertNotNull(restoredInfo);
+            assertEquals(info.getUserId(), restoredInfo.getUserId());
+            assertEquals(1, restored.getAllOfUser(info.getUserId()).size());
+            assertTrue(restoredInfo.getBroadcastQueue().isEmpty());
+            assertFalse(file.exists());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests the index of the sessions by user.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUserIndex() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        CmsObject guestCms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+        CmsUUID adminId = cms.getRequestContext().getCurrentUser().getId();
+        CmsUUID guestId = guestCms.getRequestContext().getCurrentUser().getId();
+
+        CmsDefaultSessionStorageProvider provider = new CmsDefaultSessionStorageProvider();
+        provider.initialize();
+        CmsSessionInfo admin1 = new CmsSessionInfo(cms.getRequestContext(), new CmsUUID(), 1000);
+        CmsSessionInfo admin2 = new CmsSessionInfo(cms.getRequestContext(), new CmsUUID(), 1000);
+        CmsSessionInfo guest = new CmsSessionInfo(guestCms.getRequestContext(), new CmsUUID(), 1000);
+        provider.put(admin1);
+        provider.put(admin2);
+        provider.put(guest);
+        // storing the same session again must not duplicate it
+        provider.put(admin1);
+
+        assertEquals(3, provider.getSize());
+        assertEquals(3, provider.getAll().size());
+        assertEquals(2, provider.getAllOfUser(adminId).size());
+        assertEquals(1, provider.getAllOfUser(guestId).size());
+        assertEquals(3, provider.getAllOfUser(null).size());
+        assertTrue(provider.getAllOfUser(new CmsUUID()).isEmpty());
+
+        // switch the session of the guest to the admin user
+        CmsSessionInfo switched = new CmsSessionInfo(cms.getRequestContext(), guest.getSessionId(), 1000);
+        assertSame(guest, provider.put(switched));
+        assertEquals(3, provider.getAllOfUser(adminId).size());
+        assertTrue(provider.getAllOfUser(guestId).isEmpty());
+
+        assertSame(admin1, provider.remove(admin1.getSessionId()));
+        assertNull(provider.remove(admin1.getSessionId()));
+        assertEquals(2, provider.getAllOfUser(adminId).size());
+        assertEquals(2, provider.getSize());
+
+        provider.shutdown();
+        assertEquals(0, provider.getSize());
+        assertTrue(provider.getAllOfUser(adminId).isEmpty());
+    }
+
+    /**
+     * Tests that expired sessions are removed from the storage and the user index.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testValidate() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        CmsUUID adminId = cms.getRequestContext().getCurrentUser().getId();
+
+        CmsDefaultSessionStorageProvider provider = new CmsDefaultSessionStorageProvider();
+        provider.initialize();
+        CmsSessionInfo active = new CmsSessionInfo(cms.getRequestContext(), new CmsUUID(), 1000);
+        CmsSessionInfo expired = new CmsSessionInfo(cms.getRequestContext(), new CmsUUID(), -1);
+        provider.put(active);
+        provider.put(expired);
+        assertEquals(2, provider.getAllOfUser(adminId).size());
+
+        provider.validate();
+        assertEquals(1, provider.getSize());
+        assertNotNull(provider.get(active.getSessionId()));
+        assertNull(provider.get(expired.getSessionId()));
+        assertEquals(1, provider.getAllOfUser(adminId).size());
+    }
+}
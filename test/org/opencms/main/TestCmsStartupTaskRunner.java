@@ -0,0 +1,208 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.main.CmsStartupTaskRunner.I_CmsStartupTask;
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the {@link CmsStartupTaskRunner}.<p>
+ */
+public class TestCmsStartupTaskRunner extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsStartupTaskRunner(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsStartupTaskRunner.class.getName());
+
+        suite.addTest(new TestCmsStartupTaskRunner("testSequentialOrder"));
+        suite.addTest(new TestCmsStartupTaskRunner("testParallelTasks"));
+        suite.addTest(new TestCmsStartupTaskRunner("testCriticalFailure"));
+
+        return suite;
+    }
+
+    /**
+     * Tests that a failing critical task aborts the startup and that depending tasks are skipped.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCriticalFailure() throws Exception {
+
+        System.out.println("Testing the failure of a critical startup task");
+
+        for (int threads : new int[] {0, 4}) {
+            final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+            CmsStartupTaskRunner runner = new CmsStartupTaskRunner(threads);
+            runner.addTask("a", new String[] {}, true, new I_CmsStartupTask() {
+
+                public void run() throws CmsException {
+
+                    throw new CmsException(Messages.get().container(Messages.LOG_STARTUP_TASK_FAILED_1, "a"));
+                }
+            });
+            runner.addTask("b", new String[] {"a"}, true, createTask("b", executed));
+            try {
+                runner.run();
+                fail("The failure of a critical task must abort the startup");
+            } catch (CmsException e) {
+                // expected
+            }
+            assertTrue(executed.isEmpty());
+        }
+    }
+
+    /**
+     * Tests that independent tasks run in parallel and that background tasks don't block the startup.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testParallelTasks() throws Exception {
+
+        System.out.println("Testing the parallel execution of startup tasks");
+
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final CountDownLatch backgroundLatch = new CountDownLatch(1);
+        CmsStartupTaskRunner runner = new CmsStartupTaskRunner(4);
+        assertTrue(runner.isParallel());
+        runner.addTask("a", new String[] {}, true, createTask("a", executed));
+        I_CmsStartupTask parallelTask = new I_CmsStartupTask() {
+
+            public void run() {
+
+                try {
+                    // both tasks must be running at the same time to pass the barrier
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        runner.addTask("b", new String[] {"a"}, true, parallelTask);
+        runner.addTask("c", new String[] {"a"}, true, parallelTask);
+        runner.addTask("d", new String[] {"b", "c"}, true, createTask("d", executed));
+        runner.addTask("background", new String[] {"d"}, false, new I_CmsStartupTask() {
+
+            public void run() {
+
+                try {
+                    backgroundLatch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                executed.add("background");
+            }
+        });
+
+        runner.run();
+        assertEquals(Arrays.asList("a", "d"), executed);
+        assertTrue(runner.getTimings().containsKey("b"));
+        assertTrue(runner.getTimings().containsKey("c"));
+        assertFalse(runner.getTimings().containsKey("background"));
+
+        backgroundLatch.countDown();
+        assertTrue(runner.waitForBackgroundTasks(10000));
+        assertEquals(Arrays.asList("a", "d", "background"), executed);
+        assertEquals(5, runner.getTimings().size());
+    }
+
+    /**
+     * Tests that the tasks are executed in the order they were added in sequential mode.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSequentialOrder() throws Exception {
+
+        System.out.println("Testing the sequential execution of startup tasks");
+
+        List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        CmsStartupTaskRunner runner = new CmsStartupTaskRunner(1);
+        assertFalse(runner.isParallel());
+        runner.addTask("a", new String[] {}, true, createTask("a", executed));
+        runner.addTask("b", new String[] {}, true, createTask("b", executed));
+        runner.addTask("c", new String[] {"a"}, false, createTask("c", executed));
+        runner.addTask("d", new String[] {"b", "c"}, true, createTask("d", executed));
+        runner.run();
+        assertEquals(Arrays.asList("a", "b", "c", "d"), executed);
+        assertEquals(4, runner.getTimings().size());
+        assertTrue(runner.waitForBackgroundTasks(0));
+
+        try {
+            runner.addTask("e", new String[] {"unknown"}, true, createTask("e", executed));
+            fail("Dependencies must be added before the tasks depending on them");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Creates a task that records its execution.<p>
+     *
+     * @param name the name of the task
+     * @param executed the list of executed tasks
+     *
+     * @return the task
+     */
+    private I_CmsStartupTask createTask(final String name, final List<String> executed) {
+
+        return new I_CmsStartupTask() {
+
+            public void run() {
+
+                executed.add(name);
+            }
+        };
+    }
+}
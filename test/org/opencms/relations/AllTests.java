@@ -58,6 +58,8 @@ public final class AllTests {
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
         suite.addTest(TestCategories.suite());
+        suite.addTest(new TestSuite(TestCmsExternalLinkChecker.class));
+        suite.addTest(new TestSuite(TestCmsRelationGraph.class));
         //$JUnit-END$
         return suite;
     }
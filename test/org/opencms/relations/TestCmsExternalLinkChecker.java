@@ -0,0 +1,241 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.relations;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the concurrent external link checker against a local stub http server.<p>
+ *
+ * @since 10.5.0
+ */
+public class TestCmsExternalLinkChecker extends OpenCmsTestCase {
+
+    /** The number of currently active requests of the stub server. */
+    AtomicInteger m_active = new AtomicInteger();
+
+    /** The number of HEAD requests answered by the stub server. */
+    AtomicInteger m_headRequests = new AtomicInteger();
+
+    /** The maximum number of parallel requests of the stub server. */
+    AtomicInteger m_maxActive = new AtomicInteger();
+
+    /** The number of requests answered by the stub server. */
+    AtomicInteger m_requests = new AtomicInteger();
+
+    /** The stub server. */
+    private HttpServer m_server;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsExternalLinkChecker(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the results are cached.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCache() throws Exception {
+
+        CmsExternalLinkChecker checker = new CmsExternalLinkChecker(null);
+        assertTrue(checker.checkUrl(getUrl("/ok")));
+        assertTrue(checker.checkUrl(getUrl("/ok")));
+        assertEquals(1, m_requests.get());
+
+        // expired states are checked again
+        checker.setValidTtl(0);
+        checker.setBrokenTtl(0);
+        assertFalse(checker.checkUrl(getUrl("/missing")));
+        assertFalse(checker.checkUrl(getUrl("/missing")));
+        assertEquals(5, m_requests.get());
+    }
+
+    /**
+     * Tests checking valid and broken links.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCheckUrls() throws Exception {
+
+        CmsExternalLinkChecker checker = new CmsExternalLinkChecker(null);
+        checker.setHostDelay(0);
+        List<String> urls = new ArrayList<String>();
+        urls.add(getUrl("/ok"));
+        urls.add(getUrl("/redirect"));
+        urls.add(getUrl("/missing"));
+        urls.add(getUrl("/nohead"));
+        urls.add("http://localhost:1/unreachable");
+        Map<String, Boolean> results = checker.checkUrls(urls);
+        assertEquals(5, results.size());
+        assertTrue(results.get(getUrl("/ok")).booleanValue());
+        assertTrue(results.get(getUrl("/redirect")).booleanValue());
+        assertFalse(results.get(getUrl("/missing")).booleanValue());
+        assertTrue(results.get(getUrl("/nohead")).booleanValue());
+        assertFalse(results.get("http://localhost:1/unreachable").booleanValue());
+    }
+
+    /**
+     * Tests that the number of parallel connections to a host is limited.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testHostLimit() throws Exception {
+
+        CmsExternalLinkChecker checker = new CmsExternalLinkChecker(null);
+        checker.setThreads(8);
+        checker.setHostConnections(2);
+        checker.setHostDelay(0);
+        List<String> urls = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            urls.add(getUrl("/slow?" + i));
+        }
+        Map<String, Boolean> results = checker.checkUrls(urls);
+        assertEquals(20, results.size());
+        assertEquals(20, m_headRequests.get());
+        assertTrue(m_maxActive.get() <= 2);
+    }
+
+    /**
+     * Tests that the states are restored from the state file.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testStateFile() throws Exception {
+
+        File stateFile = File.createTempFile("linkcheck", ".ser");
+        stateFile.delete();
+        try {
+            List<String> urls = new ArrayList<String>();
+            urls.add(getUrl("/ok"));
+            urls.add(getUrl("/missing"));
+            new CmsExternalLinkChecker(stateFile).checkUrls(urls);
+            assertTrue(stateFile.exists());
+            int requests = m_requests.get();
+
+            // a new checker, e.g. after a restart, continues with the stored states
+            Map<String, Boolean> results = new CmsExternalLinkChecker(stateFile).checkUrls(urls);
+            assertEquals(requests, m_requests.get());
+            assertTrue(results.get(getUrl("/ok")).booleanValue());
+            assertFalse(results.get(getUrl("/missing")).booleanValue());
+        } finally {
+            stateFile.delete();
+        }
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        m_server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        m_server.createContext("/", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+
+                int active = m_active.incrementAndGet();
+                synchronized (m_maxActive) {
+                    m_maxActive.set(Math.max(m_maxActive.get(), active));
+                }
+                m_requests.incrementAndGet();
+                boolean head = "HEAD".equals(exchange.getRequestMethod());
+                if (head) {
+                    m_headRequests.incrementAndGet();
+                }
+                String path = exchange.getRequestURI().getPath();
+                int status = 200;
+                try {
+                    if (path.equals("/missing")) {
+                        status = 404;
+                    } else if (path.equals("/nohead") && head) {
+                        status = 405;
+                    } else if (path.equals("/redirect")) {
+                        exchange.getResponseHeaders().add("Location", "/ok");
+                        status = 302;
+                    } else if (path.equals("/slow")) {
+                        Thread.sleep(50);
+                    }
+                } catch (InterruptedException e) {
+                    // ignore
+                } finally {
+                    m_active.decrementAndGet();
+                }
+                byte[] body = "stub".getBytes();
+                exchange.sendResponseHeaders(status, head ? -1 : body.length);
+                if (!head) {
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        m_server.setExecutor(Executors.newCachedThreadPool());
+        m_server.start();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        m_server.stop(0);
+    }
+
+    /**
+     * Returns the URL of the stub server for the given path.<p>
+     *
+     * @param path the path
+     *
+     * @return the URL
+     */
+    private String getUrl(String path) {
+
+        return "http://localhost:" + m_server.getAddress().getPort() + path;
+    }
+}
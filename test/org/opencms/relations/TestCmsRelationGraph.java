@@ -0,0 +1,268 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.relations;
+
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the in-memory relation graph.<p>
+ *
+ * @since 10.5.0
+ */
+public class TestCmsRelationGraph extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsRelationGraph(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests adding and reading relations.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testAddAndRead() throws Exception {
+
+        CmsUUID a = new CmsUUID();
+        CmsUUID b = new CmsUUID();
+        CmsUUID c = new CmsUUID();
+        String pathA = "/sites/default/a.html";
+        String pathB = "/sites/default/b.html";
+        String pathC = "/sites/default/c.jpg";
+        List<CmsRelation> relations = new ArrayList<CmsRelation>();
+        relations.add(new CmsRelation(a, pathA, b, pathB, CmsRelationType.HYPERLINK));
+        relations.add(new CmsRelation(a, pathA, c, pathC, CmsRelationType.EMBEDDED_IMAGE));
+        relations.add(new CmsRelation(b, pathB, c, pathC, CmsRelationType.XML_WEAK));
+        CmsRelationGraph graph = new CmsRelationGraph(relations);
+        assertEquals(3, graph.size());
+
+        // adding an identical relation must not change the graph
+        assertFalse(graph.addRelation(new CmsRelation(a, pathA, b, pathB, CmsRelationType.HYPERLINK)));
+        assertEquals(3, graph.size());
+
+        assertEquals(2, graph.readRelations(null, CmsRelationFilter.TARGETS.filterStructureId(a)).size());
+        assertEquals(2, graph.readRelations(null, CmsRelationFilter.SOURCES.filterStructureId(c)).size());
+        assertEquals(0, graph.readRelations(null, CmsRelationFilter.SOURCES.filterStructureId(a)).size());
+        assertEquals(
+            1,
+            graph.readRelations(
+                null,
+                CmsRelationFilter.TARGETS.filterStructureId(a).filterType(CmsRelationType.EMBEDDED_IMAGE)).size());
+        assertEquals(
+            1,
+            graph.readRelations(null, CmsRelationFilter.TARGETS.filterStructureId(a).filterStrong()).size());
+        assertEquals(
+            3,
+            graph.readRelations(null, CmsRelationFilter.TARGETS.filterPath("/sites/").filterIncludeChildren()).size());
+        assertEquals(0, graph.readRelations(null, CmsRelationFilter.TARGETS.filterPath("/sites/")).size());
+        assertEquals(2, graph.readRelations(null, CmsRelationFilter.TARGETS.filterPath(pathC)).size());
+    }
+
+    /**
+     * Tests reading the broken relations below a set of paths.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testBrokenRelations() throws Exception {
+
+        CmsUUID a = new CmsUUID();
+        CmsUUID b = new CmsUUID();
+        CmsUUID c = new CmsUUID();
+        CmsUUID missing = CmsUUID.getNullUUID();
+        String pathA = "/sites/default/a.html";
+        String pathB = "/sites/default/f/b.html";
+        String pathC = "/sites/other/c.html";
+        List<CmsRelation> relations = new ArrayList<CmsRelation>();
+        relations.add(new CmsRelation(a, pathA, missing, "/sites/default/x.html", CmsRelationType.HYPERLINK));
+        relations.add(new CmsRelation(b, pathB, missing, "/sites/default/y.jpg", CmsRelationType.EMBEDDED_IMAGE));
+        relations.add(new CmsRelation(c, pathC, missing, "/sites/other/z.html", CmsRelationType.HYPERLINK));
+        relations.add(new CmsRelation(a, pathA, b, pathB, CmsRelationType.HYPERLINK));
+        CmsRelationGraph graph = new CmsRelationGraph(relations);
+
+        // a whole site
+        assertEquals(2, graph.readBrokenRelations(Collections.singletonList("/sites/default/")).size());
+        // a folder and a file
+        List<CmsRelation> broken = graph.readBrokenRelations(Arrays.asList("/sites/default/f/", pathC));
+        assertEquals(2, broken.size());
+        for (CmsRelation relation : broken) {
+            assertEquals(missing, relation.getTargetId());
+        }
+        assertEquals(0, graph.readBrokenRelations(Collections.singletonList("/shared/")).size());
+
+        // repairing a relation removes it from the broken relations
+        graph.deleteRelations(null, CmsRelationFilter.TARGETS.filterPath("/sites/default/x.html"));
+        assertEquals(1, graph.readBrokenRelations(Collections.singletonList("/sites/default/")).size());
+    }
+
+    /**
+     * Tests deleting relations.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testDelete() throws Exception {
+
+        CmsUUID a = new CmsUUID();
+        CmsUUID b = new CmsUUID();
+        CmsRelationGraph graph = new CmsRelationGraph(new ArrayList<CmsRelation>());
+        assertTrue(graph.addRelation(new CmsRelation(a, "/a", b, "/b", CmsRelationType.HYPERLINK)));
+        assertTrue(graph.addRelation(new CmsRelation(a, "/a", b, "/b", CmsRelationType.JSP_STRONG)));
+        assertTrue(graph.addRelation(new CmsRelation(b, "/b", a, "/a", CmsRelationType.HYPERLINK)));
+
+        assertEquals(
+            1,
+            graph.deleteRelations(
+                null,
+                CmsRelationFilter.TARGETS.filterStructureId(b).filterType(CmsRelationType.JSP_STRONG)));
+        assertEquals(2, graph.size());
+        assertEquals(2, graph.deleteRelations(null, CmsRelationFilter.ALL.filterPath("/").filterIncludeChildren()));
+        assertEquals(0, graph.size());
+
+        // freed edges are reused
+        assertTrue(graph.addRelation(new CmsRelation(a, "/a", b, "/b", CmsRelationType.HYPERLINK)));
+        assertEquals(1, graph.readRelations(null, CmsRelationFilter.SOURCES.filterStructureId(b)).size());
+    }
+
+    /**
+     * Tests the SQL LIKE pattern matching.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testMatchesLike() throws Exception {
+
+        assertTrue(CmsRelationGraph.matchesLike("/sites/default/", "/sites/%"));
+        assertTrue(CmsRelationGraph.matchesLike("/sites/", "/sites/%"));
+        assertTrue(CmsRelationGraph.matchesLike("/a/b/c", "/%/b/_"));
+        assertTrue(CmsRelationGraph.matchesLike("/a", "/a"));
+        assertFalse(CmsRelationGraph.matchesLike("/ab", "/a"));
+        assertFalse(CmsRelationGraph.matchesLike("/a", "/a_"));
+        assertFalse(CmsRelationGraph.matchesLike("/shared/", "/sites/%"));
+        assertTrue(CmsRelationGraph.matchesLike("", "%"));
+    }
+
+    /**
+     * Tests updating the paths of relations after a move.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testMove() throws Exception {
+
+        CmsUUID a = new CmsUUID();
+        CmsUUID b = new CmsUUID();
+        CmsRelationGraph graph = new CmsRelationGraph(new ArrayList<CmsRelation>());
+        graph.addRelation(new CmsRelation(a, "/folder/a", b, "/folder/b", CmsRelationType.HYPERLINK));
+        graph.moveRelations(b, "/other/b");
+
+        List<CmsRelation> relations = graph.readRelations(null, CmsRelationFilter.TARGETS.filterStructureId(a));
+        assertEquals(1, relations.size());
+        assertEquals("/other/b", relations.get(0).getTargetPath());
+        assertEquals("/folder/a", relations.get(0).getSourcePath());
+        assertEquals(0, graph.readRelations(null, CmsRelationFilter.TARGETS.filterPath("/folder/b")).size());
+        assertEquals(1, graph.readRelations(null, CmsRelationFilter.TARGETS.filterPath("/other/b")).size());
+    }
+
+    /**
+     * Tests reading the relations of several resources at once.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testReadForResources() throws Exception {
+
+        CmsResource a = createResource("/sites/default/a.html", false);
+        CmsResource b = createResource("/sites/default/b.html", false);
+        CmsResource folder = createResource("/sites/default/f/", true);
+        CmsUUID idA = a.getStructureId();
+        CmsUUID idB = b.getStructureId();
+        CmsUUID idC = new CmsUUID();
+        String pathA = a.getRootPath();
+        String pathB = b.getRootPath();
+        String pathC = "/sites/default/f/c.jpg";
+        CmsRelationGraph graph = new CmsRelationGraph(new ArrayList<CmsRelation>());
+        graph.addRelation(new CmsRelation(idA, pathA, idB, pathB, CmsRelationType.HYPERLINK));
+        graph.addRelation(new CmsRelation(idA, pathA, idC, pathC, CmsRelationType.EMBEDDED_IMAGE));
+        graph.addRelation(new CmsRelation(idB, pathB, idC, pathC, CmsRelationType.HYPERLINK));
+
+        List<CmsResource> resources = Arrays.asList(a, b, folder);
+        Map<CmsUUID, List<CmsRelation>> relations = graph.readRelationsForResources(
+            resources,
+            CmsRelationFilter.SOURCES.filterIncludeChildren());
+        assertEquals(3, relations.size());
+        for (CmsResource resource : resources) {
+            // the same as reading the relations of each resource
+            assertEquals(
+                graph.readRelations(resource, CmsRelationFilter.SOURCES.filterIncludeChildren()),
+                relations.get(resource.getStructureId()));
+        }
+        assertEquals(0, relations.get(idA).size());
+        assertEquals(1, relations.get(idB).size());
+        assertEquals(2, relations.get(folder.getStructureId()).size());
+    }
+
+    /**
+     * Creates a resource for reading its relations.<p>
+     *
+     * @param rootPath the root path of the resource
+     * @param isFolder <code>true</code> for a folder
+     *
+     * @return the resource
+     */
+    private CmsResource createResource(String rootPath, boolean isFolder) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            rootPath,
+            isFolder ? 0 : 1,
+            isFolder,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResourceState.STATE_UNCHANGED,
+            0,
+            CmsUUID.getNullUUID(),
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            0,
+            0,
+            0);
+    }
+}
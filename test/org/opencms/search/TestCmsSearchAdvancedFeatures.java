@@ -41,6 +41,7 @@ import org.opencms.search.fields.CmsSearchFieldConfigurationOldCategories;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
@@ -86,6 +87,7 @@ public class TestCmsSearchAdvancedFeatures extends OpenCmsTestCase {
         suite.setName(TestCmsSearchAdvancedFeatures.class.getName());
 
         suite.addTest(new TestCmsSearchAdvancedFeatures("testSortSearchResults"));
+        suite.addTest(new TestCmsSearchAdvancedFeatures("testSearchAfterPaging"));
         suite.addTest(new TestCmsSearchAdvancedFeatures("testSearchCategories"));
         suite.addTest(new TestCmsSearchAdvancedFeatures("testMultipleSearchRoots"));
         suite.addTest(new TestCmsSearchAdvancedFeatures("testSearchRestriction"));
@@ -398,6 +400,60 @@ public class TestCmsSearchAdvancedFeatures extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests paging through the search results with the last hit of the previous page.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSearchAfterPaging() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing paging of search results with the last hit of the previous page");
+
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(INDEX_OFFLINE);
+        CmsSearchParameters params = new CmsSearchParameters("OpenCms");
+        params.setSort(CmsSearchParameters.SORT_DATE_LASTMODIFIED);
+        params.setMatchesPerPage(1000);
+        params.setSearchPage(1);
+        CmsSearchResultList allResults = index.search(cms, params);
+        TestCmsSearch.printResults(allResults, cms);
+        assertTrue(allResults.size() > 3);
+        assertNull(allResults.getSearchAfter());
+
+        // the second page using the page number
+        params.setMatchesPerPage(3);
+        params.setSearchPage(2);
+        CmsSearchResultList secondPage = index.search(cms, params);
+
+        // now page through all results with the cursor
+        List<String> pagedPaths = new ArrayList<String>();
+        params.setSearchPage(1);
+        CmsSearchResultList page = index.search(cms, params);
+        int pageCount = 0;
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 3);
+            pageCount++;
+            if (pageCount == 2) {
+                assertEquals(secondPage.size(), page.size());
+                for (int i = 0; i < page.size(); i++) {
+                    assertEquals(secondPage.get(i).getPath(), page.get(i).getPath());
+                }
+            }
+            for (CmsSearchResult result : page) {
+                pagedPaths.add(result.getPath());
+            }
+            if (page.getSearchAfter() == null) {
+                break;
+            }
+            params.setSearchAfter(page.getSearchAfter());
+            page = index.search(cms, params);
+        }
+        assertEquals(allResults.size(), pagedPaths.size());
+        for (int i = 0; i < allResults.size(); i++) {
+            assertEquals(allResults.get(i).getPath(), pagedPaths.get(i));
+        }
+    }
+
     /**
      * Tests search category grouping.<p>
      *
@@ -0,0 +1,248 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.search.documents;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.search.documents.CmsElementExtractionCache.I_CmsElementExtractor;
+import org.opencms.search.extractors.CmsExtractionResult;
+import org.opencms.search.extractors.I_CmsExtractionResult;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the cache for the extraction results of container page elements.<p>
+ */
+public class TestCmsElementExtractionCache extends OpenCmsTestCase {
+
+    /** The number of elements of the generated site. */
+    private static final int ELEMENTS = 50;
+
+    /** The number of elements on each page of the generated site. */
+    private static final int ELEMENTS_PER_PAGE = 5;
+
+    /** The directory of the persistent cache. */
+    private File m_directory;
+
+    /** The elements of the generated site. */
+    private List<CmsResource> m_elements;
+
+    /** The number of extracted elements. */
+    private AtomicInteger m_extractions = new AtomicInteger();
+
+    /** The extractor which counts the extracted elements. */
+    private CmsElementExtractionCache.I_CmsElementExtractor m_extractor;
+
+    /**
+     * Tests that changed elements are extracted again.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testChangedElement() throws Exception {
+
+        CmsElementExtractionCache cache = new CmsElementExtractionCache(100, 1);
+        List<CmsResource> page = m_elements.subList(0, 3);
+        cache.getResults(null, page, "index", Locale.ENGLISH, null, m_extractor);
+        assertEquals(3, m_extractions.get());
+
+        List<CmsResource> changedPage = new ArrayList<CmsResource>(page);
+        CmsResource changed = (CmsResource)page.get(1).clone();
+        changed.setDateLastModified(changed.getDateLastModified() + 1000);
+        changedPage.set(1, changed);
+        cache.getResults(null, changedPage, "index", Locale.ENGLISH, null, m_extractor);
+        assertEquals(4, m_extractions.get());
+
+        // other locales and indexes have their own results
+        cache.getResults(null, page, "index", Locale.GERMAN, null, m_extractor);
+        cache.getResults(null, page, "other", Locale.ENGLISH, null, m_extractor);
+        assertEquals(10, m_extractions.get());
+    }
+
+    /**
+     * Tests that the elements are extracted by more than one thread and that the results keep the element order.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testParallelExtraction() throws Exception {
+
+        final int threads = 4;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+        I_CmsElementExtractor extractor = new I_CmsElementExtractor() {
+
+            public I_CmsExtractionResult extract(CmsObject cms, CmsResource element) throws CmsException {
+
+                threadNames.add(Thread.currentThread().getName());
+                try {
+                    // only passes if all elements are extracted at the same time
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    fail("The elements were not extracted in parallel: " + e);
+                }
+                return m_extractor.extract(cms, element);
+            }
+        };
+
+        CmsElementExtractionCache cache = new CmsElementExtractionCache(100, threads);
+        try {
+            List<CmsResource> page = new ArrayList<CmsResource>(m_elements.subList(0, threads));
+            // an element used twice on the page is only extracted once
+            page.add(page.get(0));
+            List<I_CmsExtractionResult> results = cache.getResults(
+                null,
+                page,
+                "index",
+                Locale.ENGLISH,
+                null,
+                extractor);
+            assertEquals(threads, m_extractions.get());
+            assertEquals(threads, threadNames.size());
+            assertEquals(page.size(), results.size());
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals(m_extractor.extract(null, page.get(i)).getContent(), results.get(i).getContent());
+            }
+            assertSame(results.get(0), results.get(threads));
+
+            // the cache can still be used after the executor has been shut down
+            cache.shutDown();
+            cache.clear();
+            m_extractions.set(0);
+            barrier.reset();
+            cache.getResults(null, page, "index", Locale.ENGLISH, null, extractor);
+            assertEquals(threads, m_extractions.get());
+        } finally {
+            cache.shutDown();
+        }
+    }
+
+    /**
+     * Tests that the results are read from the persistent cache.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPersistentCache() throws Exception {
+
+        CmsExtractionResultCache persistentCache = new CmsExtractionResultCache(m_directory.getPath(), "elements");
+        List<CmsResource> page = m_elements.subList(0, ELEMENTS_PER_PAGE);
+        List<I_CmsExtractionResult> results = new CmsElementExtractionCache(100, 1).getResults(
+            null,
+            page,
+            "index",
+            Locale.ENGLISH,
+            persistentCache,
+            m_extractor);
+        assertEquals(ELEMENTS_PER_PAGE, m_extractions.get());
+
+        // a new cache, e.g. after a restart, reads the results from the persistent cache
+        List<I_CmsExtractionResult> cachedResults = new CmsElementExtractionCache(100, 1).getResults(
+            null,
+            page,
+            "index",
+            Locale.ENGLISH,
+            persistentCache,
+            m_extractor);
+        assertEquals(ELEMENTS_PER_PAGE, m_extractions.get());
+        for (int i = 0; i < ELEMENTS_PER_PAGE; i++) {
+            assertEquals(results.get(i).getContent(), cachedResults.get(i).getContent());
+        }
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        m_directory = File.createTempFile("elementCache", "");
+        m_directory.delete();
+        m_elements = new ArrayList<CmsResource>(ELEMENTS);
+        for (int i = 0; i < ELEMENTS; i++) {
+            m_elements.add(
+                new CmsResource(
+                    new CmsUUID(),
+                    new CmsUUID(),
+                    "/sites/default/.content/teaser/teaser_" + i + ".xml",
+                    1,
+                    false,
+                    0,
+                    CmsUUID.getNullUUID(),
+                    CmsResource.STATE_UNCHANGED,
+                    0,
+                    CmsUUID.getNullUUID(),
+                    1000L * i,
+                    CmsUUID.getNullUUID(),
+                    CmsResource.DATE_RELEASED_DEFAULT,
+                    CmsResource.DATE_EXPIRED_DEFAULT,
+                    1,
+                    1024,
+                    1000L * i,
+                    0));
+        }
+        m_extractor = new CmsElementExtractionCache.I_CmsElementExtractor() {
+
+            public I_CmsExtractionResult extract(CmsObject cms, CmsResource element) throws CmsException {
+
+                m_extractions.incrementAndGet();
+                // simulate the work of unmarshalling and extracting an XML content
+                StringBuffer content = new StringBuffer();
+                for (int i = 0; i < 200; i++) {
+                    content.append(element.getRootPath().hashCode() ^ i).append(' ');
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                return new CmsExtractionResult(content.toString());
+            }
+        };
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        CmsFileUtil.purgeDirectory(m_directory);
+        super.tearDown();
+    }
+}
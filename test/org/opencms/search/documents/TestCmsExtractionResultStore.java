@@ -0,0 +1,216 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.documents;
+
+import org.opencms.search.extractors.CmsExtractionResult;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Tests the segment store for text extraction results.<p>
+ */
+public class TestCmsExtractionResultStore extends OpenCmsTestCase {
+
+    /** The directory of the store. */
+    private File m_directory;
+
+    /**
+     * Tests that the least recently accessed entries are removed if the store is too large.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testEviction() throws Exception {
+
+        CmsExtractionResultStore store = new CmsExtractionResultStore(m_directory, 0, 1024 * 1024);
+        try {
+            store.put("a", getBytes("First content"));
+        } finally {
+            store.close();
+        }
+        // the store is large enough for exactly one of the entries
+        long maxSize = m_directory.listFiles()[0].length();
+
+        store = new CmsExtractionResultStore(m_directory, maxSize, 1024 * 1024);
+        try {
+            store.put("b", getBytes("Second content"));
+            Thread.sleep(10);
+            assertNotNull(store.get("a"));
+            assertEquals(2, store.getSize());
+            assertEquals(1, store.clean(Long.MAX_VALUE));
+            assertNull(store.get("b"));
+            assertEquals("First content", store.get("a").getContent());
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Tests that stored results can be read again, also after reopening the store.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPutAndGet() throws Exception {
+
+        CmsExtractionResultStore store = new CmsExtractionResultStore(m_directory, 0, 1024 * 1024);
+        try {
+            for (int i = 0; i < 10; i++) {
+                store.put("key" + i, getBytes("Content number " + i));
+            }
+            // a later result for the same key replaces the earlier one
+            store.put("key5", getBytes("Replaced content"));
+            assertEquals(10, store.getSize());
+            assertEquals("Content number 3", store.get("key3").getContent());
+            assertEquals("Replaced content", store.get("key5").getContent());
+            assertNull(store.get("unknown"));
+        } finally {
+            store.close();
+        }
+
+        store = new CmsExtractionResultStore(m_directory, 0, 1024 * 1024);
+        try {
+            assertEquals(10, store.getSize());
+            assertEquals("Content number 9", store.get("key9").getContent());
+            assertEquals("Replaced content", store.get("key5").getContent());
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Tests that segments with mostly removed entries are compacted.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCompaction() throws Exception {
+
+        CmsExtractionResultStore store = new CmsExtractionResultStore(m_directory, 0, 256);
+        try {
+            for (int i = 0; i < 50; i++) {
+                store.put("key" + i, getBytes("Content number " + i));
+            }
+            int segments = m_directory.listFiles().length;
+            assertTrue(segments > 2);
+            for (int i = 0; i < 45; i++) {
+                store.remove("key" + i);
+            }
+            // a compaction started in the background by the last put may still be running
+            for (int i = 0; (i < 50) && (m_directory.listFiles().length >= segments); i++) {
+                store.compact();
+                Thread.sleep(20);
+            }
+            assertTrue(m_directory.listFiles().length < segments);
+            for (int i = 45; i < 50; i++) {
+                assertEquals("Content number " + i, store.get("key" + i).getContent());
+            }
+        } finally {
+            store.close();
+        }
+
+        store = new CmsExtractionResultStore(m_directory, 0, 256);
+        try {
+            for (int i = 45; i < 50; i++) {
+                assertEquals("Content number " + i, store.get("key" + i).getContent());
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Tests that an incomplete record at the end of a segment is cut off when the store is opened.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testIncompleteRecord() throws Exception {
+
+        CmsExtractionResultStore store = new CmsExtractionResultStore(m_directory, 0, 1024 * 1024);
+        try {
+            store.put("key", getBytes("Complete content"));
+        } finally {
+            store.close();
+        }
+        File segment = m_directory.listFiles()[0];
+        long length = segment.length();
+        FileOutputStream out = new FileOutputStream(segment, true);
+        try {
+            out.write(new byte[] {0x4F, 0x43, 0x58});
+        } finally {
+            out.close();
+        }
+
+        store = new CmsExtractionResultStore(m_directory, 0, 1024 * 1024);
+        try {
+            assertEquals(1, store.getSize());
+            assertEquals(length, segment.length());
+            assertEquals("Complete content", store.get("key").getContent());
+            store.put("other", getBytes("Other content"));
+            assertEquals("Other content", store.get("other").getContent());
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        m_directory = File.createTempFile("extractionStore", "");
+        m_directory.delete();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        CmsFileUtil.purgeDirectory(m_directory);
+        super.tearDown();
+    }
+
+    /**
+     * Returns the serialized extraction result for the given content.<p>
+     *
+     * @param content the content
+     *
+     * @return the serialized extraction result
+     *
+     * @throws IOException never
+     */
+    private byte[] getBytes(String content) throws IOException {
+
+        return new CmsExtractionResult(content).getBytes();
+    }
+}
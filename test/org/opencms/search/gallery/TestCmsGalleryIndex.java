@@ -0,0 +1,390 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.gallery;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
+import org.opencms.search.galleries.CmsGalleryIndex;
+import org.opencms.search.galleries.CmsGallerySearchParameters;
+import org.opencms.search.galleries.CmsGallerySearchParameters.CmsGallerySortParam;
+import org.opencms.search.galleries.CmsGallerySearchResult;
+import org.opencms.search.galleries.CmsGallerySearchResultList;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the gallery index used to answer gallery searches without reading the VFS.<p>
+ */
+public class TestCmsGalleryIndex extends OpenCmsTestCase {
+
+    /** The gallery index used by the tests. */
+    static CmsGalleryIndex m_galleryIndex;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsGalleryIndex(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsGalleryIndex.class.getName());
+
+        suite.addTest(new TestCmsGalleryIndex("testRebuild"));
+        suite.addTest(new TestCmsGalleryIndex("testSearchByFolderAndType"));
+        suite.addTest(new TestCmsGalleryIndex("testSortByTitle"));
+        suite.addTest(new TestCmsGalleryIndex("testUpdate"));
+        suite.addTest(new TestCmsGalleryIndex("testUpdateFolder"));
+        suite.addTest(new TestCmsGalleryIndex("testUpdateMovedFolder"));
+        suite.addTest(new TestCmsGalleryIndex("testUpdateSiblings"));
+        suite.addTest(new TestCmsGalleryIndex("testLocaleAndSearchWords"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "", "/../org/opencms/search/gallery");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                if (m_galleryIndex != null) {
+                    m_galleryIndex.close();
+                    m_galleryIndex = null;
+                }
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests building the gallery index from the offline VFS.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testRebuild() throws Exception {
+
+        echo("Testing the rebuild of the gallery index");
+
+        m_galleryIndex = new CmsGalleryIndex(
+            OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf("index/galleryIndexTest"));
+        m_galleryIndex.open();
+        m_galleryIndex.rebuild(getCmsObject(), new CmsShellReport(Locale.ENGLISH));
+        assertTrue("Gallery index not ready after rebuild", m_galleryIndex.isReady());
+    }
+
+    /**
+     * Tests searching by folder and resource type, including the type counts of the result.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSearchByFolderAndType() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing gallery index search by folder and resource type");
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        params.setFolders(Collections.singletonList("/sites/default/folder1/"));
+        params.setMatchesPerPage(100);
+        CmsGallerySearchResultList result = m_galleryIndex.search(cms, params);
+        TestCmsGallerySearchBasic.printResults(result, cms);
+
+        assertTrue(result.size() > 0);
+        assertEquals(result.size(), result.getHitCount());
+        int typeTotal = 0;
+        for (Integer count : result.getTypeCounts().values()) {
+            typeTotal += count.intValue();
+        }
+        assertEquals(result.getHitCount(), typeTotal);
+        for (CmsGallerySearchResult res : result) {
+            assertTrue(res.getPath().startsWith("/sites/default/folder1/"));
+            assertNotNull(res.getResource());
+            assertEquals(res.getPath(), res.getResource().getRootPath());
+        }
+
+        Map<String, Integer> typeCounts = result.getTypeCounts();
+        Integer imageCount = typeCounts.get("image");
+        assertNotNull("No images counted in /folder1/", imageCount);
+        params.setResourceTypes(Collections.singletonList("image"));
+        result = m_galleryIndex.search(cms, params);
+        assertEquals(imageCount.intValue(), result.getHitCount());
+        for (CmsGallerySearchResult res : result) {
+            assertEquals("image", res.getResourceType());
+        }
+    }
+
+    /**
+     * Tests the locale filter and that full text searches are left to the Solr index.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testLocaleAndSearchWords() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing gallery index search with locale and search words");
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        params.setFolders(Collections.singletonList("/sites/default/"));
+        params.setMatchesPerPage(100);
+        int hitCount = m_galleryIndex.search(cms, params).getHitCount();
+
+        params.setSearchLocale("en");
+        CmsGallerySearchResultList result = m_galleryIndex.search(cms, params);
+        assertTrue(result.getHitCount() > 0);
+        assertTrue(result.getHitCount() <= hitCount);
+        for (CmsGallerySearchResult res : result) {
+            assertFalse(res.getLocales().isEmpty());
+        }
+
+        // the search words have to be matched against the extracted content in the Solr index
+        params.setSearchWords("OpenCms");
+        assertFalse(m_galleryIndex.isSupported(params));
+        assertNull(m_galleryIndex.search(cms, params));
+    }
+
+    /**
+     * Tests sorting the search results by title.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSortByTitle() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing gallery index search sorted by title");
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        params.setFolders(Collections.singletonList("/sites/default/"));
+        params.setMatchesPerPage(100);
+        params.setSortOrder(CmsGallerySortParam.title_asc);
+        CmsGallerySearchResultList result = m_galleryIndex.search(cms, params);
+        TestCmsGallerySearchBasic.printResults(result, cms);
+
+        String lastTitle = null;
+        for (CmsGallerySearchResult res : result) {
+            String title = res.getTitle() == null ? "" : res.getTitle().toLowerCase();
+            if (lastTitle != null) {
+                assertTrue(lastTitle.compareTo(title) <= 0);
+            }
+            lastTitle = title;
+        }
+    }
+
+    /**
+     * Tests the incremental update of the gallery index for created and deleted resources.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUpdate() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing incremental updates of the gallery index");
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        params.setFolders(Collections.singletonList("/sites/default/folder1/"));
+        params.setMatchesPerPage(100);
+        int hitCount = m_galleryIndex.search(cms, params).getHitCount();
+
+        CmsResource resource = cms.createResource(
+            "/folder1/galleryIndexTest.txt",
+            CmsResourceTypePlain.getStaticTypeId(),
+            "gallery index test".getBytes(),
+            null);
+        m_galleryIndex.update(cms, Collections.singletonList(new CmsPublishedResource(resource)));
+        CmsGallerySearchResultList result = m_galleryIndex.search(cms, params);
+        assertEquals(hitCount + 1, result.getHitCount());
+
+        cms.lockResource(resource);
+        cms.deleteResource("/folder1/galleryIndexTest.txt", CmsResource.DELETE_PRESERVE_SIBLINGS);
+        m_galleryIndex.update(
+            cms,
+            Collections.singletonList(new CmsPublishedResource(resource, -1, CmsResource.STATE_DELETED)));
+        result = m_galleryIndex.search(cms, params);
+        assertEquals(hitCount, result.getHitCount());
+    }
+
+    /**
+     * Tests that a changed folder updates the resources below it, which inherit the search exclude property.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUpdateFolder() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing updates of the gallery index for a changed folder");
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        params.setFolders(Collections.singletonList("/sites/default/folder1/"));
+        params.setMatchesPerPage(100);
+        assertTrue(m_galleryIndex.search(cms, params).getHitCount() > 0);
+
+        cms.lockResource("/folder1/");
+        cms.writePropertyObject(
+            "/folder1/",
+            new CmsProperty(CmsPropertyDefinition.PROPERTY_SEARCH_EXCLUDE, "gallery", null));
+        CmsResource folder = cms.readResource("/folder1/");
+        // only the resources below a folder with changed properties are updated
+        m_galleryIndex.update(cms, Collections.singletonList(new CmsPublishedResource(folder)));
+        assertTrue(m_galleryIndex.search(cms, params).getHitCount() > 0);
+        m_galleryIndex.update(
+            cms,
+            Collections.singletonList(new CmsPublishedResource(folder)),
+            Collections.singleton(folder.getStructureId()));
+        assertEquals(0, m_galleryIndex.search(cms, params).getHitCount());
+
+        cms.writePropertyObject(
+            "/folder1/",
+            new CmsProperty(CmsPropertyDefinition.PROPERTY_SEARCH_EXCLUDE, "", null));
+        m_galleryIndex.update(
+            cms,
+            Collections.<CmsPublishedResource> emptyList(),
+            Collections.singleton(folder.getStructureId()));
+        assertTrue(m_galleryIndex.search(cms, params).getHitCount() > 0);
+    }
+
+    /**
+     * Tests that a moved folder updates the paths of the resources below it.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUpdateMovedFolder() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing updates of the gallery index for a moved folder");
+
+        CmsResource folder = cms.createResource("/folder1/galleryIndexMove/", CmsResourceTypeFolder.getStaticTypeId());
+        CmsResource resource = cms.createResource(
+            "/folder1/galleryIndexMove/galleryIndexMove.txt",
+            CmsResourceTypePlain.getStaticTypeId(),
+            "gallery index move test".getBytes(),
+            null);
+        m_galleryIndex.update(cms, Collections.singletonList(new CmsPublishedResource(resource)));
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        params.setFolders(Collections.singletonList("/sites/default/folder2/galleryIndexMove/"));
+        params.setMatchesPerPage(100);
+        assertEquals(0, m_galleryIndex.search(cms, params).getHitCount());
+
+        cms.moveResource("/folder1/galleryIndexMove/", "/folder2/galleryIndexMove/");
+        // the same resources as in the move event: the moved folder and both parent folders
+        m_galleryIndex.update(
+            cms,
+            Arrays.asList(
+                new CmsPublishedResource(folder),
+                new CmsPublishedResource(cms.readResource("/folder1/")),
+                new CmsPublishedResource(cms.readResource("/folder2/galleryIndexMove/")),
+                new CmsPublishedResource(cms.readResource("/folder2/"))));
+        CmsGallerySearchResultList result = m_galleryIndex.search(cms, params);
+        assertEquals(1, result.getHitCount());
+        assertEquals("/sites/default/folder2/galleryIndexMove/galleryIndexMove.txt", result.get(0).getPath());
+        params.setFolders(Collections.singletonList("/sites/default/folder1/galleryIndexMove/"));
+        assertEquals(0, m_galleryIndex.search(cms, params).getHitCount());
+    }
+
+    /**
+     * Tests that a created sibling updates the sibling count of the other siblings.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUpdateSiblings() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing updates of the gallery index for created siblings");
+
+        CmsResource resource = cms.createResource(
+            "/folder1/galleryIndexSibling.txt",
+            CmsResourceTypePlain.getStaticTypeId(),
+            "gallery index sibling test".getBytes(),
+            null);
+        m_galleryIndex.update(cms, Collections.singletonList(new CmsPublishedResource(resource)));
+        assertEquals(1, getIndexedResource(cms, resource).getSiblingCount());
+
+        CmsResource sibling = cms.createSibling(
+            "/folder1/galleryIndexSibling.txt",
+            "/folder1/galleryIndexSibling2.txt",
+            null);
+        m_galleryIndex.update(cms, Collections.singletonList(new CmsPublishedResource(sibling)));
+        assertEquals(2, getIndexedResource(cms, resource).getSiblingCount());
+        assertEquals(2, getIndexedResource(cms, sibling).getSiblingCount());
+    }
+
+    /**
+     * Returns the resource created from the gallery index for the given resource.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param resource the resource
+     *
+     * @return the resource created from the gallery index
+     *
+     * @throws Exception if the search fails
+     */
+    private CmsResource getIndexedResource(CmsObject cms, CmsResource resource) throws Exception {
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        params.setFolders(Collections.singletonList(CmsResource.getParentFolder(resource.getRootPath())));
+        params.setMatchesPerPage(1000);
+        for (CmsGallerySearchResult res : m_galleryIndex.search(cms, params)) {
+            if (res.getStructureId().equals(resource.getStructureId().toString())) {
+                return res.getResource();
+            }
+        }
+        fail("Resource " + resource.getRootPath() + " not found in the gallery index");
+        return null;
+    }
+}
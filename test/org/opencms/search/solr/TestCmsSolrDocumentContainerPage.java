@@ -0,0 +1,185 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.solr;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeXmlContainerPage;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsCacheStatistics;
+import org.opencms.search.documents.CmsElementExtractionCache;
+import org.opencms.search.extractors.I_CmsExtractionResult;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.xml.containerpage.TestCmsXmlContainerPage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the extraction of container pages with the shared element extraction cache.<p>
+ */
+public class TestCmsSolrDocumentContainerPage extends OpenCmsTestCase {
+
+    /** The number of elements used on the generated pages. */
+    private static final int ELEMENTS = 10;
+
+    /** The number of elements on each generated page. */
+    private static final int ELEMENTS_PER_PAGE = 5;
+
+    /** The number of generated container pages. */
+    private static final int PAGES = 100;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param name JUnit parameters
+     */
+    public TestCmsSolrDocumentContainerPage(String name) {
+
+        super(name);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsSolrDocumentContainerPage.class.getName());
+
+        suite.addTest(new TestCmsSolrDocumentContainerPage("testRebuildContainerPages"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("ade-setup", "/");
+                importData("adetest", "/sites/default/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Extracts generated container pages sharing their elements with and without the element cache.<p>
+     *
+     * The extraction without the cache is simulated by clearing the cache before each page. The cache hits are
+     * checked, the times are only reported.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testRebuildContainerPages() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Extracting " + PAGES + " container pages with shared elements");
+
+        CmsResource formatter = cms.readResource("/containerpage/formatter.jsp");
+        List<CmsResource> elements = new ArrayList<CmsResource>(ELEMENTS);
+        for (int i = 0; i < ELEMENTS; i++) {
+            String path = "/containerpage/element_" + i + ".html";
+            cms.copyResource("/containerpage/content.html", path);
+            elements.add(cms.readResource(path));
+        }
+        List<CmsResource> pages = new ArrayList<CmsResource>(PAGES);
+        for (int i = 0; i < PAGES; i++) {
+            List<CmsResource> pageElements = new ArrayList<CmsResource>(ELEMENTS_PER_PAGE);
+            for (int j = 0; j < ELEMENTS_PER_PAGE; j++) {
+                pageElements.add(elements.get(((i * 3) + j) % ELEMENTS));
+            }
+            Map<String, List<CmsResource>> containers = new HashMap<String, List<CmsResource>>();
+            containers.put("cnt", pageElements);
+            Map<String, Map<String, List<CmsResource>>> locales = new HashMap<String, Map<String, List<CmsResource>>>();
+            locales.put("en", containers);
+            pages.add(
+                cms.createResource(
+                    "/containerpage/page_" + i + ".html",
+                    CmsResourceTypeXmlContainerPage.getContainerPageTypeId(),
+                    TestCmsXmlContainerPage.generateContainerPage(formatter, locales).getBytes("UTF-8"),
+                    new ArrayList<CmsProperty>()));
+        }
+
+        CmsSolrIndex index = new CmsSolrIndex("Element cache test");
+        CmsSolrDocumentContainerPage factory = new CmsSolrDocumentContainerPage(
+            CmsSolrDocumentContainerPage.TYPE_CONTAINERPAGE_SOLR);
+        CmsElementExtractionCache cache = OpenCms.getSearchManager().getElementExtractionCache();
+        CmsCacheStatistics statistics = cache.getStatistics();
+
+        // without the cache, every element of every page is extracted
+        List<String> expected = new ArrayList<String>(PAGES);
+        long start = System.currentTimeMillis();
+        for (CmsResource page : pages) {
+            cache.clear();
+            expected.add(factory.extractContent(cms, page, index).getContent());
+        }
+        long uncachedTime = System.currentTimeMillis() - start;
+
+        // with the cache, each element is only extracted once
+        cache.clear();
+        long hits = statistics.getHits();
+        long misses = statistics.getMisses();
+        start = System.currentTimeMillis();
+        for (int i = 0; i < PAGES; i++) {
+            I_CmsExtractionResult result = factory.extractContent(cms, pages.get(i), index);
+            assertEquals(expected.get(i), result.getContent());
+        }
+        long cachedTime = System.currentTimeMillis() - start;
+
+        assertEquals(ELEMENTS, statistics.getMisses() - misses);
+        assertEquals((PAGES * ELEMENTS_PER_PAGE) - ELEMENTS, statistics.getHits() - hits);
+        echo(
+            "Extracting "
+                + PAGES
+                + " container pages took "
+                + uncachedTime
+                + " ms without and "
+                + cachedTime
+                + " ms with the element cache ("
+                + statistics
+                + ")");
+    }
+}
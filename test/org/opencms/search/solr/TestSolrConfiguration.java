@@ -97,12 +97,14 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         TestSuite suite = new TestSuite();
         suite.setName(TestSolrConfiguration.class.getName());
         suite.addTest(new TestSolrConfiguration("testPermissionHandling"));
+        suite.addTest(new TestSolrConfiguration("testPermissionFilter"));
         suite.addTest(new TestSolrConfiguration("testExtractionResults"));
         // suite.addTest(new TestSolrConfiguration("testIndexingPerformance"));
         // suite.addTest(new TestSolrConfiguration("testMultipleIndices"));
         // suite.addTest(new TestSolrConfiguration("testMultipleLanguages"));
         suite.addTest(new TestSolrConfiguration("testReindexPublishedSiblings"));
         suite.addTest(new TestSolrConfiguration("testPostProcessor"));
+        suite.addTest(new TestSolrConfiguration("testResultCache"));
         suite.addTest(new TestSolrConfiguration("testShutDown"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -160,7 +162,46 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
      */
     public void testIndexingPerformance() throws Throwable {
 
-        // TODO: implement
+        echo("Testing indexing throughput of the embedded Solr server with and without update batching");
+        CmsObject cms = getCmsObject();
+        String folder = "/perftest/";
+        int count = 1000;
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        for (int i = 0; i < count; i++) {
+            cms.createResource(
+                folder + "file_" + i + ".txt",
+                CmsResourceTypePlain.getStaticTypeId(),
+                ("Indexing performance test content number " + i).getBytes(),
+                null);
+        }
+        OpenCms.getPublishManager().publishProject(cms, new CmsShellReport(cms.getRequestContext().getLocale()));
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsSolrConfiguration conf = OpenCms.getSearchManager().getSolrServerConfiguration();
+        int batchSize = conf.getUpdateBatchSize();
+        CmsSolrQuery squery = new CmsSolrQuery(cms, null);
+        squery.setSearchRoots(cms.getRequestContext().addSiteRoot(folder));
+        squery.setRows(Integer.valueOf(1));
+        try {
+            conf.setUpdateBatchSize("1");
+            long start = System.currentTimeMillis();
+            OpenCms.getSearchManager().rebuildIndex(AllTests.SOLR_ONLINE, new CmsShellReport(Locale.ENGLISH));
+            long single = System.currentTimeMillis() - start;
+            CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+            long singleFound = index.search(cms, squery).getNumFound();
+
+            conf.setUpdateBatchSize(String.valueOf(Math.max(batchSize, 100)));
+            start = System.currentTimeMillis();
+            OpenCms.getSearchManager().rebuildIndex(AllTests.SOLR_ONLINE, new CmsShellReport(Locale.ENGLISH));
+            long batched = System.currentTimeMillis() - start;
+            long batchedFound = index.search(cms, squery).getNumFound();
+
+            echo("Rebuild without batching: " + single + " ms, with batching: " + batched + " ms");
+            assertEquals(count, singleFound);
+            assertEquals(singleFound, batchedFound);
+        } finally {
+            conf.setUpdateBatchSize(String.valueOf(batchSize));
+        }
     }
 
     /**
@@ -179,6 +220,46 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         // TODO: implement
     }
 
+    /**
+     * Tests that the permission filter returns the same results as the permission check for every hit.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPermissionFilter() throws Throwable {
+
+        echo("Testing search with the permission filter by comparing the results with the permission check");
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        index.clearResultCache();
+
+        CmsSolrQuery squery = new CmsSolrQuery(getCmsObject(), null);
+        squery.setSearchRoots("/sites/default/");
+        squery.setRows(new Integer(100));
+
+        String[] users = {"Admin", "test1", "test2", "Guest"};
+        List<List<String>> expected = new ArrayList<List<String>>();
+        for (String user : users) {
+            CmsObject cms = OpenCms.initCmsObject(getCmsObject(), new CmsContextInfo(user));
+            expected.add(getRootPaths(index.search(cms, squery.clone())));
+        }
+
+        index.addConfigurationParameter(CmsSearchIndex.PERMISSION_FILTER, "true");
+        try {
+            index.clearResultCache();
+            for (int i = 0; i < users.length; i++) {
+                CmsObject cms = OpenCms.initCmsObject(getCmsObject(), new CmsContextInfo(users[i]));
+                CmsSolrResultList results = index.search(cms, squery.clone());
+                AllTests.printResults(cms, results, false);
+                assertEquals(expected.get(i).size(), results.getNumFound());
+                assertEquals(expected.get(i), getRootPaths(results));
+            }
+            // the filter for the administrator is never created, all other filters are cached
+            assertTrue(OpenCms.getSearchManager().getPermissionFilter().getStatistics().getMisses() > 0);
+        } finally {
+            index.addConfigurationParameter(CmsSearchIndex.PERMISSION_FILTER, "false");
+            index.clearResultCache();
+        }
+    }
+
     /**
      * @throws Throwable
      */
@@ -222,6 +303,47 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         assertEquals(getVfsPrefix() + "/xmlcontent/article_0001.html", link);
     }
 
+    /**
+     * Tests that repeated searches are served from the result cache and that the cache is cleared on index changes.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testResultCache() throws Throwable {
+
+        echo("Testing the Solr search result cache");
+        CmsObject cms = getCmsObject();
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        CmsSolrResultCache cache = index.getResultCache();
+        assertNotNull(cache);
+        cache.clear();
+
+        CmsSolrQuery squery = new CmsSolrQuery(cms, null);
+        squery.setSearchRoots("/sites/default/");
+        squery.setRows(Integer.valueOf(10));
+        long hits = cache.getStatistics().getHits();
+        CmsSolrResultList first = index.search(cms, squery.clone());
+        CmsSolrResultList second = index.search(cms, squery.clone());
+        assertEquals(hits + 1, cache.getStatistics().getHits());
+        assertEquals(first.getNumFound(), second.getNumFound());
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getRootPath(), second.get(i).getRootPath());
+            // the cached page is read again by id, the scores of the original query are kept
+            assertEquals(first.get(i).getDocument().getScore(), second.get(i).getDocument().getScore(), 0.0001f);
+        }
+
+        // another user must not get the cached result
+        CmsObject test1 = OpenCms.initCmsObject(getCmsObject(), new CmsContextInfo("test1"));
+        CmsSolrResultList restricted = index.search(test1, squery.clone());
+        assertEquals(hits + 1, cache.getStatistics().getHits());
+        assertTrue(restricted.getNumFound() <= first.getNumFound());
+
+        // changing the index clears the cache
+        OpenCms.getSearchManager().rebuildIndex(AllTests.SOLR_ONLINE, new CmsShellReport(Locale.ENGLISH));
+        index.search(cms, squery.clone());
+        assertEquals(hits + 1, cache.getStatistics().getHits());
+    }
+
     /**
      * Test result count for changed content of two siblings.<p>
      *
@@ -356,4 +478,20 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         }
         return m_vfsPrefix;
     }
+
+    /**
+     * Returns the root paths of the given search results.<p>
+     *
+     * @param results the search results
+     *
+     * @return the root paths of the search results
+     */
+    private List<String> getRootPaths(CmsSolrResultList results) {
+
+        List<String> result = new ArrayList<String>();
+        for (CmsSearchResource resource : results) {
+            result.add(resource.getRootPath());
+        }
+        return result;
+    }
 }
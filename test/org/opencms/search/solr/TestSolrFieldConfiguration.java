@@ -48,6 +48,11 @@ import org.opencms.security.CmsRoleViolationException;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.util.CmsRequestUtil;
+import org.opencms.xml.CmsXmlContentDefinition;
+import org.opencms.xml.content.CmsXmlContent;
+import org.opencms.xml.content.CmsXmlContentFactory;
+import org.opencms.xml.content.I_CmsXmlContentHandler;
+import org.opencms.xml.types.I_CmsXmlContentValue;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -95,6 +100,7 @@ public class TestSolrFieldConfiguration extends OpenCmsTestCase {
         suite.addTest(new TestSolrFieldConfiguration("testAppinfoSolrField"));
         suite.addTest(new TestSolrFieldConfiguration("testContentLocalesField"));
         suite.addTest(new TestSolrFieldConfiguration("testDependencies"));
+        suite.addTest(new TestSolrFieldConfiguration("testExtractionPlan"));
         suite.addTest(new TestSolrFieldConfiguration("testLanguageDetection"));
         suite.addTest(new TestSolrFieldConfiguration("testLocaleDependenciesField"));
         suite.addTest(new TestSolrFieldConfiguration("testLuceneMigration"));
@@ -446,6 +452,36 @@ public class TestSolrFieldConfiguration extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests that the extraction plan of a content definition matches its content handler.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testExtractionPlan() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        CmsResource resource = cms.readResource("/xmlcontent/article_0001.html");
+        CmsXmlContent content = CmsXmlContentFactory.unmarshal(cms, cms.readFile(resource));
+        CmsXmlContentDefinition definition = content.getContentDefinition();
+        I_CmsXmlContentHandler handler = definition.getContentHandler();
+
+        CmsSolrExtractionPlan plan = CmsSolrExtractionPlan.get(cms, definition);
+        assertSame(plan, CmsSolrExtractionPlan.get(cms, definition));
+        assertEquals(handler.isContainerPageOnly(), plan.isContainerPageOnly());
+        assertEquals(handler.getSearchFields(), plan.getSearchFields());
+        assertEquals(handler.getSearchFieldsForPage(), plan.getSearchFieldsForPage());
+
+        for (Locale locale : content.getLocales()) {
+            for (String xpath : content.getNames(locale)) {
+                I_CmsXmlContentValue value = content.getValue(xpath, locale);
+                boolean expected = value.getContentDefinition().getContentHandler().isSearchable(value);
+                // the first call resolves the setting, the second one uses the resolved setting
+                assertEquals(xpath, expected, plan.isSearchable(value));
+                assertEquals(xpath, expected, plan.isSearchable(value));
+            }
+        }
+    }
+
     /**
      * @throws Throwable if something goes wrong
      */
@@ -59,6 +59,7 @@ public final class AllTests {
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
         suite.addTest(TestCmsLinkManager.suite());
+        suite.addTest(TestCmsLinkProcessor.suite());
         suite.addTest(TestCmsStaticExportManager.suite());
         suite.addTest(TestExportFile.suite());
         suite.addTest(TestSecure.suite());
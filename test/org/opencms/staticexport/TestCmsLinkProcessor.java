@@ -0,0 +1,239 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.staticexport;
+
+import org.opencms.file.CmsObject;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the link processing with link templates.<p>
+ *
+ * @since 10.5.0
+ */
+public class TestCmsLinkProcessor extends OpenCmsTestCase {
+
+    /** The encoding used for the tests. */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsLinkProcessor(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsLinkProcessor.class.getName());
+
+        suite.addTest(new TestCmsLinkProcessor("testLinkTemplate"));
+        suite.addTest(new TestCmsLinkProcessor("testLinkTemplatePerformance"));
+        suite.addTest(new TestCmsLinkProcessor("testLinkTemplateReuse"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that links processed with a link template are identical to links processed with the HTML parser.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testLinkTemplate() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing link processing with link templates");
+
+        String html = "<p>Text with <a href=\"/folder1/page1.html\">a link</a>, "
+            + "<a href='/folder1/page2.html?a=b&amp;c=d#anchor'>single quotes</a>, "
+            + "<a href=/folder1/page3.html>no quotes</a> and "
+            + "<a href=\"http://www.alkacon.com/\" target=\"_blank\">an external link</a>.</p>\n"
+            + "<img src=\"/folder1/image1.gif\" alt=\"image\" /><!-- <a href=\"/folder1/page1.html\"> -->\n"
+            + "<object codebase=\"/folder1/\"><param name=\"movie\" value=\"/folder1/image2.gif?\"></object>\n"
+            + "<embed src=\"/folder1/image1.gif\"><map><area href=\"/folder1/page4.html\" shape=\"rect\"></map>\n"
+            + "<div><a href=\"/folder1/page1.html\">unclosed link</div>";
+        CmsLinkTable linkTable = new CmsLinkTable();
+        String content = new CmsLinkProcessor(cms, linkTable, ENCODING, null).replaceLinks(html);
+        assertFalse(linkTable.isEmpty());
+
+        String expected = processWithParser(cms, linkTable, content);
+        long hits = CmsLinkProcessor.getTemplateCacheStatistics().getHits();
+        long misses = CmsLinkProcessor.getTemplateCacheStatistics().getMisses();
+        assertEquals(expected, new CmsLinkProcessor(cms, linkTable, ENCODING, null).processLinks(content));
+        assertEquals(misses + 1, CmsLinkProcessor.getTemplateCacheStatistics().getMisses());
+        assertEquals(expected, new CmsLinkProcessor(cms, linkTable, ENCODING, null).processLinks(content));
+        assertEquals(hits + 1, CmsLinkProcessor.getTemplateCacheStatistics().getHits());
+
+        // the same template is used for other links
+        cms.getRequestContext().setCurrentProject(cms.readProject("Online"));
+        cms.getRequestContext().setUri("/folder1/page4.html");
+        expected = processWithParser(cms, linkTable, content);
+        assertEquals(expected, new CmsLinkProcessor(cms, linkTable, ENCODING, null).processLinks(content));
+        assertEquals(hits + 2, CmsLinkProcessor.getTemplateCacheStatistics().getHits());
+    }
+
+    /**
+     * Compares the time needed to process the links of a long HTML text with the parser and with a link template.<p>
+     *
+     * The results of both ways must be identical, the times are only reported.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testLinkTemplatePerformance() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Comparing link processing with the HTML parser and with link templates");
+
+        CmsLinkTable linkTable = new CmsLinkTable();
+        String content = new CmsLinkProcessor(cms, linkTable, ENCODING, null).replaceLinks(generateLongHtml());
+        assertFalse(linkTable.isEmpty());
+
+        int runs = 20;
+        String expected = processWithParser(cms, linkTable, content);
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            assertEquals(expected, processWithParser(cms, linkTable, content));
+        }
+        long parserTime = System.nanoTime() - start;
+
+        // create the template before measuring
+        assertEquals(expected, new CmsLinkProcessor(cms, linkTable, ENCODING, null).processLinks(content));
+        start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            assertEquals(expected, new CmsLinkProcessor(cms, linkTable, ENCODING, null).processLinks(content));
+        }
+        long templateTime = System.nanoTime() - start;
+
+        echo(
+            "Processed "
+                + content.length()
+                + " chars with "
+                + linkTable.size()
+                + " links: parser "
+                + ((parserTime / runs) / 1000)
+                + " us, template "
+                + ((templateTime / runs) / 1000)
+                + " us per run");
+    }
+
+    /**
+     * Tests that the link template of a long HTML text is created once and then reused for every run.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testLinkTemplateReuse() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the reuse of the link template of a long HTML text");
+
+        CmsLinkTable linkTable = new CmsLinkTable();
+        String content = new CmsLinkProcessor(cms, linkTable, ENCODING, null).replaceLinks(generateLongHtml());
+        assertFalse(linkTable.isEmpty());
+
+        String expected = processWithParser(cms, linkTable, content);
+        long hits = CmsLinkProcessor.getTemplateCacheStatistics().getHits();
+        long misses = CmsLinkProcessor.getTemplateCacheStatistics().getMisses();
+        int runs = 20;
+        for (int i = 0; i < runs; i++) {
+            assertEquals(expected, new CmsLinkProcessor(cms, linkTable, ENCODING, null).processLinks(content));
+        }
+        // the template is only created in the first run
+        assertEquals(misses + 1, CmsLinkProcessor.getTemplateCacheStatistics().getMisses());
+        assertEquals(hits + (runs - 1), CmsLinkProcessor.getTemplateCacheStatistics().getHits());
+    }
+
+    /**
+     * Generates a long HTML text with many links, like a long article.<p>
+     *
+     * @return the HTML text
+     */
+    private String generateLongHtml() {
+
+        StringBuffer html = new StringBuffer(128 * 1024);
+        for (int i = 0; i < 300; i++) {
+            html.append("<h2>Section ").append(i).append("</h2>\n");
+            html.append("<p>Lorem ipsum dolor sit amet, <strong>consectetur</strong> adipiscing elit, ");
+            html.append("see <a href=\"/folder1/page").append((i % 4) + 1).append(".html\">page ").append(i);
+            html.append("</a> and <a href=\"/folder1/subfolder11/page1.html?section=").append(i);
+            html.append("\">the details</a>.</p>\n");
+            if ((i % 10) == 0) {
+                html.append("<p><img src=\"/folder1/image1.gif\" alt=\"\" width=\"100\" height=\"50\" /></p>\n");
+            }
+        }
+        return html.toString();
+    }
+
+    /**
+     * Processes the links in the given content with the HTML parser, without using a link template.<p>
+     *
+     * @param cms the current OpenCms context
+     * @param linkTable the link table
+     * @param content the content to process
+     *
+     * @return the processed content
+     *
+     * @throws Exception in case something goes wrong
+     */
+    private String processWithParser(CmsObject cms, CmsLinkTable linkTable, String content) throws Exception {
+
+        CmsLinkProcessor processor = new CmsLinkProcessor(cms, linkTable, ENCODING, null) {
+            // subclasses always use the HTML parser
+        };
+        return processor.processLinks(content);
+    }
+}
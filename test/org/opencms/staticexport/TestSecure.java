@@ -30,6 +30,8 @@ package org.opencms.staticexport;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
 import org.opencms.file.CmsRequestContext;
 import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.main.OpenCms;
@@ -82,6 +84,7 @@ public class TestSecure extends OpenCmsTestCase {
         suite.addTest(new TestSecure("testSecureServerConfig"));
         suite.addTest(new TestSecure("testLinkInXmlPage"));
         suite.addTest(new TestSecure("testSecureLinkProcessing"));
+        suite.addTest(new TestSecure("testSecureLinkCache"));
         suite.addTest(new TestSecure("testSetupSecondSite"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -129,6 +132,69 @@ public class TestSecure extends OpenCmsTestCase {
 
     }
 
+    /**
+     * Tests that cached links are replaced when the secure property of the link target is published.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testSecureLinkCache() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the link cache");
+        CmsDefaultLinkSubstitutionHandler handler = new CmsDefaultLinkSubstitutionHandler();
+        CmsLinkSubstitutionCache cache = handler.getLinkCache();
+        assertNotNull(cache);
+
+        try {
+            CmsObject onlineCms = OpenCms.initCmsObject(cms);
+            onlineCms.getRequestContext().setCurrentProject(cms.readProject("Online"));
+            onlineCms.getRequestContext().setUri("/folder1/page1.html");
+            String target = "/folder1/page3.html";
+            String other = "/folder1/page4.html";
+            String otherLink = handler.getLink(onlineCms, other, null, false);
+
+            String link = handler.getLink(onlineCms, target, null, false);
+            assertHasNoPrefix(link);
+            long hits = cache.getStatistics().getHits();
+            assertEquals(link, handler.getLink(onlineCms, target, null, false));
+            assertEquals(hits + 1, cache.getStatistics().getHits());
+
+            // online links are shared by all users
+            CmsObject guestCms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+            guestCms.getRequestContext().setSiteRoot(onlineCms.getRequestContext().getSiteRoot());
+            guestCms.getRequestContext().setLocale(onlineCms.getRequestContext().getLocale());
+            guestCms.getRequestContext().setUri("/folder1/page1.html");
+            assertEquals(link, handler.getLink(guestCms, target, null, false));
+            assertEquals(hits + 2, cache.getStatistics().getHits());
+
+            // make the target secure, the cached link must be removed when publishing
+            cms.lockResource(target);
+            cms.writePropertyObject(target, new CmsProperty(CmsPropertyDefinition.PROPERTY_SECURE, "true", null));
+            cms.unlockResource(target);
+            OpenCms.getPublishManager().publishProject(cms);
+            OpenCms.getPublishManager().waitWhileRunning();
+            assertHasSecurePrefix(handler.getLink(onlineCms, target, null, false));
+
+            // links to other resources are not affected by the change
+            hits = cache.getStatistics().getHits();
+            assertEquals(otherLink, handler.getLink(onlineCms, other, null, false));
+            assertEquals(hits + 1, cache.getStatistics().getHits());
+
+            // restore the original state
+            cms.lockResource(target);
+            cms.writePropertyObject(
+                target,
+                new CmsProperty(CmsPropertyDefinition.PROPERTY_SECURE, CmsProperty.DELETE_VALUE, null));
+            cms.unlockResource(target);
+            OpenCms.getPublishManager().publishProject(cms);
+            OpenCms.getPublishManager().waitWhileRunning();
+            assertHasNoPrefix(handler.getLink(onlineCms, target, null, false));
+        } finally {
+            // the cache of the handler is registered as event listener
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
     /**
      * Test if links to secure pages are secure.<p>
      *
@@ -28,6 +28,7 @@
 package org.opencms.synchronize;
 
 import org.opencms.db.CmsUserSettings;
+import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
@@ -38,10 +39,12 @@ import org.opencms.main.OpenCms;
 import org.opencms.report.CmsShellReport;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.test.OpenCmsTestResourceFilter;
 import org.opencms.util.CmsFileUtil;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -81,6 +84,7 @@ public class TestSynchronize extends OpenCmsTestCase {
         suite.addTest(new TestSynchronize("testSynchronize"));
         suite.addTest(new TestSynchronize("testLoadSaveSynchronizeSettings"));
         suite.addTest(new TestSynchronize("testSynchronizeSeveralFolders"));
+        suite.addTest(new TestSynchronize("testSynchronizeUnchanged"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -330,6 +334,92 @@ public class TestSynchronize extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests that a second synchronization does not modify unchanged resources.<p>
+     *
+     * Also checks that the sync state is stored in the binary sync state file
+     * including the content hashes of the files, and that a file touched in the RFS
+     * without changing its content only gets a new modification date in the VFS.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSynchronizeUnchanged() throws Exception {
+
+        String source = "/sites/default/folder1/";
+
+        CmsSynchronizeSettings syncSettings = new CmsSynchronizeSettings();
+
+        String dest = getTestDataPath("") + "sync3" + File.separator;
+        File destFolder = new File(dest);
+        if (!destFolder.exists()) {
+            destFolder.mkdirs();
+        }
+
+        syncSettings.setDestinationPathInRfs(dest);
+        ArrayList sourceList = new ArrayList();
+        sourceList.add(source);
+        syncSettings.setSourceListInVfs(sourceList);
+        syncSettings.setEnabled(true);
+
+        try {
+            CmsObject cms = getCmsObject();
+            echo("Testing synchronization of unchanged resources");
+
+            cms.getRequestContext().setSiteRoot("/");
+
+            // synchronize everything to the RFS
+            new CmsSynchronize(cms, syncSettings, new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            assertTrue(new File(dest, CmsSynchronize.SYNCSTATE_FILENAME).exists());
+            assertFalse(new File(dest, CmsSynchronize.SYNCLIST_FILENAME).exists());
+
+            List tree = cms.readResources(source, CmsResourceFilter.ALL);
+            storeResources(cms, source);
+            List rfsDates = new ArrayList();
+            for (int i = 0, n = tree.size(); i < n; i++) {
+                CmsResource resource = (CmsResource)tree.get(i);
+                rfsDates.add(new Long(new File(getRfsPath(cms, resource, syncSettings)).lastModified()));
+            }
+
+            // synchronize again, nothing has changed
+            new CmsSynchronize(cms, syncSettings, new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            for (int i = 0, n = tree.size(); i < n; i++) {
+                CmsResource resource = (CmsResource)tree.get(i);
+                String vfsname = cms.getSitePath(resource);
+                assertFilter(cms, vfsname, OpenCmsTestResourceFilter.FILTER_EQUAL);
+                File rfsResource = new File(getRfsPath(cms, resource, syncSettings));
+                assertEquals(vfsname, ((Long)rfsDates.get(i)).longValue(), rfsResource.lastModified());
+            }
+
+            // touch a file in the RFS without changing its content
+            String touched = source + "page1.html";
+            CmsFile before = cms.readFile(touched, CmsResourceFilter.ALL);
+            touchResourceInRfs(cms, before, syncSettings);
+            File touchedFile = new File(getRfsPath(cms, before, syncSettings));
+            long touchedDate = touchedFile.lastModified();
+
+            // synchronize again, only the modification date of the touched file is updated in the VFS
+            new CmsSynchronize(cms, syncSettings, new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            CmsFile after = cms.readFile(touched, CmsResourceFilter.ALL);
+            assertEquals(touchedDate, after.getDateLastModified());
+            assertEquals(before.getDateContent(), after.getDateContent());
+            assertTrue(Arrays.equals(before.getContents(), after.getContents()));
+            assertEquals(touchedDate, touchedFile.lastModified());
+
+            // a further synchronization does not change the touched file again
+            new CmsSynchronize(cms, syncSettings, new CmsShellReport(cms.getRequestContext().getLocale()));
+            assertEquals(touchedDate, cms.readResource(touched, CmsResourceFilter.ALL).getDateLastModified());
+            assertEquals(touchedDate, touchedFile.lastModified());
+        } finally {
+
+            // remove the test data
+            echo("Purging directory " + dest);
+            CmsFileUtil.purgeDirectory(new File(dest));
+        }
+    }
+
     /**
      * Returns a rfs path for a given resource to be synchronized.<p>
      *
@@ -95,6 +95,7 @@ public final class AllTests {
         suite.addTest(org.opencms.file.types.AllTests.suite());
         suite.addTest(org.opencms.file.wrapper.AllTests.suite());
         suite.addTest(org.opencms.flex.AllTests.suite());
+        suite.addTest(org.opencms.gwt.AllTests.suite());
         suite.addTest(org.opencms.i18n.AllTests.suite());
         suite.addTest(org.opencms.importexport.AllTests.suite());
         suite.addTest(org.opencms.jsp.decorator.AllTests.suite());
@@ -108,6 +109,7 @@ public final class AllTests {
         suite.addTest(org.opencms.relations.AllTests.suite());
         suite.addTest(org.opencms.scheduler.AllTests.suite());
         suite.addTest(org.opencms.search.AllTests.suite());
+        suite.addTest(org.opencms.search.documents.AllTests.suite());
         suite.addTest(org.opencms.search.extractors.AllTests.suite());
         suite.addTest(org.opencms.search.gallery.AllTests.suite());
         suite.addTest(org.opencms.search.solr.AllTests.suite());
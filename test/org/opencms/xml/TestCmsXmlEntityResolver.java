@@ -36,6 +36,8 @@ import org.opencms.util.CmsFileUtil;
 import org.opencms.xml.content.CmsXmlContent;
 import org.opencms.xml.content.CmsXmlContentFactory;
 
+import javax.xml.validation.Schema;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -68,6 +70,7 @@ public class TestCmsXmlEntityResolver extends OpenCmsTestCase {
         TestSuite suite = new TestSuite();
         suite.setName(TestCmsXmlEntityResolver.class.getName());
 
+        suite.addTest(new TestCmsXmlEntityResolver("testCompiledSchemaCache"));
         suite.addTest(new TestCmsXmlEntityResolver("testRemoveNestedSubschemaFromCacheIssue"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -88,6 +91,42 @@ public class TestCmsXmlEntityResolver extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests caching and removing compiled XML schemas.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCompiledSchemaCache() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the compiled XML schema cache");
+
+        String schemaId = "opencms://sites/default/xmlcontent/article.xsd";
+        CmsXmlEntityResolver resolver = new CmsXmlEntityResolver(cms);
+        Schema schema = resolver.getSchema(schemaId);
+        assertNotNull(schema);
+        assertSame(schema, resolver.getSchema(schemaId));
+
+        // validating a content uses the cached schema
+        CmsXmlContent xmlContent = CmsXmlContentFactory.unmarshal(cms, cms.readFile("/xmlcontent/article_0001.html"));
+        xmlContent.validateXmlStructure(resolver);
+        assertSame(schema, resolver.getSchema(schemaId));
+
+        // changing an unrelated file keeps the schema
+        resolver.uncacheSystemId("/sites/default/xmlcontent/article_0001.html");
+        assertSame(schema, resolver.getSchema(schemaId));
+
+        // changing the included schema removes the schema
+        resolver.uncacheSystemId("/opencms-xmlcontent.xsd");
+        Schema schema2 = resolver.getSchema(schemaId);
+        assertNotNull(schema2);
+        assertNotSame(schema, schema2);
+
+        // changing the schema itself removes the schema
+        resolver.uncacheSystemId("/sites/default/xmlcontent/article.xsd");
+        assertNotSame(schema2, resolver.getSchema(schemaId));
+    }
+
     /**
      * Tests the "wrong version of nested subschema still cached after change in VFS" issue.<p>
      *